@@ -0,0 +1,86 @@
+package com.example.webhosting.config;
+
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.RevokedTokenRepository;
+import com.example.webhosting.service.TokenRevocationService;
+import com.example.webhosting.service.UserService;
+import com.example.webhosting.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인증 필터의 요청당 비용 (토큰 파싱 + 폐기 목록 조회 + 사용자 조회).
+ * 사용자 조회는 DB 비용을 빼기 위해 메모리 스텁을 사용한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthenticationFilterBenchmark {
+    
+    @Param({"valid", "revoked"})
+    public String tokenState;
+    
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (req, res) -> { };
+    
+    @Setup
+    public void setup() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "myWebHostingSecretKeyForJWTTokenGenerationMustBeLongEnough");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 900000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        
+        TokenRevocationService revocation = new TokenRevocationService();
+        ReflectionTestUtils.setField(revocation, "revokedTokenRepository", emptyRevokedTokenRepository());
+        ReflectionTestUtils.setField(revocation, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(revocation, "expectedInsertions", 100000);
+        ReflectionTestUtils.setField(revocation, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.invokeMethod(revocation, "load");
+        
+        User user = new User();
+        user.setUsername("benchmark-user");
+        UserService userService = new UserService() {
+            @Override
+            public User findByUsername(String username) {
+                return user;
+            }
+        };
+        
+        String token = jwtUtil.generateToken("benchmark-user");
+        if ("revoked".equals(tokenState)) {
+            Claims claims = jwtUtil.parseValidClaims(token);
+            // 저장소 호출 없이 메모리 구조에만 반영
+            ReflectionTestUtils.invokeMethod(revocation, "remember", claims.getId(), claims.getExpiration().getTime());
+        }
+        
+        filter = new JwtAuthenticationFilter(jwtUtil, userService, revocation);
+        request = new MockHttpServletRequest("GET", "/host");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+    
+    @Benchmark
+    public Object doFilterInternal() throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilterInternal(request, response, chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+    
+    private static RevokedTokenRepository emptyRevokedTokenRepository() {
+        return (RevokedTokenRepository) Proxy.newProxyInstance(
+            RevokedTokenRepository.class.getClassLoader(),
+            new Class<?>[] { RevokedTokenRepository.class },
+            (proxy, method, args) -> method.getName().equals("findByExpiresAtAfter") ? List.of() : null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.webhosting.dto;
+
+import com.example.webhosting.entity.Host;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * GET /host 응답 생성 비용: 엔티티 → DTO 변환과 Jackson 직렬화.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HostResponseSerializationBenchmark {
+    
+    @Param({"10", "1000", "10000"})
+    public int hostCount;
+    
+    private List<Host> hosts;
+    private ApiResponse<List<HostResponseDto>> response;
+    private ObjectMapper objectMapper;
+    
+    @Setup
+    public void setup() {
+        // spring.jackson.serialization.write-dates-as-timestamps=false 와 동일한 설정
+        objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        
+        hosts = new ArrayList<>(hostCount);
+        for (int i = 0; i < hostCount; i++) {
+            Host host = new Host();
+            host.setId((long) i);
+            host.setHostName("host-" + i);
+            host.setVmId("6f1c7a4e-0000-4000-8000-" + String.format("%012d", i));
+            host.setVmName("webhosting-host-" + i);
+            host.setVmIP("10.0.2.15");
+            host.setPort80(8000 + i % 1000);
+            host.setPort22(2200 + i % 800);
+            host.setStatus(i % 10 == 0 ? Host.HostStatus.CREATING : Host.HostStatus.RUNNING);
+            host.setCreatedAt(LocalDateTime.now());
+            hosts.add(host);
+        }
+        response = ApiResponse.success("호스트 목록 조회 성공", map());
+    }
+    
+    @Benchmark
+    public List<HostResponseDto> map() {
+        return hosts.stream().map(HostResponseDto::from).collect(Collectors.toList());
+    }
+    
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+    
+    @Benchmark
+    public byte[] mapAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(ApiResponse.success("호스트 목록 조회 성공", map()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.WebhostingApplication;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 호스트 목록/생성의 저장소 처리량을 개발 설정(메모리 DB, SQL/바인딩 로그)과 운영 프로필(파일 DB, Hikari, Flyway 인덱스)로 비교한다.
+ * 애플리케이션 컨텍스트 전체를 띄우므로 HTTP/보안 계층을 뺀 JPA + 커넥션 풀 + 로깅 비용이 측정된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PersistenceBenchmark {
+    
+    private static final int USERS = 100;
+    private static final int HOSTS_PER_USER = 20;
+    
+    @Param({"default", "prod"})
+    public String profile;
+    
+    private ConfigurableApplicationContext context;
+    private HostRepository hostRepository;
+    private List<User> users;
+    private Path dataDir;
+    private final AtomicLong sequence = new AtomicLong();
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dataDir = Files.createTempDirectory("persistence-benchmark");
+        context = new SpringApplicationBuilder(WebhostingApplication.class)
+            .profiles(profile.equals("prod") ? new String[] {"prod"} : new String[0])
+            .run("--server.port=0", "--proxy.port=0", "--management.server.port=0",
+                 "--health.enabled=false", "--spring.devtools.restart.enabled=false",
+                 "--hosting.data-dir=" + dataDir.toAbsolutePath());
+        hostRepository = context.getBean(HostRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        
+        // 사용자마다 호스트 20개가 있는 상태에서 측정
+        users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("bench-" + i);
+            user.setPassword("secret");
+            user.setEmail("bench-" + i + "@example.com");
+            users.add(userRepository.save(user));
+        }
+        List<Host> hosts = new ArrayList<>();
+        for (User user : users) {
+            for (int i = 0; i < HOSTS_PER_USER; i++) {
+                hosts.add(host(user, "seed-" + i));
+            }
+        }
+        hostRepository.saveAll(hosts);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+        try (var files = Files.walk(dataDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public List<Host> listHosts() {
+        User user = users.get((int) (sequence.incrementAndGet() % USERS));
+        return hostRepository.findByUserOrderByCreatedAtDesc(user);
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public Host createHost() {
+        long n = sequence.incrementAndGet();
+        return hostRepository.save(host(users.get((int) (n % USERS)), "site-" + n));
+    }
+    
+    private static Host host(User user, String hostName) {
+        Host host = new Host();
+        host.setHostName(hostName);
+        host.setNameKey(user.getId() + "/" + hostName);
+        host.setUser(user);
+        return host;
+    }
+}
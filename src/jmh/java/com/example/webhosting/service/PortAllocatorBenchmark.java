@@ -0,0 +1,41 @@
+package com.example.webhosting.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 생성 요청이 몰릴 때의 포트 할당/반환 비용.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PortAllocatorBenchmark {
+    
+    private PortAllocator.PortPool pool;
+    
+    @Setup
+    public void setup() {
+        pool = new PortAllocator.PortPool("web", 8000, 8999);
+        // 절반 정도 사용 중인 상태에서 측정
+        for (int i = 0; i < 500; i++) {
+            pool.allocate();
+        }
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public int allocateAndReleaseUncontended() {
+        int port = pool.allocate();
+        pool.release(port);
+        return port;
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public int allocateAndReleaseContended() {
+        int port = pool.allocate();
+        pool.release(port);
+        return port;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.webhosting.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getVMUUID / getVMStatus 의 showvminfo --machinereadable 출력 파싱 비용.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VBoxOutputParsingBenchmark {
+    
+    private String output;
+    
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("name=\"webhosting-site-1700000000000\"\n");
+        sb.append("groups=\"/\"\n");
+        sb.append("ostype=\"Ubuntu (64-bit)\"\n");
+        sb.append("UUID=\"6f1c7a4e-3b2d-4c1e-9a7f-1d2e3f4a5b6c\"\n");
+        sb.append("CfgFile=\"/root/VirtualBox VMs/webhosting-site/webhosting-site.vbox\"\n");
+        sb.append("memory=1024\n");
+        sb.append("vram=8\n");
+        sb.append("cpus=1\n");
+        // 실제 출력처럼 VMState 는 뒤쪽에 위치
+        for (int i = 0; i < 120; i++) {
+            sb.append("setting").append(i).append("=\"value-").append(i).append("\"\n");
+        }
+        sb.append("Forwarding(0)=\"web,tcp,,8000,,80\"\n");
+        sb.append("Forwarding(1)=\"ssh,tcp,,2200,,22\"\n");
+        sb.append("VMState=\"running\"\n");
+        sb.append("VMStateChangeTime=\"2024-01-01T00:00:00.000000000\"\n");
+        output = sb.toString();
+    }
+    
+    @Benchmark
+    public String uuid() {
+        return VirtualBoxService.machineReadableValue(output, "UUID");
+    }
+    
+    @Benchmark
+    public String vmState() {
+        return VirtualBoxService.machineReadableValue(output, "VMState");
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.webhosting.util;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtUtilBenchmark {
+    
+    private JwtUtil jwtUtil;
+    private String token;
+    
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "myWebHostingSecretKeyForJWTTokenGenerationMustBeLongEnough");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 900000L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken("benchmark-user");
+    }
+    
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("benchmark-user");
+    }
+    
+    @Benchmark
+    public Claims parseValidClaims() {
+        return jwtUtil.parseValidClaims(token);
+    }
+}
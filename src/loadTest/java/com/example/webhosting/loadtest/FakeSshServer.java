@@ -0,0 +1,114 @@
+package com.example.webhosting.loadtest;
+
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.ServerBuilder;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.command.Command;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 게스트 VM 대신 프로비저닝 SSH 접속을 받는 내장 SSH 서버.
+ * 호스트마다 다른 SSH 포워딩 포트로 접속하므로 하나의 서버를 포트 범위 전체에 바인딩한다.
+ * ubuntu/ubuntu 로그인만 허용하고, 모든 명령은 지정된 지연 후 성공(종료코드 0)으로 끝난다.
+ */
+class FakeSshServer implements AutoCloseable {
+    
+    private final SshServer server;
+    private final ExecutorService commandExecutor = Executors.newCachedThreadPool();
+    private final AtomicLong commandCount = new AtomicLong();
+    
+    FakeSshServer(int startPort, int endPort, long commandLatencyMillis, Path hostKeyFile) throws IOException {
+        server = ServerBuilder.builder().factory(MultiPortSshServer::new).build();
+        server.setHost("127.0.0.1");
+        server.setPort(startPort);
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(hostKeyFile));
+        server.setPasswordAuthenticator((username, password, session) ->
+            "ubuntu".equals(username) && "ubuntu".equals(password));
+        server.setCommandFactory((channel, command) -> new FakeCommand(command, commandLatencyMillis));
+        server.start();
+        
+        for (int port = startPort + 1; port <= endPort; port++) {
+            ((MultiPortSshServer) server).bind(new InetSocketAddress("127.0.0.1", port));
+        }
+    }
+    
+    long getCommandCount() {
+        return commandCount.get();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        server.stop(true);
+        commandExecutor.shutdownNow();
+    }
+    
+    static class MultiPortSshServer extends SshServer {
+        void bind(InetSocketAddress address) throws IOException {
+            acceptor.bind(address);
+        }
+    }
+    
+    private class FakeCommand implements Command {
+        private final String command;
+        private final long latencyMillis;
+        private OutputStream out;
+        private ExitCallback exitCallback;
+        
+        FakeCommand(String command, long latencyMillis) {
+            this.command = command;
+            this.latencyMillis = latencyMillis;
+        }
+        
+        @Override
+        public void setInputStream(InputStream in) {
+        }
+        
+        @Override
+        public void setOutputStream(OutputStream out) {
+            this.out = out;
+        }
+        
+        @Override
+        public void setErrorStream(OutputStream err) {
+        }
+        
+        @Override
+        public void setExitCallback(ExitCallback callback) {
+            this.exitCallback = callback;
+        }
+        
+        @Override
+        public void start(ChannelSession channel, Environment env) {
+            commandCount.incrementAndGet();
+            commandExecutor.execute(() -> {
+                try {
+                    if (latencyMillis > 0) {
+                        Thread.sleep(latencyMillis);
+                    }
+                    String summary = command.length() > 60 ? command.substring(0, 60) : command;
+                    out.write(("ok: " + summary + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    exitCallback.onExit(0);
+                } catch (Exception e) {
+                    exitCallback.onExit(1, e.getMessage());
+                }
+            });
+        }
+        
+        @Override
+        public void destroy(ChannelSession channel) {
+        }
+    }
+}
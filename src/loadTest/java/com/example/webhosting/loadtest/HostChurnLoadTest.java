@@ -0,0 +1,344 @@
+package com.example.webhosting.loadtest;
+
+import com.example.webhosting.WebhostingApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 호스트 생성/삭제 반복 부하 테스트.
+ * 가짜 VBoxManage 스크립트와 내장 SSH 서버를 백엔드로 두고, 여러 가상 사용자가
+ * 회원가입/로그인 후 생성 → 목록 → 삭제를 반복한다. 엔드포인트별 처리량과 p50/p99,
+ * 스레드 수, DB 커넥션 사용량을 출력하고 JSON 보고서로 저장한다.
+ *
+ * 조정: -Ploadtest.users, loadtest.duration(초), loadtest.vboxLatencyMs,
+ * loadtest.vboxFailurePercent, loadtest.sshLatencyMs, loadtest.nodes
+ */
+@SpringBootTest(classes = WebhostingApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class HostChurnLoadTest {
+    
+    private static final int WEB_START_PORT = 18000;
+    private static final int SSH_START_PORT = 12200;
+    private static final int PORT_RANGE = 128;
+    
+    private static final int USERS = Integer.getInteger("loadtest.users", 8);
+    private static final long DURATION_SECONDS = Long.getLong("loadtest.duration", 60);
+    private static final long VBOX_LATENCY_MS = Long.getLong("loadtest.vboxLatencyMs", 50);
+    private static final int VBOX_FAILURE_PERCENT = Integer.getInteger("loadtest.vboxFailurePercent", 0);
+    private static final long SSH_LATENCY_MS = Long.getLong("loadtest.sshLatencyMs", 10);
+    private static final int NODES = Integer.getInteger("loadtest.nodes", 3);
+    private static final String BUSY_MESSAGE = "호스트에 다른 작업이 진행 중입니다";
+    
+    private static Path workDir;
+    private static FakeSshServer sshServer;
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private HttpClient client;
+    
+    @DynamicPropertySource
+    static void backends(DynamicPropertyRegistry registry) throws Exception {
+        workDir = Files.createTempDirectory("webhosting-loadtest");
+        
+        // 가짜 VBoxManage 준비
+        Path script = workDir.resolve("fake-vboxmanage");
+        try (InputStream in = HostChurnLoadTest.class.getResourceAsStream("/loadtest/fake-vboxmanage")) {
+            Files.copy(in, script, StandardCopyOption.REPLACE_EXISTING);
+        }
+        script.toFile().setExecutable(true);
+        Files.writeString(workDir.resolve("fake-vboxmanage.conf"),
+            "LATENCY_MS=" + VBOX_LATENCY_MS + "\nFAILURE_PERCENT=" + VBOX_FAILURE_PERCENT + "\n");
+        
+        sshServer = new FakeSshServer(SSH_START_PORT, SSH_START_PORT + PORT_RANGE - 1,
+                                      SSH_LATENCY_MS, workDir.resolve("hostkey.ser"));
+        
+        registry.add("virtualbox.manage-command", script::toString);
+        // 노드마다 VM 상태 디렉토리를 따로 둔 모의 하이퍼바이저 노드
+        for (int i = 0; i < NODES; i++) {
+            String node = "virtualbox.nodes[" + i + "].";
+            Path state = workDir.resolve("node-" + i);
+            registry.add(node + "name", () -> state.getFileName().toString());
+            registry.add(node + "address", () -> "127.0.0.1");
+            registry.add(node + "manage-command", script::toString);
+            registry.add(node + "environment[FAKE_VBOX_STATE]", state::toString);
+            registry.add(node + "memory", () -> 65536);
+            registry.add(node + "cpus", () -> 16);
+        }
+        registry.add("virtualbox.network.start-port", () -> WEB_START_PORT);
+        registry.add("virtualbox.network.end-port", () -> WEB_START_PORT + PORT_RANGE - 1);
+        registry.add("virtualbox.ssh.start-port", () -> SSH_START_PORT);
+        registry.add("virtualbox.ssh.end-port", () -> SSH_START_PORT + PORT_RANGE - 1);
+        registry.add("virtualbox.provisioning.boot-wait", () -> 0);
+        registry.add("virtualbox.provisioning.ssh-ready-wait", () -> 0);
+        registry.add("virtualbox.provisioning.ip-poll-interval", () -> 0);
+        registry.add("virtualbox.provisioning.command-delay-factor", () -> 0);
+        registry.add("hosting.logs.directory", () -> workDir.resolve("logs").toString());
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:loadtest");
+        registry.add("management.server.port", () -> 0);
+        registry.add("proxy.port", () -> 0);
+        // 모든 가상 사용자가 localhost 에서 오므로 IP 기준 제한을 끈다 (지연 측정 대상은 호스트 생성/삭제 경로)
+        registry.add("rate-limit.enabled", () -> false);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("logging.level.com.example", () -> "WARN");
+        registry.add("logging.level.org.hibernate.SQL", () -> "WARN");
+        registry.add("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", () -> "WARN");
+        registry.add("logging.level.org.springframework.security", () -> "WARN");
+        registry.add("logging.level.org.springframework.web", () -> "WARN");
+    }
+    
+    @AfterAll
+    static void stopBackends() throws Exception {
+        if (sshServer != null) {
+            sshServer.close();
+        }
+    }
+    
+    @Test
+    void hostChurn() throws Exception {
+        ExecutorService users = Executors.newFixedThreadPool(USERS);
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        int threadsAtStart = threads.getThreadCount();
+        Sampler sampler = new Sampler(dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean());
+        Thread samplerThread = new Thread(sampler, "loadtest-sampler");
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+        
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger deleted = new AtomicInteger();
+        
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            final int user = i;
+            futures.add(users.submit(() -> {
+                runVirtualUser(user, deadline, created, deleted);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        sampler.stop();
+        users.shutdown();
+        
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", USERS);
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("vboxLatencyMs", VBOX_LATENCY_MS);
+        report.put("vboxFailurePercent", VBOX_FAILURE_PERCENT);
+        report.put("sshLatencyMs", SSH_LATENCY_MS);
+        report.put("createsPerMinute", created.get() * 60 / elapsedSeconds);
+        report.put("deletesPerMinute", deleted.get() * 60 / elapsedSeconds);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.forEach((name, endpoint) -> endpoints.put(name, endpoint.summary(elapsedSeconds)));
+        report.put("endpoints", endpoints);
+        report.put("threads", Map.of(
+            "start", threadsAtStart,
+            "peak", threads.getPeakThreadCount(),
+            "end", threads.getThreadCount()));
+        report.put("db", Map.of(
+            "poolSize", sampler.maxTotal.get(),
+            "maxActive", sampler.maxActive.get(),
+            "maxPending", sampler.maxPending.get()));
+        report.put("fakeSshCommands", sshServer.getCommandCount());
+        
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        System.out.println("=== Host churn load test ===");
+        System.out.println(json);
+        Path reportDir = Paths.get(System.getProperty("loadtest.reportDir", "build/reports/loadtest"));
+        Files.createDirectories(reportDir);
+        Files.writeString(reportDir.resolve("host-churn.json"), json);
+        
+        assertThat(stats.get("POST /host").count.sum()).isGreaterThan(0);
+    }
+    
+    private void runVirtualUser(int user, long deadline, AtomicInteger created, AtomicInteger deleted) throws Exception {
+        String username = "ltuser" + user;
+        call("POST /register", "POST", "/register", null,
+             "{\"username\":\"" + username + "\",\"password\":\"password123\",\"email\":\"" + username + "@example.com\"}");
+        JsonNode login = call("POST /login", "POST", "/login", null,
+             "{\"username\":\"" + username + "\",\"password\":\"password123\"}");
+        String token = login.path("data").path("token").asText();
+        
+        int sequence = 0;
+        while (System.nanoTime() < deadline) {
+            String hostName = "lt" + user + "-" + sequence++;
+            JsonNode create = call("POST /host", "POST", "/host", token, "{\"hostName\":\"" + hostName + "\"}");
+            if (create == null || !create.path("success").asBoolean()) {
+                continue;
+            }
+            created.incrementAndGet();
+            long hostId = create.path("data").path("id").asLong();
+            
+            call("GET /host", "GET", "/host", token, null);
+            
+            JsonNode delete = deleteWhenIdle(hostId, token);
+            if (delete != null && delete.path("success").asBoolean()) {
+                deleted.incrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * 웹 서버 설정이 끝나 생성 작업 임대가 풀리기 전의 삭제는 거절되므로 잠깐 기다렸다가 다시 보낸다.
+     * 거절된 시도는 오류가 아니라 "DELETE /host (busy)" 로 따로 센다.
+     */
+    private JsonNode deleteWhenIdle(long hostId, String token) throws InterruptedException {
+        long limit = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (true) {
+            JsonNode delete = call("DELETE /host", "DELETE", "/host?hostId=" + hostId, token, null);
+            if (delete == null || delete.path("success").asBoolean() || System.nanoTime() > limit) {
+                return delete;
+            }
+            Thread.sleep(50);
+        }
+    }
+    
+    private JsonNode call(String endpoint, String method, String path, String token, String body) {
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, key -> new EndpointStats());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .timeout(Duration.ofMinutes(5))
+            .header("Content-Type", "application/json")
+            .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody());
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 400 && response.body().contains(BUSY_MESSAGE)) {
+                stats.computeIfAbsent(endpoint + " (busy)", key -> new EndpointStats()).record(System.nanoTime() - start, true);
+                return objectMapper.readTree(response.body());
+            }
+            endpointStats.record(System.nanoTime() - start, response.statusCode() < 400);
+            return response.body().isEmpty() ? null : objectMapper.readTree(response.body());
+        } catch (Exception e) {
+            endpointStats.record(System.nanoTime() - start, false);
+            return null;
+        }
+    }
+    
+    private static class EndpointStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private long[] latencies = new long[1024];
+        private int size;
+        
+        void record(long nanos, boolean success) {
+            count.increment();
+            if (!success) {
+                errors.increment();
+            }
+            synchronized (this) {
+                if (size == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, size * 2);
+                }
+                latencies[size++] = nanos;
+            }
+        }
+        
+        synchronized Map<String, Object> summary(double elapsedSeconds) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count.sum());
+            summary.put("errors", errors.sum());
+            summary.put("perSecond", count.sum() / elapsedSeconds);
+            summary.put("p50Ms", percentile(sorted, 0.50));
+            summary.put("p99Ms", percentile(sorted, 0.99));
+            summary.put("maxMs", sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0);
+            return summary;
+        }
+        
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+    
+    // DB 커넥션 풀 사용량을 주기적으로 기록
+    private static class Sampler implements Runnable {
+        private final HikariPoolMXBean pool;
+        private final AtomicLong maxActive = new AtomicLong();
+        private final AtomicLong maxPending = new AtomicLong();
+        private final AtomicLong maxTotal = new AtomicLong();
+        private volatile boolean running = true;
+        
+        Sampler(HikariPoolMXBean pool) {
+            this.pool = pool;
+        }
+        
+        void stop() {
+            running = false;
+        }
+        
+        @Override
+        public void run() {
+            while (running) {
+                if (pool != null) {
+                    maxActive.accumulateAndGet(pool.getActiveConnections(), Math::max);
+                    maxPending.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+                    maxTotal.accumulateAndGet(pool.getTotalConnections(), Math::max);
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.webhosting.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "health")
+@Data
+public class HealthCheckConfig {
+    private boolean enabled = true;
+    private long tickInterval = 1000; // 검사할 호스트를 고르는 주기 (ms)
+    private long interval = 30000; // 정상 호스트 기본 검사 간격 (ms)
+    private long maxInterval = 120000; // 계속 정상이면 이 값까지 간격을 늘림 (ms)
+    private long retryInterval = 5000; // 실패 직후 재확인 간격 (ms)
+    private long maxBackoff = 300000; // DEGRADED 호스트 최대 검사 간격 (ms)
+    private int degradedThreshold = 3; // 연속 실패 횟수가 이 값에 이르면 DEGRADED
+    private long timeout = 5000; // 검사 하나의 연결+응답 제한 시간 (ms)
+    private int maxConcurrent = 256; // 동시에 검사할 호스트 수 (호스트당 웹/SSH 연결 2개)
+    private int ioThreads = 2; // 비동기 소켓 채널 그룹 스레드 수
+}
@@ -0,0 +1,16 @@
+package com.example.webhosting.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "hibernation")
+@Data
+public class HibernationConfig {
+    private boolean enabled = true;
+    private long idleTimeout = 1800000; // 마지막 요청 후 이 시간이 지나면 VM 상태를 저장하고 메모리를 반환 (ms)
+    private long scanInterval = 60000; // 유휴 호스트를 찾는 주기 (ms)
+    private int maxPerScan = 8; // 한 번에 재우는 호스트 수 (디스크 쓰기가 몰리지 않도록)
+    private long networkThreshold = 16384; // 검사 사이에 VM NIC 가 이보다 많이 주고받으면 사용 중으로 봄 (SSH 등, 헬스 체크는 넘지 않는 크기)
+}
@@ -1,7 +1,9 @@
 package com.example.webhosting.config;
 
 import com.example.webhosting.util.JwtUtil;
+import com.example.webhosting.service.TokenRevocationService;
 import com.example.webhosting.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,6 +22,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
     
     @Override
     protected void doFilterInternal(
@@ -33,9 +36,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                // 토큰 유효성 검증
-                if (jwtUtil.validateToken(token)) {
-                    String username = jwtUtil.getUsernameFromToken(token);
+                // 토큰 유효성 검증 (한 번만 파싱) 및 폐기 여부 확인 (메모리 조회만 수행)
+                Claims claims = jwtUtil.parseValidClaims(token);
+                if (claims != null && !tokenRevocationService.isRevoked(claims.getId())) {
+                    String username = claims.getSubject();
                     
                     // 사용자 정보 로드
                     try {
@@ -75,9 +79,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // 인증이 필요하지 않은 경로들
         return path.equals("/register") ||
                path.equals("/login") ||
+               path.equals("/token/refresh") ||
                path.equals("/") ||
                path.equals("/error") ||
                path.startsWith("/h2-console") ||
+               path.startsWith("/actuator") ||
                path.startsWith("/static") ||
                path.equals("/favicon.ico");
     }
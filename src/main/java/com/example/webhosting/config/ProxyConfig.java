@@ -0,0 +1,36 @@
+package com.example.webhosting.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "proxy")
+@Data
+public class ProxyConfig {
+    private boolean enabled = true;
+    private String bindAddress = "0.0.0.0";
+    private int port = 8080;
+    private int publicPort = 0; // 웹 URL 에 표시할 포트 (0 이면 port 사용)
+    private String domain = "localhost"; // <호스트명>.<domain> 으로 라우팅
+    private String backendAddress = "127.0.0.1"; // VM 웹 포트 포워딩이 바인딩되는 주소
+    private int backlog = 1024;
+    private int bufferSize = 32768; // 연결 방향별 버퍼 크기 (요청 헤더 최대 크기 겸용)
+    private long idleTimeout = 60000; // ms
+    private long connectTimeout = 5000; // ms
+    private long wakeTimeout = 30000; // 잠든 호스트를 깨우는 동안 요청을 붙잡아 두는 최대 시간 (ms)
+    private int maxIdlePerBackend = 8; // 백엔드별 유지할 keep-alive 연결 수
+    private long backendIdleTimeout = 30000; // ms
+    private long routeSyncInterval = 30000; // hosts 테이블과 라우팅 테이블 동기화 주기 (ms)
+    
+    private Cache cache = new Cache();
+    
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maxSize = 64L * 1024 * 1024; // 힙 밖에 잡는 캐시 전체 크기 (bytes)
+        private int blockSize = 4096;
+        private int maxEntrySize = 1024 * 1024; // 응답 하나의 최대 크기 (헤더 포함)
+        private long defaultTtl = 10000; // 유효 기간 없이 ETag/Last-Modified 만 있는 응답의 재사용 시간 (ms)
+    }
+}
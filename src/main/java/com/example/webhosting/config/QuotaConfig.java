@@ -0,0 +1,14 @@
+package com.example.webhosting.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "quota")
+@Data
+public class QuotaConfig {
+    private int maxHosts = 20; // 사용자당 호스트 수 (0 이면 제한 없음)
+    private int maxConcurrentCreates = 10; // 사용자당 동시에 생성 중(CREATING)일 수 있는 호스트 수 (0 이면 제한 없음)
+    private long maxMemory = 32768; // 사용자 호스트 메모리 합계 (MB, 0 이면 제한 없음)
+}
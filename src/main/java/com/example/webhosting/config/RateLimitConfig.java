@@ -0,0 +1,17 @@
+package com.example.webhosting.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+@Data
+public class RateLimitConfig {
+    private boolean enabled = true;
+    private double userRate = 10; // 인증된 사용자당 초당 요청 수
+    private int userBurst = 30; // 사용자당 한 번에 몰아 보낼 수 있는 요청 수
+    private double ipRate = 20; // 클라이언트 IP 당 초당 요청 수 (인증 전 요청 포함)
+    private int ipBurst = 60; // IP 당 한 번에 몰아 보낼 수 있는 요청 수
+    private long sweepInterval = 60000; // 가득 찬 (오래 쓰지 않은) 버킷을 지우는 주기 (ms)
+}
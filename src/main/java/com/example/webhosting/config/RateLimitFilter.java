@@ -0,0 +1,73 @@
+package com.example.webhosting.config;
+
+import com.example.webhosting.dto.ApiResponse;
+import com.example.webhosting.service.RequestRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 인증 바로 뒤에서 요청 속도를 제한한다. 모든 요청은 클라이언트 IP 기준으로,
+ * 토큰으로 인증된 요청은 사용자 기준으로도 센다. 넘으면 컨트롤러까지 가지 않고 429 와 Retry-After(초)로 돌려준다.
+ */
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private final RequestRateLimiter limiter;
+    private final ObjectMapper objectMapper;
+    
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        
+        long wait = limiter.acquireIp(request.getRemoteAddr());
+        if (wait == 0) {
+            // JwtAuthenticationFilter 가 넣은 인증 (익명 인증은 이 필터 뒤에서 채워지므로 여기서는 토큰 사용자만 보인다)
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.isAuthenticated()) {
+                wait = limiter.acquireUser(authentication.getName());
+            }
+        }
+        if (wait > 0) {
+            reject(response, wait);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(),
+            ApiResponse.error("요청이 너무 많습니다. " + seconds + "초 뒤에 다시 시도하세요"));
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        // 관리 포트와 정적 리소스는 세지 않는다
+        return !limiter.isEnabled() ||
+               path.startsWith("/actuator") ||
+               path.startsWith("/h2-console") ||
+               path.startsWith("/static") ||
+               path.equals("/favicon.ico");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.webhosting.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "reaper")
+@Data
+public class ReaperConfig {
+    private boolean enabled = true;
+    private boolean dryRun = false; // true 면 삭제하지 않고 정리 대상만 보고
+    private long interval = 600000; // 노드의 VM/디스크 목록을 hosts 테이블과 대조하는 주기 (ms)
+    private long gracePeriod = 3600000; // 처음 발견한 뒤 이 시간 동안 계속 고아로 남아야 삭제 (ms)
+    private int maxDeletesPerScan = 5; // 한 번에 지우는 VM/디스크 수 (노드 부하 분산)
+}
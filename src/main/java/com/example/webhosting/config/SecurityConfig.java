@@ -2,7 +2,11 @@
 package com.example.webhosting.config;
 
 import com.example.webhosting.util.JwtUtil;
+import com.example.webhosting.service.RequestRateLimiter;
+import com.example.webhosting.service.TokenRevocationService;
 import com.example.webhosting.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,25 +28,37 @@ public class SecurityConfig {
     }
     
     @Bean
-    public JwtAuthenticationFilter jwtAuthenticationFilter(JwtUtil jwtUtil, UserService userService) {
-        return new JwtAuthenticationFilter(jwtUtil, userService);
+    public JwtAuthenticationFilter jwtAuthenticationFilter(JwtUtil jwtUtil, UserService userService,
+                                                           TokenRevocationService tokenRevocationService) {
+        return new JwtAuthenticationFilter(jwtUtil, userService, tokenRevocationService);
     }
     
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, JwtAuthenticationFilter jwtAuthenticationFilter) throws Exception {
+    public RateLimitFilter rateLimitFilter(RequestRateLimiter requestRateLimiter, ObjectMapper objectMapper) {
+        return new RateLimitFilter(requestRateLimiter, objectMapper);
+    }
+    
+    @Bean
+    public SecurityFilterChain filterChain(HttpSecurity http, JwtAuthenticationFilter jwtAuthenticationFilter,
+                                           RateLimitFilter rateLimitFilter) throws Exception {
         http.csrf().disable()
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // JWT 사용으로 세션 비활성화
             )
             .authorizeHttpRequests(authz -> authz
+                // 비동기/스트리밍 응답의 재디스패치는 최초 요청에서 이미 인가됨
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 .requestMatchers("/", "/register", "/login", "/error").permitAll()
+                .requestMatchers("/token/refresh", "/token/revoke").permitAll() // refresh token 으로 인증
                 .requestMatchers("/h2-console/**").permitAll() // H2 콘솔 접근 허용
+                .requestMatchers("/actuator/**").permitAll() // 관리 포트는 127.0.0.1 에만 바인딩
                 .requestMatchers("/host/**").authenticated() // 호스트 관련 API 명시적 허용
                 .requestMatchers("/host").authenticated()    // 호스트 루트 경로도 허용
                 .anyRequest().authenticated()
             )
             .headers(headers -> headers.frameOptions().sameOrigin()) // H2 콘솔용
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class); // 사용자별 제한은 인증된 뒤에 센다
         
         return http.build();
     }
@@ -0,0 +1,17 @@
+package com.example.webhosting.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "snapshot")
+@Data
+public class SnapshotConfig {
+    private long interval = 86400000; // 호스트별 예약 스냅샷 주기 (ms, 0 이면 예약 스냅샷 없음)
+    private long scanInterval = 60000; // 예약 스냅샷 대상을 고르는 주기 (ms)
+    private int keepScheduled = 7; // 호스트별로 남길 예약 스냅샷 수
+    private long maxAge = 0; // 이보다 오래된 예약 스냅샷은 삭제 (ms, 0 이면 개수로만 정리)
+    private int maxManual = 10; // 사용자가 직접 만들 수 있는 호스트별 스냅샷 수
+    private int maxPerNode = 1; // 노드에서 동시에 진행할 스냅샷 작업 수 (디스크 I/O 가 몰리지 않도록)
+}
@@ -4,6 +4,11 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "virtualbox")
 @Data
@@ -12,17 +17,29 @@ public class VirtualBoxConfig {
     private int port = 18083;
     private String username = "";
     private String password = "";
+    private String manageCommand = "VBoxManage"; // VBoxManage 실행 파일 (테스트에서는 가짜 스크립트)
     
     private Vm vm = new Vm();
     private Network network = new Network();
     private Ssh ssh = new Ssh();
+    private Provisioning provisioning = new Provisioning();
+    private List<Node> nodes = new ArrayList<>(); // 비어 있으면 이 서버의 VBoxManage 하나만 사용
+    private Placement placement = new Placement();
+    private Power power = new Power();
+    private Resilience resilience = new Resilience();
+    private List<StoragePool> storagePools = new ArrayList<>(); // 비어 있으면 vm.disk-dir 하나를 용량 제한 없이 사용
+    private List<Plan> plans = new ArrayList<>(); // 비어 있으면 vm.memory/cpus/disk-size 로 된 요금제 하나
+    private String defaultPlan; // 호스트 생성 시 요금제를 고르지 않으면 사용 (비어 있으면 첫 요금제)
     
     @Data
     public static class Vm {
         private String baseName = "webhosting";
         private String baseImage = "/opt/ubuntu-20.04-server.iso";
         private int memory = 1024; // MB
+        private int cpus = 1;
         private int diskSize = 8192; // MB
+        private String diskDir = "/tmp"; // 저장소 풀을 설정하지 않았을 때 VM 디스크 이미지(<VM 이름>.vdi)를 만드는 디렉토리
+        private boolean cpuHotplug = true; // vCPU 를 끄지 않고 늘리고 줄일 수 있게 가장 큰 요금제의 vCPU 수까지 핫플러그로 만든다
     }
     
     @Data
@@ -36,4 +53,95 @@ public class VirtualBoxConfig {
         private int startPort = 2200;
         private int endPort = 2999;
     }
+    
+    @Data
+    public static class Provisioning {
+        private long bootWait = 60000; // VM 시작 후 프로비저닝 전 대기 (ms)
+        private long sshReadyWait = 60000; // SSH 접속 전 대기 (ms)
+        private long ipPollInterval = 10000; // 게스트 IP 확인 간격 (ms)
+        private int ipPollAttempts = 30;
+        private double commandDelayFactor = 1.0; // SSH 명령 사이 대기 배율 (0 이면 대기 없음)
+    }
+    
+    @Data
+    public static class Power {
+        private long stateTimeout = 120000; // 상태 저장/재개 후 목표 VMState 에 이를 때까지 기다리는 최대 시간 (ms)
+        private long statePollInterval = 250; // VMState 확인 간격 (ms)
+        private long shutdownTimeout = 60000; // ACPI 종료 신호 후 꺼질 때까지 기다리는 시간, 넘기면 강제 종료 (ms)
+    }
+    
+    /**
+     * VBoxManage 호출 보호. 노드마다 회로 차단기를 두고, 일시적인 오류만 전역 재시도 예산 안에서 지터를 섞은 지수 백오프로 다시 시도한다.
+     */
+    @Data
+    public static class Resilience {
+        private long commandTimeout = 300000; // VBoxManage 한 번의 최대 실행 시간, 넘기면 강제 종료하고 일시적 오류로 본다 (ms)
+        private int maxAttempts = 3; // 첫 시도 포함
+        private long backoffBase = 200; // 재시도 대기 = 0 ~ min(backoff-max, backoff-base * 2^n) 균등 분포 (ms)
+        private long backoffMax = 5000;
+        private double retryRatio = 0.1; // 호출당 적립하는 재시도 예산 (호출 10번에 재시도 1번)
+        private double retryMinPerSecond = 1; // 호출이 적어도 초당 채워지는 재시도 예산
+        private int retryBurst = 10; // 쌓아 둘 수 있는 재시도 예산 상한
+        private int breakerWindow = 20; // 실패율을 계산하는 최근 호출 수
+        private int breakerMinimumCalls = 10; // 창에 이만큼 쌓여야 실패율로 차단
+        private double breakerFailureRate = 0.5;
+        private int breakerConsecutiveFailures = 5; // 연속 실패가 이만큼이면 창과 관계없이 차단
+        private long breakerOpenDuration = 30000; // 차단 후 시험 호출 하나를 허용하기까지 (ms)
+    }
+    
+    /**
+     * 호스트 크기 요금제. 생성 시 고르고 PATCH /host/{id}/plan 으로 바꾼다 (디스크는 늘리기만 가능).
+     */
+    @Data
+    public static class Plan {
+        private String name;
+        private int cpus = 1;
+        private int memory = 1024; // MB
+        private int diskSize = 8192; // MB
+    }
+    
+    /**
+     * 하이퍼바이저 노드. 용량 값이 0 이면 그 자원은 제한 없이 취급한다.
+     */
+    @Data
+    public static class Node {
+        private String name;
+        private String address = "127.0.0.1"; // 포트 포워딩에 접근할 주소 (프록시/헬스 체크/SSH)
+        private String manageCommand; // 예: "ssh hv2 VBoxManage" (비어 있으면 virtualbox.manage-command)
+        private Map<String, String> environment = new LinkedHashMap<>(); // VBoxManage 실행 환경 (예: VBOX_USER_HOME)
+        private int memory = 0; // MB
+        private int cpus = 0;
+        private int disk = 0; // MB
+        private boolean enabled = true; // false 면 새 VM 을 배치하지 않음 (기존 VM 은 계속 관리)
+    }
+    
+    /**
+     * VM 디스크 이미지를 두는 디렉토리/볼륨. 모든 노드에 같은 경로로 있다고 보고 노드마다 사용량을 따로 센다.
+     * 설정 순서가 우선순위이며, 여유 공간이 가장 큰 풀에 둔다.
+     */
+    @Data
+    public static class StoragePool {
+        private String name;
+        private String path;
+        private long capacity = 0; // 노드별 용량 (MB, 0 이면 제한 없음)
+        private Variant variant = Variant.STANDARD;
+        private boolean enabled = true; // false 면 새 디스크를 두지 않음
+        
+        public enum Variant {
+            STANDARD, // 쓰는 만큼 커지는 동적 VDI
+            FIXED // 생성 시 전체 크기를 할당 (단편화가 적고 쓰기 성능이 일정함)
+        }
+    }
+    
+    @Data
+    public static class Placement {
+        private Strategy strategy = Strategy.BIN_PACK;
+        private double cpuOvercommit = 4.0; // 노드 CPU 1개당 배치할 수 있는 vCPU 수
+        private boolean antiAffinity = true; // 같은 사용자의 호스트를 가능한 한 다른 노드에 배치
+        
+        public enum Strategy {
+            BIN_PACK, // 들어갈 수 있는 노드 중 가장 꽉 찬 노드 (노드를 적게 사용)
+            LEAST_LOADED // 가장 여유 있는 노드 (부하 분산)
+        }
+    }
 }
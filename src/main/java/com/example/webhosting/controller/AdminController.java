@@ -0,0 +1,54 @@
+package com.example.webhosting.controller;
+
+import com.example.webhosting.dto.*;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.service.UserService;
+import com.example.webhosting.service.VmMetricsCollector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+    
+    @Autowired
+    private VmMetricsCollector vmMetrics;
+    
+    @Autowired
+    private UserService userService;
+    
+    private User getAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new IllegalArgumentException("로그인이 필요합니다");
+        }
+        User user = userService.findByUsername(authentication.getName());
+        if (user.getRole() != User.Role.ADMIN) {
+            throw new SecurityException("관리자만 사용할 수 있습니다");
+        }
+        return user;
+    }
+    
+    // 용량 계획/시끄러운 이웃 찾기: 최근 range 동안 평균 사용량이 가장 큰 호스트
+    @GetMapping("/metrics/top")
+    public ResponseEntity<ApiResponse<List<HostMetricRankDto>>> getTopHosts(
+            @RequestParam(defaultValue = "cpu") String metric,
+            @RequestParam(required = false) String range,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            getAdmin();
+            List<HostMetricRankDto> hosts = vmMetrics.top(metric, range, limit);
+            return ResponseEntity.ok(ApiResponse.success("호스트 지표 순위 조회 성공", hosts));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
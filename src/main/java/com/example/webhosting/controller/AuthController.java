@@ -2,8 +2,11 @@ package com.example.webhosting.controller;
 
 import com.example.webhosting.dto.*;
 import com.example.webhosting.entity.User;
+import com.example.webhosting.service.RefreshTokenService;
+import com.example.webhosting.service.TokenRevocationService;
 import com.example.webhosting.service.UserService;
 import com.example.webhosting.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +23,12 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
     @PostMapping("/register")
     public ResponseEntity<ApiResponse<String>> register(@Valid @RequestBody UserRegistrationDto dto) {
         try {
@@ -35,12 +44,48 @@ public class AuthController {
         try {
             User user = userService.authenticateUser(dto);
             String token = jwtUtil.generateToken(user.getUsername());
+            String refreshToken = refreshTokenService.issue(user);
             
-            LoginResponse response = new LoginResponse(token, user.getUsername());
+            LoginResponse response = new LoginResponse(token, user.getUsername(), refreshToken);
             return ResponseEntity.ok(ApiResponse.success("로그인 성공", response));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    @PostMapping("/token/refresh")
+    public ResponseEntity<ApiResponse<LoginResponse>> refresh(@Valid @RequestBody TokenRefreshDto dto) {
+        try {
+            // BCrypt 로그인 없이 새 access token 발급 (refresh token 은 1회용으로 회전)
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(dto.getRefreshToken());
+            String token = jwtUtil.generateToken(rotation.username);
+            
+            LoginResponse response = new LoginResponse(token, rotation.username, rotation.refreshToken);
+            return ResponseEntity.ok(ApiResponse.success("토큰 갱신 성공", response));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/token/revoke")
+    public ResponseEntity<ApiResponse<String>> revoke(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestBody(required = false) TokenRefreshDto dto) {
+        // 현재 access token 폐기
+        String token = jwtUtil.extractTokenFromHeader(authHeader);
+        if (token != null) {
+            Claims claims = jwtUtil.parseValidClaims(token);
+            if (claims != null) {
+                tokenRevocationService.revoke(claims.getId(), claims.getExpiration());
+            }
+        }
+        
+        // 전달된 refresh token 묶음 폐기
+        if (dto != null && dto.getRefreshToken() != null) {
+            refreshTokenService.revoke(dto.getRefreshToken());
+        }
+        
+        return ResponseEntity.ok(ApiResponse.success("토큰이 폐기되었습니다", null));
+    }
+    
 }
\ No newline at end of file
@@ -2,16 +2,26 @@ package com.example.webhosting.controller;
 
 import com.example.webhosting.dto.*;
 import com.example.webhosting.entity.User;
+import com.example.webhosting.service.HostBatchService;
 import com.example.webhosting.service.HostService;
+import com.example.webhosting.service.HostSnapshotService;
 import com.example.webhosting.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/host")
@@ -21,6 +31,12 @@ public class HostController {
     @Autowired
     private HostService hostService;
     
+    @Autowired
+    private HostSnapshotService snapshotService;
+    
+    @Autowired
+    private HostBatchService batchService;
+    
     @Autowired
     private UserService userService;
     
@@ -35,19 +51,53 @@ public class HostController {
     
     @PostMapping
     public CompletableFuture<ResponseEntity<ApiResponse<HostResponseDto>>> createHost(
-            @Valid @RequestBody HostCreationDto dto) {
+            @Valid @RequestBody HostCreationDto dto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             User user = getCurrentUser();
-            return hostService.createHost(dto, user)
+            return hostService.createHost(dto, user, idempotencyKey)
                 .thenApply(host -> ResponseEntity.ok(ApiResponse.success("웹 호스팅 생성이 시작되었습니다", host)))
-                .exceptionally(ex -> ResponseEntity.badRequest().body(ApiResponse.error(ex.getMessage())));
+                .exceptionally(ex -> ResponseEntity.badRequest().body(ApiResponse.error(causeOf(ex).getMessage())));
         } catch (IllegalArgumentException e) {
             return CompletableFuture.completedFuture(
                 ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
             );
+        } catch (IllegalStateException e) {
+            // 하이퍼바이저 노드 용량/포트 부족
+            return CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage()))
+            );
         }
     }
     
+    /**
+     * 호스트 일괄 생성. 항목별 결과를 끝나는 대로 SSE 로 보낸다 (item 이벤트, 마지막에 end 이벤트).
+     * 검사에 실패하면 아무것도 만들지 않고 400/503 과 함께 error 이벤트 하나만 보낸다.
+     */
+    @PostMapping(value = "/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> createHosts(@Valid @RequestBody HostBatchCreationDto dto) {
+        try {
+            User user = getCurrentUser();
+            return ResponseEntity.ok(batchService.createHosts(dto.getHosts(), user));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(batchError(e.getMessage()));
+        } catch (IllegalStateException e) {
+            // 하이퍼바이저 노드 용량 부족
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(batchError(e.getMessage()));
+        }
+    }
+    
+    private static SseEmitter batchError(String message) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(ApiResponse.error(message)));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+    
     @GetMapping
     public ResponseEntity<ApiResponse<List<HostResponseDto>>> getHosts() {
         try {
@@ -59,19 +109,245 @@ public class HostController {
         }
     }
     
+    @GetMapping("/{hostId}/timeline")
+    public ResponseEntity<ApiResponse<List<TimelineSpanDto>>> getHostTimeline(@PathVariable Long hostId) {
+        try {
+            User user = getCurrentUser();
+            List<TimelineSpanDto> spans = hostService.getHostTimeline(hostId, user);
+            return ResponseEntity.ok(ApiResponse.success("호스트 타임라인 조회 성공", spans));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/{hostId}/usage")
+    public ResponseEntity<ApiResponse<HostUsageDto>> getHostUsage(
+            @PathVariable Long hostId,
+            @RequestParam(defaultValue = "60") int minutes) {
+        try {
+            User user = getCurrentUser();
+            HostUsageDto usage = hostService.getHostUsage(hostId, minutes, user);
+            return ResponseEntity.ok(ApiResponse.success("호스트 사용량 조회 성공", usage));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    // range: 15m, 1h, 1d 처럼 (기본 1h)
+    @GetMapping("/{hostId}/metrics")
+    public ResponseEntity<ApiResponse<HostMetricsDto>> getHostMetrics(
+            @PathVariable Long hostId,
+            @RequestParam(required = false) String range) {
+        try {
+            User user = getCurrentUser();
+            HostMetricsDto metrics = hostService.getHostMetrics(hostId, range, user);
+            return ResponseEntity.ok(ApiResponse.success("호스트 지표 조회 성공", metrics));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping(value = "/{hostId}/logs", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> getHostLogs(@PathVariable Long hostId) {
+        try {
+            User user = getCurrentUser();
+            InputStream logs = hostService.getHostLogs(hostId, user);
+            StreamingResponseBody body = out -> {
+                try (logs) {
+                    logs.transferTo(out);
+                }
+            };
+            return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(body);
+        } catch (IllegalArgumentException | IOException e) {
+            byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().body(out -> out.write(message));
+        }
+    }
+    
+    @GetMapping(value = "/{hostId}/logs", params = "follow=true", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> followHostLogs(
+            @PathVariable Long hostId,
+            @RequestParam(defaultValue = "0") long from) {
+        try {
+            User user = getCurrentUser();
+            return ResponseEntity.ok(hostService.followHostLogs(hostId, from, user));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // VM 이 목표 상태(running/poweroff/saved)에 이르면 응답한다
+    @PostMapping("/{hostId}/{action:start|stop|restart|suspend|resume|wake}")
+    public CompletableFuture<ResponseEntity<ApiResponse<HostResponseDto>>> changePower(
+            @PathVariable Long hostId, @PathVariable String action) {
+        try {
+            User user = getCurrentUser();
+            return hostService.changePower(hostId, action, user)
+                .thenApply(host -> ResponseEntity.ok(ApiResponse.success("호스트 전원 작업 성공", host)))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    HttpStatus status = cause instanceof IllegalArgumentException
+                        ? HttpStatus.BAD_REQUEST : HttpStatus.SERVICE_UNAVAILABLE;
+                    return ResponseEntity.status(status).body(ApiResponse.<HostResponseDto>error(cause.getMessage()));
+                });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
+            );
+        }
+    }
+    
+    // 같은 호스트를 동시에 조회하면 하이퍼바이저 조회 하나를 함께 기다리고, 결과는 잠깐 보관해 다시 쓴다
+    @GetMapping("/{hostId}/status")
+    public CompletableFuture<ResponseEntity<ApiResponse<HostStatusDto>>> getHostStatus(@PathVariable Long hostId) {
+        try {
+            User user = getCurrentUser();
+            return hostService.getHostStatus(hostId, user)
+                .thenApply(status -> ResponseEntity.ok(ApiResponse.success("호스트 상태 조회 성공", status)))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.<HostStatusDto>error(cause.getMessage()));
+                });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
+            );
+        }
+    }
+    
+    @GetMapping("/plans")
+    public ResponseEntity<ApiResponse<List<HostPlanDto>>> getPlans() {
+        return ResponseEntity.ok(ApiResponse.success("요금제 목록 조회 성공", hostService.getPlans()));
+    }
+    
+    // 크기 변경이 끝나면 응답한다 (vCPU 만 바뀌면 멈추지 않고, 디스크 확장은 잠깐 멈추고, 메모리 변경은 다시 부팅한다)
+    @PatchMapping("/{hostId}/plan")
+    public CompletableFuture<ResponseEntity<ApiResponse<HostResponseDto>>> changePlan(
+            @PathVariable Long hostId, @Valid @RequestBody HostPlanChangeDto dto) {
+        try {
+            User user = getCurrentUser();
+            return hostService.changePlan(hostId, dto.getPlan(), user)
+                .thenApply(host -> ResponseEntity.ok(ApiResponse.success("호스트 크기 변경 성공", host)))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.<HostResponseDto>error(cause.getMessage()));
+                });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
+            );
+        } catch (IllegalStateException e) {
+            // 노드 용량 부족 또는 다른 작업 진행 중
+            return CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage()))
+            );
+        }
+    }
+    
+    @GetMapping("/{hostId}/snapshots")
+    public ResponseEntity<ApiResponse<List<HostSnapshotDto>>> getSnapshots(@PathVariable Long hostId) {
+        try {
+            User user = getCurrentUser();
+            List<HostSnapshotDto> snapshots = snapshotService.getSnapshots(hostId, user);
+            return ResponseEntity.ok(ApiResponse.success("스냅샷 목록 조회 성공", snapshots));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    // 스냅샷이 만들어지면 응답한다 (실행 중인 VM 은 멈추지 않고 찍는다)
+    @PostMapping("/{hostId}/snapshots")
+    public CompletableFuture<ResponseEntity<ApiResponse<HostSnapshotDto>>> createSnapshot(
+            @PathVariable Long hostId, @Valid @RequestBody(required = false) HostSnapshotRequestDto dto) {
+        try {
+            User user = getCurrentUser();
+            return snapshotService.createSnapshot(hostId, dto == null ? null : dto.getName(), user)
+                .thenApply(snapshot -> ResponseEntity.ok(ApiResponse.success("스냅샷 생성 성공", snapshot)))
+                .exceptionally(HostController::snapshotFailure);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
+            );
+        } catch (IllegalStateException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage()))
+            );
+        }
+    }
+    
+    @PostMapping("/{hostId}/snapshots/{snapshotId}/restore")
+    public CompletableFuture<ResponseEntity<ApiResponse<HostSnapshotDto>>> restoreSnapshot(
+            @PathVariable Long hostId, @PathVariable Long snapshotId) {
+        try {
+            User user = getCurrentUser();
+            return snapshotService.restoreSnapshot(hostId, snapshotId, user)
+                .thenApply(snapshot -> ResponseEntity.ok(ApiResponse.success("스냅샷 복원 성공", snapshot)))
+                .exceptionally(HostController::snapshotFailure);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
+            );
+        } catch (IllegalStateException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage()))
+            );
+        }
+    }
+    
+    @DeleteMapping("/{hostId}/snapshots/{snapshotId}")
+    public CompletableFuture<ResponseEntity<ApiResponse<HostSnapshotDto>>> deleteSnapshot(
+            @PathVariable Long hostId, @PathVariable Long snapshotId) {
+        try {
+            User user = getCurrentUser();
+            return snapshotService.deleteSnapshot(hostId, snapshotId, user)
+                .thenApply(v -> ResponseEntity.ok(ApiResponse.<HostSnapshotDto>success("스냅샷이 삭제되었습니다", null)))
+                .exceptionally(HostController::snapshotFailure);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
+            );
+        } catch (IllegalStateException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(e.getMessage()))
+            );
+        }
+    }
+    
+    private static ResponseEntity<ApiResponse<HostSnapshotDto>> snapshotFailure(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(cause.getMessage()));
+    }
+    
+    // 비동기 작업이 던진 예외 (CompletionException 에 싸여 온다)
+    private static Throwable causeOf(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+    
+    @DeleteMapping(value = "/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> deleteHosts(@RequestParam List<Long> hostIds) {
+        try {
+            User user = getCurrentUser();
+            return ResponseEntity.ok(batchService.deleteHosts(hostIds, user));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(batchError(e.getMessage()));
+        }
+    }
+    
     @DeleteMapping
     public CompletableFuture<ResponseEntity<ApiResponse<String>>> deleteHost(
-            @RequestParam Long hostId) {
+            @RequestParam Long hostId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             User user = getCurrentUser();
-            return hostService.deleteHost(hostId, user)
+            return hostService.deleteHost(hostId, user, idempotencyKey)
                 .thenApply(success -> {
                     if (success) {
-                        return ResponseEntity.ok(ApiResponse.success("호스트가 삭제되었습니다", null));
+                        return ResponseEntity.ok(ApiResponse.<String>success("호스트가 삭제되었습니다", null));
                     } else {
-                        return ResponseEntity.badRequest().body(ApiResponse.error("호스트 삭제에 실패했습니다"));
+                        return ResponseEntity.badRequest().body(ApiResponse.<String>error("호스트 삭제에 실패했습니다"));
                     }
-                });
+                })
+                .exceptionally(ex -> ResponseEntity.badRequest().body(ApiResponse.error(causeOf(ex).getMessage())));
         } catch (IllegalArgumentException e) {
             return CompletableFuture.completedFuture(
                 ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()))
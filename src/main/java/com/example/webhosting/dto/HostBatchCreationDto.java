@@ -0,0 +1,12 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import java.util.List;
+
+@Data
+public class HostBatchCreationDto {
+    @NotEmpty(message = "만들 호스트 목록은 필수입니다")
+    private List<@Valid @NotNull HostCreationDto> hosts;
+}
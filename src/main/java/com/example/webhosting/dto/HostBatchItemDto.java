@@ -0,0 +1,15 @@
+package com.example.webhosting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HostBatchItemDto {
+    private int index; // 요청 목록에서의 위치
+    private Long hostId;
+    private String hostName;
+    private boolean success;
+    private String error; // 실패 원인 (성공이면 null)
+    private HostResponseDto host; // 생성 결과 (삭제는 null)
+}
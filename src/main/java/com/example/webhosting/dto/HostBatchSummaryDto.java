@@ -0,0 +1,12 @@
+package com.example.webhosting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HostBatchSummaryDto {
+    private int total;
+    private int succeeded;
+    private int failed;
+}
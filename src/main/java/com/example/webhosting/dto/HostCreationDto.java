@@ -9,4 +9,6 @@ public class HostCreationDto {
     @Size(min = 3, max = 50, message = "호스트명은 3-50자 사이여야 합니다")
     @Pattern(regexp = "^[a-zA-Z0-9-]+$", message = "호스트명은 영문, 숫자, 하이픈만 사용 가능합니다")
     private String hostName;
+    
+    private String plan; // 크기 요금제 (비어 있으면 기본 요금제)
 }
\ No newline at end of file
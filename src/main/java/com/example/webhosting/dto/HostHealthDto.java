@@ -0,0 +1,17 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class HostHealthDto {
+    private LocalDateTime checkedAt;
+    private boolean webOk;
+    private boolean sshOk;
+    private long webLatencyMillis;
+    private int consecutiveFailures;
+    private LocalDateTime nextCheckAt;
+    private String error; // 마지막 실패 사유 (정상이면 null)
+}
@@ -0,0 +1,15 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+
+@Data
+@AllArgsConstructor
+public class HostMetricRankDto {
+    private Long hostId;
+    private String hostName;
+    private String username;
+    private String nodeName;
+    private double average; // 조회 구간 평균 (지표 단위: %, 바이트, 바이트/초)
+    private double max;
+}
@@ -0,0 +1,26 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class HostMetricsDto {
+    private Long hostId;
+    private LocalDateTime from;
+    private long intervalMs; // 수집 주기
+    private List<Sample> samples; // 오래된 순, 수집하지 못한 지표는 null
+    
+    @Data
+    @AllArgsConstructor
+    public static class Sample {
+        private LocalDateTime time;
+        private Double cpuPercent; // VM 프로세스의 호스트 CPU 사용률 (사용자 + 커널)
+        private Long ramBytes;
+        private Long diskBytes;
+        private Long netRxBytesPerSec;
+        private Long netTxBytesPerSec;
+    }
+}
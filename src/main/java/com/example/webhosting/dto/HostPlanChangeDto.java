@@ -0,0 +1,10 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import jakarta.validation.constraints.*;
+
+@Data
+public class HostPlanChangeDto {
+    @NotBlank(message = "요금제는 필수입니다")
+    private String plan;
+}
@@ -0,0 +1,19 @@
+package com.example.webhosting.dto;
+
+import com.example.webhosting.config.VirtualBoxConfig;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HostPlanDto {
+    private String name;
+    private int cpus;
+    private int memory; // MB
+    private int diskSize; // MB
+    private boolean defaultPlan; // 생성 시 요금제를 고르지 않으면 이 요금제
+    
+    public static HostPlanDto from(VirtualBoxConfig.Plan plan, boolean defaultPlan) {
+        return new HostPlanDto(plan.getName(), plan.getCpus(), plan.getMemory(), plan.getDiskSize(), defaultPlan);
+    }
+}
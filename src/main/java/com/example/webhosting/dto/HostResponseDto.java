@@ -15,17 +15,29 @@ public class HostResponseDto {
     private Integer port80;
     private Integer port22;
     private Host.HostStatus status;
+    private String nodeName; // VM 이 있는 하이퍼바이저 노드
+    private String plan; // 크기 요금제 (요금제 도입 전 호스트는 null)
+    private Integer cpus;
+    private Integer memory; // MB
+    private Integer diskSize; // MB
     private LocalDateTime createdAt;
     private String webUrl; // 웹 접속 URL
     private String sshCommand; // SSH 접속 명령어
+    private HostHealthDto health; // 최근 헬스 체크 결과 (검사 전이면 null)
     
     public static HostResponseDto from(Host host) {
         String webUrl = null;
-        String sshCommand = null;
-        
-        if (host.getPort80() != null && host.getStatus() == Host.HostStatus.RUNNING) {
+        if (host.getPort80() != null && host.isServing()) {
             webUrl = "http://localhost:" + host.getPort80();
         }
+        return from(host, webUrl);
+    }
+    
+    /**
+     * 리버스 프록시를 거치는 경우처럼 웹 URL 을 따로 정한 응답
+     */
+    public static HostResponseDto from(Host host, String webUrl) {
+        String sshCommand = null;
         
         if (host.getPort22() != null && host.getVmIP() != null) {
             sshCommand = "ssh -p " + host.getPort22() + " webuser@localhost";
@@ -39,9 +51,15 @@ public class HostResponseDto {
             host.getPort80(),
             host.getPort22(),
             host.getStatus(),
+            host.getNodeName(),
+            host.getPlan(),
+            host.getCpus(),
+            host.getMemory(),
+            host.getDiskSize(),
             host.getCreatedAt(),
             webUrl,
-            sshCommand
+            sshCommand,
+            null
         );
     }
 }
\ No newline at end of file
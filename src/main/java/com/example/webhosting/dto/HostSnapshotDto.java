@@ -0,0 +1,30 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import com.example.webhosting.entity.HostSnapshot;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class HostSnapshotDto {
+    private Long id;
+    private String name;
+    private boolean scheduled;
+    private HostSnapshot.SnapshotStatus status;
+    private Long sizeBytes; // 만들 때 늘어난 디스크 사용량 (알 수 없으면 null)
+    private Long durationMs;
+    private LocalDateTime createdAt;
+    
+    public static HostSnapshotDto from(HostSnapshot snapshot) {
+        return new HostSnapshotDto(
+            snapshot.getId(),
+            snapshot.getName(),
+            snapshot.isScheduled(),
+            snapshot.getStatus(),
+            snapshot.getSizeBytes(),
+            snapshot.getDurationMs(),
+            snapshot.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import jakarta.validation.constraints.*;
+
+@Data
+public class HostSnapshotRequestDto {
+    @Size(max = 64, message = "스냅샷 이름은 64자 이하여야 합니다")
+    @Pattern(regexp = "^[a-zA-Z0-9._-]*$", message = "스냅샷 이름은 영문, 숫자, '.', '_', '-'만 사용 가능합니다")
+    private String name; // 비어 있으면 만든 시각으로 짓는다
+}
@@ -0,0 +1,15 @@
+package com.example.webhosting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import com.example.webhosting.entity.Host;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class HostStatusDto {
+    private Long id;
+    private Host.HostStatus status; // VM 상태를 반영한 호스트 상태
+    private String vmState; // 하이퍼바이저가 알려 준 VM 상태 (RUNNING, STOPPED, SAVED, ERROR), 묻지 못했으면 null
+    private LocalDateTime checkedAt; // vmState 를 하이퍼바이저에 물어본 시각 (짧게 보관한 결과일 수 있다)
+}
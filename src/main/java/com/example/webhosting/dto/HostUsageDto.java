@@ -0,0 +1,27 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class HostUsageDto {
+    private Long hostId;
+    private LocalDateTime from;
+    private long requests;
+    private long bytesIn;
+    private long bytesOut;
+    private Long bandwidthLimit; // bytes/s, null 이면 제한 없음
+    private List<Bucket> minutes; // 트래픽이 있었던 분만 포함
+    
+    @Data
+    @AllArgsConstructor
+    public static class Bucket {
+        private LocalDateTime minute;
+        private long requests;
+        private long bytesIn;
+        private long bytesOut;
+    }
+}
@@ -8,4 +8,5 @@ import lombok.AllArgsConstructor;
 public class LoginResponse {
     private String token;
     private String username;
+    private String refreshToken;
 }
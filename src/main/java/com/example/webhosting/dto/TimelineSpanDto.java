@@ -0,0 +1,34 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import com.example.webhosting.entity.HostTimelineSpan;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class TimelineSpanDto {
+    private int seq;
+    private HostTimelineSpan.SpanType type;
+    private String name;
+    private LocalDateTime startedAt;
+    private LocalDateTime endedAt;
+    private Long durationMs;
+    private Integer exitCode;
+    private Boolean success;
+    private String output;
+    
+    public static TimelineSpanDto from(HostTimelineSpan span) {
+        return new TimelineSpanDto(
+            span.getSeq(),
+            span.getType(),
+            span.getName(),
+            span.getStartedAt(),
+            span.getEndedAt(),
+            span.getDurationMs(),
+            span.getExitCode(),
+            span.getSuccess(),
+            span.getOutput()
+        );
+    }
+}
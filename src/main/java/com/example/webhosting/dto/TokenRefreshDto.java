@@ -0,0 +1,10 @@
+package com.example.webhosting.dto;
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+
+@Data
+public class TokenRefreshDto {
+    @NotBlank(message = "리프레시 토큰은 필수입니다")
+    private String refreshToken;
+}
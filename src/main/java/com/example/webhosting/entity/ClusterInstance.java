@@ -0,0 +1,21 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "cluster_instances")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterInstance {
+    @Id
+    @Column(length = 128)
+    private String id;
+    
+    @Column(nullable = false)
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,18 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Entity
+@Table(name = "cluster_locks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterLock {
+    // 행 잠금(SELECT ... FOR UPDATE) 대상. 내용은 없고 이름만 있다
+    @Id
+    @Column(length = 64)
+    private String name;
+}
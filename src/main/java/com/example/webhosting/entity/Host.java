@@ -7,7 +7,12 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "hosts")
+@Table(name = "hosts",
+       uniqueConstraints = @UniqueConstraint(name = "uk_host_user_name", columnNames = {"user_id", "hostName"}),
+       indexes = {
+           @Index(name = "idx_host_user_created", columnList = "user_id, createdAt"),
+           @Index(name = "idx_host_vm_id", columnList = "vmId")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,6 +24,10 @@ public class Host {
     @Column(nullable = false)
     private String hostName;
     
+    // 호스트명 유일성 키 (프록시 사용 시 소문자 호스트명, 아니면 사용자 ID/호스트명 - existsByHostNameAndUser 처럼 대소문자 구분). 인스턴스 간 중복 생성을 DB 가 막는다
+    @Column(unique = true)
+    private String nameKey;
+    
     private String vmId; // VirtualBox VM UUID
     private String vmName; // VirtualBox VM 이름
     private String vmIP; // VM IP 주소
@@ -26,9 +35,22 @@ public class Host {
     private Integer port80; // 웹서버 포트 포워딩
     private Integer port22; // SSH 포트 포워딩
     
+    private Long bandwidthLimit; // 초당 최대 응답 바이트 (null 이면 기본값)
+    
+    private String nodeName; // VM 이 있는 하이퍼바이저 노드 (null 이면 기본 노드)
+    private String storagePool; // VM 디스크를 둔 저장소 풀 (null 이면 기본 풀)
+    private Integer memory; // 배치 시 예약한 메모리 (MB)
+    private Integer cpus;
+    private Integer diskSize; // MB
+    private String plan; // 크기 요금제 (null 이면 요금제 도입 전 호스트)
+    private Integer maxCpus; // vCPU 핫플러그 상한 (null 이면 핫플러그 없음)
+    
     @Enumerated(EnumType.STRING)
     private HostStatus status = HostStatus.CREATING;
     
+    @Version
+    private Long version; // 여러 인스턴스가 같은 호스트 상태를 덮어쓰지 않도록
+    
     private LocalDateTime createdAt = LocalDateTime.now();
     private LocalDateTime updatedAt = LocalDateTime.now();
     
@@ -36,7 +58,14 @@ public class Host {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
+    /**
+     * 웹 서버가 떠 있어야 하는 상태 (DEGRADED 는 헬스 체크가 실패 중이지만 VM 은 실행 중)
+     */
+    public boolean isServing() {
+        return status == HostStatus.RUNNING || status == HostStatus.DEGRADED;
+    }
+    
     public enum HostStatus {
-        CREATING, RUNNING, STOPPED, ERROR
+        CREATING, RUNNING, DEGRADED, HIBERNATED, SUSPENDED, STOPPED, ERROR // HIBERNATED: 유휴로 VM 상태를 저장해 둠, 요청이 오면 깨어남 / SUSPENDED: 사용자가 일시 중지
     }
 }
\ No newline at end of file
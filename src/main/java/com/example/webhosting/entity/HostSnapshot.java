@@ -0,0 +1,41 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "host_snapshots", indexes = @Index(name = "idx_snapshot_host", columnList = "hostId, createdAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HostSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long hostId;
+    
+    @Column(nullable = false)
+    private String name;
+    
+    private String snapshotUuid; // VirtualBox 스냅샷 UUID (만드는 중이면 null)
+    
+    private boolean scheduled; // 스케줄러가 만든 스냅샷 (보존 정책 대상)
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SnapshotStatus status = SnapshotStatus.CREATING;
+    
+    private Long sizeBytes; // 만들 때 늘어난 스냅샷 폴더 크기 (원격 노드면 null)
+    private Long durationMs;
+    
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    public enum SnapshotStatus {
+        CREATING, READY
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "host_timeline_spans", indexes = @Index(name = "idx_timeline_span_host", columnList = "hostId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HostTimelineSpan {
+    // 생성이 끝날 때 span 을 한꺼번에 저장하므로 시퀀스로 JDBC 배치 삽입
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "timeline_span_seq")
+    @SequenceGenerator(name = "timeline_span_seq", sequenceName = "timeline_span_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long hostId;
+    
+    private int seq; // 호스트 내 기록 순서
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SpanType type;
+    
+    @Column(nullable = false)
+    private String name; // VBoxManage 서브커맨드, SSH 명령 등
+    
+    private LocalDateTime startedAt;
+    private LocalDateTime endedAt;
+    private Long durationMs;
+    
+    private Integer exitCode;
+    private Boolean success;
+    
+    @Column(length = 2048)
+    private String output; // 잘라낸 출력 (마지막 부분)
+    
+    public enum SpanType {
+        PHASE, VBOX, WAIT, SSH_CONNECT, SSH_COMMAND
+    }
+}
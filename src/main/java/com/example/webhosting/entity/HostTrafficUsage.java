@@ -0,0 +1,30 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "host_traffic_usage", indexes = @Index(name = "idx_traffic_host_minute", columnList = "hostId, bucket_minute"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HostTrafficUsage {
+    // 분 단위 행을 모아 일괄 저장하므로 IDENTITY 대신 시퀀스 사용 (JDBC 배치 가능)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "traffic_usage_seq")
+    @SequenceGenerator(name = "traffic_usage_seq", sequenceName = "traffic_usage_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long hostId;
+    
+    @Column(name = "bucket_minute", nullable = false) // MINUTE 는 H2 예약어
+    private LocalDateTime minute; // 집계 구간 시작 (분 단위)
+    
+    private long requests;
+    private long bytesIn;  // 클라이언트 → 호스트
+    private long bytesOut; // 호스트 → 클라이언트 (캐시 응답 포함)
+}
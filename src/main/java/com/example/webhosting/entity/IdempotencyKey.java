@@ -0,0 +1,45 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys",
+       uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_key", columnNames = {"userId", "requestKey"}),
+       indexes = @Index(name = "idx_idempotency_expires", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+    // 여러 인스턴스가 같은 키를 동시에 처음 받으면 (userId, requestKey) 유니크 제약으로 한쪽만 작업을 시작한다
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private String requestKey; // 클라이언트가 보낸 Idempotency-Key 헤더
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+    
+    @Column(nullable = false)
+    private String fingerprint; // 요청 내용 (같은 키로 다른 요청을 보냈는지 확인)
+    
+    private Long hostId; // 작업 대상 호스트 (생성은 호스트를 저장한 뒤 채운다)
+    
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    public enum Operation {
+        CREATE, DELETE
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "job_leases", indexes = @Index(name = "idx_job_lease_expires", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLease {
+    // 호스트당 진행 중인 작업은 하나 (생성/프로비저닝 또는 삭제)
+    @Id
+    private Long hostId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private JobType job;
+    
+    @Column(nullable = false)
+    private String owner; // 작업을 진행 중인 인스턴스
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt; // 하트비트가 끊기면 이 시각 이후 다른 인스턴스가 회수
+    
+    public enum JobType {
+        CREATE, DELETE, POWER, SNAPSHOT, RESIZE
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "port_leases",
+       uniqueConstraints = @UniqueConstraint(name = "uk_port_lease", columnNames = {"pool", "port"}),
+       indexes = @Index(name = "idx_port_lease_host", columnList = "hostId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortLease {
+    // 여러 인스턴스가 같은 포트를 동시에 잡으려 하면 (pool, port) 유니크 제약으로 한쪽만 성공한다
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 8)
+    private String pool; // web, ssh
+    
+    @Column(nullable = false)
+    private Integer port;
+    
+    private Long hostId;
+    
+    @Column(nullable = false)
+    private String owner; // 할당한 인스턴스
+    
+    private LocalDateTime leasedAt = LocalDateTime.now();
+}
@@ -0,0 +1,35 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "refresh_tokens", indexes = @Index(name = "idx_refresh_token_family", columnList = "familyId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(unique = true, nullable = false, length = 64)
+    private String tokenHash; // 원문 대신 SHA-256 해시만 저장
+    
+    @Column(nullable = false, length = 36)
+    private String familyId; // 회전으로 이어진 토큰 묶음 (재사용 감지 시 일괄 폐기)
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    private boolean revoked = false;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,24 @@
+package com.example.webhosting.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_token_revoked_at", columnList = "revokedAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    @Id
+    @Column(length = 36)
+    private String jti; // 폐기된 access token ID
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt; // 토큰 만료 후에는 기록도 필요 없음
+    
+    @Column(nullable = false)
+    private LocalDateTime revokedAt; // 다른 인스턴스가 새로 폐기된 토큰만 읽어 가는 기준
+}
@@ -0,0 +1,105 @@
+package com.example.webhosting.proxy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 백엔드별 keep-alive 연결 풀. 프록시 이벤트 루프 스레드에서만 사용한다.
+ * 유휴 연결은 읽기 이벤트를 걸어 두어 백엔드가 먼저 끊으면 바로 정리한다.
+ */
+final class BackendPool {
+    
+    private final int maxIdlePerBackend;
+    private final long idleTimeout;
+    private final Map<InetSocketAddress, ArrayDeque<SelectionKey>> idle = new HashMap<>();
+    
+    BackendPool(int maxIdlePerBackend, long idleTimeout) {
+        this.maxIdlePerBackend = maxIdlePerBackend;
+        this.idleTimeout = idleTimeout;
+    }
+    
+    /**
+     * 유휴 연결을 꺼낸다. 가장 최근에 반납된 연결이 살아 있을 가능성이 높으므로 뒤에서 꺼낸다.
+     */
+    SelectionKey acquire(InetSocketAddress backend) {
+        ArrayDeque<SelectionKey> keys = idle.get(backend);
+        while (keys != null && !keys.isEmpty()) {
+            SelectionKey key = keys.pollLast();
+            if (key.isValid() && key.channel().isOpen()) {
+                return key;
+            }
+        }
+        return null;
+    }
+    
+    void release(InetSocketAddress backend, SelectionKey key) {
+        if (maxIdlePerBackend <= 0) {
+            close(key);
+            return;
+        }
+        ArrayDeque<SelectionKey> keys = idle.computeIfAbsent(backend, address -> new ArrayDeque<>());
+        if (keys.size() >= maxIdlePerBackend) {
+            close(keys.pollFirst());
+        }
+        key.attach(new Idle(backend, System.currentTimeMillis()));
+        key.interestOps(SelectionKey.OP_READ);
+        keys.addLast(key);
+    }
+    
+    /**
+     * 유휴 연결에 읽을 데이터가 생겼다면 백엔드가 연결을 닫은 것이므로 버린다.
+     */
+    void evict(SelectionKey key) {
+        Idle state = (Idle) key.attachment();
+        ArrayDeque<SelectionKey> keys = idle.get(state.backend);
+        if (keys != null) {
+            keys.remove(key);
+        }
+        close(key);
+    }
+    
+    void evictExpired(long now) {
+        Iterator<ArrayDeque<SelectionKey>> it = idle.values().iterator();
+        while (it.hasNext()) {
+            ArrayDeque<SelectionKey> keys = it.next();
+            while (!keys.isEmpty() && now - ((Idle) keys.peekFirst().attachment()).since > idleTimeout) {
+                close(keys.pollFirst());
+            }
+            if (keys.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+    
+    int idleCount() {
+        return idle.values().stream().mapToInt(ArrayDeque::size).sum();
+    }
+    
+    void closeAll() {
+        idle.values().forEach(keys -> keys.forEach(BackendPool::close));
+        idle.clear();
+    }
+    
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+    
+    static final class Idle {
+        final InetSocketAddress backend;
+        final long since;
+        
+        Idle(InetSocketAddress backend, long since) {
+            this.backend = backend;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.webhosting.proxy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * HTTP 메시지 본문의 끝을 추적한다. 본문 바이트는 변환하지 않고 경계만 계산하므로
+ * 수신한 바이트를 그대로 상대편으로 흘려보낼 수 있다.
+ */
+final class BodyFraming {
+    
+    private enum Mode { NONE, LENGTH, CHUNKED, UNTIL_CLOSE }
+    
+    private enum ChunkState { SIZE, EXTENSION, SIZE_LF, DATA, DATA_CR, DATA_LF, TRAILER, TRAILER_LINE, FINAL_LF, DONE }
+    
+    private final Mode mode;
+    private long remaining;
+    private ChunkState chunkState = ChunkState.SIZE;
+    private boolean complete;
+    
+    private BodyFraming(Mode mode, long remaining) {
+        this.mode = mode;
+        this.remaining = remaining;
+        this.complete = mode == Mode.NONE || (mode == Mode.LENGTH && remaining == 0);
+    }
+    
+    static BodyFraming none() {
+        return new BodyFraming(Mode.NONE, 0);
+    }
+    
+    static BodyFraming length(long length) {
+        return new BodyFraming(Mode.LENGTH, length);
+    }
+    
+    static BodyFraming chunked() {
+        return new BodyFraming(Mode.CHUNKED, 0);
+    }
+    
+    static BodyFraming untilClose() {
+        return new BodyFraming(Mode.UNTIL_CLOSE, 0);
+    }
+    
+    boolean isComplete() {
+        return complete;
+    }
+    
+    boolean isUntilClose() {
+        return mode == Mode.UNTIL_CLOSE;
+    }
+    
+    /**
+     * 연결 종료로 본문이 끝나는 경우 종료 시점에 호출한다.
+     */
+    void finish() {
+        complete = true;
+    }
+    
+    /**
+     * 버퍼의 [from, to) 구간 중 이 본문에 속하는 바이트 수를 반환한다.
+     */
+    int consume(ByteBuffer buf, int from, int to) throws IOException {
+        if (complete) {
+            return 0;
+        }
+        switch (mode) {
+            case LENGTH: {
+                int n = (int) Math.min(remaining, to - from);
+                remaining -= n;
+                complete = remaining == 0;
+                return n;
+            }
+            case UNTIL_CLOSE:
+                return to - from;
+            case CHUNKED:
+                return consumeChunked(buf, from, to);
+            default:
+                return 0;
+        }
+    }
+    
+    private int consumeChunked(ByteBuffer buf, int from, int to) throws IOException {
+        int i = from;
+        while (i < to && chunkState != ChunkState.DONE) {
+            if (chunkState == ChunkState.DATA) {
+                int n = (int) Math.min(remaining, to - i);
+                i += n;
+                remaining -= n;
+                if (remaining == 0) {
+                    chunkState = ChunkState.DATA_CR;
+                }
+                continue;
+            }
+            byte b = buf.get(i++);
+            switch (chunkState) {
+                case SIZE: {
+                    int digit = Character.digit(b, 16);
+                    if (digit >= 0) {
+                        if (remaining > (Long.MAX_VALUE >> 4)) {
+                            throw new IOException("chunk 크기가 너무 큽니다");
+                        }
+                        remaining = remaining * 16 + digit;
+                    } else if (b == ';' || b == ' ' || b == '\t') {
+                        chunkState = ChunkState.EXTENSION;
+                    } else if (b == '\r') {
+                        chunkState = ChunkState.SIZE_LF;
+                    } else if (b == '\n') {
+                        chunkSizeRead();
+                    } else {
+                        throw new IOException("잘못된 chunk 크기");
+                    }
+                    break;
+                }
+                case EXTENSION:
+                    if (b == '\r') {
+                        chunkState = ChunkState.SIZE_LF;
+                    } else if (b == '\n') {
+                        chunkSizeRead();
+                    }
+                    break;
+                case SIZE_LF:
+                    expect(b, '\n');
+                    chunkSizeRead();
+                    break;
+                case DATA_CR:
+                    if (b == '\r') {
+                        chunkState = ChunkState.DATA_LF;
+                    } else {
+                        expect(b, '\n');
+                        chunkState = ChunkState.SIZE;
+                    }
+                    break;
+                case DATA_LF:
+                    expect(b, '\n');
+                    chunkState = ChunkState.SIZE;
+                    break;
+                case TRAILER:
+                    if (b == '\r') {
+                        chunkState = ChunkState.FINAL_LF;
+                    } else if (b == '\n') {
+                        chunkState = ChunkState.DONE;
+                    } else {
+                        chunkState = ChunkState.TRAILER_LINE;
+                    }
+                    break;
+                case TRAILER_LINE:
+                    if (b == '\n') {
+                        chunkState = ChunkState.TRAILER;
+                    }
+                    break;
+                case FINAL_LF:
+                    expect(b, '\n');
+                    chunkState = ChunkState.DONE;
+                    break;
+                default:
+                    break;
+            }
+        }
+        complete = chunkState == ChunkState.DONE;
+        return i - from;
+    }
+    
+    private void chunkSizeRead() {
+        chunkState = remaining == 0 ? ChunkState.TRAILER : ChunkState.DATA;
+    }
+    
+    private static void expect(byte actual, char expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("잘못된 chunked 인코딩");
+        }
+    }
+}
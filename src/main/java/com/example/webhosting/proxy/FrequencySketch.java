@@ -0,0 +1,70 @@
+package com.example.webhosting.proxy;
+
+/**
+ * TinyLFU 입장 정책용 접근 빈도 추정기 (4비트 count-min sketch).
+ * 샘플 수가 일정량에 도달하면 모든 카운터를 절반으로 줄여 오래된 인기도를 잊는다.
+ * 프록시 이벤트 루프 스레드에서만 사용한다.
+ */
+final class FrequencySketch {
+    
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+    
+    FrequencySketch(int expectedEntries) {
+        int length = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = length * 10;
+    }
+    
+    int frequency(int hash) {
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int index = index(hash, i);
+            int offset = counterOffset(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+        }
+        return frequency;
+    }
+    
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = index(hash, i);
+            int offset = counterOffset(hash, i);
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+    
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+    
+    private int index(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+    
+    // 각 long 에 4비트 카운터 16개, 해시 함수마다 서로 다른 카운터를 고른다
+    private static int counterOffset(int hash, int i) {
+        return (((hash >>> (i << 3)) & 3) << 2) + (i << 4) & 63;
+    }
+}
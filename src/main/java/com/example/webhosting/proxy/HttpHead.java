@@ -0,0 +1,122 @@
+package com.example.webhosting.proxy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * HTTP/1.x 요청/응답 헤더 파싱.
+ * 헤더는 ISO-8859-1 로 해석하고, 버퍼 내용은 위치만 읽고 변경하지 않는다.
+ */
+final class HttpHead {
+    
+    final String startLine;
+    final List<String[]> headers;
+    
+    private HttpHead(String startLine, List<String[]> headers) {
+        this.startLine = startLine;
+        this.headers = headers;
+    }
+    
+    /**
+     * [from, to) 구간에서 헤더 끝(빈 줄)을 찾아 그 다음 위치를 반환한다. 없으면 -1.
+     */
+    static int findEnd(ByteBuffer buf, int from, int to) {
+        for (int i = from; i + 3 < to; i++) {
+            if (buf.get(i) == '\r' && buf.get(i + 1) == '\n' && buf.get(i + 2) == '\r' && buf.get(i + 3) == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+    
+    static HttpHead parse(ByteBuffer buf, int from, int to) throws HttpParseException {
+        byte[] bytes = new byte[to - from];
+        buf.get(from, bytes);
+        String[] lines = new String(bytes, StandardCharsets.ISO_8859_1).split("\r\n");
+        if (lines.length == 0 || lines[0].isEmpty()) {
+            throw new HttpParseException("시작 줄이 없습니다");
+        }
+        List<String[]> headers = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.isEmpty()) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0 || line.charAt(0) == ' ' || line.charAt(0) == '\t' || line.charAt(colon - 1) == ' ') {
+                throw new HttpParseException("잘못된 헤더: " + line);
+            }
+            headers.add(new String[] { line.substring(0, colon), line.substring(colon + 1).trim() });
+        }
+        return new HttpHead(lines[0], headers);
+    }
+    
+    String header(String name) {
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                return header[1];
+            }
+        }
+        return null;
+    }
+    
+    int count(String name) {
+        int count = 0;
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 쉼표로 구분된 헤더 값(Connection, Transfer-Encoding)에 토큰이 있는지 확인한다.
+     */
+    boolean hasToken(String name, String token) {
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                for (String value : header[1].split(",")) {
+                    if (value.trim().equalsIgnoreCase(token)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 요청이면 [메서드, 대상, 버전], 응답이면 [버전, 상태 코드, 사유]
+     */
+    String[] startLineParts() throws HttpParseException {
+        String[] parts = startLine.split(" ", 3);
+        if (parts.length < 2) {
+            throw new HttpParseException("잘못된 시작 줄: " + startLine);
+        }
+        return parts;
+    }
+    
+    static boolean isHopByHop(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "connection":
+            case "keep-alive":
+            case "proxy-connection":
+            case "upgrade":
+            case "te":
+            case "trailer":
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    static class HttpParseException extends Exception {
+        HttpParseException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,769 @@
+package com.example.webhosting.proxy;
+
+import com.example.webhosting.proxy.HttpHead.HttpParseException;
+import com.example.webhosting.service.TrafficAccountingService.HostTraffic;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 클라이언트 연결 하나와 현재 요청을 처리 중인 백엔드 연결의 상태.
+ * 요청 헤더만 다시 써서 보내고, 본문과 응답은 direct 버퍼에서 그대로 상대 소켓으로 쓴다.
+ * 버퍼가 가득 차면 해당 방향 읽기를 멈춰 느린 쪽에 맞춘다.
+ * 캐시할 수 있는 응답은 클라이언트로 흘려보내는 동시에 ResponseCache 에 복사한다.
+ * 호스트별 요청/바이트 수를 집계하고, 대역폭 제한이 있으면 토큰이 찰 때까지 클라이언트 쓰기를 미룬다.
+ */
+@Slf4j
+final class ProxyConnection {
+    
+    private enum State { REQUEST_HEAD, WAKING, CONNECTING, FORWARDING, CLOSING, CLOSED }
+    
+    private final ReverseProxyServer server;
+    private final SocketChannel client;
+    private final SelectionKey clientKey;
+    private final String clientAddress;
+    private final ByteBuffer requestBuf;  // 클라이언트 → 백엔드
+    private final ByteBuffer responseBuf; // 백엔드 → 클라이언트
+    
+    private State state = State.REQUEST_HEAD;
+    private long lastActivity = System.currentTimeMillis();
+    private long connectDeadline;
+    
+    private SocketChannel backend;
+    private SelectionKey backendKey;
+    private InetSocketAddress backendAddress;
+    
+    private ByteBuffer requestHead;     // 다시 쓴 요청 헤더 (전송 대기)
+    private ByteBuffer[] localResponse; // 프록시가 직접 보내는 응답 (오류, 캐시 적중)
+    private boolean closeAfterLocal;
+    private BodyFraming requestBody;
+    private BodyFraming responseBody;
+    private int requestReady;  // requestBuf 앞쪽의 전송할 본문 바이트 수
+    private int responseReady; // responseBuf 앞쪽의 전송할 응답 바이트 수
+    private boolean responseStarted;
+    private boolean responseHeadDone;
+    private boolean headRequest;
+    private boolean clientKeepAlive;
+    private boolean backendKeepAlive;
+    
+    private String routeName;
+    private String cacheKey;
+    private ResponseCache.Entry serving;      // 전송 중인 캐시 항목
+    private ResponseCache.Entry revalidating; // 백엔드에 조건부 요청으로 확인 중인 항목
+    private ResponseCache.Entry storing;      // 응답을 기록 중인 새 항목
+    
+    private HostTraffic traffic; // 현재 요청 호스트의 트래픽 카운터
+    private TokenBucket bucket;  // 현재 요청 호스트의 대역폭 제한 (없으면 null)
+    private long throttledUntil; // 0 이 아니면 이 시각까지 클라이언트 쓰기 중지
+    
+    ProxyConnection(ReverseProxyServer server, SocketChannel client, SelectionKey clientKey, int bufferSize) throws IOException {
+        this.server = server;
+        this.client = client;
+        this.clientKey = clientKey;
+        this.clientAddress = ((InetSocketAddress) client.getRemoteAddress()).getAddress().getHostAddress();
+        this.requestBuf = ByteBuffer.allocateDirect(bufferSize);
+        this.responseBuf = ByteBuffer.allocateDirect(bufferSize);
+    }
+    
+    void handle(SelectionKey key) {
+        lastActivity = System.currentTimeMillis();
+        try {
+            if (key == clientKey) {
+                if (key.isReadable()) {
+                    readClient();
+                }
+                if (state != State.CLOSED && key.isValid() && key.isWritable()) {
+                    writeClient();
+                }
+            } else if (state == State.CONNECTING) {
+                finishConnect();
+            } else {
+                if (key.isReadable()) {
+                    readBackend();
+                }
+                if (state == State.FORWARDING && key.isValid() && key.isWritable()) {
+                    writeBackend();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("프록시 연결 오류 ({}): {}", clientAddress, e.getMessage());
+            if (key != clientKey && !responseStarted && localResponse == null) {
+                sendError(502, "Bad Gateway", "백엔드와 통신할 수 없습니다");
+            } else {
+                close();
+            }
+        }
+        updateInterest();
+    }
+    
+    /**
+     * 유휴/연결 시간 초과 확인. 이벤트 루프가 주기적으로 호출한다.
+     */
+    void checkTimeout(long now, long idleTimeout) {
+        if (state == State.WAKING) {
+            if (now > connectDeadline) {
+                sendError(504, "Gateway Timeout", "호스트를 깨우는 시간이 초과되었습니다");
+                updateInterest();
+            }
+        } else if (state == State.CONNECTING && now > connectDeadline) {
+            sendError(504, "Gateway Timeout", "백엔드 연결 시간이 초과되었습니다");
+            updateInterest();
+        } else if (now - lastActivity > idleTimeout) {
+            if (state == State.FORWARDING && !responseStarted && localResponse == null) {
+                sendError(504, "Gateway Timeout", "백엔드 응답 시간이 초과되었습니다");
+                updateInterest();
+            } else {
+                close();
+            }
+        }
+    }
+    
+    private void readClient() throws IOException {
+        int n = client.read(requestBuf);
+        if (n < 0) {
+            close();
+            return;
+        }
+        if (state == State.REQUEST_HEAD) {
+            parseRequestHead();
+        } else if (requestBody != null && !requestBody.isComplete()) {
+            int body = requestBody.consume(requestBuf, requestReady, requestBuf.position());
+            requestReady += body;
+            if (traffic != null) {
+                traffic.bytesIn.add(body);
+            }
+            if (state == State.FORWARDING) {
+                writeBackend();
+            }
+        }
+    }
+    
+    private void parseRequestHead() throws IOException {
+        int end = HttpHead.findEnd(requestBuf, 0, requestBuf.position());
+        if (end < 0) {
+            if (!requestBuf.hasRemaining()) {
+                sendError(431, "Request Header Fields Too Large", "요청 헤더가 너무 큽니다");
+            }
+            return;
+        }
+        
+        HttpHead head;
+        String method;
+        String target;
+        String version;
+        try {
+            head = HttpHead.parse(requestBuf, 0, end);
+            String[] parts = head.startLineParts();
+            method = parts[0];
+            target = parts[1];
+            version = parts.length > 2 ? parts[2] : "";
+            requestBody = requestFraming(head);
+        } catch (HttpParseException e) {
+            sendError(400, "Bad Request", e.getMessage());
+            return;
+        }
+        if (!version.startsWith("HTTP/1.")) {
+            sendError(505, "HTTP Version Not Supported", "HTTP/1.x 요청만 지원합니다");
+            return;
+        }
+        String host = head.header("Host");
+        if (host == null || head.count("Host") > 1) {
+            sendError(400, "Bad Request", "Host 헤더가 필요합니다");
+            return;
+        }
+        routeName = server.routes().routeName(host);
+        ProxyRouteTable.Route route = routeName != null ? server.routes().lookup(routeName) : null;
+        if (route == null) {
+            sendError(404, "Not Found", "등록되지 않은 호스트입니다: " + host);
+            return;
+        }
+        
+        // 헤더를 버퍼에서 제거하고 남은 바이트 중 본문 부분만 전송 대상으로 표시
+        consume(requestBuf, end);
+        requestReady = requestBody.consume(requestBuf, 0, requestBuf.position());
+        traffic = server.traffic(route);
+        bucket = server.bucket(route);
+        traffic.requests.increment();
+        traffic.bytesIn.add(end + requestReady);
+        headRequest = "HEAD".equals(method);
+        clientKeepAlive = "HTTP/1.1".equals(version) && !head.hasToken("Connection", "close");
+        responseStarted = false;
+        responseHeadDone = false;
+        responseReady = 0;
+        
+        if (serveFromCache(method, target, head)) {
+            return;
+        }
+        requestHead = ByteBuffer.wrap(rewriteRequestHead(head, host).getBytes(StandardCharsets.ISO_8859_1));
+        if (route.hibernated) {
+            // 요청을 붙잡아 두고 VM 이 저장된 상태에서 깨어나면 연결한다
+            state = State.WAKING;
+            connectDeadline = System.currentTimeMillis() + server.config().getWakeTimeout();
+            server.wake(this, route);
+            return;
+        }
+        connect(route.backend);
+    }
+    
+    /**
+     * 호스트 깨우기가 끝났다. 이벤트 루프 스레드에서 호출된다.
+     */
+    void woken(boolean success) {
+        if (state != State.WAKING) {
+            // 기다리다 시간 초과되었거나 클라이언트가 끊음
+            return;
+        }
+        ProxyRouteTable.Route route = success ? server.routes().lookup(routeName) : null;
+        try {
+            if (route == null || route.hibernated) {
+                sendError(503, "Service Unavailable", "호스트를 깨우지 못했습니다");
+            } else {
+                connect(route.backend);
+            }
+        } catch (IOException e) {
+            sendError(502, "Bad Gateway", "백엔드와 통신할 수 없습니다");
+        }
+        updateInterest();
+    }
+    
+    /**
+     * 유효한 캐시 항목이 있으면 바로 응답한다. 만료됐지만 검증자가 있으면 조건부 요청으로 재검증하도록 표시한다.
+     */
+    private boolean serveFromCache(String method, String target, HttpHead head) {
+        ResponseCache cache = server.cache();
+        cacheKey = null;
+        if (!cache.isEnabled() || !ResponseCache.isCacheable(method, head, requestBody)) {
+            return false;
+        }
+        cacheKey = ResponseCache.key(routeName, target, head);
+        ResponseCache.Entry entry = cache.lookup(cacheKey);
+        if (entry == null) {
+            cache.recordMiss(routeName);
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        boolean noCache = head.hasToken("Cache-Control", "no-cache") || head.hasToken("Pragma", "no-cache");
+        if (entry.isFresh(now) && !noCache) {
+            if (ResponseCache.matchesConditional(entry, head)) {
+                cache.recordHit(routeName, entry.bodyLength);
+                sendLocal(entry, cache.notModified(entry, clientKeepAlive, now), !clientKeepAlive);
+            } else {
+                cache.recordHit(routeName, headRequest ? 0 : entry.bodyLength);
+                sendLocal(entry, cache.response(entry, !headRequest, clientKeepAlive, now), !clientKeepAlive);
+            }
+            return true;
+        }
+        if (entry.hasValidators() && !ResponseCache.hasConditional(head)) {
+            entry.pins++;
+            revalidating = entry;
+        } else {
+            cache.recordMiss(routeName);
+        }
+        return false;
+    }
+    
+    private static BodyFraming requestFraming(HttpHead head) throws HttpParseException {
+        String transferEncoding = head.header("Transfer-Encoding");
+        String contentLength = head.header("Content-Length");
+        if (transferEncoding != null) {
+            // 두 헤더가 함께 오면 요청 스머글링 위험이 있으므로 거부
+            if (contentLength != null || !transferEncoding.toLowerCase(Locale.ROOT).trim().endsWith("chunked")) {
+                throw new HttpParseException("지원하지 않는 Transfer-Encoding 입니다");
+            }
+            return BodyFraming.chunked();
+        }
+        if (contentLength != null) {
+            return BodyFraming.length(parseLength(head));
+        }
+        return BodyFraming.none();
+    }
+    
+    private static long parseLength(HttpHead head) throws HttpParseException {
+        if (head.count("Content-Length") > 1) {
+            throw new HttpParseException("Content-Length 헤더가 중복되었습니다");
+        }
+        try {
+            long length = Long.parseLong(head.header("Content-Length"));
+            if (length < 0) {
+                throw new NumberFormatException();
+            }
+            return length;
+        } catch (NumberFormatException e) {
+            throw new HttpParseException("잘못된 Content-Length 입니다");
+        }
+    }
+    
+    private String rewriteRequestHead(HttpHead head, String host) {
+        StringBuilder sb = new StringBuilder(head.startLine.length() + head.headers.size() * 32 + 128);
+        sb.append(head.startLine).append("\r\n");
+        for (String[] header : head.headers) {
+            if (HttpHead.isHopByHop(header[0]) || header[0].toLowerCase(Locale.ROOT).startsWith("x-forwarded-")) {
+                continue;
+            }
+            sb.append(header[0]).append(": ").append(header[1]).append("\r\n");
+        }
+        sb.append("X-Forwarded-For: ").append(clientAddress).append("\r\n");
+        sb.append("X-Forwarded-Host: ").append(host).append("\r\n");
+        sb.append("X-Forwarded-Proto: http\r\n");
+        if (revalidating != null) {
+            if (revalidating.etag != null) {
+                sb.append("If-None-Match: ").append(revalidating.etag).append("\r\n");
+            }
+            if (revalidating.lastModified != null) {
+                sb.append("If-Modified-Since: ").append(revalidating.lastModified).append("\r\n");
+            }
+        }
+        sb.append("\r\n");
+        return sb.toString();
+    }
+    
+    private void connect(InetSocketAddress target) throws IOException {
+        backendAddress = target;
+        SelectionKey pooled = server.pool().acquire(target);
+        if (pooled != null) {
+            backendKey = pooled;
+            backend = (SocketChannel) pooled.channel();
+            backendKey.attach(this);
+            state = State.FORWARDING;
+            writeBackend();
+            return;
+        }
+        
+        backend = SocketChannel.open();
+        backend.configureBlocking(false);
+        backend.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        backendKey = backend.register(clientKey.selector(), 0, this);
+        if (backend.connect(target)) {
+            state = State.FORWARDING;
+            writeBackend();
+        } else {
+            state = State.CONNECTING;
+            connectDeadline = System.currentTimeMillis() + server.config().getConnectTimeout();
+        }
+    }
+    
+    private void finishConnect() throws IOException {
+        if (backend.finishConnect()) {
+            state = State.FORWARDING;
+            writeBackend();
+        }
+    }
+    
+    private void writeBackend() throws IOException {
+        if (requestHead != null) {
+            backend.write(requestHead);
+            if (requestHead.hasRemaining()) {
+                return;
+            }
+            requestHead = null;
+        }
+        if (requestReady > 0) {
+            requestReady -= drain(requestBuf, requestReady, backend);
+        }
+    }
+    
+    private void readBackend() throws IOException {
+        int n = backend.read(responseBuf);
+        if (n < 0) {
+            backendClosed();
+            return;
+        }
+        scanResponse();
+        writeClient();
+    }
+    
+    private void scanResponse() throws IOException {
+        while (!responseHeadDone) {
+            int end = HttpHead.findEnd(responseBuf, responseReady, responseBuf.position());
+            if (end < 0) {
+                if (!responseBuf.hasRemaining()) {
+                    throw new IOException("응답 헤더가 너무 큽니다");
+                }
+                return;
+            }
+            HttpHead head;
+            int status;
+            try {
+                head = HttpHead.parse(responseBuf, responseReady, end);
+                String[] parts = head.startLineParts();
+                status = Integer.parseInt(parts[1]);
+            } catch (HttpParseException | NumberFormatException e) {
+                throw new IOException("잘못된 응답 헤더: " + e.getMessage());
+            }
+            if (status >= 100 && status < 200 && status != 101) {
+                // 100 Continue 같은 중간 응답은 그대로 전달하고 다음 헤더를 기다린다
+                responseStarted = true;
+                responseReady = end;
+                continue;
+            }
+            responseBody = responseFraming(head, status);
+            backendKeepAlive = head.startLine.startsWith("HTTP/1.1")
+                && !head.hasToken("Connection", "close")
+                && !responseBody.isUntilClose();
+            responseHeadDone = true;
+            
+            if (revalidating != null && status == 304 && responseReady == 0) {
+                // 프록시가 붙인 조건부 요청의 304 는 클라이언트에 전달하지 않고 캐시된 응답으로 답한다
+                consume(responseBuf, end);
+                ResponseCache cache = server.cache();
+                long now = System.currentTimeMillis();
+                ResponseCache.Entry entry = revalidating;
+                revalidating = null;
+                cache.refresh(entry, head, now);
+                cache.recordHit(routeName, headRequest ? 0 : entry.bodyLength);
+                sendLocal(entry, cache.response(entry, !headRequest, clientKeepAlive, now), !clientKeepAlive);
+                cache.release(entry);
+                return;
+            }
+            if (revalidating != null) {
+                server.cache().recordMiss(routeName);
+                server.cache().release(revalidating);
+                revalidating = null;
+            }
+            responseStarted = true;
+            responseReady = end;
+            if (!backendKeepAlive) {
+                // 응답 헤더를 그대로 전달하므로 클라이언트 연결도 같이 닫는다
+                clientKeepAlive = false;
+            }
+            startStoring(head, status);
+        }
+        int before = responseReady;
+        responseReady += responseBody.consume(responseBuf, responseReady, responseBuf.position());
+        if (storing != null) {
+            server.cache().append(storing, responseBuf, before, responseReady);
+            if (responseBody.isComplete()) {
+                server.cache().commit(storing);
+                storing = null;
+            }
+        }
+    }
+    
+    private void startStoring(HttpHead head, int status) throws IOException {
+        if (cacheKey == null || headRequest || status != 200
+            || head.header("Content-Length") == null || head.hasToken("Transfer-Encoding", "chunked")) {
+            return;
+        }
+        ResponseCache cache = server.cache();
+        long expiresAt = cache.expiresAt(head, System.currentTimeMillis());
+        if (expiresAt < 0) {
+            return;
+        }
+        try {
+            storing = cache.begin(cacheKey, routeName, head, parseLength(head), expiresAt);
+        } catch (HttpParseException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+    
+    private BodyFraming responseFraming(HttpHead head, int status) throws IOException {
+        if (headRequest || status == 204 || status == 304 || (status >= 100 && status < 200 && status != 101)) {
+            return BodyFraming.none();
+        }
+        if (head.hasToken("Transfer-Encoding", "chunked")) {
+            return BodyFraming.chunked();
+        }
+        if (head.header("Content-Length") != null) {
+            try {
+                return BodyFraming.length(parseLength(head));
+            } catch (HttpParseException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+        return BodyFraming.untilClose();
+    }
+    
+    private void backendClosed() {
+        closeBackend();
+        if (responseHeadDone && responseBody.isUntilClose()) {
+            responseBody.finish();
+            completeIfDone();
+        } else if (!responseStarted && localResponse == null) {
+            sendError(502, "Bad Gateway", "백엔드가 연결을 종료했습니다");
+        } else {
+            // 응답 도중 끊김: 잘린 응답을 정상처럼 보이지 않도록 클라이언트도 닫는다
+            close();
+        }
+    }
+    
+    private void writeClient() throws IOException {
+        if (throttledUntil != 0) {
+            return;
+        }
+        long allowance = allowance();
+        if (allowance == 0) {
+            return;
+        }
+        if (localResponse != null) {
+            sent(write(localResponse, allowance));
+            if (localResponse[localResponse.length - 1].hasRemaining()) {
+                return;
+            }
+            localResponse = null;
+            releaseCacheEntries();
+            if (closeAfterLocal) {
+                close();
+            } else {
+                finishExchange();
+            }
+            return;
+        }
+        if (responseReady > 0) {
+            int written = drain(responseBuf, (int) Math.min(responseReady, allowance), client);
+            responseReady -= written;
+            sent(written);
+        }
+        completeIfDone();
+    }
+    
+    /**
+     * 지금 클라이언트에 쓸 수 있는 바이트 수. 토큰이 모자라면 다시 찰 시각까지 연결을 쉬게 하고 0 을 반환한다.
+     */
+    private long allowance() {
+        if (bucket == null) {
+            return Long.MAX_VALUE;
+        }
+        long pending = localResponse != null ? remaining(localResponse) : responseReady;
+        long wanted = Math.min(pending, bucket.minChunk());
+        long available = bucket.available(System.nanoTime());
+        if (pending == 0 || available >= wanted) {
+            return Math.max(available, 1);
+        }
+        throttledUntil = System.currentTimeMillis() + bucket.waitMillis(wanted);
+        server.throttle(this, throttledUntil);
+        return 0;
+    }
+    
+    /**
+     * 대역폭 제한으로 쉬던 연결을 다시 쓰기 시작한다. 이벤트 루프가 호출한다.
+     */
+    void resume() {
+        throttledUntil = 0;
+        lastActivity = System.currentTimeMillis();
+        try {
+            writeClient();
+        } catch (IOException e) {
+            close();
+        }
+        updateInterest();
+    }
+    
+    private void sent(long bytes) {
+        if (traffic != null) {
+            traffic.bytesOut.add(bytes);
+        }
+        if (bucket != null) {
+            bucket.consume(bytes);
+        }
+    }
+    
+    private long write(ByteBuffer[] buffers, long max) throws IOException {
+        if (max == Long.MAX_VALUE) {
+            return client.write(buffers);
+        }
+        // max 바이트가 끝나는 버퍼의 limit 를 잠시 줄여서 쓴다
+        int cut = -1;
+        int limit = 0;
+        long budget = max;
+        for (int i = 0; i < buffers.length; i++) {
+            int r = buffers[i].remaining();
+            if (r >= budget) {
+                cut = i;
+                limit = buffers[i].limit();
+                buffers[i].limit(buffers[i].position() + (int) budget);
+                break;
+            }
+            budget -= r;
+        }
+        try {
+            return client.write(buffers);
+        } finally {
+            if (cut >= 0) {
+                buffers[cut].limit(limit);
+            }
+        }
+    }
+    
+    private static long remaining(ByteBuffer[] buffers) {
+        long total = 0;
+        for (ByteBuffer buf : buffers) {
+            total += buf.remaining();
+        }
+        return total;
+    }
+    
+    private void completeIfDone() {
+        if (!responseHeadDone || !responseBody.isComplete() || responseReady > 0
+            || localResponse != null || state == State.CLOSED) {
+            return;
+        }
+        finishExchange();
+    }
+    
+    private void finishExchange() {
+        boolean requestDone = requestHead == null && requestBody.isComplete() && requestReady == 0;
+        if (backend != null) {
+            if (backendKeepAlive && requestDone && responseBuf.position() == 0) {
+                server.pool().release(backendAddress, backendKey);
+                backend = null;
+                backendKey = null;
+            } else {
+                closeBackend();
+            }
+        }
+        responseBuf.clear();
+        responseHeadDone = false;
+        responseStarted = false;
+        cacheKey = null;
+        traffic = null;
+        bucket = null;
+        
+        if (!clientKeepAlive || !requestDone) {
+            close();
+            return;
+        }
+        state = State.REQUEST_HEAD;
+        requestBody = null;
+        if (requestBuf.position() > 0) {
+            // 파이프라이닝으로 이미 도착한 다음 요청
+            try {
+                parseRequestHead();
+            } catch (IOException e) {
+                close();
+            }
+        }
+    }
+    
+    private void sendError(int status, String reason, String message) {
+        closeBackend();
+        releaseCacheEntries();
+        byte[] body = (status + " " + reason + "\n" + message + "\n").getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+            + "Content-Type: text/plain; charset=UTF-8\r\n"
+            + "Content-Length: " + body.length + "\r\n"
+            + "Connection: close\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        state = State.CLOSING;
+        sendLocal(null, new ByteBuffer[] { ByteBuffer.allocate(headBytes.length + body.length).put(headBytes).put(body).flip() }, true);
+    }
+    
+    /**
+     * 백엔드를 거치지 않는 응답을 보낸다. entry 는 전송이 끝날 때까지 고정된 캐시 항목.
+     */
+    private void sendLocal(ResponseCache.Entry entry, ByteBuffer[] response, boolean close) {
+        serving = entry;
+        localResponse = response;
+        closeAfterLocal = close;
+        responseStarted = true;
+        try {
+            writeClient();
+        } catch (IOException e) {
+            close();
+        }
+    }
+    
+    private void releaseCacheEntries() {
+        ResponseCache cache = server.cache();
+        if (serving != null) {
+            cache.release(serving);
+            serving = null;
+        }
+        if (revalidating != null) {
+            cache.release(revalidating);
+            revalidating = null;
+        }
+        if (storing != null) {
+            cache.abort(storing);
+            storing = null;
+        }
+    }
+    
+    private void updateInterest() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        int clientOps = 0;
+        boolean throttled = throttledUntil != 0;
+        if (localResponse != null) {
+            clientOps = throttled ? 0 : SelectionKey.OP_WRITE;
+        } else {
+            if (requestBuf.hasRemaining()) {
+                clientOps |= SelectionKey.OP_READ;
+            }
+            if (responseReady > 0 && !throttled) {
+                clientOps |= SelectionKey.OP_WRITE;
+            }
+        }
+        clientKey.interestOps(clientOps);
+        
+        if (backendKey != null && backendKey.isValid()) {
+            int backendOps = 0;
+            if (state == State.CONNECTING) {
+                backendOps = SelectionKey.OP_CONNECT;
+            } else if (state == State.FORWARDING) {
+                if (requestHead != null || requestReady > 0) {
+                    backendOps |= SelectionKey.OP_WRITE;
+                }
+                if (responseBuf.hasRemaining() && !(responseHeadDone && responseBody.isComplete())) {
+                    backendOps |= SelectionKey.OP_READ;
+                }
+            }
+            backendKey.interestOps(backendOps);
+        }
+    }
+    
+    void close() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        state = State.CLOSED;
+        closeBackend();
+        releaseCacheEntries();
+        clientKey.cancel();
+        try {
+            client.close();
+        } catch (IOException ignored) {
+        }
+        server.closed(this);
+    }
+    
+    private void closeBackend() {
+        if (backendKey != null) {
+            backendKey.cancel();
+        }
+        if (backend != null) {
+            try {
+                backend.close();
+            } catch (IOException ignored) {
+            }
+        }
+        backend = null;
+        backendKey = null;
+    }
+    
+    /**
+     * 버퍼 앞쪽 n 바이트를 최대한 쓰고 쓴 만큼 버퍼에서 제거한다. 버퍼는 채우기 모드를 유지한다.
+     */
+    private static int drain(ByteBuffer buf, int n, SocketChannel channel) throws IOException {
+        buf.flip();
+        int end = buf.limit();
+        buf.limit(n);
+        int written = channel.write(buf);
+        buf.limit(end);
+        buf.compact();
+        return written;
+    }
+    
+    private static void consume(ByteBuffer buf, int n) {
+        buf.flip();
+        buf.position(n);
+        buf.compact();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.webhosting.proxy;
+
+import com.example.webhosting.config.ProxyConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.service.HypervisorNodeRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 호스트명 → VM 웹 백엔드 주소 라우팅 테이블.
+ * 호스트 생성/삭제 시 즉시 갱신되고, 주기적으로 hosts 테이블과 다시 맞춘다.
+ * 동기화 도중 바뀐 항목은 세대 번호로 구분해 동기화 결과로 덮어쓰지 않는다.
+ */
+@Component
+@Slf4j
+public class ProxyRouteTable {
+    
+    @Autowired
+    private ProxyConfig config;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodes;
+    
+    @Value("${traffic.default-bandwidth-limit:0}")
+    private long defaultBandwidthLimit;
+    
+    private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    
+    @PostConstruct
+    void init() {
+        if (config.isEnabled()) {
+            sync();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${proxy.route-sync-interval:30000}")
+    public void sync() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long start = generation.get();
+        Map<String, Route> current = new HashMap<>();
+        for (Object[] row : hostRepository.findRoutes()) {
+            Route route = route((Long) row[0], (String) row[4], (Integer) row[2], (Long) row[3],
+                                row[5] == Host.HostStatus.HIBERNATED, start);
+            if (route != null) {
+                current.put(key((String) row[1]), route);
+            }
+        }
+        
+        current.forEach((name, fresh) -> routes.compute(name, (k, route) ->
+            route != null && route.generation > start ? route : fresh));
+        for (String name : routes.keySet()) {
+            if (!current.containsKey(name)) {
+                routes.computeIfPresent(name, (k, route) -> route.generation > start ? route : null);
+            }
+        }
+        log.debug("프록시 라우팅 테이블 동기화 - {}개", current.size());
+    }
+    
+    public void put(Host host) {
+        Route route = route(host.getId(), host.getNodeName(), host.getPort80(), host.getBandwidthLimit(),
+                            host.getStatus() == Host.HostStatus.HIBERNATED, generation.incrementAndGet());
+        if (route == null) {
+            log.warn("호스트 {} 의 하이퍼바이저 노드 {} 가 설정에 없어 라우팅하지 않습니다", host.getHostName(), host.getNodeName());
+            return;
+        }
+        routes.put(key(host.getHostName()), route);
+    }
+    
+    public void remove(String hostName) {
+        // 진행 중인 동기화가 삭제 직전의 스냅샷으로 되살리지 않도록 빈 항목을 남긴다
+        routes.put(key(hostName), new Route(null, null, 0, false, generation.incrementAndGet()));
+    }
+    
+    /**
+     * Host 헤더에서 라우팅 키(소문자 호스트명)를 꺼낸다. 프록시 도메인이 아니면 null.
+     */
+    public String routeName(String hostHeader) {
+        String host = hostHeader.trim().toLowerCase(Locale.ROOT);
+        int colon = host.lastIndexOf(':');
+        if (colon >= 0) {
+            host = host.substring(0, colon);
+        }
+        String suffix = "." + config.getDomain().toLowerCase(Locale.ROOT);
+        if (!host.endsWith(suffix)) {
+            return null;
+        }
+        String name = host.substring(0, host.length() - suffix.length());
+        return name.isEmpty() || name.indexOf('.') >= 0 ? null : name;
+    }
+    
+    /**
+     * 호스트에 적용되는 응답 대역폭 제한 (bytes/s). 0 이면 제한 없음.
+     */
+    public long bandwidthLimit(Host host) {
+        return limit(host.getBandwidthLimit());
+    }
+    
+    /**
+     * 라우팅 키로 경로를 찾는다. 등록되지 않은 호스트면 null.
+     */
+    Route lookup(String routeName) {
+        Route route = routes.get(routeName);
+        return route != null && route.backend != null ? route : null;
+    }
+    
+    /**
+     * 호스트의 외부 접속 URL. 프록시를 쓰지 않으면 포워딩된 포트를 그대로 안내한다.
+     * 잠든 호스트는 프록시로 요청하면 깨어나므로 프록시를 쓸 때만 URL 을 준다.
+     */
+    public String webUrl(Host host) {
+        boolean wakeable = config.isEnabled() && host.getStatus() == Host.HostStatus.HIBERNATED;
+        if (host.getPort80() == null || !(host.isServing() || wakeable)) {
+            return null;
+        }
+        if (!config.isEnabled()) {
+            return "http://localhost:" + host.getPort80();
+        }
+        int port = config.getPublicPort() > 0 ? config.getPublicPort() : config.getPort();
+        return "http://" + key(host.getHostName()) + "." + config.getDomain() + (port != 80 ? ":" + port : "");
+    }
+    
+    public int size() {
+        return (int) routes.values().stream().filter(route -> route.backend != null).count();
+    }
+    
+    private Route route(Long hostId, String nodeName, int port, Long bandwidthLimit, boolean hibernated, long generation) {
+        HypervisorNodeRegistry.Node node = nodes.node(nodeName);
+        if (node == null) {
+            return null;
+        }
+        return new Route(new InetSocketAddress(node.getAddress(), port), hostId,
+                         limit(bandwidthLimit), hibernated, generation);
+    }
+    
+    private long limit(Long bandwidthLimit) {
+        return bandwidthLimit != null ? bandwidthLimit : defaultBandwidthLimit;
+    }
+    
+    private static String key(String hostName) {
+        return hostName.toLowerCase(Locale.ROOT);
+    }
+    
+    static final class Route {
+        final InetSocketAddress backend; // null 이면 삭제된 호스트
+        final Long hostId;
+        final long bandwidthLimit; // bytes/s, 0 이면 제한 없음
+        final boolean hibernated; // 연결 전에 호스트를 깨워야 함
+        final long generation;
+        
+        Route(InetSocketAddress backend, Long hostId, long bandwidthLimit, boolean hibernated, long generation) {
+            this.backend = backend;
+            this.hostId = hostId;
+            this.bandwidthLimit = bandwidthLimit;
+            this.hibernated = hibernated;
+            this.generation = generation;
+        }
+    }
+}
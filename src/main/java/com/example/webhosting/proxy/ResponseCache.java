@@ -0,0 +1,507 @@
+package com.example.webhosting.proxy;
+
+import com.example.webhosting.config.ProxyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 리버스 프록시 앞단의 응답 캐시.
+ * 응답 바이트는 고정 크기 블록으로 나눈 direct 버퍼(힙 밖)에 저장하고, 캐시 적중 시 블록을
+ * 그대로 gather write 로 클라이언트 소켓에 쓴다. 교체는 LRU 순서를 따르되 TinyLFU 로
+ * 새 항목이 밀어낼 항목보다 자주 요청된 경우에만 들인다.
+ * 색인과 버퍼는 프록시 이벤트 루프 스레드에서만 다루고, 무효화 요청은 큐로 넘겨받는다.
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+    
+    @Autowired
+    private ProxyConfig config;
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    private ByteBuffer arena;
+    private int blockSize;
+    private int[] freeBlocks;
+    private int freeCount;
+    private FrequencySketch sketch;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    
+    private final ConcurrentLinkedQueue<String> invalidations = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, HostStats> stats = new ConcurrentHashMap<>();
+    private volatile Runnable wakeup = () -> { };
+    private volatile int entryCount;
+    
+    @PostConstruct
+    void init() {
+        ProxyConfig.Cache cache = config.getCache();
+        if (!config.isEnabled() || !cache.isEnabled()) {
+            return;
+        }
+        blockSize = cache.getBlockSize();
+        int blocks = (int) Math.min(cache.getMaxSize() / blockSize, Integer.MAX_VALUE / blockSize);
+        arena = ByteBuffer.allocateDirect(blocks * blockSize);
+        freeBlocks = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            freeBlocks[i] = blocks - 1 - i;
+        }
+        freeCount = blocks;
+        sketch = new FrequencySketch(blocks);
+        
+        Gauge.builder("proxy.cache.size", this, c -> (double) (c.freeBlocks.length - c.freeCount) * c.blockSize)
+            .description("캐시 블록이 차지한 바이트")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("proxy.cache.entries", this, c -> c.entryCount)
+            .description("캐시 항목 수")
+            .register(registry);
+        log.info("프록시 응답 캐시 - {}MB, 블록 {}B", arena.capacity() >> 20, blockSize);
+    }
+    
+    public boolean isEnabled() {
+        return arena != null;
+    }
+    
+    /**
+     * 호스트의 캐시 항목을 모두 버린다 (재배포 시). 어느 스레드에서나 호출할 수 있다.
+     */
+    public void invalidate(String hostName) {
+        if (isEnabled()) {
+            invalidations.add(hostName.toLowerCase(Locale.ROOT));
+            wakeup.run();
+        }
+    }
+    
+    /**
+     * 삭제된 호스트의 캐시 항목과 지표를 정리한다.
+     */
+    public void forget(String hostName) {
+        invalidate(hostName);
+        HostStats removed = stats.remove(hostName.toLowerCase(Locale.ROOT));
+        if (removed != null) {
+            removed.meters().forEach(registry::remove);
+        }
+    }
+    
+    void setWakeup(Runnable wakeup) {
+        this.wakeup = wakeup;
+    }
+    
+    // ===== 이하 이벤트 루프 스레드 전용 =====
+    
+    /**
+     * 대기 중인 무효화 요청을 처리한다. 이벤트 루프가 매 반복마다 호출한다.
+     */
+    void maintain() {
+        String host;
+        while ((host = invalidations.poll()) != null) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.host.equals(host)) {
+                    it.remove();
+                    discard(entry);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 요청을 캐시에서 찾을 수 있는지 판단한다. 본문이 있거나 인증/부분 요청이면 캐시를 거치지 않는다.
+     */
+    static boolean isCacheable(String method, HttpHead request, BodyFraming body) {
+        return ("GET".equals(method) || "HEAD".equals(method))
+            && body.isComplete()
+            && request.header("Authorization") == null
+            && request.header("Range") == null
+            && request.header("Expect") == null
+            && !request.hasToken("Cache-Control", "no-store");
+    }
+    
+    static String key(String host, String target, HttpHead request) {
+        String acceptEncoding = request.header("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        return host + " " + target + (gzip ? " gzip" : "");
+    }
+    
+    Entry lookup(String key) {
+        sketch.increment(key.hashCode());
+        return entries.get(key);
+    }
+    
+    /**
+     * 응답 헤더로 캐시 유효 시각을 계산한다. 저장할 수 없는 응답이면 -1.
+     * 유효 기간이 명시되지 않았더라도 ETag/Last-Modified 가 있으면 기본 TTL 동안 재사용한다.
+     */
+    long expiresAt(HttpHead response, long now) {
+        Map<String, String> cacheControl = directives(response);
+        if (cacheControl.containsKey("no-store") || cacheControl.containsKey("private")
+            || response.header("Set-Cookie") != null) {
+            return -1;
+        }
+        String vary = response.header("Vary");
+        if (vary != null) {
+            for (String field : vary.split(",")) {
+                if (!field.trim().equalsIgnoreCase("Accept-Encoding")) {
+                    return -1;
+                }
+            }
+        }
+        boolean validators = response.header("ETag") != null || response.header("Last-Modified") != null;
+        if (cacheControl.containsKey("no-cache")) {
+            return validators ? now : -1;
+        }
+        Long maxAge = seconds(cacheControl.getOrDefault("s-maxage", cacheControl.get("max-age")));
+        if (maxAge != null) {
+            return now + maxAge * 1000;
+        }
+        String expires = response.header("Expires");
+        if (expires != null) {
+            ZonedDateTime expiry = parseDate(expires);
+            ZonedDateTime date = parseDate(response.header("Date"));
+            if (expiry == null) {
+                return now; // 잘못된 Expires 는 이미 만료된 것으로 본다
+            }
+            long baseMillis = date != null ? date.toInstant().toEpochMilli() : now;
+            return now + Math.max(0, expiry.toInstant().toEpochMilli() - baseMillis);
+        }
+        return validators ? now + config.getCache().getDefaultTtl() : -1;
+    }
+    
+    /**
+     * 새 항목의 블록을 잡고 헤더를 기록한다. 크기 초과 또는 입장 정책에서 거절되면 null.
+     */
+    Entry begin(String key, String host, HttpHead response, long bodyLength, long expiresAt) {
+        byte[] head = storedHead(response);
+        long total = head.length + bodyLength;
+        if (total > config.getCache().getMaxEntrySize()) {
+            return null;
+        }
+        int needed = (int) ((total + blockSize - 1) / blockSize);
+        if (needed > freeBlocks.length) {
+            return null;
+        }
+        
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            discard(previous);
+        }
+        // LRU 순서로 블록을 바로 돌려줄 수 있는 (전송 중이 아닌) 항목을 필요한 만큼 고르고,
+        // 새 항목이 고른 항목 모두보다 자주 요청된 경우에만 내보낸다. 거절되면 아무것도 내보내지 않는다
+        int hash = key.hashCode();
+        int frequency = sketch.frequency(hash);
+        List<Entry> victims = new ArrayList<>();
+        int reclaimable = freeCount;
+        for (Iterator<Entry> it = entries.values().iterator(); reclaimable < needed && it.hasNext(); ) {
+            Entry victim = it.next();
+            if (victim.pins > 0) {
+                continue;
+            }
+            if (frequency <= sketch.frequency(victim.hash)) {
+                return null;
+            }
+            victims.add(victim);
+            reclaimable += victim.blocks.length;
+        }
+        if (reclaimable < needed) {
+            return null; // 남은 공간이 모두 전송 중인 항목에 묶여 있음
+        }
+        for (Entry victim : victims) {
+            entries.remove(victim.key);
+            discard(victim);
+        }
+        
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+        }
+        Entry entry = new Entry(key, host, hash, blocks, head.length, (int) bodyLength,
+                                response.header("ETag"), response.header("Last-Modified"),
+                                notModifiedHead(response), expiresAt);
+        write(entry, ByteBuffer.wrap(head), 0, head.length);
+        return entry;
+    }
+    
+    void append(Entry pending, ByteBuffer src, int from, int to) {
+        write(pending, src, from, Math.min(to, from + pending.length() - pending.written));
+    }
+    
+    void commit(Entry pending) {
+        if (pending.written != pending.length()) {
+            abort(pending);
+            return;
+        }
+        pending.storedAt = System.currentTimeMillis();
+        entries.put(pending.key, pending);
+        entryCount = entries.size();
+    }
+    
+    void abort(Entry pending) {
+        free(pending);
+    }
+    
+    /**
+     * 재검증(304) 후 유효 기간을 갱신한다.
+     */
+    void refresh(Entry entry, HttpHead notModified, long now) {
+        long expiresAt = expiresAt(notModified, now);
+        entry.expiresAt = expiresAt >= 0 ? expiresAt : now + config.getCache().getDefaultTtl();
+        entry.storedAt = now;
+    }
+    
+    /**
+     * 캐시된 응답을 소켓에 쓸 버퍼 목록으로 만든다. 전송이 끝나면 release 로 고정을 풀어야 한다.
+     */
+    ByteBuffer[] response(Entry entry, boolean includeBody, boolean keepAlive, long now) {
+        entry.pins++;
+        String extra = "Age: " + Math.max(0, (now - entry.storedAt) / 1000) + "\r\nX-Cache: HIT\r\n"
+            + (keepAlive ? "" : "Connection: close\r\n") + "\r\n";
+        List<ByteBuffer> buffers = new ArrayList<>(entry.blocks.length + 2);
+        slices(entry, 0, entry.headLength, buffers);
+        buffers.add(ByteBuffer.wrap(extra.getBytes(StandardCharsets.ISO_8859_1)));
+        if (includeBody) {
+            slices(entry, entry.headLength, entry.length(), buffers);
+        }
+        return buffers.toArray(new ByteBuffer[0]);
+    }
+    
+    ByteBuffer[] notModified(Entry entry, boolean keepAlive, long now) {
+        entry.pins++;
+        String head = "HTTP/1.1 304 Not Modified\r\n" + entry.notModifiedHead
+            + "Age: " + Math.max(0, (now - entry.storedAt) / 1000) + "\r\nX-Cache: HIT\r\n"
+            + (keepAlive ? "" : "Connection: close\r\n") + "\r\n";
+        return new ByteBuffer[] { ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)) };
+    }
+    
+    /**
+     * 요청의 If-None-Match / If-Modified-Since 가 캐시된 항목과 일치하는지 확인한다.
+     */
+    static boolean matchesConditional(Entry entry, HttpHead request) {
+        String ifNoneMatch = request.header("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.equals("*") || (entry.etag != null && weak(candidate).equals(weak(entry.etag)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.header("If-Modified-Since");
+        return ifModifiedSince != null && ifModifiedSince.equals(entry.lastModified);
+    }
+    
+    static boolean hasConditional(HttpHead request) {
+        return request.header("If-None-Match") != null || request.header("If-Modified-Since") != null;
+    }
+    
+    void release(Entry entry) {
+        entry.pins--;
+        if (entry.pins == 0 && entry.removed) {
+            free(entry);
+        }
+    }
+    
+    void recordHit(String host, long bytesSaved) {
+        HostStats hostStats = stats(host);
+        hostStats.hits.increment();
+        hostStats.bytesSaved.increment(bytesSaved);
+    }
+    
+    void recordMiss(String host) {
+        stats(host).misses.increment();
+    }
+    
+    private HostStats stats(String host) {
+        return stats.computeIfAbsent(host, name -> new HostStats(
+            Counter.builder("proxy.cache.requests").description("호스트별 캐시 조회 결과")
+                .tag("host", name).tag("result", "hit").register(registry),
+            Counter.builder("proxy.cache.requests").description("호스트별 캐시 조회 결과")
+                .tag("host", name).tag("result", "miss").register(registry),
+            Counter.builder("proxy.cache.bytes.saved").description("캐시로 백엔드를 거치지 않은 응답 본문 바이트")
+                .baseUnit("bytes").tag("host", name).register(registry)));
+    }
+    
+    private void discard(Entry entry) {
+        entry.removed = true;
+        entryCount = entries.size();
+        if (entry.pins == 0) {
+            free(entry);
+        }
+    }
+    
+    private void free(Entry entry) {
+        if (entry.blocks == null) {
+            return;
+        }
+        for (int block : entry.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+        entry.blocks = null;
+    }
+    
+    private void write(Entry entry, ByteBuffer src, int from, int to) {
+        while (from < to) {
+            int block = entry.blocks[entry.written / blockSize];
+            int offset = entry.written % blockSize;
+            int n = Math.min(blockSize - offset, to - from);
+            arena.put(block * blockSize + offset, src, from, n);
+            entry.written += n;
+            from += n;
+        }
+    }
+    
+    private void slices(Entry entry, int from, int to, List<ByteBuffer> out) {
+        while (from < to) {
+            int block = entry.blocks[from / blockSize];
+            int offset = from % blockSize;
+            int n = Math.min(blockSize - offset, to - from);
+            out.add(arena.slice(block * blockSize + offset, n));
+            from += n;
+        }
+    }
+    
+    // 저장용 응답 헤더 (연결 관련 헤더 제외, 마지막 빈 줄은 응답할 때 붙인다)
+    private static byte[] storedHead(HttpHead response) {
+        StringBuilder sb = new StringBuilder(response.startLine).append("\r\n");
+        for (String[] header : response.headers) {
+            if (HttpHead.isHopByHop(header[0]) || header[0].equalsIgnoreCase("Age")) {
+                continue;
+            }
+            sb.append(header[0]).append(": ").append(header[1]).append("\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    private static String notModifiedHead(HttpHead response) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : new String[] { "Date", "ETag", "Last-Modified", "Cache-Control", "Expires", "Vary" }) {
+            String value = response.header(name);
+            if (value != null) {
+                sb.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+        return sb.toString();
+    }
+    
+    private static Map<String, String> directives(HttpHead head) {
+        Map<String, String> directives = new HashMap<>();
+        for (String[] header : head.headers) {
+            if (!header[0].equalsIgnoreCase("Cache-Control")) {
+                continue;
+            }
+            for (String directive : header[1].split(",")) {
+                String[] parts = directive.trim().split("=", 2);
+                directives.put(parts[0].toLowerCase(Locale.ROOT), parts.length > 1 ? parts[1].replace("\"", "") : "");
+            }
+        }
+        return directives;
+    }
+    
+    private static Long seconds(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+    
+    private static ZonedDateTime parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+    
+    static final class Entry {
+        final String key;
+        final String host;
+        final int hash;
+        final int headLength;
+        final int bodyLength;
+        final String etag;
+        final String lastModified;
+        final String notModifiedHead;
+        int[] blocks;
+        int written;
+        long storedAt;
+        long expiresAt;
+        int pins;
+        boolean removed;
+        
+        Entry(String key, String host, int hash, int[] blocks, int headLength, int bodyLength,
+              String etag, String lastModified, String notModifiedHead, long expiresAt) {
+            this.key = key;
+            this.host = host;
+            this.hash = hash;
+            this.blocks = blocks;
+            this.headLength = headLength;
+            this.bodyLength = bodyLength;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.notModifiedHead = notModifiedHead;
+            this.expiresAt = expiresAt;
+        }
+        
+        int length() {
+            return headLength + bodyLength;
+        }
+        
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+        
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+    
+    private static final class HostStats {
+        final Counter hits;
+        final Counter misses;
+        final Counter bytesSaved;
+        
+        HostStats(Counter hits, Counter misses, Counter bytesSaved) {
+            this.hits = hits;
+            this.misses = misses;
+            this.bytesSaved = bytesSaved;
+        }
+        
+        List<Meter> meters() {
+            return List.of(hits, misses, bytesSaved);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.webhosting.proxy;
+
+import com.example.webhosting.config.ProxyConfig;
+import com.example.webhosting.service.HostPowerService;
+import com.example.webhosting.service.TrafficAccountingService;
+import com.example.webhosting.service.TrafficAccountingService.HostTraffic;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 단일 리스너에서 Host 헤더(<호스트명>.<도메인>)로 VM 웹 서버에 요청을 중계하는 리버스 프록시.
+ * 하나의 이벤트 루프 스레드가 모든 클라이언트/백엔드 소켓을 논블로킹으로 처리한다.
+ */
+@Component
+@Slf4j
+public class ReverseProxyServer implements Runnable {
+    
+    private static final long SWEEP_INTERVAL = 1000;
+    
+    @Autowired
+    private ProxyConfig config;
+    
+    @Autowired
+    private ProxyRouteTable routes;
+    
+    @Autowired
+    private ResponseCache cache;
+    
+    @Autowired
+    private TrafficAccountingService trafficAccounting;
+    
+    @Autowired
+    private HostPowerService powerService;
+    
+    private Selector selector;
+    private ServerSocketChannel server;
+    private BackendPool pool;
+    private Thread loop;
+    private volatile boolean running;
+    
+    // 이벤트 루프 스레드에서만 접근
+    private final Set<ProxyConnection> connections = new HashSet<>();
+    private final Map<ProxyConnection, Long> throttled = new HashMap<>();
+    private final Map<Long, TokenBucket> buckets = new HashMap<>();
+    
+    // 다른 스레드가 이벤트 루프에서 실행되도록 넘기는 작업 (호스트 깨우기 완료 등)
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    
+    @PostConstruct
+    void start() throws IOException {
+        if (!config.isEnabled()) {
+            log.info("리버스 프록시 비활성화");
+            return;
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(new InetSocketAddress(config.getBindAddress(), config.getPort()), config.getBacklog());
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        pool = new BackendPool(config.getMaxIdlePerBackend(), config.getBackendIdleTimeout());
+        cache.setWakeup(selector::wakeup);
+        
+        running = true;
+        loop = new Thread(this, "reverse-proxy");
+        loop.setDaemon(true);
+        loop.start();
+        log.info("리버스 프록시 시작 - {}:{} (*.{})", config.getBindAddress(), getLocalPort(), config.getDomain());
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (loop == null) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        loop.join(5000);
+    }
+    
+    /**
+     * 실제 바인딩된 포트 (proxy.port=0 인 경우 확인용). 비활성화 상태면 -1.
+     */
+    public int getLocalPort() {
+        try {
+            return server != null ? ((InetSocketAddress) server.getLocalAddress()).getPort() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+    
+    @Override
+    public void run() {
+        long lastSweep = System.currentTimeMillis();
+        while (running) {
+            try {
+                selector.select(selectTimeout());
+                cache.maintain();
+                runTasks();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    dispatch(key);
+                }
+                long now = System.currentTimeMillis();
+                resumeThrottled(now);
+                if (now - lastSweep >= SWEEP_INTERVAL) {
+                    lastSweep = now;
+                    sweep(now);
+                }
+            } catch (IOException e) {
+                log.error("리버스 프록시 이벤트 루프 오류: {}", e.getMessage(), e);
+            }
+        }
+        shutdown();
+    }
+    
+    private void dispatch(SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            Object attachment = key.attachment();
+            if (key.isAcceptable()) {
+                accept();
+            } else if (attachment instanceof ProxyConnection) {
+                ((ProxyConnection) attachment).handle(key);
+            } else if (attachment instanceof BackendPool.Idle && key.isReadable()) {
+                pool.evict(key);
+            }
+        } catch (CancelledKeyException ignored) {
+            // 같은 select 라운드에서 이미 닫힌 연결
+        }
+    }
+    
+    private void accept() {
+        SocketChannel client;
+        while (true) {
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                log.warn("프록시 연결 수락 실패: {}", e.getMessage());
+                return;
+            }
+            if (client == null) {
+                return;
+            }
+            try {
+                client.configureBlocking(false);
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = client.register(selector, SelectionKey.OP_READ);
+                ProxyConnection connection = new ProxyConnection(this, client, key, config.getBufferSize());
+                key.attach(connection);
+                connections.add(connection);
+            } catch (IOException e) {
+                try {
+                    client.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+    
+    /**
+     * 대역폭 제한으로 쉬는 연결이 있으면 가장 먼저 재개할 시각까지만 기다린다.
+     */
+    private long selectTimeout() {
+        long timeout = SWEEP_INTERVAL;
+        if (!throttled.isEmpty()) {
+            long now = System.currentTimeMillis();
+            for (long until : throttled.values()) {
+                timeout = Math.min(timeout, until - now);
+            }
+        }
+        return Math.max(timeout, 1);
+    }
+    
+    private void resumeThrottled(long now) {
+        if (throttled.isEmpty()) {
+            return;
+        }
+        List<ProxyConnection> ready = new ArrayList<>();
+        throttled.entrySet().removeIf(e -> {
+            if (e.getValue() <= now) {
+                ready.add(e.getKey());
+                return true;
+            }
+            return false;
+        });
+        ready.forEach(ProxyConnection::resume);
+    }
+    
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("리버스 프록시 작업 실패: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void sweep(long now) {
+        for (ProxyConnection connection : new ArrayList<>(connections)) {
+            connection.checkTimeout(now, config.getIdleTimeout());
+        }
+        pool.evictExpired(now);
+    }
+    
+    private void shutdown() {
+        new ArrayList<>(connections).forEach(ProxyConnection::close);
+        pool.closeAll();
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            log.warn("리버스 프록시 종료 오류: {}", e.getMessage());
+        }
+        log.info("리버스 프록시 종료");
+    }
+    
+    void closed(ProxyConnection connection) {
+        connections.remove(connection);
+        throttled.remove(connection);
+    }
+    
+    void throttle(ProxyConnection connection, long until) {
+        throttled.put(connection, until);
+    }
+    
+    /**
+     * 잠든 호스트를 깨우고 끝나면 이벤트 루프에서 연결을 이어 간다. 같은 호스트를 기다리는 연결들은 한 번의 깨우기를 함께 기다린다.
+     */
+    void wake(ProxyConnection connection, ProxyRouteTable.Route route) {
+        powerService.wake(route.hostId).whenComplete((host, e) -> {
+            if (e != null) {
+                log.warn("프록시 요청으로 호스트 깨우기 실패 - 호스트 ID: {}, 오류: {}", route.hostId, e.getMessage());
+            }
+            tasks.add(() -> connection.woken(e == null));
+            selector.wakeup();
+        });
+    }
+    
+    HostTraffic traffic(ProxyRouteTable.Route route) {
+        return trafficAccounting.meter(route.hostId);
+    }
+    
+    /**
+     * 호스트의 토큰 버킷. 제한이 없으면 null. 제한값이 바뀌면 기존 버킷에 반영한다.
+     */
+    TokenBucket bucket(ProxyRouteTable.Route route) {
+        if (route.bandwidthLimit <= 0) {
+            buckets.remove(route.hostId);
+            return null;
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(route.hostId, id -> new TokenBucket(route.bandwidthLimit));
+        bucket.setRate(route.bandwidthLimit);
+        return bucket;
+    }
+    
+    ProxyRouteTable routes() {
+        return routes;
+    }
+    
+    ResponseCache cache() {
+        return cache;
+    }
+    
+    BackendPool pool() {
+        return pool;
+    }
+    
+    ProxyConfig config() {
+        return config;
+    }
+}
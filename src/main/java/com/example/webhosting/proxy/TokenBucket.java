@@ -0,0 +1,45 @@
+package com.example.webhosting.proxy;
+
+/**
+ * 호스트별 응답 대역폭 제한용 토큰 버킷 (1토큰 = 1바이트, 최대 1초 분량까지 누적).
+ * 프록시 이벤트 루프 스레드에서만 사용한다.
+ */
+final class TokenBucket {
+    
+    private long rate; // bytes/s
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    
+    TokenBucket(long rate) {
+        this.rate = rate;
+        this.tokens = rate;
+    }
+    
+    void setRate(long rate) {
+        if (rate != this.rate) {
+            this.rate = rate;
+            tokens = Math.min(tokens, rate);
+        }
+    }
+    
+    long available(long nanoTime) {
+        tokens = Math.min(rate, tokens + (nanoTime - lastRefill) * (rate / 1e9));
+        lastRefill = nanoTime;
+        return (long) tokens;
+    }
+    
+    void consume(long bytes) {
+        tokens -= bytes;
+    }
+    
+    /**
+     * 너무 잘게 쓰지 않도록 최소 50ms 분량이 모일 때까지 기다린다.
+     */
+    long minChunk() {
+        return Math.max(1, rate / 20);
+    }
+    
+    long waitMillis(long needed) {
+        return Math.max(1, (long) Math.ceil((needed - tokens) * 1000.0 / rate));
+    }
+}
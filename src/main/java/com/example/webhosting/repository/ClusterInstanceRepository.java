@@ -0,0 +1,22 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.entity.ClusterInstance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ClusterInstanceRepository extends JpaRepository<ClusterInstance, String> {
+    @Query("select i.id from ClusterInstance i where i.heartbeatAt >= :since order by i.id")
+    List<String> findLiveIds(@Param("since") LocalDateTime since);
+    
+    @Transactional
+    @Modifying
+    @Query("delete from ClusterInstance i where i.heartbeatAt < :before")
+    int deleteStale(@Param("before") LocalDateTime before);
+}
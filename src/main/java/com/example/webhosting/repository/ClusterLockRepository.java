@@ -0,0 +1,18 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.entity.ClusterLock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface ClusterLockRepository extends JpaRepository<ClusterLock, String> {
+    // 호출한 트랜잭션이 끝날 때까지 다른 인스턴스의 같은 잠금을 막는다
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from ClusterLock l where l.name = :name")
+    Optional<ClusterLock> lock(@Param("name") String name);
+}
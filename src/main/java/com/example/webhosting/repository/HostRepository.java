@@ -3,7 +3,13 @@ package com.example.webhosting.repository;
 import com.example.webhosting.entity.Host;
 import com.example.webhosting.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,5 +19,65 @@ public interface HostRepository extends JpaRepository<Host, Long> {
     List<Host> findByUserOrderByCreatedAtDesc(User user);
     Optional<Host> findByIdAndUser(Long id, User user);
     boolean existsByHostNameAndUser(String hostName, User user);
+    boolean existsByHostNameIgnoreCase(String hostName);
     Optional<Host> findByVmId(String vmId);
-}
\ No newline at end of file
+    List<Host> findByIdInAndUser(Collection<Long> ids, User user);
+    
+    // 일괄 생성 검사용: 주어진 이름 키 중 이미 쓰고 있는 것
+    @Query("select h.nameKey from Host h where h.nameKey in :keys")
+    List<String> findNameKeys(@Param("keys") Collection<String> keys);
+    List<Host> findByStatusIn(Collection<Host.HostStatus> statuses);
+    
+    // 할당량 검사용: 사용자의 호스트 수, 생성 중인 호스트 수, 메모리 합계 (MB)
+    @Query("select count(h), "
+         + "coalesce(sum(case when h.status = com.example.webhosting.entity.Host.HostStatus.CREATING then 1 else 0 end), 0), "
+         + "coalesce(sum(h.memory), 0) from Host h where h.user.id = :userId")
+    List<Object[]> findUsage(@Param("userId") Long userId);
+    
+    @Query("select h.status, count(h) from Host h group by h.status")
+    List<Object[]> countGroupByStatus();
+    
+    @Query("select h.port80 from Host h where h.port80 is not null")
+    List<Integer> findAllWebPorts();
+    
+    @Query("select h.port22 from Host h where h.port22 is not null")
+    List<Integer> findAllSshPorts();
+    
+    @Query("select h.id, h.hostName, h.port80, h.bandwidthLimit, h.nodeName, h.status from Host h where h.port80 is not null")
+    List<Object[]> findRoutes();
+    
+    // 유휴 판단 대상: 마지막 상태 변경 이후 충분히 지난 실행 중 호스트
+    List<Host> findByStatusAndVmIdIsNotNullAndUpdatedAtBefore(Host.HostStatus status, LocalDateTime before);
+    
+    // 고아 VM/디스크 대조용: 모든 호스트의 VM 식별자와 상태
+    @Query("select h.id, h.vmId, h.vmName, h.status from Host h")
+    List<Object[]> findVmInventory();
+    
+    // 지표 수집 대상: 실행 중인 VM 의 이름과 노드
+    @Query("select h.id, h.vmName, h.nodeName from Host h where h.vmName is not null and h.status in :statuses")
+    List<Object[]> findMetricTargets(@Param("statuses") Collection<Host.HostStatus> statuses);
+    
+    // 지표 순위 표시용
+    @Query("select h.id, h.hostName, h.user.username, h.nodeName from Host h where h.id in :ids")
+    List<Object[]> findLabels(@Param("ids") Collection<Long> ids);
+    
+    // 하이퍼바이저 노드 자원을 차지하는 호스트 (생성 중이거나 VM 이 있는 호스트)
+    @Query("select h.nodeName, h.user.id, h.memory, h.cpus, h.diskSize, h.status, h.storagePool from Host h "
+         + "where h.vmId is not null or h.status = com.example.webhosting.entity.Host.HostStatus.CREATING")
+    List<Object[]> findPlacements();
+    
+    // 다른 경로에서 상태가 바뀌었으면 덮어쓰지 않도록 현재 상태를 조건으로 건다 (버전도 올려 엔티티 저장과 충돌을 알림)
+    @Transactional
+    @Modifying
+    @Query("update Host h set h.status = :to, h.updatedAt = :now, h.version = h.version + 1 where h.id = :id and h.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") Host.HostStatus from,
+                     @Param("to") Host.HostStatus to, @Param("now") LocalDateTime now);
+    
+    // 크기 변경 결과 기록 (상태는 건드리지 않는다)
+    @Transactional
+    @Modifying
+    @Query("update Host h set h.plan = :plan, h.memory = :memory, h.cpus = :cpus, h.diskSize = :diskSize, h.maxCpus = :maxCpus, "
+         + "h.updatedAt = :now, h.version = h.version + 1 where h.id = :id")
+    int updateSize(@Param("id") Long id, @Param("plan") String plan, @Param("memory") int memory, @Param("cpus") int cpus,
+                   @Param("diskSize") int diskSize, @Param("maxCpus") Integer maxCpus, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,42 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.entity.HostSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HostSnapshotRepository extends JpaRepository<HostSnapshot, Long> {
+    List<HostSnapshot> findByHostIdOrderByCreatedAtDesc(Long hostId);
+    
+    Optional<HostSnapshot> findByIdAndHostId(Long id, Long hostId);
+    
+    long countByHostIdAndScheduledFalse(Long hostId);
+    
+    // 보존 정책 적용 대상 (오래된 순)
+    List<HostSnapshot> findByHostIdAndScheduledTrueAndStatusOrderByCreatedAtAsc(Long hostId, HostSnapshot.SnapshotStatus status);
+    
+    // 호스트별 마지막 예약 스냅샷 시각
+    @Query("select s.hostId, max(s.createdAt) from HostSnapshot s where s.scheduled = true group by s.hostId")
+    List<Object[]> findLastScheduled();
+    
+    // 호스트 스냅샷 폴더 중 앞선 스냅샷들이 차지한 몫
+    @Query("select coalesce(sum(s.sizeBytes), 0) from HostSnapshot s where s.hostId = :hostId and s.id <> :excludeId")
+    long sumSizeBytesExcept(@Param("hostId") Long hostId, @Param("excludeId") Long excludeId);
+    
+    // 만들다 중단된 스냅샷 (작업 임대 회수 시)
+    @Transactional
+    @Modifying
+    @Query("delete from HostSnapshot s where s.hostId = :hostId and s.status = :status")
+    int deleteByHostIdAndStatus(@Param("hostId") Long hostId, @Param("status") HostSnapshot.SnapshotStatus status);
+    
+    @Transactional
+    @Modifying
+    @Query("delete from HostSnapshot s where s.hostId = :hostId")
+    int deleteByHostId(@Param("hostId") Long hostId);
+}
@@ -0,0 +1,18 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.entity.HostTimelineSpan;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface HostTimelineSpanRepository extends JpaRepository<HostTimelineSpan, Long> {
+    List<HostTimelineSpan> findByHostIdOrderByStartedAtAscSeqAsc(Long hostId);
+    
+    @Modifying
+    @Query("delete from HostTimelineSpan s where s.hostId = :hostId")
+    int deleteByHostId(@Param("hostId") Long hostId);
+}
@@ -0,0 +1,22 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.entity.HostTrafficUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HostTrafficUsageRepository extends JpaRepository<HostTrafficUsage, Long> {
+    List<HostTrafficUsage> findByHostIdAndMinuteGreaterThanEqualOrderByMinuteAsc(Long hostId, LocalDateTime from);
+    
+    @Query("select max(u.minute) from HostTrafficUsage u where u.hostId = :hostId and u.requests > 0")
+    LocalDateTime findLastActiveMinute(@Param("hostId") Long hostId);
+    
+    @Modifying
+    @Query("delete from HostTrafficUsage u where u.minute < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
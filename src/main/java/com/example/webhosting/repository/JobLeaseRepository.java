@@ -0,0 +1,50 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, Long> {
+    List<JobLease> findByExpiresAtBefore(LocalDateTime now);
+    
+    @Query("select l.hostId from JobLease l where l.expiresAt >= :now")
+    List<Long> findActiveHostIds(@Param("now") LocalDateTime now);
+    
+    // save() 는 같은 ID 가 있으면 덮어쓰므로(merge) 새 임대는 INSERT 로만 만든다. 이미 있으면 키 중복으로 실패
+    @Transactional
+    @Modifying
+    @Query(value = "insert into job_leases (host_id, job, owner, expires_at) values (:hostId, :job, :owner, :expiresAt)",
+           nativeQuery = true)
+    int insert(@Param("hostId") Long hostId, @Param("job") String job, @Param("owner") String owner,
+               @Param("expiresAt") LocalDateTime expiresAt);
+    
+    // 만료되었거나 이미 내가 같은 작업으로 잡은 임대만 가져온다 (유효한 임대의 작업 종류는 바꾸지 않는다)
+    @Transactional
+    @Modifying
+    @Query("update JobLease l set l.job = :job, l.owner = :owner, l.expiresAt = :expiresAt "
+         + "where l.hostId = :hostId and (l.expiresAt < :now or (l.owner = :owner and l.job = :job))")
+    int takeOver(@Param("hostId") Long hostId, @Param("job") JobLease.JobType job, @Param("owner") String owner,
+                 @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Transactional
+    @Modifying
+    @Query("update JobLease l set l.expiresAt = :expiresAt where l.owner = :owner and l.hostId in :hostIds")
+    int renew(@Param("owner") String owner, @Param("hostIds") Collection<Long> hostIds,
+              @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Query("select l.hostId from JobLease l where l.owner = :owner and l.hostId in :hostIds")
+    List<Long> findOwned(@Param("owner") String owner, @Param("hostIds") Collection<Long> hostIds);
+    
+    @Transactional
+    @Modifying
+    @Query("delete from JobLease l where l.hostId = :hostId and l.owner = :owner and l.job = :job")
+    int release(@Param("hostId") Long hostId, @Param("owner") String owner, @Param("job") JobLease.JobType job);
+}
@@ -0,0 +1,26 @@
+package com.example.webhosting.repository;
+
+import com.example.webhosting.entity.PortLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+
+@Repository
+public interface PortLeaseRepository extends JpaRepository<PortLease, Long> {
+    @Query("select l.port from PortLease l where l.pool = :pool")
+    List<Integer> findPorts(@Param("pool") String pool);
+    
+    @Transactional
+    @Modifying
+    @Query("delete from PortLease l where l.pool = :pool and l.port = :port")
+    int deleteByPoolAndPort(@Param("pool") String pool, @Param("port") Integer port);
+    
+    @Transactional
+    @Modifying
+    @Query("delete from PortLease l where l.hostId = :hostId")
+    int deleteByHostId(@Param("hostId") Long hostId);
+}
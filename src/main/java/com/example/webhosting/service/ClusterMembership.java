@@ -0,0 +1,114 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.ClusterInstance;
+import com.example.webhosting.entity.ClusterLock;
+import com.example.webhosting.repository.ClusterInstanceRepository;
+import com.example.webhosting.repository.ClusterLockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 같은 DB 를 쓰는 애플리케이션 인스턴스 목록. 각 인스턴스는 cluster_instances 에 하트비트를 남기고,
+ * 하트비트가 임대 만료 시간 안에 있는 인스턴스끼리 헬스 체크 같은 주기 작업을 호스트 ID 로 나눠 맡는다.
+ */
+@Component
+@Slf4j
+public class ClusterMembership {
+    
+    static final String PLACEMENT_LOCK = "placement";
+    
+    @Autowired
+    private ClusterInstanceRepository instanceRepository;
+    
+    @Autowired
+    private ClusterLockRepository lockRepository;
+    
+    @Value("${cluster.instance-id:}")
+    private String configuredId;
+    
+    @Value("${cluster.lease-ttl:60000}")
+    private long leaseTtl;
+    
+    private String instanceId;
+    private volatile List<String> members = List.of();
+    
+    @PostConstruct
+    void register() {
+        instanceId = configuredId != null && !configuredId.isBlank() ? configuredId : defaultId();
+        ensureLock(PLACEMENT_LOCK);
+        heartbeat();
+        log.info("클러스터 인스턴스 등록: {} (활성 인스턴스 {}개)", instanceId, members.size());
+    }
+    
+    @PreDestroy
+    void leave() {
+        try {
+            instanceRepository.deleteById(instanceId);
+        } catch (RuntimeException e) {
+            log.debug("클러스터 인스턴스 제거 실패: {}", e.getMessage());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval:15000}", initialDelayString = "${cluster.heartbeat-interval:15000}")
+    public void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        instanceRepository.save(new ClusterInstance(instanceId, now));
+        instanceRepository.deleteStale(now.minusNanos(leaseTtl * 5 * 1_000_000));
+        members = instanceRepository.findLiveIds(now.minusNanos(leaseTtl * 1_000_000));
+    }
+    
+    public String getInstanceId() {
+        return instanceId;
+    }
+    
+    /**
+     * 살아 있는 인스턴스 ID (정렬됨). 마지막 하트비트 시점 기준.
+     */
+    public List<String> members() {
+        return members;
+    }
+    
+    /**
+     * 호스트별 주기 작업을 이 인스턴스가 맡는지. 살아 있는 인스턴스 수로 호스트 ID 를 나눈다.
+     */
+    public boolean owns(Long hostId) {
+        List<String> live = members;
+        int index = live.indexOf(instanceId);
+        if (live.size() <= 1 || index < 0) {
+            return true;
+        }
+        return Math.floorMod(hostId, live.size()) == index;
+    }
+    
+    private void ensureLock(String name) {
+        if (lockRepository.existsById(name)) {
+            return;
+        }
+        try {
+            lockRepository.saveAndFlush(new ClusterLock(name));
+        } catch (DataIntegrityViolationException e) {
+            // 다른 인스턴스가 먼저 만듦
+        }
+    }
+    
+    private static String defaultId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "instance";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
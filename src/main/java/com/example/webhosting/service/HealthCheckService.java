@@ -0,0 +1,284 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.HealthCheckConfig;
+import com.example.webhosting.dto.HostHealthDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 실행 중인 모든 호스트의 웹(port80)/SSH(port22) 포워딩을 주기적으로 검사한다.
+ * 정상 호스트는 검사 간격을 점점 늘리고, 실패하면 짧은 간격으로 재확인한 뒤
+ * 연속 실패가 임계값에 이르면 DEGRADED 로 바꾸고 지수 백오프로 검사한다. 한 번이라도 성공하면 RUNNING 으로 되돌린다.
+ */
+@Service
+@Slf4j
+public class HealthCheckService {
+    
+    @Autowired
+    private HealthCheckConfig config;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodes;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private ClusterMembership cluster;
+    
+    @Autowired
+    private JobLeaseService jobLeases;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    private final ConcurrentHashMap<Long, Target> targets = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    private AsynchronousChannelGroup group;
+    private ScheduledExecutorService timer;
+    private HealthProber prober;
+    private Semaphore permits;
+    
+    @PostConstruct
+    void start() throws IOException {
+        if (!config.isEnabled()) {
+            log.info("헬스 체크 비활성화");
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        group = AsynchronousChannelGroup.withFixedThreadPool(config.getIoThreads(), r -> {
+            Thread t = new Thread(r, "health-io-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "health-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        prober = new HealthProber(group, timer, config.getTimeout());
+        permits = new Semaphore(config.getMaxConcurrent());
+        
+        Gauge.builder("health.probes.inflight", inFlight, AtomicInteger::get)
+            .description("진행 중인 헬스 체크 수")
+            .register(registry);
+        Gauge.builder("health.targets", targets, ConcurrentHashMap::size)
+            .description("헬스 체크 대상 호스트 수")
+            .register(registry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (group != null) {
+            timer.shutdownNow();
+            try {
+                group.shutdownNow();
+            } catch (IOException e) {
+                log.warn("헬스 체크 채널 그룹 종료 오류: {}", e.getMessage());
+            }
+        }
+    }
+    
+    // 재시작 전에 실행 중이던 호스트를 대상으로 등록
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTargets() {
+        if (group == null) {
+            return;
+        }
+        syncTargets();
+        log.info("헬스 체크 대상 {}개 등록", targets.size());
+    }
+    
+    /**
+     * 실행 중인 호스트 중 이 인스턴스 몫을 대상으로 맞춘다. 인스턴스가 늘거나 줄면 몫이 다시 나뉘고,
+     * 다른 인스턴스가 생성/삭제 작업 중인 호스트는 건너뛴다.
+     */
+    @Scheduled(fixedDelayString = "${cluster.resync-interval:60000}", initialDelayString = "${cluster.resync-interval:60000}")
+    public void syncTargets() {
+        if (group == null) {
+            return;
+        }
+        Set<Long> busy = jobLeases.activeHostIds();
+        Set<Long> serving = new HashSet<>();
+        for (Host host : hostRepository.findByStatusIn(EnumSet.of(Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED))) {
+            serving.add(host.getId());
+            if (!targets.containsKey(host.getId()) && !busy.contains(host.getId())) {
+                watch(host);
+            }
+        }
+        targets.keySet().removeIf(hostId -> !serving.contains(hostId) || !cluster.owns(hostId));
+    }
+    
+    /**
+     * 웹 서버 설정이 끝난 호스트를 검사 대상으로 등록한다. 첫 검사 시각은 간격 안에서 흩어 놓는다.
+     * 여러 인스턴스가 있으면 호스트 ID 로 나눈 이 인스턴스 몫만 등록한다.
+     */
+    public void watch(Host host) {
+        HypervisorNodeRegistry.Node node = nodes.node(host);
+        if (group == null || host.getPort80() == null || node == null || !cluster.owns(host.getId())) {
+            return;
+        }
+        long firstCheck = System.currentTimeMillis() + ThreadLocalRandom.current().nextLong(config.getInterval());
+        targets.put(host.getId(), new Target(host, node.getAddress(), firstCheck));
+    }
+    
+    public void unwatch(Long hostId) {
+        targets.remove(hostId);
+    }
+    
+    public HostHealthDto getHealth(Long hostId) {
+        Target target = targets.get(hostId);
+        return target != null ? target.snapshot : null;
+    }
+    
+    @Scheduled(fixedDelayString = "${health.tick-interval:1000}")
+    public void tick() {
+        if (group == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Target target : targets.values()) {
+            if (target.inFlight || target.nextCheckAt > now) {
+                continue;
+            }
+            if (!permits.tryAcquire()) {
+                // 동시 검사 한도에 걸리면 나머지는 다음 틱에서
+                break;
+            }
+            probe(target);
+        }
+    }
+    
+    private void probe(Target target) {
+        target.inFlight = true;
+        inFlight.incrementAndGet();
+        CompletableFuture<HealthProber.Result> web =
+            prober.http(new InetSocketAddress(target.address, target.port80), target.hostName);
+        CompletableFuture<HealthProber.Result> ssh = target.port22 != null
+            ? prober.ssh(new InetSocketAddress(target.address, target.port22))
+            : CompletableFuture.completedFuture(new HealthProber.Result(true, 0, null));
+        web.thenAcceptBoth(ssh, (w, s) -> record(target, w, s))
+            .whenComplete((v, e) -> {
+                if (e != null) {
+                    log.error("헬스 체크 결과 처리 실패 - 호스트: {}, 오류: {}", target.hostName, e.getMessage(), e);
+                    target.nextCheckAt = System.currentTimeMillis() + config.getRetryInterval();
+                }
+                target.inFlight = false;
+                inFlight.decrementAndGet();
+                permits.release();
+            });
+    }
+    
+    void record(Target target, HealthProber.Result web, HealthProber.Result ssh) {
+        metrics.recordHealthProbe("web", web.getLatencyMillis(), web.isOk());
+        if (target.port22 != null) {
+            metrics.recordHealthProbe("ssh", ssh.getLatencyMillis(), ssh.isOk());
+        }
+        long now = System.currentTimeMillis();
+        String error = null;
+        if (web.isOk() && ssh.isOk()) {
+            // 실패에서 막 회복했으면 기본 간격부터, 계속 정상이면 간격을 1.5배씩 늘린다
+            target.interval = target.failures > 0 || target.interval == 0
+                ? config.getInterval()
+                : Math.min(config.getMaxInterval(), target.interval + target.interval / 2);
+            target.failures = 0;
+            if (target.degraded) {
+                transition(target, Host.HostStatus.DEGRADED, Host.HostStatus.RUNNING);
+            }
+        } else {
+            error = !web.isOk() ? "web: " + web.getError() : "ssh: " + ssh.getError();
+            target.failures++;
+            int overThreshold = target.failures - config.getDegradedThreshold();
+            if (overThreshold < 0) {
+                target.interval = config.getRetryInterval();
+            } else {
+                if (!target.degraded) {
+                    transition(target, Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED);
+                }
+                target.interval = Math.min(config.getMaxBackoff(), config.getRetryInterval() << Math.min(overThreshold, 16));
+            }
+        }
+        // 같은 시각에 등록된 호스트들이 계속 함께 검사되지 않도록 ±10% 흔든다
+        long jitter = target.interval / 10;
+        target.nextCheckAt = now + target.interval + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter) : 0);
+        target.snapshot = new HostHealthDto(toDateTime(now), web.isOk(), ssh.isOk(), web.getLatencyMillis(),
+                                            target.failures, toDateTime(target.nextCheckAt), error);
+    }
+    
+    private void transition(Target target, Host.HostStatus from, Host.HostStatus to) {
+        // 다른 경로(VM 정지 등)로 상태가 바뀐 호스트는 갱신되지 않는다
+        int updated = hostRepository.updateStatus(target.hostId, from, to, LocalDateTime.now());
+        target.degraded = to == Host.HostStatus.DEGRADED;
+        if (updated == 0) {
+            return;
+        }
+        if (target.degraded) {
+            log.warn("호스트 {} 헬스 체크 {}회 연속 실패 - DEGRADED", target.hostName, target.failures);
+        } else {
+            log.info("호스트 {} 헬스 체크 회복 - RUNNING", target.hostName);
+        }
+    }
+    
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+    
+    /**
+     * 호스트 하나의 검사 상태. 검사는 호스트당 하나씩만 진행되므로 결과 처리 중에는 한 스레드만 만진다.
+     */
+    static class Target {
+        final Long hostId;
+        final String hostName;
+        final String address; // VM 이 있는 노드 주소
+        final int port80;
+        final Integer port22;
+        
+        volatile boolean inFlight;
+        volatile long nextCheckAt;
+        volatile HostHealthDto snapshot;
+        long interval;
+        int failures;
+        boolean degraded;
+        
+        Target(Host host, String address, long firstCheck) {
+            this.hostId = host.getId();
+            this.hostName = host.getHostName();
+            this.address = address;
+            this.port80 = host.getPort80();
+            this.port22 = host.getPort22();
+            this.nextCheckAt = firstCheck;
+            this.degraded = host.getStatus() == Host.HostStatus.DEGRADED;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.webhosting.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 논블로킹 소켓으로 VM 의 웹/SSH 포워딩 포트를 검사한다.
+ * 검사마다 스레드를 잡지 않고 AsynchronousChannelGroup 의 소수 스레드에서 완료 콜백만 처리하므로
+ * 수천 개 검사를 동시에 걸어도 플랫폼 스레드 수는 늘지 않는다.
+ */
+class HealthProber {
+    
+    private static final int BUFFER_SIZE = 512;
+    
+    private final AsynchronousChannelGroup group;
+    private final ScheduledExecutorService timer;
+    private final long timeoutMillis;
+    
+    HealthProber(AsynchronousChannelGroup group, ScheduledExecutorService timer, long timeoutMillis) {
+        this.group = group;
+        this.timer = timer;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * HEAD / 요청에 HTTP 응답 줄이 오면 성공. 5xx 는 웹 서버가 제대로 서비스하지 못하는 것으로 보고 실패로 센다.
+     */
+    CompletableFuture<Result> http(InetSocketAddress address, String hostHeader) {
+        byte[] request = ("HEAD / HTTP/1.1\r\nHost: " + hostHeader + "\r\n"
+            + "User-Agent: webhosting-health\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        return probe(address, request, text -> text.contains("\r\n"), text -> {
+            String line = text.substring(0, text.indexOf("\r\n"));
+            String[] parts = line.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                return "잘못된 HTTP 응답: " + line;
+            }
+            try {
+                int status = Integer.parseInt(parts[1]);
+                return status < 500 ? null : "HTTP " + status;
+            } catch (NumberFormatException e) {
+                return "잘못된 HTTP 응답: " + line;
+            }
+        });
+    }
+    
+    /**
+     * 연결 후 "SSH-" 로 시작하는 식별 줄을 받으면 성공.
+     */
+    CompletableFuture<Result> ssh(InetSocketAddress address) {
+        return probe(address, null, text -> text.contains("SSH-") && text.indexOf('\n', text.indexOf("SSH-")) > 0,
+                     text -> null);
+    }
+    
+    /**
+     * 연결 → (요청 전송) → complete 가 참이 될 때까지 읽기 → verify 가 null 을 돌려주면 성공.
+     */
+    private CompletableFuture<Result> probe(InetSocketAddress address, byte[] request,
+                                            Predicate<String> complete, Function<String, String> verify) {
+        long start = System.nanoTime();
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        AsynchronousSocketChannel channel;
+        try {
+            channel = AsynchronousSocketChannel.open(group);
+        } catch (IOException e) {
+            result.complete(new Result(false, 0, e.getMessage()));
+            return result;
+        }
+        ScheduledFuture<?> deadline = timer.schedule(() -> {
+            if (result.complete(new Result(false, elapsed(start), "시간 초과"))) {
+                close(channel);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((r, e) -> {
+            deadline.cancel(false);
+            close(channel);
+        });
+        
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        CompletionHandler<Integer, Void> reader = new CompletionHandler<>() {
+            @Override
+            public void completed(Integer n, Void attachment) {
+                String text = new String(buf.array(), 0, buf.position(), StandardCharsets.ISO_8859_1);
+                if (complete.test(text)) {
+                    String error = verify.apply(text);
+                    result.complete(new Result(error == null, elapsed(start), error));
+                } else if (n < 0 || !buf.hasRemaining()) {
+                    result.complete(new Result(false, elapsed(start), n < 0 ? "응답 전에 연결이 끊겼습니다" : "응답을 해석할 수 없습니다"));
+                } else if (!result.isDone()) {
+                    channel.read(buf, null, this);
+                }
+            }
+            
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                result.complete(new Result(false, elapsed(start), message(e)));
+            }
+        };
+        CompletionHandler<Integer, ByteBuffer> writer = new CompletionHandler<>() {
+            @Override
+            public void completed(Integer n, ByteBuffer out) {
+                if (out.hasRemaining()) {
+                    channel.write(out, out, this);
+                } else {
+                    channel.read(buf, null, reader);
+                }
+            }
+            
+            @Override
+            public void failed(Throwable e, ByteBuffer out) {
+                result.complete(new Result(false, elapsed(start), message(e)));
+            }
+        };
+        channel.connect(address, null, new CompletionHandler<Void, Void>() {
+            @Override
+            public void completed(Void v, Void attachment) {
+                if (result.isDone()) {
+                    return;
+                }
+                if (request != null) {
+                    ByteBuffer out = ByteBuffer.wrap(request);
+                    channel.write(out, out, writer);
+                } else {
+                    channel.read(buf, null, reader);
+                }
+            }
+            
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                result.complete(new Result(false, elapsed(start), message(e)));
+            }
+        });
+        return result;
+    }
+    
+    private static long elapsed(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+    
+    private static String message(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+    
+    private static void close(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+    
+    @Data
+    @AllArgsConstructor
+    static class Result {
+        private boolean ok;
+        private long latencyMillis;
+        private String error; // 성공이면 null
+    }
+}
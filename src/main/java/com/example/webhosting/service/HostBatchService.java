@@ -0,0 +1,202 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.dto.HostBatchItemDto;
+import com.example.webhosting.dto.HostBatchSummaryDto;
+import com.example.webhosting.dto.HostCreationDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 호스트 일괄 생성/삭제. 요청 전체를 먼저 검사하고 DB 작업은 묶음 단위로 한 번에 한 뒤,
+ * 하이퍼바이저 작업은 최대 parallelism 개씩 이어서 돌린다 (하나가 끝나면 다음 것을 시작).
+ * 항목마다 끝나는 대로 SSE "item" 이벤트로 결과를 보내고, 모두 끝나면 "end" 이벤트로 집계를 보낸다.
+ */
+@Service
+@Slf4j
+public class HostBatchService {
+    
+    @Value("${host-batch.max-size:50}")
+    private int maxSize;
+    
+    @Value("${host-batch.parallelism:4}")
+    private int parallelism;
+    
+    @Value("${host-batch.stream-timeout:1800000}")
+    private long streamTimeout;
+    
+    @Autowired
+    private HostService hostService;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private PortAllocator portAllocator;
+    
+    /**
+     * 호스트를 한 번에 만든다. 이름/요금제/용량 검사에 하나라도 걸리면 아무것도 만들지 않고 예외를 던진다.
+     * 포트는 묶음 전체를 한 번에 잡아 둔다.
+     */
+    public SseEmitter createHosts(List<HostCreationDto> dtos, User user) {
+        checkSize(dtos.size());
+        List<Host> hosts = hostService.insertHosts(dtos, user);
+        Map<Long, PortAllocator.Ports> ports = portAllocator.reserve(hosts.stream().map(Host::getId).toList());
+        log.info("호스트 일괄 생성 시작 - 사용자: {}, {}개", user.getUsername(), hosts.size());
+        
+        List<Supplier<CompletableFuture<HostBatchItemDto>>> tasks = new ArrayList<>();
+        for (int i = 0; i < hosts.size(); i++) {
+            int index = i;
+            Host host = hosts.get(i);
+            PortAllocator.Ports reserved = ports.get(host.getId());
+            tasks.add(() -> {
+                try {
+                    return hostService.startCreate(host, user.getId(), reserved)
+                        .thenApply(created -> created.getStatus() == Host.HostStatus.ERROR
+                            ? new HostBatchItemDto(index, host.getId(), host.getHostName(), false, "VM 생성에 실패했습니다", created)
+                            : new HostBatchItemDto(index, host.getId(), host.getHostName(), true, null, created));
+                } catch (RuntimeException e) {
+                    // VM 생성을 시작하지 못했으므로 잡아 둔 포트는 여기서 반환하고, 호스트는 ERROR 로 남긴다
+                    if (reserved != null) {
+                        portAllocator.release(reserved.getWebPort(), reserved.getSshPort());
+                    }
+                    try {
+                        hostService.abandonCreate(host);
+                    } catch (RuntimeException cleanup) {
+                        log.warn("생성을 시작하지 못한 호스트 정리 실패 - 호스트: {}, 오류: {}", host.getHostName(), cleanup.getMessage());
+                    }
+                    throw e;
+                }
+            });
+        }
+        return run(tasks, hosts);
+    }
+    
+    /**
+     * 호스트를 한 번에 지운다. 대상은 한 번의 조회로 읽고, 사용자의 호스트가 아닌 ID 가 있으면 아무것도 지우지 않는다.
+     * 다른 작업이 진행 중인 호스트는 그 항목만 실패로 보낸다.
+     */
+    public SseEmitter deleteHosts(List<Long> hostIds, User user) {
+        Set<Long> ids = new LinkedHashSet<>(hostIds);
+        checkSize(ids.size());
+        Map<Long, Host> found = hostRepository.findByIdInAndUser(ids, user).stream()
+            .collect(Collectors.toMap(Host::getId, host -> host));
+        List<Long> missing = ids.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("호스트를 찾을 수 없습니다: " + missing);
+        }
+        List<Host> hosts = ids.stream().map(found::get).toList();
+        log.info("호스트 일괄 삭제 시작 - 사용자: {}, {}개", user.getUsername(), hosts.size());
+        
+        List<Supplier<CompletableFuture<HostBatchItemDto>>> tasks = new ArrayList<>();
+        for (int i = 0; i < hosts.size(); i++) {
+            int index = i;
+            Host host = hosts.get(i);
+            tasks.add(() -> hostService.deleteHost(host, user.getId())
+                .thenApply(deleted -> new HostBatchItemDto(index, host.getId(), host.getHostName(), deleted,
+                                                           deleted ? null : "호스트 삭제에 실패했습니다", null)));
+        }
+        return run(tasks, hosts);
+    }
+    
+    private void checkSize(int size) {
+        if (size == 0) {
+            throw new IllegalArgumentException("대상 호스트가 없습니다");
+        }
+        if (size > maxSize) {
+            throw new IllegalArgumentException("한 번에 처리할 수 있는 호스트는 " + maxSize + "개까지입니다");
+        }
+    }
+    
+    private SseEmitter run(List<Supplier<CompletableFuture<HostBatchItemDto>>> tasks, List<Host> hosts) {
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        new Pipeline(tasks, hosts, emitter).start(Math.max(1, parallelism));
+        return emitter;
+    }
+    
+    /**
+     * 작업을 순서대로 꺼내 동시에 최대 n 개만 진행한다. 끝난 항목의 결과를 보내고 다음 작업을 시작한다.
+     * 클라이언트가 연결을 끊어도 남은 작업은 끝까지 진행한다.
+     */
+    private static final class Pipeline {
+        private final List<Supplier<CompletableFuture<HostBatchItemDto>>> tasks;
+        private final List<Host> hosts;
+        private final SseEmitter emitter;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final AtomicInteger failed = new AtomicInteger();
+        
+        Pipeline(List<Supplier<CompletableFuture<HostBatchItemDto>>> tasks, List<Host> hosts, SseEmitter emitter) {
+            this.tasks = tasks;
+            this.hosts = hosts;
+            this.emitter = emitter;
+            this.remaining = new AtomicInteger(tasks.size());
+        }
+        
+        void start(int n) {
+            for (int i = 0; i < Math.min(n, tasks.size()); i++) {
+                launch();
+            }
+        }
+        
+        private void launch() {
+            int index = next.getAndIncrement();
+            if (index >= tasks.size()) {
+                return;
+            }
+            CompletableFuture<HostBatchItemDto> task;
+            try {
+                task = tasks.get(index).get();
+            } catch (RuntimeException e) {
+                task = CompletableFuture.failedFuture(e);
+            }
+            task.whenComplete((item, e) -> finish(index, item, e));
+        }
+        
+        private void finish(int index, HostBatchItemDto item, Throwable e) {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                Host host = hosts.get(index);
+                item = new HostBatchItemDto(index, host.getId(), host.getHostName(), false, cause.getMessage(), null);
+            }
+            if (!item.isSuccess()) {
+                failed.incrementAndGet();
+            }
+            send(SseEmitter.event().name("item").data(item));
+            if (remaining.decrementAndGet() == 0) {
+                int total = tasks.size();
+                send(SseEmitter.event().name("end").data(new HostBatchSummaryDto(total, total - failed.get(), failed.get())));
+                emitter.complete();
+                log.info("호스트 일괄 작업 완료 - {}개 중 실패 {}개", total, failed.get());
+            } else {
+                launch();
+            }
+        }
+        
+        private void send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // 클라이언트가 끊었거나 스트림 시간이 지남
+                log.debug("일괄 작업 결과 전송 실패: {}", e.getMessage());
+            }
+        }
+    }
+}
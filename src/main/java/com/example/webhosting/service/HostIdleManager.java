@@ -0,0 +1,115 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.HibernationConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 프록시로 들어온 마지막 요청과 VM NIC 트래픽 이후 오래 지난 호스트를 찾아 재운다.
+ * 상태가 최근에 바뀐 호스트(막 생성/기상)는 건너뛰고, 여러 인스턴스가 있으면 이 인스턴스 몫만 처리한다.
+ */
+@Component
+@Slf4j
+public class HostIdleManager {
+    
+    @Autowired
+    private HibernationConfig config;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private TrafficAccountingService trafficAccounting;
+    
+    @Autowired
+    private HostPowerService powerService;
+    
+    @Autowired
+    private ClusterMembership cluster;
+    
+    @Autowired
+    private JobLeaseService jobLeases;
+    
+    @Autowired
+    private VirtualBoxService virtualBoxService;
+    
+    // 호스트별로 지난 검사에서 읽은 NIC 바이트 합계와 마지막으로 트래픽이 있었던 시각
+    private final ConcurrentHashMap<Long, NicSample> nicSamples = new ConcurrentHashMap<>();
+    
+    @Scheduled(fixedDelayString = "${hibernation.scan-interval:60000}", initialDelayString = "${hibernation.scan-interval:60000}")
+    public void scan() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - config.getIdleTimeout();
+        LocalDateTime cutoffTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(cutoff), ZoneId.systemDefault());
+        Set<Long> busy = jobLeases.activeHostIds();
+        List<Host> candidates = hostRepository.findByStatusAndVmIdIsNotNullAndUpdatedAtBefore(Host.HostStatus.RUNNING, cutoffTime);
+        // 잠들었거나 지워진 호스트의 기준값은 버린다 (깨어나면 다시 잡는다)
+        Set<Long> candidateIds = candidates.stream().map(Host::getId).collect(Collectors.toSet());
+        nicSamples.keySet().retainAll(candidateIds);
+        int hibernating = 0;
+        for (Host host : candidates) {
+            if (hibernating >= config.getMaxPerScan()) {
+                break;
+            }
+            if (!cluster.owns(host.getId()) || busy.contains(host.getId())
+                || trafficAccounting.lastActivity(host.getId()) > cutoff
+                || networkActive(host, cutoff)) {
+                continue;
+            }
+            log.info("유휴 호스트 감지 - 호스트: {}", host.getHostName());
+            powerService.hibernate(host.getId());
+            hibernating++;
+        }
+    }
+    
+    /**
+     * 프록시를 거치지 않는 SSH 등의 트래픽도 사용으로 본다. 지난 검사 이후 VM NIC 송수신이 network-threshold 를 넘었으면
+     * 지금을 마지막 사용 시각으로 기록한다. 처음 보거나 VM 이 다시 켜져 카운터가 줄었으면 기준값만 잡고 이번에는 재우지 않는다.
+     * 통계를 읽지 못하면 프록시 요청만 본다.
+     */
+    private boolean networkActive(Host host, long cutoff) {
+        long bytes;
+        try {
+            bytes = virtualBoxService.networkBytes(host.getVmId(), host.getNodeName());
+        } catch (Exception e) {
+            log.debug("호스트 {} NIC 통계 조회 실패: {}", host.getHostName(), e.getMessage());
+            return false;
+        }
+        if (bytes < 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        NicSample previous = nicSamples.get(host.getId());
+        if (previous == null || bytes < previous.bytes) {
+            nicSamples.put(host.getId(), new NicSample(bytes, 0));
+            return true;
+        }
+        long lastActivity = bytes - previous.bytes > config.getNetworkThreshold() ? now : previous.lastActivity;
+        nicSamples.put(host.getId(), new NicSample(bytes, lastActivity));
+        return lastActivity > cutoff;
+    }
+    
+    private static class NicSample {
+        final long bytes;
+        final long lastActivity;
+        
+        NicSample(long bytes, long lastActivity) {
+            this.bytes = bytes;
+            this.lastActivity = lastActivity;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.webhosting.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 호스트 하나의 프로비저닝 출력 버퍼.
+ * 최근 출력만 고정 크기 링 버퍼에 두고, 밀려나는 바이트는 gzip 세그먼트 파일로 내보낸다.
+ * 닫히면 남은 링 내용까지 파일에 기록하고 메모리를 반환한다. 오프셋은 로그 시작부터의 바이트 위치.
+ */
+public class HostLogBuffer {
+    
+    private final Path spillFile;
+    private byte[] ring;
+    private long written;
+    private OutputStream spill;
+    private boolean spillFailed; // 디스크 오류 시 이후 밀려나는 출력은 버림
+    private boolean closed;
+    
+    public HostLogBuffer(int capacity, Path spillFile) {
+        this.ring = new byte[capacity];
+        this.spillFile = spillFile;
+    }
+    
+    public synchronized void write(byte[] data, int off, int len) {
+        if (closed || len <= 0) {
+            return;
+        }
+        int capacity = ring.length;
+        long start = startOffset();
+        long newStart = Math.max(0, written + len - capacity);
+        
+        // 덮어쓰일 링 내용과, 링에 들어가지 못하는 새 데이터 앞부분을 파일로 내보냄
+        if (newStart > start) {
+            long ringEvictEnd = Math.min(newStart, written);
+            for (long pos = start; pos < ringEvictEnd; ) {
+                int index = (int) (pos % capacity);
+                int n = (int) Math.min(ringEvictEnd - pos, capacity - index);
+                spill(ring, index, n);
+                pos += n;
+            }
+            if (newStart > written) {
+                spill(data, off, (int) (newStart - written));
+            }
+        }
+        
+        int keep = Math.min(len, capacity);
+        int srcOff = off + len - keep;
+        long pos = written + len - keep;
+        while (keep > 0) {
+            int index = (int) (pos % capacity);
+            int n = Math.min(keep, capacity - index);
+            System.arraycopy(data, srcOff, ring, index, n);
+            srcOff += n;
+            pos += n;
+            keep -= n;
+        }
+        written += len;
+        notifyAll();
+    }
+    
+    /**
+     * from 위치부터 최대 max 바이트를 읽는다. 이미 링에서 밀려난 구간은 건너뛰고 skipped 로 알려준다.
+     */
+    public synchronized Chunk read(long from, int max) {
+        if (closed) {
+            return new Chunk(Math.max(from, written), new byte[0], 0);
+        }
+        long start = startOffset();
+        long skipped = Math.max(0, start - from);
+        long pos = Math.max(from, start);
+        int n = (int) Math.max(0, Math.min(max, written - pos));
+        
+        byte[] data = new byte[n];
+        int copied = 0;
+        while (copied < n) {
+            int index = (int) ((pos + copied) % ring.length);
+            int len = Math.min(n - copied, ring.length - index);
+            System.arraycopy(ring, index, data, copied, len);
+            copied += len;
+        }
+        return new Chunk(pos, data, skipped);
+    }
+    
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            long start = startOffset();
+            for (long pos = start; pos < written; ) {
+                int index = (int) (pos % ring.length);
+                int n = (int) Math.min(written - pos, ring.length - index);
+                spill(ring, index, n);
+                pos += n;
+            }
+            if (spill != null) {
+                spill.close();
+            }
+        } catch (IOException e) {
+            spillFailed = true;
+        } finally {
+            closed = true;
+            ring = null;
+            notifyAll();
+        }
+    }
+    
+    /**
+     * 닫힌 로그 전체를 읽는다 (압축 해제된 스트림).
+     */
+    public InputStream openSpill() throws IOException {
+        return openSpill(spillFile);
+    }
+    
+    public static InputStream openSpill(Path spillFile) throws IOException {
+        if (!Files.exists(spillFile)) {
+            return InputStream.nullInputStream();
+        }
+        return new GZIPInputStream(Files.newInputStream(spillFile));
+    }
+    
+    public OutputStream outputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                HostLogBuffer.this.write(new byte[] { (byte) b }, 0, 1);
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) {
+                HostLogBuffer.this.write(b, off, len);
+            }
+        };
+    }
+    
+    public synchronized long startOffset() {
+        return closed ? written : Math.max(0, written - ring.length);
+    }
+    
+    public synchronized long endOffset() {
+        return written;
+    }
+    
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+    
+    public Path getSpillFile() {
+        return spillFile;
+    }
+    
+    private void spill(byte[] data, int off, int len) {
+        if (spillFailed) {
+            return;
+        }
+        try {
+            if (spill == null) {
+                Files.createDirectories(spillFile.getParent());
+                spill = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+            }
+            spill.write(data, off, len);
+        } catch (IOException e) {
+            spillFailed = true;
+        }
+    }
+    
+    public static class Chunk {
+        public final long offset;
+        public final byte[] data;
+        public final long skipped;
+        
+        Chunk(long offset, byte[] data, long skipped) {
+            this.offset = offset;
+            this.data = data;
+            this.skipped = skipped;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.webhosting.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 호스트별 프로비저닝 로그 스트리밍.
+ * 출력은 HostLogBuffer 에 고정 크기로 보관되고, follow 요청은 공용 스케줄러가 주기적으로 읽어 SSE 로 전송한다.
+ */
+@Service
+@Slf4j
+public class HostLogService {
+    
+    private static final int CHUNK_SIZE = 16 * 1024;
+    
+    @Value("${hosting.logs.buffer-size:65536}")
+    private int bufferSize;
+    
+    @Value("${hosting.logs.directory:./logs/hosts}")
+    private String directory;
+    
+    @Value("${hosting.logs.poll-interval:500}")
+    private long pollInterval;
+    
+    @Value("${hosting.logs.follow-timeout:1800000}")
+    private long followTimeout;
+    
+    private final ConcurrentHashMap<Long, HostLogBuffer> buffers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "log-follow-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        buffers.values().forEach(HostLogBuffer::close);
+    }
+    
+    public void open(Long hostId) {
+        HostLogBuffer previous = buffers.put(hostId, new HostLogBuffer(bufferSize, spillFile(hostId)));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+    
+    /**
+     * 호스트 로그에 쓰는 스트림. 열린 로그가 없으면 출력을 버린다.
+     */
+    public OutputStream stream(Long hostId) {
+        HostLogBuffer buffer = hostId != null ? buffers.get(hostId) : null;
+        return buffer != null && !buffer.isClosed() ? buffer.outputStream() : OutputStream.nullOutputStream();
+    }
+    
+    public void close(Long hostId) {
+        HostLogBuffer buffer = buffers.get(hostId);
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+    
+    public void delete(Long hostId) {
+        HostLogBuffer buffer = buffers.remove(hostId);
+        if (buffer != null) {
+            buffer.close();
+        }
+        try {
+            Files.deleteIfExists(spillFile(hostId));
+        } catch (IOException e) {
+            log.warn("호스트 {} 로그 파일 삭제 실패: {}", hostId, e.getMessage());
+        }
+    }
+    
+    /**
+     * 현재까지의 로그. 진행 중이면 메모리에 남은 최근 출력, 끝났으면 압축 파일 전체를 돌려준다.
+     */
+    public InputStream read(Long hostId) throws IOException {
+        HostLogBuffer buffer = buffers.get(hostId);
+        if (buffer == null) {
+            // 재시작 이후에는 파일만 남아 있음
+            return HostLogBuffer.openSpill(spillFile(hostId));
+        }
+        if (buffer.isClosed()) {
+            return buffer.openSpill();
+        }
+        HostLogBuffer.Chunk chunk = buffer.read(0, bufferSize);
+        return new ByteArrayInputStream(chunk.data);
+    }
+    
+    /**
+     * 로그를 이어 받는다. opening 이 참이면 (생성 대기 중) 로그가 열릴 때까지 기다린다.
+     */
+    public SseEmitter follow(Long hostId, long fromOffset, BooleanSupplier opening) {
+        SseEmitter emitter = new SseEmitter(followTimeout);
+        // 버퍼는 매번 다시 찾는다. 없으면 (재시작 이후) 파일 내용을 보내고 끝낸다
+        Follower follower = new Follower(() -> buffers.get(hostId), opening, spillFile(hostId), emitter, fromOffset);
+        ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(follower, 0, pollInterval, TimeUnit.MILLISECONDS);
+        emitter.onCompletion(() -> task.cancel(false));
+        emitter.onTimeout(() -> {
+            task.cancel(false);
+            emitter.complete();
+        });
+        emitter.onError(e -> task.cancel(false));
+        return emitter;
+    }
+    
+    private Path spillFile(Long hostId) {
+        return Paths.get(directory, "host-" + hostId + ".log.gz");
+    }
+    
+    /**
+     * data[0..length) 에서 끝에 잘려 있는 UTF-8 문자를 뺀 길이.
+     * 마지막 선행 바이트 뒤의 연속 바이트가 모자라면 그 선행 바이트 앞까지만 완성된 것으로 본다.
+     */
+    static int completeLength(byte[] data, int length) {
+        for (int i = length - 1; i >= Math.max(0, length - 3); i--) {
+            int b = data[i] & 0xFF;
+            if (b < 0x80) {
+                return length;
+            }
+            if (b >= 0xC0) {
+                int sequence = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                return length - i >= sequence ? length : i;
+            }
+        }
+        return length;
+    }
+    
+    // 하나의 follow 연결: 마지막으로 보낸 오프셋 이후의 출력만 전송
+    private static class Follower implements Runnable {
+        private final Supplier<HostLogBuffer> buffers;
+        private final BooleanSupplier opening;
+        private final Path spillFile;
+        private final SseEmitter emitter;
+        private long offset;
+        // 청크 경계에서 잘린 UTF-8 문자의 앞부분. 다음 청크와 합쳐 보낸다
+        private byte[] pending = new byte[0];
+        private boolean done;
+        
+        Follower(Supplier<HostLogBuffer> buffers, BooleanSupplier opening, Path spillFile, SseEmitter emitter, long offset) {
+            this.buffers = buffers;
+            this.opening = opening;
+            this.spillFile = spillFile;
+            this.emitter = emitter;
+            this.offset = offset;
+        }
+        
+        @Override
+        public synchronized void run() {
+            if (done) {
+                return;
+            }
+            try {
+                HostLogBuffer buffer = buffers.get();
+                if (buffer == null && !Files.exists(spillFile) && opening.getAsBoolean()) {
+                    return; // 생성 작업이 아직 로그를 열지 않았다
+                }
+                if (buffer == null || buffer.isClosed()) {
+                    sendRemainderFromSpill();
+                    return;
+                }
+                HostLogBuffer.Chunk chunk;
+                do {
+                    chunk = buffer.read(offset, CHUNK_SIZE);
+                    if (chunk.skipped > 0) {
+                        pending = new byte[0]; // 뒤에 이어질 바이트가 밀려났으므로 버린다
+                        emitter.send(SseEmitter.event().name("skipped").data(chunk.skipped));
+                    }
+                    if (chunk.data.length > 0) {
+                        offset = chunk.offset + chunk.data.length;
+                        send(chunk.data, chunk.data.length);
+                    }
+                } while (chunk.data.length == CHUNK_SIZE);
+            } catch (Exception e) {
+                done = true;
+                emitter.completeWithError(e);
+            }
+        }
+        
+        // 로그가 닫힌 뒤에는 남은 부분을 압축 파일에서 이어서 보낸다
+        private void sendRemainderFromSpill() throws IOException {
+            try (InputStream in = HostLogBuffer.openSpill(spillFile)) {
+                long toSkip = offset;
+                while (toSkip > 0) {
+                    long skipped = in.skip(toSkip);
+                    if (skipped <= 0) {
+                        break;
+                    }
+                    toSkip -= skipped;
+                }
+                byte[] data = new byte[CHUNK_SIZE];
+                int n;
+                while ((n = in.readNBytes(data, 0, data.length)) > 0) {
+                    offset += n;
+                    send(data, n);
+                }
+            }
+            if (pending.length > 0) {
+                // 로그가 문자 중간에서 끝난 경우
+                byte[] rest = pending;
+                pending = new byte[0];
+                emit(rest, rest.length);
+            }
+            emitter.send(SseEmitter.event().name("end").data(offset));
+            done = true;
+            emitter.complete();
+        }
+        
+        private void send(byte[] data, int length) throws IOException {
+            byte[] bytes = data;
+            if (pending.length > 0) {
+                bytes = new byte[pending.length + length];
+                System.arraycopy(pending, 0, bytes, 0, pending.length);
+                System.arraycopy(data, 0, bytes, pending.length, length);
+                length = bytes.length;
+            }
+            int complete = completeLength(bytes, length);
+            pending = Arrays.copyOfRange(bytes, complete, length);
+            if (complete > 0) {
+                emit(bytes, complete);
+            }
+        }
+        
+        // 이벤트 ID 는 클라이언트가 이어 받을 위치이므로 아직 보내지 않은 바이트는 빼고 센다
+        private void emit(byte[] data, int length) throws IOException {
+            emitter.send(SseEmitter.event()
+                .name("log")
+                .id(String.valueOf(offset - pending.length))
+                .data(new String(data, 0, length, StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.JobLease;
+import com.example.webhosting.proxy.ProxyRouteTable;
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 호스트 VM 전원 상태 전환 (시작/정지/재시작/일시 중지/재개, 유휴 호스트 재우기/깨우기).
+ * 완료는 sleep 이 아니라 VBoxManage 의 VMState 가 목표 상태가 되는 것으로 판단한다.
+ * 같은 호스트에 같은 전환이 겹치면 진행 중인 것을 함께 기다리고, 다른 전환은 앞의 것이 끝난 뒤 이어서 실행한다.
+ * 전환 중에는 POWER 작업 임대를 잡아 다른 인스턴스의 생성/삭제/전원 작업과 겹치지 않게 한다.
+ */
+@Service
+@Slf4j
+public class HostPowerService {
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private VirtualBoxService virtualBoxService;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodeRegistry;
+    
+    @Autowired
+    private ProxyRouteTable proxyRoutes;
+    
+    @Autowired
+    private HealthCheckService healthCheck;
+    
+    @Autowired
+    private JobLeaseService jobLeases;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    @Autowired
+    private HostStatusCache statusCache;
+    
+    private final ConcurrentHashMap<Long, Operation> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * 실행 중인 호스트의 VM 상태를 저장하고 HIBERNATED 로 바꾼다 (유휴 호스트 재우기).
+     */
+    public CompletableFuture<Host> hibernate(Long hostId) {
+        return submit(hostId, Action.HIBERNATE);
+    }
+    
+    /**
+     * 잠든 호스트를 저장된 상태에서 다시 띄운다. 이미 실행 중이면 바로 완료된다.
+     */
+    public CompletableFuture<Host> wake(Long hostId) {
+        return submit(hostId, Action.WAKE);
+    }
+    
+    public CompletableFuture<Host> start(Long hostId) {
+        return submit(hostId, Action.START);
+    }
+    
+    /**
+     * 게스트를 정상 종료한다. 저장된 호스트는 저장 상태를 버리고 꺼진 상태가 된다.
+     */
+    public CompletableFuture<Host> stop(Long hostId) {
+        return submit(hostId, Action.STOP);
+    }
+    
+    public CompletableFuture<Host> restart(Long hostId) {
+        return submit(hostId, Action.RESTART);
+    }
+    
+    public CompletableFuture<Host> suspend(Long hostId) {
+        return submit(hostId, Action.SUSPEND);
+    }
+    
+    /**
+     * 일시 중지했거나 잠든 호스트를 저장된 상태에서 다시 띄운다.
+     */
+    public CompletableFuture<Host> resume(Long hostId) {
+        return submit(hostId, Action.RESUME);
+    }
+    
+    private CompletableFuture<Host> submit(Long hostId, Action action) {
+        Operation[] created = new Operation[1];
+        Operation operation = inFlight.compute(hostId, (id, current) -> {
+            if (current != null && current.action == action) {
+                return current;
+            }
+            CompletableFuture<Host> future = current == null
+                ? run(hostId, action)
+                : current.future.handle((host, e) -> null).thenCompose(v -> run(hostId, action));
+            created[0] = new Operation(action, future);
+            return created[0];
+        });
+        if (created[0] != null) {
+            operation.future.whenComplete((host, e) -> inFlight.remove(hostId, operation));
+        }
+        return operation.future;
+    }
+    
+    private CompletableFuture<Host> run(Long hostId, Action action) {
+        return CompletableFuture.supplyAsync(() -> begin(hostId, action))
+            .thenCompose(host -> host == null
+                ? CompletableFuture.completedFuture(hostRepository.findById(hostId).orElseThrow())
+                : transition(host, action));
+    }
+    
+    /**
+     * 호스트를 다시 읽어 전환할 수 있는 상태인지 확인하고 임대를 잡는다. 이미 목표 상태라 할 일이 없으면 null.
+     */
+    private Host begin(Long hostId, Action action) {
+        Host host = hostRepository.findById(hostId)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        if (!action.from.contains(host.getStatus()) && (host.getStatus() == action.target
+            || (action.target == Host.HostStatus.RUNNING && host.isServing()))) {
+            return null;
+        }
+        if (!action.from.contains(host.getStatus()) || host.getVmId() == null) {
+            throw new IllegalArgumentException("현재 상태에서 할 수 없는 작업입니다 (" + action.label + ", 상태: " + host.getStatus() + ")");
+        }
+        // 같은 인스턴스가 같은 작업으로 잡은 임대는 acquire 가 다시 내주므로 먼저 확인한다 (크기 변경/스냅샷 중 재우기 방지)
+        if (jobLeases.isHeld(hostId) || !jobLeases.acquire(hostId, JobLease.JobType.POWER)) {
+            throw new IllegalStateException("호스트에 다른 작업이 진행 중입니다");
+        }
+        return host;
+    }
+    
+    private CompletableFuture<Host> transition(Host host, Action action) {
+        Long hostId = host.getId();
+        Host.HostStatus from = host.getStatus();
+        Timer.Sample sample = metrics.startTimer();
+        long started = System.currentTimeMillis();
+        log.info("호스트 {} 시작 - 호스트: {} ({})", action.label, host.getHostName(), from);
+        // 전환 중 웹/SSH 검사 실패로 DEGRADED 가 되지 않도록 먼저 뺀다
+        healthCheck.unwatch(hostId);
+        return vmCommand(host, action)
+            .thenApply(v -> {
+                if (hostRepository.updateStatus(hostId, from, action.target, LocalDateTime.now()) == 0) {
+                    // 그 사이 지워졌거나 다른 곳에서 상태가 바뀌었으면 노드 예약과 프록시 경로를 건드리지 않는다
+                    Host current = hostRepository.findById(hostId).orElse(null);
+                    if (current == null) {
+                        host.setStatus(null); // 실패 처리에서 다시 감시하지 않는다
+                        throw new IllegalArgumentException("호스트를 찾을 수 없습니다");
+                    }
+                    host.setStatus(current.getStatus());
+                    throw new IllegalStateException("호스트 상태가 바뀌어 " + action.label + " 결과를 기록하지 못했습니다 (상태: " + current.getStatus() + ")");
+                }
+                host.setStatus(action.target);
+                // 잠든 호스트만 메모리 예약을 내려놓는다 (일시 중지/정지는 다시 켤 자리를 남겨 둔다)
+                if (action.target == Host.HostStatus.HIBERNATED) {
+                    nodeRegistry.hibernated(host);
+                } else if (from == Host.HostStatus.HIBERNATED) {
+                    nodeRegistry.woke(host);
+                }
+                proxyRoutes.put(host);
+                if (host.isServing()) {
+                    healthCheck.watch(host);
+                }
+                return host;
+            })
+            .whenComplete((result, e) -> {
+                statusCache.invalidate(hostId);
+                jobLeases.release(hostId, JobLease.JobType.POWER);
+                metrics.recordPowerAction(sample, action.name().toLowerCase(Locale.ROOT), e == null);
+                if (e != null) {
+                    log.warn("호스트 {} 실패 - 호스트: {}, 오류: {}", action.label, host.getHostName(), e.getMessage());
+                    if (host.isServing()) {
+                        healthCheck.watch(host);
+                    }
+                } else {
+                    log.info("호스트 {} 완료 - 호스트: {} ({}ms)", action.label, host.getHostName(), System.currentTimeMillis() - started);
+                }
+            });
+    }
+    
+    private CompletableFuture<Void> vmCommand(Host host, Action action) {
+        String vmId = host.getVmId();
+        String nodeName = host.getNodeName();
+        return switch (action) {
+            case HIBERNATE, SUSPEND -> virtualBoxService.saveState(vmId, nodeName);
+            case WAKE, START, RESUME -> virtualBoxService.powerOn(vmId, nodeName);
+            case STOP -> virtualBoxService.shutdown(vmId, nodeName);
+            case RESTART -> virtualBoxService.restart(vmId, nodeName);
+        };
+    }
+    
+    private enum Action {
+        HIBERNATE("재우기", Host.HostStatus.HIBERNATED, Host.HostStatus.RUNNING),
+        WAKE("깨우기", Host.HostStatus.RUNNING, Host.HostStatus.HIBERNATED),
+        START("시작", Host.HostStatus.RUNNING, Host.HostStatus.STOPPED),
+        STOP("정지", Host.HostStatus.STOPPED, Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED,
+             Host.HostStatus.HIBERNATED, Host.HostStatus.SUSPENDED),
+        RESTART("재시작", Host.HostStatus.RUNNING, Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED),
+        SUSPEND("일시 중지", Host.HostStatus.SUSPENDED, Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED),
+        RESUME("재개", Host.HostStatus.RUNNING, Host.HostStatus.SUSPENDED, Host.HostStatus.HIBERNATED);
+        
+        final String label;
+        final Host.HostStatus target;
+        final Set<Host.HostStatus> from;
+        
+        Action(String label, Host.HostStatus target, Host.HostStatus first, Host.HostStatus... rest) {
+            this.label = label;
+            this.target = target;
+            this.from = EnumSet.of(first, rest);
+        }
+    }
+    
+    private static final class Operation {
+        final Action action;
+        final CompletableFuture<Host> future;
+        
+        Operation(Action action, CompletableFuture<Host> future) {
+            this.action = action;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.JobLease;
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 호스트 크기 요금제 변경. 노드 예약을 먼저 옮겨 자리가 없으면 VM 을 건드리지 않고 거절하고,
+ * VM 은 바뀌는 자원에 따라 멈추지 않거나(vCPU 핫플러그) 잠깐 저장했다 재개하거나(디스크 확장) 다시 부팅한다(메모리).
+ * 변경 중에는 RESIZE 작업 임대를 잡아 전원/스냅샷/삭제 작업과 겹치지 않게 한다.
+ */
+@Service
+@Slf4j
+public class HostResizeService {
+    
+    // 크기를 바꿀 수 있는 상태 (저장된 VM 은 설정을 바꿀 수 없으므로 일시 중지/잠든 호스트는 먼저 재개해야 한다)
+    private static final Set<Host.HostStatus> RESIZABLE = EnumSet.of(
+        Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED, Host.HostStatus.STOPPED);
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private VirtualBoxService virtualBoxService;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodeRegistry;
+    
+    @Autowired
+    private PlanCatalog planCatalog;
+    
+    @Autowired
+    private HealthCheckService healthCheck;
+    
+    @Autowired
+    private JobLeaseService jobLeases;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    @Autowired
+    private HostStatusCache statusCache;
+    
+    /**
+     * 호스트를 planName 요금제 크기로 바꾼다. 디스크를 줄이는 요금제나 바꿀 수 없는 상태는 IllegalArgumentException,
+     * 노드에 자리가 없거나 다른 작업이 진행 중이면 IllegalStateException.
+     */
+    public CompletableFuture<Host> resize(Long hostId, String planName) {
+        Host host = hostRepository.findById(hostId)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        VirtualBoxConfig.Plan to = planCatalog.plan(planName);
+        VirtualBoxConfig.Plan from = planCatalog.current(host);
+        if (!RESIZABLE.contains(host.getStatus()) || host.getVmId() == null) {
+            throw new IllegalArgumentException("현재 상태에서는 크기를 바꿀 수 없습니다 (상태: " + host.getStatus() + ")");
+        }
+        if (to.getDiskSize() < from.getDiskSize()) {
+            throw new IllegalArgumentException("디스크는 줄일 수 없습니다 (" + from.getDiskSize() + "MB → " + to.getDiskSize() + "MB)");
+        }
+        // 같은 인스턴스가 같은 작업으로 잡은 임대는 acquire 가 다시 내주므로 먼저 확인한다
+        if (jobLeases.isHeld(hostId) || !jobLeases.acquire(hostId, JobLease.JobType.RESIZE)) {
+            throw new IllegalStateException("호스트에 다른 작업이 진행 중입니다");
+        }
+        try {
+            nodeRegistry.resize(host, from, to, true);
+        } catch (RuntimeException e) {
+            jobLeases.release(hostId, JobLease.JobType.RESIZE);
+            throw e;
+        }
+        
+        Timer.Sample sample = metrics.startTimer();
+        long started = System.currentTimeMillis();
+        log.info("호스트 크기 변경 시작 - 호스트: {}, {} → {}", host.getHostName(), from.getName(), to.getName());
+        // 다시 부팅하는 동안 웹/SSH 검사 실패로 DEGRADED 가 되지 않도록 먼저 뺀다
+        healthCheck.unwatch(hostId);
+        Integer maxCpus = VirtualBoxService.canHotplug(host, to.getCpus()) ? host.getMaxCpus() : null;
+        VirtualBoxService.ResizeMode[] mode = new VirtualBoxService.ResizeMode[1];
+        return virtualBoxService.resizeVM(host, from, to)
+            .thenApply(result -> {
+                mode[0] = result;
+                hostRepository.updateSize(hostId, to.getName(), to.getMemory(), to.getCpus(), to.getDiskSize(), maxCpus, LocalDateTime.now());
+                host.setPlan(to.getName());
+                host.setMemory(to.getMemory());
+                host.setCpus(to.getCpus());
+                host.setDiskSize(to.getDiskSize());
+                host.setMaxCpus(maxCpus);
+                return host;
+            })
+            .whenComplete((result, e) -> {
+                if (e != null) {
+                    // VM 은 바뀌지 않았거나 일부만 바뀌었다. 예약은 DB 에 기록된 크기로 되돌린다
+                    nodeRegistry.resize(host, to, from, false);
+                    log.warn("호스트 크기 변경 실패 - 호스트: {}, 오류: {}", host.getHostName(), e.getMessage());
+                } else {
+                    log.info("호스트 크기 변경 완료 - 호스트: {}, 방법: {} ({}ms)",
+                             host.getHostName(), mode[0], System.currentTimeMillis() - started);
+                }
+                statusCache.invalidate(hostId);
+                jobLeases.release(hostId, JobLease.JobType.RESIZE);
+                metrics.recordResize(sample, mode[0] == null ? "none" : mode[0].name().toLowerCase(Locale.ROOT), e == null);
+                if (host.isServing()) {
+                    healthCheck.watch(host);
+                }
+            });
+    }
+}
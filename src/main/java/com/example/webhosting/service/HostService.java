@@ -1,24 +1,60 @@
 package com.example.webhosting.service;
 
+import com.example.webhosting.config.ProxyConfig;
+import com.example.webhosting.config.QuotaConfig;
+import com.example.webhosting.config.VirtualBoxConfig;
 import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.HostTimelineSpan.SpanType;
+import com.example.webhosting.entity.IdempotencyKey;
+import com.example.webhosting.entity.JobLease;
 import com.example.webhosting.entity.User;
 import com.example.webhosting.dto.HostCreationDto;
+import com.example.webhosting.dto.HostMetricsDto;
+import com.example.webhosting.dto.HostPlanDto;
 import com.example.webhosting.dto.HostResponseDto;
+import com.example.webhosting.dto.HostStatusDto;
+import com.example.webhosting.dto.HostUsageDto;
+import com.example.webhosting.dto.TimelineSpanDto;
+import com.example.webhosting.proxy.ProxyRouteTable;
+import com.example.webhosting.proxy.ResponseCache;
+import com.example.webhosting.repository.ClusterLockRepository;
 import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.UserRepository;
 import com.example.webhosting.service.VirtualBoxService.VmCreationResult;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
+@Slf4j
 public class HostService {
     
+    private static final int MAX_USAGE_MINUTES = 7 * 24 * 60;
+    private static final int MAX_CONFLICT_RETRIES = 3;
+    
     @Autowired
     private HostRepository hostRepository;
     
@@ -28,30 +64,252 @@ public class HostService {
     @Autowired
     private VMProvisioningService provisioningService;
     
+    @Autowired
+    private VirtualBoxConfig virtualBoxConfig;
+    
+    @Autowired
+    private ProxyConfig proxyConfig;
+    
+    @Autowired
+    private ProxyRouteTable proxyRoutes;
+    
+    @Autowired
+    private ResponseCache responseCache;
+    
+    @Autowired
+    private TrafficAccountingService trafficAccounting;
+    
+    @Autowired
+    private HealthCheckService healthCheck;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodeRegistry;
+    
+    @Autowired
+    private PortAllocator portAllocator;
+    
+    @Autowired
+    private ClusterMembership cluster;
+    
+    @Autowired
+    private ClusterLockRepository clusterLocks;
+    
+    @Autowired
+    private JobLeaseService jobLeases;
+    
+    @Autowired
+    private HostPowerService powerService;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    @Autowired
+    private HostTimelineRecorder timeline;
+    
+    @Autowired
+    private HostSnapshotService snapshotService;
+    
+    @Autowired
+    private VmMetricsCollector vmMetrics;
+    
+    @Autowired
+    private HostLogService hostLogs;
+    
+    @Autowired
+    private PlanCatalog planCatalog;
+    
+    @Autowired
+    private HostResizeService resizeService;
+    
+    @Autowired
+    private HostStatusCache statusCache;
+    
+    @Autowired
+    private IdempotencyService idempotency;
+    
+    @Autowired
+    private QuotaConfig quotaConfig;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
     public CompletableFuture<HostResponseDto> createHost(HostCreationDto dto, User user) {
-        // 호스트명 중복 검사
-        if (hostRepository.existsByHostNameAndUser(dto.getHostName(), user)) {
+        return createHost(dto, user, (IdempotencyService.Claim) null);
+    }
+    
+    /**
+     * Idempotency-Key 를 붙인 생성. 같은 키로 다시 보낸 요청은 VM 을 새로 만들지 않고 처음 만든 호스트의 현재 상태를 돌려준다.
+     */
+    public CompletableFuture<HostResponseDto> createHost(HostCreationDto dto, User user, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createHost(dto, user);
+        }
+        String fingerprint = dto.getHostName() + "/" + planCatalog.plan(dto.getPlan()).getName();
+        IdempotencyService.Claim claim = idempotency.claim(user.getId(), idempotencyKey, IdempotencyKey.Operation.CREATE, fingerprint);
+        if (claim.isReplay()) {
+            return claim.hostId().thenApply(hostId -> hostRepository.findByIdAndUser(hostId, user)
+                .map(this::toResponse)
+                .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다")));
+        }
+        try {
+            return claim.complete(createHost(dto, user, claim));
+        } catch (RuntimeException e) {
+            claim.abandon(e);
+            throw e;
+        }
+    }
+    
+    private CompletableFuture<HostResponseDto> createHost(HostCreationDto dto, User user, IdempotencyService.Claim claim) {
+        // 호스트명 중복 검사 (프록시는 호스트명으로 라우팅하므로 전체 사용자 기준으로 유일해야 함)
+        if (proxyConfig.isEnabled()) {
+            if (hostRepository.existsByHostNameIgnoreCase(dto.getHostName())) {
+                throw new IllegalArgumentException("이미 사용 중인 호스트명입니다");
+            }
+        } else if (hostRepository.existsByHostNameAndUser(dto.getHostName(), user)) {
             throw new IllegalArgumentException("이미 존재하는 호스트명입니다");
         }
         
+        // VM 을 둘 하이퍼바이저 노드 선택 및 자원 예약 (고른 요금제 크기로)
+        VirtualBoxConfig.Plan plan = planCatalog.plan(dto.getPlan());
+        checkQuota(user, 1, plan.getMemory());
+        if (cluster.members().size() > 1) {
+            // 다른 인스턴스도 배치 중일 수 있으므로 배치 잠금을 트랜잭션 끝까지 잡고 DB 기준 사용량으로 고른다
+            clusterLocks.lock(ClusterMembership.PLACEMENT_LOCK);
+            nodeRegistry.reload();
+        }
+        HypervisorNodeRegistry.Placement placement = nodeRegistry.place(user.getId(), plan.getMemory(), plan.getCpus(), plan.getDiskSize());
+        
         // 호스트 생성 (초기 상태: CREATING)
-        Host host = new Host();
-        host.setHostName(dto.getHostName());
-        host.setUser(user);
-        host.setStatus(Host.HostStatus.CREATING);
-        host = hostRepository.save(host);
+        Host host = newHost(dto.getHostName(), plan, placement, user);
+        try {
+            host = hostRepository.saveAndFlush(host);
+        } catch (DataIntegrityViolationException e) {
+            // 위 검사 이후 다른 인스턴스가 같은 이름으로 먼저 만듦
+            nodeRegistry.release(host, user.getId());
+            throw new IllegalArgumentException("이미 사용 중인 호스트명입니다");
+        } catch (RuntimeException e) {
+            nodeRegistry.release(host, user.getId());
+            throw e;
+        }
+        if (claim != null) {
+            claim.attach(host.getId());
+        }
+        return startCreate(host, user.getId(), null);
+    }
+    
+    /**
+     * 여러 호스트를 한 번에 검사/배치하고 한 트랜잭션으로 저장한다 (상태: CREATING). VM 은 만들지 않는다.
+     * 이름은 요청 안의 중복과 이미 쓰는 이름을 이름 키 집합 조회 한 번으로 확인하고, 하나라도 걸리면 아무것도 만들지 않는다.
+     * 배치 잠금/노드 사용량 재조회도 묶음 전체에 한 번만 한다.
+     */
+    public List<Host> insertHosts(List<HostCreationDto> dtos, User user) {
+        Map<String, String> names = new LinkedHashMap<>(); // 이름 키 → 호스트명
+        for (HostCreationDto dto : dtos) {
+            if (names.put(nameKey(dto.getHostName(), user), dto.getHostName()) != null) {
+                throw new IllegalArgumentException("요청에 같은 호스트명이 두 번 있습니다: " + dto.getHostName());
+            }
+        }
+        List<String> taken = hostRepository.findNameKeys(names.keySet());
+        if (!taken.isEmpty()) {
+            throw new IllegalArgumentException("이미 사용 중인 호스트명입니다: "
+                + taken.stream().map(names::get).collect(Collectors.joining(", ")));
+        }
+        List<VirtualBoxConfig.Plan> plans = dtos.stream().map(dto -> planCatalog.plan(dto.getPlan())).toList();
+        checkQuota(user, plans.size(), plans.stream().mapToLong(VirtualBoxConfig.Plan::getMemory).sum());
+        
+        if (cluster.members().size() > 1) {
+            clusterLocks.lock(ClusterMembership.PLACEMENT_LOCK);
+            nodeRegistry.reload();
+        }
+        List<Host> hosts = new ArrayList<>();
+        try {
+            for (int i = 0; i < dtos.size(); i++) {
+                VirtualBoxConfig.Plan plan = plans.get(i);
+                HypervisorNodeRegistry.Placement placement = nodeRegistry.place(user.getId(), plan.getMemory(), plan.getCpus(), plan.getDiskSize());
+                hosts.add(newHost(dtos.get(i).getHostName(), plan, placement, user));
+            }
+            return hostRepository.saveAllAndFlush(hosts);
+        } catch (DataIntegrityViolationException e) {
+            hosts.forEach(host -> nodeRegistry.release(host, user.getId()));
+            throw new IllegalArgumentException("이미 사용 중인 호스트명입니다");
+        } catch (RuntimeException e) {
+            // 중간에 용량이 모자라면 앞서 예약한 자원도 돌려준다
+            hosts.forEach(host -> nodeRegistry.release(host, user.getId()));
+            throw e;
+        }
+    }
+    
+    /**
+     * 사용자 할당량 (호스트 수, 동시에 생성 중인 호스트 수, 메모리 합계) 안에서 호스트 hosts 개와 메모리 memory(MB)를 더 쓸 수 있는지 확인한다.
+     * 같은 사용자의 요청은 사용자 행을 트랜잭션 끝까지 잠가 한 줄로 세우므로 동시에 들어온 요청이 함께 검사를 통과하지 못한다.
+     */
+    private void checkQuota(User user, int hosts, long memory) {
+        userRepository.lock(user.getId());
+        Object[] usage = hostRepository.findUsage(user.getId()).get(0);
+        if (hosts > 0 && quotaConfig.getMaxHosts() > 0
+                && ((Number) usage[0]).longValue() + hosts > quotaConfig.getMaxHosts()) {
+            throw new IllegalArgumentException("사용자당 호스트는 " + quotaConfig.getMaxHosts() + "개까지 만들 수 있습니다");
+        }
+        if (hosts > 0 && quotaConfig.getMaxConcurrentCreates() > 0
+                && ((Number) usage[1]).longValue() + hosts > quotaConfig.getMaxConcurrentCreates()) {
+            throw new IllegalArgumentException("동시에 생성할 수 있는 호스트는 " + quotaConfig.getMaxConcurrentCreates()
+                + "개까지입니다. 진행 중인 생성이 끝난 뒤 다시 시도하세요");
+        }
+        if (memory > 0 && quotaConfig.getMaxMemory() > 0
+                && ((Number) usage[2]).longValue() + memory > quotaConfig.getMaxMemory()) {
+            throw new IllegalArgumentException("사용자 호스트의 메모리 합계는 " + quotaConfig.getMaxMemory() + "MB 까지입니다");
+        }
+    }
+    
+    /**
+     * 저장된 CREATING 호스트의 VM 생성을 시작한다. VM 을 만들고 결과를 기록하면 완료되며, 프로비저닝은 이어서 따로 진행된다.
+     * ports 는 미리 잡아 둔 포트 (없으면 null).
+     */
+    public CompletableFuture<HostResponseDto> startCreate(Host host, Long userId, PortAllocator.Ports ports) {
+        // 생성/프로비저닝이 끝날 때까지 이 인스턴스가 작업을 맡는다
+        jobLeases.acquire(host.getId(), JobLease.JobType.CREATE);
         
         final Host savedHost = host;
-        final Long userId = user.getId(); // 사용자 ID 저장
+        metrics.hostCreateStarted(savedHost.getId());
+        
+        // 호스트 생명주기 타임라인과 로그 기록 시작
+        timeline.begin(savedHost.getId());
+        hostLogs.open(savedHost.getId());
+        final HostTimelineRecorder.Span phase;
+        try (HostTimelineRecorder.Scope scope = timeline.bind(savedHost.getId())) {
+            phase = timeline.start(SpanType.PHASE, "create-vm");
+        }
         
         // 비동기로 실제 VirtualBox VM 생성
-        return virtualBoxService.createVM(dto.getHostName())
+        return virtualBoxService.createVM(savedHost, ports)
             .thenApply(result -> {
+                phase.end(null, result.errorMessage, result.success);
                 // 비동기 콜백에서 SecurityContext 없이 처리
-                return processVMCreationResult(result, dto.getHostName(), savedHost.getId(), userId);
+                return processVMCreationResult(result, savedHost.getHostName(), savedHost.getId(), userId);
+            })
+            .whenComplete((response, e) -> {
+                if (e != null) {
+                    metrics.hostCreateAbandoned(savedHost.getId());
+                }
             });
     }
     
+    private Host newHost(String hostName, VirtualBoxConfig.Plan plan, HypervisorNodeRegistry.Placement placement, User user) {
+        Host host = new Host();
+        host.setHostName(hostName);
+        host.setNameKey(nameKey(hostName, user));
+        host.setUser(user);
+        host.setStatus(Host.HostStatus.CREATING);
+        host.setNodeName(placement.getNode().getName());
+        host.setStoragePool(placement.getPool().getName());
+        host.setPlan(plan.getName());
+        host.setMemory(plan.getMemory());
+        host.setCpus(plan.getCpus());
+        host.setDiskSize(plan.getDiskSize());
+        host.setMaxCpus(planCatalog.hotplugCeiling(plan));
+        return host;
+    }
+    
     @Transactional
     public HostResponseDto processVMCreationResult(VmCreationResult result, String hostName, Long hostId, Long userId) {
         // 호스트 재조회 (비동기 처리에서는 엔티티가 detached 상태일 수 있음)
@@ -67,49 +325,60 @@ public class HostService {
             savedHost.setPort22(result.port22);
             savedHost.setStatus(Host.HostStatus.RUNNING);
             savedHost.setUpdatedAt(LocalDateTime.now());
+            proxyRoutes.put(savedHost);
+            responseCache.invalidate(savedHost.getHostName());
             
             // 성공 로그
             logVMCreationSuccess(result, hostName);
             
             // 웹서버 설정을 별도 스레드에서 비동기 실행 (SecurityContext 독립)
-            setupWebServerAsync(result.vmIP, hostName, result.port22, hostId);
-            
+            setupWebServerAsync(result.vmIP, hostName, nodeRegistry.node(savedHost).getAddress(), result.port22, hostId);
+        
         } else {
-            // VM 생성 실패 시
+            // VM 생성 실패 시 (VM 이 없으므로 노드 자원도 반환)
+            nodeRegistry.release(savedHost, userId);
+            savedHost.setNodeName(null);
             savedHost.setStatus(Host.HostStatus.ERROR);
             savedHost.setUpdatedAt(LocalDateTime.now());
             
             // 실패 로그
-            logVMCreationFailure(result, hostName);
+            logVMCreationFailure(result, hostName, hostId);
+            hostLogs.close(hostId);
+            metrics.hostCreateFinished(hostId, Duration.between(savedHost.getCreatedAt(), LocalDateTime.now()), false);
+            jobLeases.release(hostId, JobLease.JobType.CREATE);
         }
         
         Host updatedHost = hostRepository.save(savedHost);
-        return HostResponseDto.from(updatedHost);
+        return toResponse(updatedHost);
     }
     
-    private void setupWebServerAsync(String vmIP, String hostName, int sshPort, Long hostId) {
-        System.out.println("=== 실제 웹서버 설정 시작 ===");
-        System.out.println("VM IP: " + vmIP);
-        System.out.println("호스트명: " + hostName);
-        System.out.println("SSH 포트: " + sshPort);
+    private void setupWebServerAsync(String vmIP, String hostName, String sshHost, int sshPort, Long hostId) {
+        log.info("웹서버 설정 시작 - VM IP: {}, 호스트명: {}, SSH 포트: {}", vmIP, hostName, sshPort);
         
         // 완전히 독립적인 비동기 처리 (SecurityContext 없음)
         CompletableFuture.runAsync(() -> {
-            try {
-                System.out.println("VM 부팅 대기 중... (60초)");
-                Thread.sleep(60000); // VM 부팅 대기 (1분)
+            HostTimelineRecorder.Span phase = HostTimelineRecorder.Span.NOOP;
+            try (HostTimelineRecorder.Scope scope = timeline.bind(hostId)) {
+                phase = timeline.start(SpanType.PHASE, "provision");
                 
-                System.out.println("SSH를 통한 웹서버 설정 시작");
-                provisioningService.setupWebServer(vmIP, hostName, sshPort);
+                long bootWaitMillis = virtualBoxConfig.getProvisioning().getBootWait();
+                log.info("VM 부팅 대기 중... ({}초)", bootWaitMillis / 1000);
+                HostTimelineRecorder.Span bootWait = timeline.start(SpanType.WAIT, "boot-wait");
+                Thread.sleep(bootWaitMillis); // VM 부팅 대기 (기본 1분)
+                bootWait.end(true);
+                
+                log.info("SSH를 통한 웹서버 설정 시작: {}", hostName);
+                provisioningService.setupWebServer(vmIP, hostName, sshHost, sshPort);
+                phase.end(true);
                 
                 // 웹서버 설정 성공 시 호스트 상태 업데이트
                 updateHostWebServerStatus(hostId, true);
                 
-                System.out.println("=== 웹서버 설정 완료 ===");
-                
+                log.info("웹서버 설정 완료: {}", hostName);
+            
             } catch (Exception e) {
-                System.err.println("웹서버 설정 실패: " + e.getMessage());
-                e.printStackTrace();
+                log.error("웹서버 설정 실패: {}", e.getMessage(), e);
+                phase.end(null, e.getMessage(), false);
                 
                 // 웹서버 설정 실패 시 호스트 상태 업데이트
                 updateHostWebServerStatus(hostId, false);
@@ -120,134 +389,394 @@ public class HostService {
     @Transactional
     public void updateHostWebServerStatus(Long hostId, boolean success) {
         try {
-            Host host = hostRepository.findById(hostId).orElse(null);
+            Host host = retryOnConflict(() -> {
+                Host current = hostRepository.findById(hostId).orElse(null);
+                if (current == null) {
+                    return null;
+                }
+                current.setStatus(success ? Host.HostStatus.RUNNING : Host.HostStatus.ERROR);
+                current.setUpdatedAt(LocalDateTime.now());
+                return hostRepository.save(current);
+            });
             if (host != null) {
                 if (success) {
-                    host.setStatus(Host.HostStatus.RUNNING);
-                    System.out.println("호스트 " + host.getHostName() + " 웹서버 설정 완료");
+                    healthCheck.watch(host);
+                    log.info("호스트 {} 웹서버 설정 완료", host.getHostName());
                 } else {
-                    host.setStatus(Host.HostStatus.ERROR);
-                    System.out.println("호스트 " + host.getHostName() + " 웹서버 설정 실패");
+                    log.warn("호스트 {} 웹서버 설정 실패", host.getHostName());
                 }
-                host.setUpdatedAt(LocalDateTime.now());
-                hostRepository.save(host);
+                // 사이트 내용이 새로 배포되었으므로 프록시 캐시를 비움
+                responseCache.invalidate(host.getHostName());
+                metrics.hostCreateFinished(hostId, Duration.between(host.getCreatedAt(), LocalDateTime.now()), success);
             }
         } catch (Exception e) {
-            System.err.println("호스트 상태 업데이트 실패: " + e.getMessage());
+            log.error("호스트 상태 업데이트 실패: {}", e.getMessage());
+        } finally {
+            // 생성 과정이 끝났으므로 타임라인 저장, 로그는 압축 파일로 내림 (설정 중 지워진 호스트는 생성 결과 없이 끝남)
+            metrics.hostCreateAbandoned(hostId);
+            timeline.complete(hostId);
+            hostLogs.close(hostId);
+            jobLeases.release(hostId, JobLease.JobType.CREATE);
         }
     }
     
+    /**
+     * 엔티티 저장이 다른 인스턴스/스레드의 갱신과 충돌하면 다시 읽어서 재시도한다.
+     * 트랜잭션 밖(비동기 콜백)에서만 호출해야 재조회가 새 버전을 본다.
+     */
+    private <T> T retryOnConflict(Supplier<T> update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return update.get();
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt >= MAX_CONFLICT_RETRIES) {
+                    throw e;
+                }
+                log.debug("호스트 갱신 충돌 - 재시도 {}/{}", attempt, MAX_CONFLICT_RETRIES);
+            }
+        }
+    }
+    
+    private String nameKey(String hostName, User user) {
+        return proxyConfig.isEnabled() ? hostName.toLowerCase(Locale.ROOT) : user.getId() + "/" + hostName;
+    }
+    
     private void logVMCreationSuccess(VmCreationResult result, String hostName) {
-        System.out.println("=== 실제 VirtualBox VM 생성 완료 ===");
-        System.out.println("호스트명: " + hostName);
-        System.out.println("VM ID: " + result.vmId);
-        System.out.println("VM 이름: " + result.vmName);
-        System.out.println("VM IP: " + result.vmIP);
-        System.out.println("웹 포트 포워딩: localhost:" + result.port80 + " → VM:80");
-        System.out.println("SSH 포트 포워딩: localhost:" + result.port22 + " → VM:22");
-        System.out.println("웹 접속 URL: http://localhost:" + result.port80);
-        System.out.println("SSH 접속: ssh -p " + result.port22 + " webuser@localhost");
-        System.out.println("웹 디렉토리: /var/www/html/" + hostName);
-        System.out.println("=== VM 설정 진행 중 ===");
-    }
-    
-    private void logVMCreationFailure(VmCreationResult result, String hostName) {
-        System.out.println("=== VirtualBox VM 생성 실패 ===");
-        System.out.println("호스트명: " + hostName);
-        System.out.println("오류 메시지: " + result.errorMessage);
-        System.out.println("=== VM 생성 실패 ===");
+        log.info("VirtualBox VM 생성 완료 - 호스트명: {}, VM ID: {}, VM 이름: {}, VM IP: {}",
+                 hostName, result.vmId, result.vmName, result.vmIP);
+        log.info("포트 포워딩 - 웹: localhost:{} → VM:80, SSH: localhost:{} → VM:22",
+                 result.port80, result.port22);
+    }
+    
+    private void logVMCreationFailure(VmCreationResult result, String hostName, Long hostId) {
+        log.warn("VirtualBox VM 생성 실패 - 호스트명: {}, 오류: {}", hostName, result.errorMessage);
+        // 이후 진행할 단계가 없으므로 타임라인 저장
+        timeline.complete(hostId);
     }
     
     public List<HostResponseDto> getUserHosts(User user) {
         return hostRepository.findByUserOrderByCreatedAtDesc(user)
             .stream()
-            .map(HostResponseDto::from)
+            .map(this::toResponse)
             .collect(Collectors.toList());
     }
     
     public HostResponseDto getHost(Long hostId, User user) {
         Host host = hostRepository.findByIdAndUser(hostId, user)
             .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
-        return HostResponseDto.from(host);
+        return toResponse(host);
+    }
+    
+    private HostResponseDto toResponse(Host host) {
+        HostResponseDto dto = HostResponseDto.from(host, proxyRoutes.webUrl(host));
+        dto.setHealth(healthCheck.getHealth(host.getId()));
+        HypervisorNodeRegistry.Node node = nodeRegistry.node(host);
+        if (dto.getSshCommand() != null && node != null && !isLoopback(node.getAddress())) {
+            // 다른 노드의 VM 은 그 노드 주소로 접속
+            dto.setSshCommand("ssh -p " + host.getPort22() + " webuser@" + node.getAddress());
+        }
+        return dto;
+    }
+    
+    private static boolean isLoopback(String address) {
+        return address.equals("localhost") || address.startsWith("127.");
+    }
+    
+    public List<TimelineSpanDto> getHostTimeline(Long hostId, User user) {
+        hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        return timeline.getTimeline(hostId)
+            .stream()
+            .map(TimelineSpanDto::from)
+            .collect(Collectors.toList());
+    }
+    
+    public HostMetricsDto getHostMetrics(Long hostId, String range, User user) {
+        hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        return vmMetrics.getMetrics(hostId, range);
+    }
+    
+    public HostUsageDto getHostUsage(Long hostId, int minutes, User user) {
+        Host host = hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        if (minutes < 1 || minutes > MAX_USAGE_MINUTES) {
+            throw new IllegalArgumentException("조회 기간은 1-" + MAX_USAGE_MINUTES + "분 사이여야 합니다");
+        }
+        long limit = proxyRoutes.bandwidthLimit(host);
+        return trafficAccounting.getUsage(hostId, minutes, limit > 0 ? limit : null);
+    }
+    
+    public InputStream getHostLogs(Long hostId, User user) throws IOException {
+        hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        return hostLogs.read(hostId);
+    }
+    
+    public SseEmitter followHostLogs(Long hostId, long fromOffset, User user) {
+        hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        // 일괄 생성에서 차례를 기다리는 호스트는 아직 로그가 없으므로 생성이 끝나기 전까지 기다린다
+        return hostLogs.follow(hostId, fromOffset, () -> hostRepository.findById(hostId)
+            .map(host -> host.getStatus() == Host.HostStatus.CREATING)
+            .orElse(false));
+    }
+    
+    /**
+     * 호스트 VM 전원 작업 (start, stop, restart, suspend, resume, wake). VM 이 목표 상태에 이르면 완료된다.
+     * 이미 목표 상태면 현재 상태를 그대로 돌려준다.
+     */
+    public CompletableFuture<HostResponseDto> changePower(Long hostId, String action, User user) {
+        hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        CompletableFuture<Host> result = switch (action) {
+            case "start" -> powerService.start(hostId);
+            case "stop" -> powerService.stop(hostId);
+            case "restart" -> powerService.restart(hostId);
+            case "suspend" -> powerService.suspend(hostId);
+            case "resume" -> powerService.resume(hostId);
+            case "wake" -> powerService.wake(hostId);
+            default -> throw new IllegalArgumentException("지원하지 않는 전원 작업입니다: " + action);
+        };
+        return result.thenApply(this::toResponse);
+    }
+    
+    public List<HostPlanDto> getPlans() {
+        VirtualBoxConfig.Plan defaultPlan = planCatalog.defaultPlan();
+        return planCatalog.plans().stream()
+            .map(plan -> HostPlanDto.from(plan, plan == defaultPlan))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * 호스트를 다른 크기 요금제로 바꾼다. vCPU 만 바뀌면 멈추지 않고, 디스크 확장은 잠깐 저장했다 재개하며,
+     * 메모리가 바뀌면 다시 부팅한다. 끝나면 바뀐 크기를 돌려준다.
+     */
+    public CompletableFuture<HostResponseDto> changePlan(Long hostId, String plan, User user) {
+        Host host = hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+        // 메모리를 늘리는 변경도 사용자 메모리 할당량 안에서만
+        checkQuota(user, 0, planCatalog.plan(plan).getMemory() - planCatalog.current(host).getMemory());
+        return resizeService.resize(hostId, plan).thenApply(this::toResponse);
     }
     
     public CompletableFuture<Boolean> deleteHost(Long hostId, User user) {
         Host host = hostRepository.findByIdAndUser(hostId, user)
             .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
-        
+        return deleteHost(host, user.getId());
+    }
+    
+    /**
+     * Idempotency-Key 를 붙인 삭제. 같은 키로 다시 보낸 요청은 처음 삭제의 결과를 돌려준다
+     * (이 인스턴스에서 진행 중이면 끝날 때까지 기다리고, 아니면 호스트가 지워졌는지로 판단).
+     */
+    public CompletableFuture<Boolean> deleteHost(Long hostId, User user, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return deleteHost(hostId, user);
+        }
+        IdempotencyService.Claim claim = idempotency.claim(user.getId(), idempotencyKey, IdempotencyKey.Operation.DELETE, hostId.toString());
+        if (claim.isReplay()) {
+            return claim.<Boolean>result().thenApply(deleted -> deleted != null ? deleted : !hostRepository.existsById(hostId));
+        }
+        try {
+            Host host = hostRepository.findByIdAndUser(hostId, user)
+                .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+            claim.attach(hostId);
+            return claim.complete(deleteHost(host, user.getId()));
+        } catch (RuntimeException e) {
+            claim.abandon(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * 이미 읽어 둔 호스트를 지운다 (일괄 삭제는 대상 호스트를 한 번에 읽는다).
+     */
+    public CompletableFuture<Boolean> deleteHost(Host host, Long userId) {
+        // 생성/전원/크기 변경/스냅샷 중인 호스트는 건드리지 않는다 (이 인스턴스가 잡은 임대도 먼저 확인한다)
+        if (jobLeases.isHeld(host.getId()) || !jobLeases.acquire(host.getId(), JobLease.JobType.DELETE)) {
+            throw new IllegalArgumentException("호스트에 다른 작업이 진행 중입니다");
+        }
+        return runDelete(host, userId);
+    }
+    
+    /**
+     * 삭제 작업 임대를 잡은 상태에서 VM 과 호스트를 지운다. 끝나면 임대를 반환한다.
+     */
+    private CompletableFuture<Boolean> runDelete(Host host, Long userId) {
+        Long hostId = host.getId();
+        Timer.Sample sample = metrics.startTimer();
         if (host.getVmId() != null) {
-            System.out.println("=== 실제 VirtualBox VM 삭제 시작 ===");
-            System.out.println("호스트명: " + host.getHostName());
-            System.out.println("VM ID: " + host.getVmId());
-            System.out.println("VM 이름: " + host.getVmName());
+            log.info("VirtualBox VM 삭제 시작 - 호스트명: {}, VM ID: {}, VM 이름: {}",
+                     host.getHostName(), host.getVmId(), host.getVmName());
             
-            return virtualBoxService.deleteVM(host.getVmId())
+            final Integer port80 = host.getPort80();
+            final Integer port22 = host.getPort22();
+            return virtualBoxService.deleteVM(host.getVmId(), host.getNodeName())
                 .thenApply(success -> {
                     // 삭제 결과를 별도 트랜잭션에서 처리
-                    return processVMDeletionResult(hostId, success, host.getHostName());
+                    Boolean deleted = processVMDeletionResult(hostId, success, host.getHostName());
+                    if (deleted) {
+                        proxyRoutes.remove(host.getHostName());
+                        responseCache.forget(host.getHostName());
+                        trafficAccounting.forget(hostId);
+                        healthCheck.unwatch(hostId);
+                        portAllocator.release(port80, port22);
+                        nodeRegistry.release(host, userId);
+                        timeline.discard(hostId);
+                        hostLogs.delete(hostId);
+                        snapshotService.forget(hostId);
+                        vmMetrics.forget(hostId);
+                        statusCache.invalidate(hostId);
+                    }
+                    jobLeases.release(hostId, JobLease.JobType.DELETE);
+                    metrics.recordHostDelete(sample, deleted);
+                    return deleted;
                 });
         } else {
-            // VM ID가 없는 경우 (생성 실패한 호스트)
+            // VM ID가 없는 경우 (생성 실패했거나 VM 정보를 기록하기 전에 멈춘 호스트)
             hostRepository.delete(host);
-            System.out.println("호스트 데이터만 삭제됨: " + host.getHostName());
+            // 생성 실패 처리에서 이미 반환했으면 포트 임대가 없고 노드 이름도 비어 있다
+            portAllocator.releaseHost(hostId);
+            metrics.hostCreateAbandoned(hostId);
+            if (host.getNodeName() != null) {
+                nodeRegistry.release(host, userId);
+            }
+            statusCache.invalidate(hostId);
+            timeline.discard(hostId);
+            hostLogs.delete(hostId);
+            jobLeases.release(hostId, JobLease.JobType.DELETE);
+            log.info("호스트 데이터만 삭제됨: {}", host.getHostName());
+            metrics.recordHostDelete(sample, true);
             return CompletableFuture.completedFuture(true);
         }
     }
     
+    /**
+     * 하트비트가 끊긴 인스턴스가 진행하던 작업을 넘겨받아 마무리한다.
+     * 삭제는 다시 진행하고, VM 정보를 기록하기 전에 멈춘 생성은 ERROR 로 두고 포트/노드 자원을 반환한다.
+     */
+    @Scheduled(fixedDelayString = "${cluster.reclaim-interval:30000}", initialDelayString = "${cluster.reclaim-interval:30000}")
+    public void recoverAbandonedJobs() {
+        for (JobLease lease : jobLeases.reclaimExpired()) {
+            Host host = hostRepository.findById(lease.getHostId()).orElse(null);
+            if (host == null) {
+                jobLeases.release(lease.getHostId(), lease.getJob());
+                continue;
+            }
+            if (lease.getJob() == JobLease.JobType.DELETE) {
+                runDelete(host, host.getUser().getId());
+                continue;
+            }
+            if (lease.getJob() == JobLease.JobType.SNAPSHOT) {
+                snapshotService.abandoned(host.getId());
+            }
+            if (host.getStatus() == Host.HostStatus.CREATING) {
+                // 노드에 만들다 만 VM 이 남았을 수 있으나 이름을 기록하지 않았으므로 여기서는 지우지 않는다
+                abandonCreate(host);
+                log.warn("중단된 호스트 생성 정리 - 호스트: {}", host.getHostName());
+            }
+            jobLeases.release(host.getId(), lease.getJob());
+        }
+    }
+    
+    /**
+     * VM 정보를 기록하기 전에 멈춘 생성을 ERROR 로 두고 포트/노드 자원과 생성 작업 임대를 반환한다.
+     * 동시 생성 한도에 계속 잡히지 않도록 CREATING 으로 남겨 두지 않는다.
+     */
+    public void abandonCreate(Host host) {
+        Long hostId = host.getId();
+        portAllocator.releaseHost(hostId);
+        metrics.hostCreateAbandoned(hostId);
+        nodeRegistry.release(host, host.getUser().getId());
+        host.setNodeName(null);
+        host.setStatus(Host.HostStatus.ERROR);
+        host.setUpdatedAt(LocalDateTime.now());
+        hostRepository.save(host);
+        timeline.complete(hostId);
+        hostLogs.close(hostId);
+        jobLeases.release(hostId, JobLease.JobType.CREATE);
+    }
+    
     @Transactional
     public Boolean processVMDeletionResult(Long hostId, Boolean success, String hostName) {
         if (success) {
             hostRepository.deleteById(hostId);
-            System.out.println("=== VirtualBox VM 삭제 완료 ===");
-            System.out.println("호스트 '" + hostName + "' 삭제됨");
+            log.info("VirtualBox VM 삭제 완료 - 호스트 '{}' 삭제됨", hostName);
         } else {
-            System.out.println("=== VirtualBox VM 삭제 실패 ===");
-            System.out.println("호스트: " + hostName);
+            log.warn("VirtualBox VM 삭제 실패 - 호스트: {}", hostName);
         }
         return success;
     }
     
-    public CompletableFuture<String> getHostStatus(Long hostId, User user) {
+    /**
+     * 하이퍼바이저에 물어본 VM 상태와 그에 맞춘 호스트 상태. 같은 호스트를 동시에 조회하면 VBoxManage 호출 하나를 함께 기다리고
+     * 결과는 잠깐 보관해 다시 쓴다. 하이퍼바이저가 응답하지 않으면 저장된 호스트 상태만 돌려준다.
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<HostStatusDto> getHostStatus(Long hostId, User user) {
         Host host = hostRepository.findByIdAndUser(hostId, user)
             .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
         
-        if (host.getVmId() != null) {
-            return virtualBoxService.getVMStatus(host.getVmId())
-                .thenApply(status -> {
-                    // VM 상태를 Host 상태로 동기화
-                    updateHostStatusFromVM(hostId, status);
-                    return status;
-                });
-        } else {
-            return CompletableFuture.completedFuture(host.getStatus().name());
+        if (host.getVmId() == null) {
+            return CompletableFuture.completedFuture(new HostStatusDto(hostId, host.getStatus(), null, null));
         }
+        String vmId = host.getVmId();
+        String nodeName = host.getNodeName();
+        return statusCache.get(hostId, () -> virtualBoxService.getVMStatus(vmId, nodeName)
+                // 실제로 물어본 조회만 VM 상태를 호스트 상태로 동기화한다
+                .thenApply(status -> new HostStatusCache.VmState(status, updateHostStatusFromVM(hostId, status))))
+            .thenApply(vm -> new HostStatusDto(hostId, vm.synced != null ? vm.synced : host.getStatus(), vm.state,
+                                               LocalDateTime.ofInstant(Instant.ofEpochMilli(vm.checkedAt), ZoneId.systemDefault())))
+            .exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof HypervisorUnavailableException)) {
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                }
+                return new HostStatusDto(hostId, host.getStatus(), null, null);
+            });
     }
     
-    @Transactional
-    public void updateHostStatusFromVM(Long hostId, String vmStatus) {
+    /**
+     * 하이퍼바이저가 알려 준 VM 상태를 호스트 상태에 반영한다. 상태가 실제로 바뀔 때만 조건부 갱신으로 쓰고,
+     * 쓴 상태를 돌려준다 (그대로 두었으면 null).
+     */
+    public Host.HostStatus updateHostStatusFromVM(Long hostId, String vmStatus) {
+        Host.HostStatus hostStatus = switch (vmStatus) {
+            case "RUNNING" -> Host.HostStatus.RUNNING;
+            case "STOPPED" -> Host.HostStatus.STOPPED;
+            case "SAVED" -> Host.HostStatus.HIBERNATED;
+            default -> Host.HostStatus.ERROR;
+        };
         try {
             Host host = hostRepository.findById(hostId).orElse(null);
-            if (host != null) {
-                Host.HostStatus hostStatus;
-                switch (vmStatus) {
-                    case "RUNNING":
-                        hostStatus = Host.HostStatus.RUNNING;
-                        break;
-                    case "STOPPED":
-                        hostStatus = Host.HostStatus.STOPPED;
-                        break;
-                    default:
-                        hostStatus = Host.HostStatus.ERROR;
-                }
-                
-                if (!host.getStatus().equals(hostStatus)) {
-                    host.setStatus(hostStatus);
-                    host.setUpdatedAt(LocalDateTime.now());
-                    hostRepository.save(host);
-                }
+            if (host == null || host.getStatus() == hostStatus || jobLeases.isHeld(hostId)) {
+                // 이 인스턴스가 생성/전원 작업 중인 호스트는 작업이 끝날 때 상태를 정한다
+                return null;
+            }
+            if (hostStatus == Host.HostStatus.HIBERNATED && host.getStatus() == Host.HostStatus.SUSPENDED) {
+                // 저장된 VM 은 사용자가 일시 중지한 것일 수도 있다
+                return null;
+            }
+            if (hostStatus == Host.HostStatus.RUNNING && host.getStatus() == Host.HostStatus.DEGRADED) {
+                // VM 은 떠 있어도 웹/SSH 검사가 실패 중이면 DEGRADED 유지 (헬스 체크가 회복시킴)
+                return null;
+            }
+            // 읽은 뒤 다른 경로가 상태를 바꿨으면 그쪽을 따른다
+            if (hostRepository.updateStatus(hostId, host.getStatus(), hostStatus, LocalDateTime.now()) == 0) {
+                return null;
+            }
+            boolean wasServing = host.isServing();
+            host.setStatus(hostStatus);
+            if (host.isServing() && !wasServing) {
+                healthCheck.watch(host);
+            } else if (!host.isServing()) {
+                healthCheck.unwatch(hostId);
             }
+            return hostStatus;
         } catch (Exception e) {
-            System.err.println("호스트 상태 동기화 실패: " + e.getMessage());
+            log.error("호스트 상태 동기화 실패: {}", e.getMessage());
+            return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,355 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.SnapshotConfig;
+import com.example.webhosting.dto.HostSnapshotDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.HostSnapshot;
+import com.example.webhosting.entity.JobLease;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.proxy.ProxyRouteTable;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.HostSnapshotRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 호스트 VM 스냅샷 (만들기/목록/복원/삭제)과 예약 스냅샷.
+ * VirtualBox 스냅샷은 차등 이미지라 스냅샷마다 직전 스냅샷 이후 바뀐 블록만 저장된다.
+ * 예약 스냅샷은 호스트마다 주기 안의 서로 다른 시각(호스트 ID 로 정한 오프셋)에 찍고,
+ * 이 인스턴스가 한 노드에서 동시에 진행하는 스냅샷 작업 수를 제한해 노드 디스크 I/O 가 한꺼번에 몰리지 않게 한다.
+ * 작업 중에는 SNAPSHOT 작업 임대를 잡아 같은 호스트의 생성/삭제/전원 작업과 겹치지 않게 한다.
+ */
+@Service
+@Slf4j
+public class HostSnapshotService {
+    
+    // VM 이 있고 작업 중이 아닌 호스트만 스냅샷 대상
+    private static final Set<Host.HostStatus> SNAPSHOT_STATUSES = EnumSet.of(
+        Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED, Host.HostStatus.HIBERNATED,
+        Host.HostStatus.SUSPENDED, Host.HostStatus.STOPPED);
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    @Autowired
+    private SnapshotConfig config;
+    
+    @Autowired
+    private HostSnapshotRepository snapshotRepository;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private VirtualBoxService virtualBoxService;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodeRegistry;
+    
+    @Autowired
+    private ProxyRouteTable proxyRoutes;
+    
+    @Autowired
+    private HealthCheckService healthCheck;
+    
+    @Autowired
+    private JobLeaseService jobLeases;
+    
+    @Autowired
+    private ClusterMembership cluster;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    @Autowired
+    private HostStatusCache statusCache;
+    
+    // 노드별로 이 인스턴스가 진행 중인 스냅샷 작업 수
+    private final ConcurrentHashMap<String, AtomicInteger> inFlightByNode = new ConcurrentHashMap<>();
+    // 호스트별로 마지막으로 시도한 예약 시각 (실패한 호스트를 다음 예약 시각까지 다시 시도하지 않음)
+    private final ConcurrentHashMap<Long, Long> attemptedSlots = new ConcurrentHashMap<>();
+    
+    public List<HostSnapshotDto> getSnapshots(Long hostId, User user) {
+        findHost(hostId, user);
+        return snapshotRepository.findByHostIdOrderByCreatedAtDesc(hostId)
+            .stream()
+            .map(HostSnapshotDto::from)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * 사용자 스냅샷을 만든다. 이름이 없으면 만든 시각으로 짓는다.
+     */
+    public CompletableFuture<HostSnapshotDto> createSnapshot(Long hostId, String name, User user) {
+        Host host = findHost(hostId, user);
+        if (snapshotRepository.countByHostIdAndScheduledFalse(hostId) >= config.getMaxManual()) {
+            throw new IllegalArgumentException("호스트당 스냅샷은 " + config.getMaxManual() + "개까지 만들 수 있습니다");
+        }
+        String snapshotName = name == null || name.isBlank()
+            ? "manual-" + LocalDateTime.now().format(NAME_FORMAT) : name;
+        return take(host, snapshotName, false).thenApply(HostSnapshotDto::from);
+    }
+    
+    /**
+     * VM 을 스냅샷 시점으로 되돌린다. 꺼져 있던 호스트는 꺼진 채로, 나머지는 스냅샷 시점부터 실행 중인 상태가 된다.
+     */
+    public CompletableFuture<HostSnapshotDto> restoreSnapshot(Long hostId, Long snapshotId, User user) {
+        Host host = findHost(hostId, user);
+        HostSnapshot snapshot = findReadySnapshot(hostId, snapshotId);
+        checkSnapshotable(host);
+        begin(hostId);
+        
+        Host.HostStatus from = host.getStatus();
+        Host.HostStatus target = from == Host.HostStatus.STOPPED ? Host.HostStatus.STOPPED : Host.HostStatus.RUNNING;
+        Timer.Sample sample = metrics.startTimer();
+        log.info("스냅샷 복원 시작 - 호스트: {}, 스냅샷: {}", host.getHostName(), snapshot.getName());
+        // 복원 중 웹/SSH 검사 실패로 DEGRADED 가 되지 않도록 먼저 뺀다
+        healthCheck.unwatch(hostId);
+        return virtualBoxService.restoreSnapshot(host.getVmId(), host.getNodeName(), snapshot.getSnapshotUuid(),
+                                                 target == Host.HostStatus.RUNNING)
+            .thenApply(v -> {
+                hostRepository.updateStatus(hostId, from, target, LocalDateTime.now());
+                host.setStatus(target);
+                if (from == Host.HostStatus.HIBERNATED) {
+                    nodeRegistry.woke(host);
+                }
+                proxyRoutes.put(host);
+                if (host.isServing()) {
+                    healthCheck.watch(host);
+                }
+                return HostSnapshotDto.from(snapshot);
+            })
+            .whenComplete((result, e) -> {
+                statusCache.invalidate(hostId);
+                jobLeases.release(hostId, JobLease.JobType.SNAPSHOT);
+                metrics.recordSnapshot(sample, "restore", e == null);
+                if (e != null) {
+                    log.warn("스냅샷 복원 실패 - 호스트: {}, 오류: {}", host.getHostName(), e.getMessage());
+                    if (host.isServing()) {
+                        healthCheck.watch(host);
+                    }
+                } else {
+                    log.info("스냅샷 복원 완료 - 호스트: {}, 스냅샷: {}", host.getHostName(), snapshot.getName());
+                }
+            });
+    }
+    
+    public CompletableFuture<Void> deleteSnapshot(Long hostId, Long snapshotId, User user) {
+        Host host = findHost(hostId, user);
+        HostSnapshot snapshot = findReadySnapshot(hostId, snapshotId);
+        begin(hostId);
+        return remove(host, snapshot)
+            .whenComplete((v, e) -> jobLeases.release(hostId, JobLease.JobType.SNAPSHOT));
+    }
+    
+    /**
+     * 예약 스냅샷 시각이 지난 호스트를 골라 스냅샷을 시작한다.
+     * 호스트 ID 로 정한 오프셋 덕분에 같은 주기의 스냅샷이 주기 전체에 고르게 흩어지고,
+     * 노드당 동시 작업 수를 넘는 호스트는 다음 검사로 미룬다.
+     */
+    @Scheduled(fixedDelayString = "${snapshot.scan-interval:60000}", initialDelayString = "${snapshot.scan-interval:60000}")
+    public void scan() {
+        long interval = config.getInterval();
+        if (interval <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, LocalDateTime> lastScheduled = new HashMap<>();
+        for (Object[] row : snapshotRepository.findLastScheduled()) {
+            lastScheduled.put((Long) row[0], (LocalDateTime) row[1]);
+        }
+        Set<Long> busy = jobLeases.activeHostIds();
+        
+        List<Host> due = new ArrayList<>();
+        Map<Long, Long> dueSince = new HashMap<>();
+        for (Host host : hostRepository.findByStatusIn(SNAPSHOT_STATUSES)) {
+            if (host.getVmId() == null || !cluster.owns(host.getId()) || busy.contains(host.getId())) {
+                continue;
+            }
+            long slot = lastSlot(host.getId(), now, interval);
+            LocalDateTime last = lastScheduled.getOrDefault(host.getId(), host.getCreatedAt());
+            if ((last == null || toMillis(last) < slot) && !Long.valueOf(slot).equals(attemptedSlots.get(host.getId()))) {
+                due.add(host);
+                dueSince.put(host.getId(), slot);
+            }
+        }
+        // 가장 오래 밀린 호스트부터
+        due.sort(Comparator.comparing(host -> dueSince.get(host.getId())));
+        for (Host host : due) {
+            if (inFlight(host.getNodeName()).get() >= config.getMaxPerNode()) {
+                continue;
+            }
+            attemptedSlots.put(host.getId(), dueSince.get(host.getId()));
+            try {
+                take(host, "auto-" + LocalDateTime.now().format(NAME_FORMAT), true);
+            } catch (RuntimeException e) {
+                log.debug("예약 스냅샷 건너뜀 - 호스트: {}, 사유: {}", host.getHostName(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 삭제된 호스트의 스냅샷 기록을 지운다 (VM 과 함께 스냅샷 이미지도 지워진다).
+     */
+    public void forget(Long hostId) {
+        attemptedSlots.remove(hostId);
+        snapshotRepository.deleteByHostId(hostId);
+    }
+    
+    /**
+     * 인스턴스가 죽어 회수한 스냅샷 작업의 만들다 만 기록을 지운다.
+     */
+    public void abandoned(Long hostId) {
+        int removed = snapshotRepository.deleteByHostIdAndStatus(hostId, HostSnapshot.SnapshotStatus.CREATING);
+        if (removed > 0) {
+            log.warn("중단된 스냅샷 기록 정리 - 호스트: {}, {}개", hostId, removed);
+        }
+    }
+    
+    private CompletableFuture<HostSnapshot> take(Host host, String name, boolean scheduled) {
+        checkSnapshotable(host);
+        Long hostId = host.getId();
+        begin(hostId);
+        
+        AtomicInteger nodeSlots = inFlight(host.getNodeName());
+        nodeSlots.incrementAndGet();
+        HostSnapshot snapshot = new HostSnapshot();
+        snapshot.setHostId(hostId);
+        snapshot.setName(name);
+        snapshot.setScheduled(scheduled);
+        snapshot = snapshotRepository.save(snapshot);
+        HostSnapshot created = snapshot;
+        
+        Timer.Sample sample = metrics.startTimer();
+        long started = System.currentTimeMillis();
+        log.info("스냅샷 생성 시작 - 호스트: {}, 스냅샷: {}", host.getHostName(), name);
+        return virtualBoxService.takeSnapshot(host.getVmId(), host.getNodeName(), name)
+            .thenApply(taken -> {
+                created.setSnapshotUuid(taken.uuid);
+                created.setStatus(HostSnapshot.SnapshotStatus.READY);
+                created.setDurationMs(System.currentTimeMillis() - started);
+                if (taken.folderBytes != null) {
+                    // 스냅샷 폴더 전체에서 앞선 스냅샷 몫을 뺀 만큼이 이번 스냅샷의 저장 비용
+                    long previous = snapshotRepository.sumSizeBytesExcept(hostId, created.getId());
+                    created.setSizeBytes(Math.max(0, taken.folderBytes - previous));
+                    metrics.recordSnapshotSize(created.getSizeBytes());
+                }
+                return snapshotRepository.save(created);
+            })
+            .thenCompose(saved -> scheduled
+                ? prune(host).thenApply(v -> saved)
+                : CompletableFuture.completedFuture(saved))
+            .whenComplete((result, e) -> {
+                nodeSlots.decrementAndGet();
+                jobLeases.release(hostId, JobLease.JobType.SNAPSHOT);
+                metrics.recordSnapshot(sample, scheduled ? "scheduled" : "manual", e == null);
+                if (e != null) {
+                    if (created.getStatus() == HostSnapshot.SnapshotStatus.CREATING) {
+                        snapshotRepository.delete(created);
+                    }
+                    log.warn("스냅샷 생성 실패 - 호스트: {}, 오류: {}", host.getHostName(), e.getMessage());
+                } else {
+                    log.info("스냅샷 생성 완료 - 호스트: {}, 스냅샷: {} ({}ms, {} bytes)", host.getHostName(), name,
+                             result.getDurationMs(), result.getSizeBytes());
+                }
+            });
+    }
+    
+    /**
+     * 보존 개수/기간을 넘긴 예약 스냅샷을 오래된 것부터 지운다. 사용자 스냅샷은 건드리지 않는다.
+     */
+    private CompletableFuture<Void> prune(Host host) {
+        List<HostSnapshot> scheduled = snapshotRepository.findByHostIdAndScheduledTrueAndStatusOrderByCreatedAtAsc(
+            host.getId(), HostSnapshot.SnapshotStatus.READY);
+        LocalDateTime expiry = config.getMaxAge() > 0
+            ? LocalDateTime.now().minus(Duration.ofMillis(config.getMaxAge())) : null;
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        int remaining = scheduled.size();
+        for (HostSnapshot snapshot : scheduled) {
+            boolean expired = expiry != null && snapshot.getCreatedAt().isBefore(expiry);
+            if (remaining <= config.getKeepScheduled() && !expired) {
+                break;
+            }
+            remaining--;
+            chain = chain.thenCompose(v -> remove(host, snapshot));
+        }
+        return chain;
+    }
+    
+    private CompletableFuture<Void> remove(Host host, HostSnapshot snapshot) {
+        Timer.Sample sample = metrics.startTimer();
+        return virtualBoxService.deleteSnapshot(host.getVmId(), host.getNodeName(), snapshot.getSnapshotUuid())
+            .thenRun(() -> snapshotRepository.delete(snapshot))
+            .whenComplete((v, e) -> {
+                metrics.recordSnapshot(sample, "delete", e == null);
+                if (e != null) {
+                    log.warn("스냅샷 삭제 실패 - 호스트: {}, 스냅샷: {}, 오류: {}", host.getHostName(), snapshot.getName(), e.getMessage());
+                } else {
+                    log.info("스냅샷 삭제 - 호스트: {}, 스냅샷: {}", host.getHostName(), snapshot.getName());
+                }
+            });
+    }
+    
+    private Host findHost(Long hostId, User user) {
+        return hostRepository.findByIdAndUser(hostId, user)
+            .orElseThrow(() -> new IllegalArgumentException("호스트를 찾을 수 없습니다"));
+    }
+    
+    private HostSnapshot findReadySnapshot(Long hostId, Long snapshotId) {
+        HostSnapshot snapshot = snapshotRepository.findByIdAndHostId(snapshotId, hostId)
+            .orElseThrow(() -> new IllegalArgumentException("스냅샷을 찾을 수 없습니다"));
+        if (snapshot.getStatus() != HostSnapshot.SnapshotStatus.READY) {
+            throw new IllegalArgumentException("아직 만들어지는 중인 스냅샷입니다");
+        }
+        return snapshot;
+    }
+    
+    private static void checkSnapshotable(Host host) {
+        if (!SNAPSHOT_STATUSES.contains(host.getStatus()) || host.getVmId() == null) {
+            throw new IllegalArgumentException("현재 상태에서 할 수 없는 작업입니다 (스냅샷, 상태: " + host.getStatus() + ")");
+        }
+    }
+    
+    /**
+     * 이 인스턴스의 전원 작업 등과 겹치지 않는지 확인하고 SNAPSHOT 임대를 잡는다.
+     */
+    private void begin(Long hostId) {
+        // 같은 인스턴스가 같은 작업으로 잡은 임대는 acquire 가 다시 내주므로 먼저 확인한다
+        if (jobLeases.isHeld(hostId) || !jobLeases.acquire(hostId, JobLease.JobType.SNAPSHOT)) {
+            throw new IllegalStateException("호스트에 다른 작업이 진행 중입니다");
+        }
+    }
+    
+    private AtomicInteger inFlight(String nodeName) {
+        return inFlightByNode.computeIfAbsent(nodeName == null ? "" : nodeName, name -> new AtomicInteger());
+    }
+    
+    /**
+     * 호스트의 예약 시각 중 now 이하인 가장 최근 시각. 오프셋은 호스트 ID 를 섞어 주기 안에 고르게 흩어 놓는다.
+     */
+    static long lastSlot(Long hostId, long now, long interval) {
+        long offset = Math.floorMod(hostId * 0x9E3779B97F4A7C15L, interval);
+        return now - Math.floorMod(now - offset, interval);
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.Host;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 호스트별 VM 상태 조회 결과를 짧게 보관한다. 같은 호스트를 동시에 조회하면 진행 중인 VBoxManage 호출 하나를 함께 기다리고,
+ * 끝난 결과는 ttl 동안 다시 쓴다. 대시보드를 여러 사용자가 새로 고쳐도 호스트당 showvminfo 는 ttl 마다 한 번이다.
+ * 실패한 조회는 보관하지 않는다.
+ */
+@Component
+public class HostStatusCache {
+    
+    @Value("${host-status.cache-ttl:2000}")
+    private long ttl;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * 보관 중이거나 진행 중인 조회가 있으면 그것을, 없으면 query 로 새로 조회한다.
+     * query 는 호스트당 한 번만 실행되므로 조회 결과로 DB 를 고치는 일도 query 안에서 한다.
+     */
+    public CompletableFuture<VmState> get(Long hostId, Supplier<CompletableFuture<VmState>> query) {
+        long now = System.currentTimeMillis();
+        Entry[] created = new Entry[1];
+        Entry entry = entries.compute(hostId, (id, current) -> {
+            if (current != null && current.isFresh(now)) {
+                return current;
+            }
+            created[0] = new Entry(query.get());
+            return created[0];
+        });
+        if (created[0] == null) {
+            metrics.recordStatusLookup(entry.future.isDone() ? "hit" : "coalesced");
+            return entry.future;
+        }
+        metrics.recordStatusLookup("query");
+        Entry mine = created[0];
+        mine.future.whenComplete((state, e) -> {
+            if (e != null) {
+                entries.remove(hostId, mine);
+            } else {
+                mine.expiresAt = System.currentTimeMillis() + ttl;
+            }
+        });
+        return mine.future;
+    }
+    
+    /**
+     * 전원 작업/크기 변경처럼 VM 상태를 바꾼 뒤 다음 조회가 새로 묻게 한다.
+     */
+    public void invalidate(Long hostId) {
+        entries.remove(hostId);
+    }
+    
+    public static class VmState {
+        public final String state; // VirtualBoxService.getVMStatus 결과 (RUNNING, STOPPED, SAVED, ERROR)
+        public final Host.HostStatus synced; // 이 조회로 바꾼 호스트 상태 (그대로 두었으면 null)
+        public final long checkedAt = System.currentTimeMillis(); // 하이퍼바이저에 물어본 시각 (epoch ms)
+        
+        public VmState(String state, Host.HostStatus synced) {
+            this.state = state;
+            this.synced = synced;
+        }
+    }
+    
+    private static final class Entry {
+        final CompletableFuture<VmState> future;
+        volatile long expiresAt = Long.MAX_VALUE; // 조회가 끝나면 정한다
+        
+        Entry(CompletableFuture<VmState> future) {
+            this.future = future;
+        }
+        
+        boolean isFresh(long now) {
+            return !future.isDone() || now < expiresAt;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.HostTimelineSpan;
+import com.example.webhosting.entity.HostTimelineSpan.SpanType;
+import com.example.webhosting.repository.HostTimelineSpanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 호스트별 생명주기 타임라인.
+ * 진행 중인 작업의 span 은 호스트마다 고정 크기 링 버퍼에 쌓고, 작업이 끝나면 DB 에 저장한다.
+ * VBoxManage/SSH 호출 지점은 hostId 를 몰라도 되도록 현재 스레드에 바인딩된 호스트로 기록한다.
+ */
+@Component
+@Slf4j
+public class HostTimelineRecorder {
+    
+    @Autowired
+    private HostTimelineSpanRepository spanRepository;
+    
+    @Value("${timeline.max-spans:256}")
+    private int maxSpans;
+    
+    @Value("${timeline.output-limit:1024}")
+    private int outputLimit;
+    
+    private final ConcurrentHashMap<Long, Timeline> active = new ConcurrentHashMap<>();
+    private final ThreadLocal<Long> currentHost = new ThreadLocal<>();
+    
+    public void begin(Long hostId) {
+        active.putIfAbsent(hostId, new Timeline(maxSpans));
+    }
+    
+    /**
+     * 현재 스레드에서 기록되는 span 을 지정한 호스트에 연결한다. try-with-resources 로 사용.
+     */
+    public Scope bind(Long hostId) {
+        Long previous = currentHost.get();
+        currentHost.set(hostId);
+        return () -> {
+            if (previous == null) {
+                currentHost.remove();
+            } else {
+                currentHost.set(previous);
+            }
+        };
+    }
+    
+    public Long currentHostId() {
+        return currentHost.get();
+    }
+    
+    public Span start(SpanType type, String name) {
+        Long hostId = currentHost.get();
+        Timeline timeline = hostId != null ? active.get(hostId) : null;
+        if (timeline == null) {
+            return Span.NOOP;
+        }
+        
+        HostTimelineSpan span = new HostTimelineSpan();
+        span.setHostId(hostId);
+        span.setType(type);
+        span.setName(truncate(name, 255));
+        span.setStartedAt(LocalDateTime.now());
+        timeline.add(span);
+        return new Span(timeline, span, System.nanoTime(), outputLimit);
+    }
+    
+    /**
+     * 진행 중인 타임라인을 저장하고 메모리에서 제거한다.
+     */
+    @Transactional
+    public void complete(Long hostId) {
+        Timeline timeline = active.remove(hostId);
+        if (timeline != null) {
+            List<HostTimelineSpan> spans = timeline.snapshot();
+            spanRepository.saveAll(spans);
+            log.debug("호스트 {} 타임라인 저장 - span {}개 (누락 {}개)", hostId, spans.size(), timeline.dropped());
+        }
+    }
+    
+    @Transactional
+    public void discard(Long hostId) {
+        active.remove(hostId);
+        spanRepository.deleteByHostId(hostId);
+    }
+    
+    public List<HostTimelineSpan> getTimeline(Long hostId) {
+        List<HostTimelineSpan> spans = new ArrayList<>(spanRepository.findByHostIdOrderByStartedAtAscSeqAsc(hostId));
+        Timeline timeline = active.get(hostId);
+        if (timeline != null) {
+            spans.addAll(timeline.snapshot());
+        }
+        return spans;
+    }
+    
+    private static String truncate(String value, int limit) {
+        if (value == null || value.length() <= limit) {
+            return value;
+        }
+        return value.substring(0, limit);
+    }
+    
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+    
+    public static class Span {
+        static final Span NOOP = new Span(null, null, 0, 0);
+        
+        private final Timeline timeline;
+        private final HostTimelineSpan span;
+        private final long startNanos;
+        private final int outputLimit;
+        
+        Span(Timeline timeline, HostTimelineSpan span, long startNanos, int outputLimit) {
+            this.timeline = timeline;
+            this.span = span;
+            this.startNanos = startNanos;
+            this.outputLimit = outputLimit;
+        }
+        
+        public void end(boolean success) {
+            end(null, null, success);
+        }
+        
+        public void end(Integer exitCode, String output, boolean success) {
+            if (span == null) {
+                return;
+            }
+            synchronized (timeline) {
+                span.setEndedAt(LocalDateTime.now());
+                span.setDurationMs((System.nanoTime() - startNanos) / 1_000_000);
+                span.setExitCode(exitCode);
+                span.setSuccess(success);
+                // 출력은 마지막 부분이 원인 파악에 유용하므로 뒤쪽을 남긴다
+                if (output != null && output.length() > outputLimit) {
+                    output = "..." + output.substring(output.length() - outputLimit);
+                }
+                span.setOutput(output);
+            }
+        }
+    }
+    
+    // 호스트별 고정 크기 링 버퍼
+    static class Timeline {
+        private final HostTimelineSpan[] ring;
+        private int seq;
+        
+        Timeline(int capacity) {
+            this.ring = new HostTimelineSpan[capacity];
+        }
+        
+        synchronized void add(HostTimelineSpan span) {
+            span.setSeq(seq);
+            ring[seq % ring.length] = span;
+            seq++;
+        }
+        
+        synchronized List<HostTimelineSpan> snapshot() {
+            int size = Math.min(seq, ring.length);
+            List<HostTimelineSpan> spans = new ArrayList<>(size);
+            for (int i = seq - size; i < seq; i++) {
+                spans.add(ring[i % ring.length]);
+            }
+            return spans;
+        }
+        
+        synchronized int dropped() {
+            return Math.max(0, seq - ring.length);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 호스트 생성/삭제 경로의 Micrometer 지표.
+ * VBoxManage 서브커맨드와 SSH 프로비저닝 단계별 타이머, 헬스 체크 타이머, 상태별 호스트 수 게이지를 관리한다.
+ */
+@Component
+public class HostingMetrics {
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private PortAllocator portAllocator;
+    
+    private final Map<Host.HostStatus, AtomicLong> hostsByStatus = new EnumMap<>(Host.HostStatus.class);
+    // 생성 중인 호스트 (끝나는 경로가 여러 곳이라 한 호스트를 두 번 빼지 않도록 ID 로 센다)
+    private final Set<Long> inFlightCreates = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    void registerGauges() {
+        for (Host.HostStatus status : Host.HostStatus.values()) {
+            AtomicLong count = new AtomicLong();
+            hostsByStatus.put(status, count);
+            Gauge.builder("hosts", count, AtomicLong::get)
+                .description("상태별 호스트 수")
+                .tag("status", status.name())
+                .register(registry);
+        }
+        Gauge.builder("hosts.create.inflight", inFlightCreates, Set::size)
+            .description("진행 중인 호스트 생성 수")
+            .register(registry);
+        Gauge.builder("ports.utilization", portAllocator, PortAllocator::webUtilization)
+            .description("포트 풀 사용률")
+            .tag("pool", "web")
+            .register(registry);
+        Gauge.builder("ports.utilization", portAllocator, PortAllocator::sshUtilization)
+            .description("포트 풀 사용률")
+            .tag("pool", "ssh")
+            .register(registry);
+        refreshHostCounts();
+    }
+    
+    // 스크레이프마다 DB 를 조회하지 않도록 주기적으로 집계
+    @Scheduled(fixedDelayString = "${metrics.host-count-interval:15000}")
+    public void refreshHostCounts() {
+        Map<Host.HostStatus, Long> counts = new EnumMap<>(Host.HostStatus.class);
+        for (Object[] row : hostRepository.countGroupByStatus()) {
+            counts.put((Host.HostStatus) row[0], (Long) row[1]);
+        }
+        hostsByStatus.forEach((status, gauge) -> gauge.set(counts.getOrDefault(status, 0L)));
+    }
+    
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+    
+    public void recordVBoxCommand(Timer.Sample sample, String command, boolean success) {
+        sample.stop(timer("vbox.command", "command", command, success));
+    }
+    
+    public void recordProvisioningStep(Timer.Sample sample, String step, boolean success) {
+        sample.stop(timer("provisioning.step", "step", step, success));
+    }
+    
+    public void recordHostDelete(Timer.Sample sample, boolean success) {
+        sample.stop(timer("host.delete", null, null, success));
+    }
+    
+    public void recordPowerAction(Timer.Sample sample, String action, boolean success) {
+        sample.stop(timer("host.power", "action", action, success));
+    }
+    
+    /**
+     * 호스트 상태 조회가 VBoxManage 를 새로 불렀는지(query), 진행 중인 조회에 합류했는지(coalesced), 보관된 결과를 썼는지(hit).
+     */
+    public void recordStatusLookup(String source) {
+        registry.counter("host.status.lookups", "source", source).increment();
+    }
+    
+    /**
+     * 요청 속도 제한으로 거절한 API 요청 (scope: ip 또는 user).
+     */
+    public void recordRateLimited(String scope) {
+        registry.counter("http.rate_limited", "scope", scope).increment();
+    }
+    
+    public void recordResize(Timer.Sample sample, String mode, boolean success) {
+        sample.stop(timer("host.resize", "mode", mode, success));
+    }
+    
+    public void recordSnapshot(Timer.Sample sample, String operation, boolean success) {
+        sample.stop(timer("host.snapshot", "operation", operation, success));
+    }
+    
+    // 스냅샷 하나가 차지하는 디스크 (호스트별 저장 비용)
+    public void recordSnapshotSize(long bytes) {
+        DistributionSummary.builder("host.snapshot.size")
+            .description("스냅샷 크기")
+            .baseUnit("bytes")
+            .register(registry)
+            .record(bytes);
+    }
+    
+    public void hostCreateStarted(Long hostId) {
+        inFlightCreates.add(hostId);
+    }
+    
+    public void hostCreateFinished(Long hostId, Duration elapsed, boolean success) {
+        inFlightCreates.remove(hostId);
+        timer("host.create", null, null, success).record(elapsed);
+    }
+    
+    /**
+     * 결과를 기록하지 못하고 끝난 생성 (중간 삭제, 중단된 작업 정리 등). 이미 끝난 생성이면 아무것도 하지 않는다.
+     */
+    public void hostCreateAbandoned(Long hostId) {
+        inFlightCreates.remove(hostId);
+    }
+    
+    public void recordHealthProbe(String check, long latencyMillis, boolean success) {
+        timer("health.probe", "check", check, success).record(Duration.ofMillis(latencyMillis));
+    }
+    
+    private Timer timer(String name, String tagKey, String tagValue, boolean success) {
+        Timer.Builder builder = Timer.builder(name)
+            .tag("outcome", success ? "success" : "failure")
+            .publishPercentileHistogram();
+        if (tagKey != null) {
+            builder.tag(tagKey, tagValue);
+        }
+        return builder.register(registry);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.VirtualBoxConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 하이퍼바이저 노드별 회로 차단기와 전역 VBoxManage 재시도 예산.
+ * VBoxSVC 가 멈추면 호출마다 시간 초과까지 기다리며 스레드가 쌓이므로, 최근 호출의 실패율이나 연속 실패가 기준을 넘으면
+ * 일정 시간 그 노드로의 호출을 실행하지 않고 바로 실패시킨다. 그 뒤 시험 호출 하나가 성공하면 다시 닫는다.
+ * 실패는 노드가 응답하지 않은 경우(접속 실패, VBoxSVC 오류, 시간 초과)만 세고, VBoxManage 가 거절한 명령은 성공으로 본다.
+ */
+@Component
+@Slf4j
+public class HypervisorCircuitBreaker {
+    
+    @Autowired
+    private VirtualBoxConfig config;
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+    private final RetryBudget budget = new RetryBudget();
+    
+    /**
+     * 노드로 호출을 보내도 되는지 확인한다. 차단 중이면 HypervisorUnavailableException.
+     * 허용된 호출은 끝난 뒤 반드시 onSuccess/onFailure/abandon 중 하나로 결과를 알려야 한다.
+     */
+    public void acquire(String node) {
+        Breaker breaker = breaker(node);
+        if (!breaker.tryAcquire(config.getResilience())) {
+            breaker.rejected.increment();
+            throw new HypervisorUnavailableException("하이퍼바이저 노드 " + node + " 가 응답하지 않아 잠시 호출을 멈췄습니다");
+        }
+    }
+    
+    public void onSuccess(String node) {
+        breaker(node).record(false, config.getResilience());
+    }
+    
+    public void onFailure(String node, String reason) {
+        Breaker breaker = breaker(node);
+        breaker.failures.increment();
+        log.debug("하이퍼바이저 호출 실패 - 노드: {}, 원인: {}", node, reason);
+        breaker.record(true, config.getResilience());
+    }
+    
+    /**
+     * 결과를 모른 채 끝난 호출 (스레드 인터럽트). 시험 호출이었으면 다음 호출이 다시 시험하게 한다.
+     */
+    public void abandon(String node) {
+        breaker(node).abandon();
+    }
+    
+    /**
+     * 배치 대상에서 뺄 노드 (차단 중이고 아직 시험 호출할 때가 아님).
+     */
+    public boolean isOpen(String node) {
+        return breaker(node).isOpen(config.getResilience().getBreakerOpenDuration());
+    }
+    
+    public State state(String node) {
+        return breaker(node).state;
+    }
+    
+    /**
+     * 호출 하나마다 재시도 예산을 적립한다.
+     */
+    public void deposit() {
+        budget.deposit(config.getResilience());
+    }
+    
+    /**
+     * 재시도 예산에서 하나를 꺼낸다. 모자라면 false (재시도하지 않고 실패를 돌려준다).
+     */
+    public boolean tryRetry() {
+        boolean allowed = budget.withdraw(config.getResilience());
+        registry.counter("hypervisor.retries", "outcome", allowed ? "retried" : "budget_exhausted").increment();
+        return allowed;
+    }
+    
+    /**
+     * attempt 번째 실패 뒤 기다릴 시간 (full jitter 지수 백오프).
+     */
+    public long backoff(int attempt) {
+        VirtualBoxConfig.Resilience resilience = config.getResilience();
+        long ceiling = Math.min(resilience.getBackoffMax(), resilience.getBackoffBase() << Math.min(attempt - 1, 20));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+    
+    private Breaker breaker(String node) {
+        return breakers.computeIfAbsent(node, this::register);
+    }
+    
+    private Breaker register(String node) {
+        Breaker breaker = new Breaker(node,
+            Counter.builder("hypervisor.breaker.rejected").description("회로 차단으로 실행하지 않은 VBoxManage 호출").tag("node", node).register(registry),
+            Counter.builder("hypervisor.failures").description("노드가 응답하지 않은 VBoxManage 호출").tag("node", node).register(registry));
+        Gauge.builder("hypervisor.breaker.state", breaker, b -> b.state.ordinal())
+            .description("회로 차단기 상태 (0 닫힘, 1 반열림, 2 열림)")
+            .tag("node", node)
+            .register(registry);
+        return breaker;
+    }
+    
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+    
+    private static final class Breaker {
+        final String node;
+        final Counter rejected;
+        final Counter failures;
+        boolean[] window = new boolean[0]; // 최근 호출 실패 여부 (링)
+        int position;
+        int calls;
+        int failed;
+        int consecutive;
+        volatile State state = State.CLOSED;
+        long openedAt;
+        boolean probing; // 반열림 상태의 시험 호출이 진행 중
+        
+        Breaker(String node, Counter rejected, Counter failures) {
+            this.node = node;
+            this.rejected = rejected;
+            this.failures = failures;
+        }
+        
+        synchronized boolean tryAcquire(VirtualBoxConfig.Resilience resilience) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= resilience.getBreakerOpenDuration()) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+                return true;
+            }
+            return false;
+        }
+        
+        synchronized void record(boolean failure, VirtualBoxConfig.Resilience resilience) {
+            if (state == State.HALF_OPEN) {
+                probing = false;
+                if (failure) {
+                    open("시험 호출 실패");
+                } else {
+                    reset(resilience);
+                    state = State.CLOSED;
+                    log.info("하이퍼바이저 회로 차단 해제 - 노드: {}", node);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                // 차단 전에 시작한 호출의 결과
+                return;
+            }
+            if (window.length != resilience.getBreakerWindow()) {
+                reset(resilience);
+            }
+            if (window.length > 0) {
+                if (calls == window.length) {
+                    failed -= window[position] ? 1 : 0;
+                } else {
+                    calls++;
+                }
+                window[position] = failure;
+                failed += failure ? 1 : 0;
+                position = (position + 1) % window.length;
+            }
+            consecutive = failure ? consecutive + 1 : 0;
+            boolean rate = calls >= resilience.getBreakerMinimumCalls() && calls > 0
+                && failed >= resilience.getBreakerFailureRate() * calls;
+            boolean streak = resilience.getBreakerConsecutiveFailures() > 0 && consecutive >= resilience.getBreakerConsecutiveFailures();
+            if (failure && (rate || streak)) {
+                open(streak ? "연속 실패 " + consecutive + "회" : "실패율 " + failed + "/" + calls);
+            }
+        }
+        
+        synchronized void abandon() {
+            probing = false;
+        }
+        
+        synchronized boolean isOpen(long openDuration) {
+            return state == State.OPEN && System.currentTimeMillis() - openedAt < openDuration;
+        }
+        
+        private void open(String reason) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            log.warn("하이퍼바이저 회로 차단 - 노드: {}, 원인: {}", node, reason);
+        }
+        
+        private void reset(VirtualBoxConfig.Resilience resilience) {
+            window = new boolean[Math.max(0, resilience.getBreakerWindow())];
+            position = 0;
+            calls = 0;
+            failed = 0;
+            consecutive = 0;
+        }
+    }
+    
+    /**
+     * 호출마다 retry-ratio 만큼, 시간이 지나면 초당 retry-min-per-second 만큼 채워지고 retry-burst 까지 쌓이는 예산.
+     * 장애 중에 모든 호출이 재시도를 곱해 하이퍼바이저를 더 누르지 않게 전체 재시도 수를 호출 수에 비례하게 묶는다.
+     */
+    private static final class RetryBudget {
+        double balance = -1; // 처음 쓸 때 상한까지 채운다
+        long refilledAt = System.nanoTime();
+        
+        synchronized void deposit(VirtualBoxConfig.Resilience resilience) {
+            refill(resilience);
+            balance = Math.min(resilience.getRetryBurst(), balance + resilience.getRetryRatio());
+        }
+        
+        synchronized boolean withdraw(VirtualBoxConfig.Resilience resilience) {
+            refill(resilience);
+            if (balance < 1) {
+                return false;
+            }
+            balance--;
+            return true;
+        }
+        
+        private void refill(VirtualBoxConfig.Resilience resilience) {
+            long now = System.nanoTime();
+            if (balance < 0) {
+                balance = resilience.getRetryBurst();
+            } else {
+                balance = Math.min(resilience.getRetryBurst(), balance + (now - refilledAt) / 1e9 * resilience.getRetryMinPerSecond());
+            }
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.webhosting.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/health 의 hypervisor 항목. 노드별 회로 차단기 상태를 보이고, 차단된 노드가 있으면 DEGRADED.
+ * 노드가 모두 차단되어도 기존 호스트 중계와 조회는 되므로 DOWN 으로 내리지 않는다.
+ */
+@Component("hypervisor")
+public class HypervisorHealthIndicator implements HealthIndicator {
+    
+    static final Status DEGRADED = new Status("DEGRADED", "차단된 하이퍼바이저 노드가 있습니다");
+    
+    @Autowired
+    private HypervisorNodeRegistry nodes;
+    
+    @Autowired
+    private HypervisorCircuitBreaker breaker;
+    
+    @Override
+    public Health health() {
+        Map<String, Object> states = new LinkedHashMap<>();
+        boolean degraded = false;
+        for (HypervisorNodeRegistry.Node node : nodes.nodes()) {
+            HypervisorCircuitBreaker.State state = breaker.state(node.getName());
+            states.put(node.getName(), state);
+            degraded |= state != HypervisorCircuitBreaker.State.CLOSED;
+        }
+        return Health.status(degraded ? DEGRADED : Status.UP).withDetail("nodes", states).build();
+    }
+}
@@ -0,0 +1,483 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.ProxyConfig;
+import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 하이퍼바이저 노드 목록과 노드별 자원/저장소 풀 사용량. 새 VM 을 어느 노드, 어느 저장소 풀에 둘지 정한다.
+ * 사용량은 기동 시 DB 의 호스트로 채우고 이후 배치/반환 때 메모리에서 갱신하며, 다른 인스턴스의 변경은 주기적으로 다시 읽는다.
+ * 노드를 설정하지 않으면 이 서버의 VBoxManage 를 쓰는 용량 제한 없는 "local" 노드 하나로 동작한다.
+ */
+@Component
+@Slf4j
+public class HypervisorNodeRegistry {
+    
+    static final String LOCAL_NODE = "local";
+    static final String DEFAULT_POOL = "default";
+    
+    @Autowired
+    private VirtualBoxConfig config;
+    
+    @Autowired
+    private ProxyConfig proxyConfig;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    @Autowired
+    private HypervisorCircuitBreaker breaker;
+    
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Map<String, VirtualBoxConfig.StoragePool> pools = new LinkedHashMap<>();
+    private Node defaultNode;
+    
+    @PostConstruct
+    void init() {
+        initPools();
+        List<VirtualBoxConfig.Node> configured = config.getNodes();
+        if (configured.isEmpty()) {
+            VirtualBoxConfig.Node local = new VirtualBoxConfig.Node();
+            local.setName(LOCAL_NODE);
+            local.setAddress(proxyConfig.getBackendAddress());
+            configured = List.of(local);
+        }
+        for (VirtualBoxConfig.Node node : configured) {
+            if (node.getName() == null || node.getName().isBlank()) {
+                throw new IllegalStateException("하이퍼바이저 노드 이름이 필요합니다");
+            }
+            if (nodes.put(node.getName(), new Node(node, command(node))) != null) {
+                throw new IllegalStateException("하이퍼바이저 노드 이름이 중복되었습니다: " + node.getName());
+            }
+        }
+        defaultNode = nodes.values().iterator().next();
+        
+        reload();
+        nodes.values().forEach(this::registerGauges);
+        for (Node node : nodes.values()) {
+            pools.values().forEach(pool -> registerPoolGauges(node, pool));
+        }
+        nodes.values().forEach(node -> log.info("하이퍼바이저 노드 {} ({}) - 호스트 {}개, 메모리 {}/{}MB",
+                                                node.getName(), node.getAddress(), node.hosts, node.usedMemory, node.spec.getMemory()));
+    }
+    
+    private void initPools() {
+        List<VirtualBoxConfig.StoragePool> configured = config.getStoragePools();
+        if (configured.isEmpty()) {
+            VirtualBoxConfig.StoragePool fallback = new VirtualBoxConfig.StoragePool();
+            fallback.setName(DEFAULT_POOL);
+            fallback.setPath(config.getVm().getDiskDir());
+            configured = List.of(fallback);
+        }
+        for (VirtualBoxConfig.StoragePool pool : configured) {
+            if (pool.getName() == null || pool.getName().isBlank() || pool.getPath() == null || pool.getPath().isBlank()) {
+                throw new IllegalStateException("저장소 풀 이름과 경로가 필요합니다");
+            }
+            if (pools.put(pool.getName(), pool) != null) {
+                throw new IllegalStateException("저장소 풀 이름이 중복되었습니다: " + pool.getName());
+            }
+        }
+    }
+    
+    /**
+     * 생성 중이거나 VM 이 있는 호스트의 자원을 DB 에서 다시 읽어 사용량을 맞춘다.
+     * 다른 인스턴스가 배치/반환한 호스트를 반영하려면 배치 잠금 안에서 배치 직전에 호출한다.
+     */
+    @Scheduled(fixedDelayString = "${cluster.resync-interval:60000}", initialDelayString = "${cluster.resync-interval:60000}")
+    public synchronized void reload() {
+        nodes.values().forEach(Node::clear);
+        for (Object[] row : hostRepository.findPlacements()) {
+            Node node = node((String) row[0]);
+            if (node == null) {
+                log.warn("설정에 없는 하이퍼바이저 노드의 호스트가 있습니다: {}", row[0]);
+                continue;
+            }
+            // 잠든 호스트는 상태를 디스크에 저장했으므로 메모리를 차지하지 않는다
+            int memory = row[5] == Host.HostStatus.HIBERNATED ? 0 : orDefault((Integer) row[2], config.getVm().getMemory());
+            node.reserve((Long) row[1], memory,
+                         orDefault((Integer) row[3], config.getVm().getCpus()),
+                         orDefault((Integer) row[4], config.getVm().getDiskSize()),
+                         poolName((String) row[6]));
+        }
+    }
+    
+    /**
+     * 이름으로 노드를 찾는다. null 이면 기본 노드 (노드 기록 전에 만든 호스트), 설정에 없는 노드면 null.
+     */
+    public Node node(String name) {
+        return name == null ? defaultNode : nodes.get(name);
+    }
+    
+    public Node node(Host host) {
+        return node(host.getNodeName());
+    }
+    
+    public List<Node> nodes() {
+        return Collections.unmodifiableList(new ArrayList<>(nodes.values()));
+    }
+    
+    /**
+     * 이름으로 저장소 풀을 찾는다. null 이면 기본(첫 번째) 풀 (풀 기록 전에 만든 호스트), 설정에 없는 풀이면 null.
+     */
+    public VirtualBoxConfig.StoragePool pool(String name) {
+        return pools.get(poolName(name));
+    }
+    
+    public List<VirtualBoxConfig.StoragePool> pools() {
+        return List.copyOf(pools.values());
+    }
+    
+    /**
+     * 호스트 하나를 둘 노드와 저장소 풀을 고르고 자원을 예약한다.
+     * 같은 사용자의 호스트가 적은 노드를 우선하고(anti-affinity), 그 안에서 배치 전략 점수로 고른다.
+     * 디스크를 둘 풀이 없으면 VBoxManage 를 호출하기 전에 실패한다. 회로 차단 중인 노드에는 두지 않는다.
+     */
+    public synchronized Placement place(Long userId, int memory, int cpus, int disk) {
+        VirtualBoxConfig.Placement placement = config.getPlacement();
+        Node best = null;
+        VirtualBoxConfig.StoragePool bestPool = null;
+        int bestSiblings = 0;
+        double bestLoad = 0;
+        boolean noStorage = false;
+        boolean unavailable = false;
+        for (Node node : nodes.values()) {
+            if (!node.spec.isEnabled() || !node.fits(memory, cpus, disk, placement.getCpuOvercommit())) {
+                continue;
+            }
+            // 회로 차단 중인 노드에 두면 생성이 실패할 것이므로 건너뛴다
+            if (breaker.isOpen(node.getName())) {
+                unavailable = true;
+                continue;
+            }
+            VirtualBoxConfig.StoragePool pool = choosePool(node, disk);
+            if (pool == null) {
+                noStorage = true;
+                continue;
+            }
+            int siblings = placement.isAntiAffinity() ? node.userHosts.getOrDefault(userId, 0) : 0;
+            double load = node.loadAfter(memory, cpus, disk, placement.getCpuOvercommit());
+            boolean better;
+            if (best == null || siblings != bestSiblings) {
+                better = best == null || siblings < bestSiblings;
+            } else if (placement.getStrategy() == VirtualBoxConfig.Placement.Strategy.BIN_PACK) {
+                better = load > bestLoad;
+            } else {
+                better = load < bestLoad;
+            }
+            if (better) {
+                best = node;
+                bestPool = pool;
+                bestSiblings = siblings;
+                bestLoad = load;
+            }
+        }
+        if (best == null && unavailable) {
+            throw new HypervisorUnavailableException("하이퍼바이저 노드가 응답하지 않습니다. 잠시 후 다시 시도하세요");
+        }
+        if (best == null) {
+            throw new IllegalStateException(noStorage
+                ? "VM 디스크를 둘 저장소 풀에 여유 공간이 없습니다"
+                : "VM 을 배치할 수 있는 하이퍼바이저 노드가 없습니다");
+        }
+        best.reserve(userId, memory, cpus, disk, bestPool.getName());
+        log.debug("호스트 배치 - 사용자: {}, 노드: {}, 풀: {}, 배치 후 부하: {}", userId, best.getName(), bestPool.getName(), bestLoad);
+        return new Placement(best, bestPool);
+    }
+    
+    /**
+     * 디스크가 들어가는 풀 중 여유 공간이 가장 큰 풀 (같으면 설정 순서). 고정 크기 VDI 는 로컬 노드면 실제 파일 시스템 여유도 본다.
+     */
+    private VirtualBoxConfig.StoragePool choosePool(Node node, int disk) {
+        VirtualBoxConfig.StoragePool best = null;
+        long bestFree = 0;
+        for (VirtualBoxConfig.StoragePool pool : pools.values()) {
+            if (!pool.isEnabled()) {
+                continue;
+            }
+            long free = pool.getCapacity() > 0
+                ? pool.getCapacity() - node.poolUsed.getOrDefault(pool.getName(), 0L)
+                : Long.MAX_VALUE;
+            if (pool.getVariant() == VirtualBoxConfig.StoragePool.Variant.FIXED && isLocal(node)) {
+                free = Math.min(free, usableMegabytes(pool));
+            }
+            if (free >= disk && (best == null || free > bestFree)) {
+                best = pool;
+                bestFree = free;
+            }
+        }
+        return best;
+    }
+    
+    private static long usableMegabytes(VirtualBoxConfig.StoragePool pool) {
+        try {
+            return Files.getFileStore(Paths.get(pool.getPath())).getUsableSpace() / (1024 * 1024);
+        } catch (IOException e) {
+            log.warn("저장소 풀 {} 여유 공간 확인 실패: {}", pool.getName(), e.getMessage());
+            return 0;
+        }
+    }
+    
+    /**
+     * 호스트 삭제/생성 실패 시 예약한 자원을 돌려받는다.
+     */
+    public synchronized void release(Host host, Long userId) {
+        Node node = node(host);
+        if (node == null) {
+            return;
+        }
+        // 잠든 호스트의 메모리는 이미 반환했다
+        int memory = host.getStatus() == Host.HostStatus.HIBERNATED ? 0 : orDefault(host.getMemory(), config.getVm().getMemory());
+        node.release(userId, memory,
+                     orDefault(host.getCpus(), config.getVm().getCpus()),
+                     orDefault(host.getDiskSize(), config.getVm().getDiskSize()),
+                     poolName(host.getStoragePool()));
+    }
+    
+    /**
+     * 호스트 크기를 from 에서 to 로 바꾼 만큼 노드/풀 예약을 고친다.
+     * checkCapacity 면 늘어나는 자원이 노드나 저장소 풀 용량을 넘을 때 IllegalStateException (되돌릴 때는 검사하지 않는다).
+     */
+    public synchronized void resize(Host host, VirtualBoxConfig.Plan from, VirtualBoxConfig.Plan to, boolean checkCapacity) {
+        Node node = node(host);
+        if (node == null) {
+            return;
+        }
+        // 잠든 호스트의 메모리는 예약에 없다
+        int memory = host.getStatus() == Host.HostStatus.HIBERNATED ? 0 : to.getMemory() - from.getMemory();
+        int cpus = to.getCpus() - from.getCpus();
+        int disk = to.getDiskSize() - from.getDiskSize();
+        String pool = poolName(host.getStoragePool());
+        if (checkCapacity) {
+            if (!node.fits(Math.max(0, memory), Math.max(0, cpus), Math.max(0, disk), config.getPlacement().getCpuOvercommit())) {
+                throw new IllegalStateException("노드에 여유 자원이 없어 크기를 바꿀 수 없습니다");
+            }
+            VirtualBoxConfig.StoragePool spec = pools.get(pool);
+            if (disk > 0 && spec != null && spec.getCapacity() > 0
+                && node.poolUsed.getOrDefault(pool, 0L) + disk > spec.getCapacity()) {
+                throw new IllegalStateException("저장소 풀에 여유 공간이 없어 디스크를 늘릴 수 없습니다");
+            }
+        }
+        node.adjust(memory, cpus, disk, pool);
+    }
+    
+    /**
+     * 호스트가 잠들어 VM 메모리가 풀렸다. 디스크/vCPU 예약과 호스트 수는 그대로 둔다.
+     */
+    public synchronized void hibernated(Host host) {
+        Node node = node(host);
+        if (node != null) {
+            node.usedMemory = Math.max(0, node.usedMemory - orDefault(host.getMemory(), config.getVm().getMemory()));
+        }
+    }
+    
+    /**
+     * 잠든 호스트가 깨어나 메모리를 다시 차지한다. 그 사이 다른 호스트가 들어와 용량을 넘을 수 있으나 깨우기는 막지 않는다.
+     */
+    public synchronized void woke(Host host) {
+        Node node = node(host);
+        if (node == null) {
+            return;
+        }
+        node.usedMemory += orDefault(host.getMemory(), config.getVm().getMemory());
+        if (node.spec.getMemory() > 0 && node.usedMemory > node.spec.getMemory()) {
+            log.warn("하이퍼바이저 노드 {} 메모리 초과 ({}MB / {}MB) - 호스트 {} 깨움",
+                     node.getName(), node.usedMemory, node.spec.getMemory(), host.getHostName());
+        }
+    }
+    
+    /**
+     * 이 서버의 VBoxManage 로 관리하는 노드인지 (원격 접속 명령을 따로 설정하지 않음). 노드의 파일을 직접 볼 수 있다.
+     */
+    public boolean isLocal(Node node) {
+        return node.spec.getManageCommand() == null || node.spec.getManageCommand().isBlank();
+    }
+    
+    private void registerGauges(Node node) {
+        Gauge.builder("hypervisor.node.hosts", node, n -> n.hosts)
+            .description("노드에 배치된 호스트 수")
+            .tag("node", node.getName())
+            .register(registry);
+        Gauge.builder("hypervisor.node.memory.used", node, n -> n.usedMemory)
+            .description("노드에 예약된 메모리 (MB)")
+            .tag("node", node.getName())
+            .register(registry);
+        Gauge.builder("hypervisor.node.cpus.used", node, n -> n.usedCpus)
+            .description("노드에 예약된 vCPU 수")
+            .tag("node", node.getName())
+            .register(registry);
+        Gauge.builder("hypervisor.node.disk.used", node, n -> n.usedDisk)
+            .description("노드에 예약된 디스크 (MB)")
+            .tag("node", node.getName())
+            .register(registry);
+    }
+    
+    private void registerPoolGauges(Node node, VirtualBoxConfig.StoragePool pool) {
+        Gauge.builder("storage.pool.used", node, n -> n.poolUsed.getOrDefault(pool.getName(), 0L))
+            .description("저장소 풀에 예약된 디스크 (MB)")
+            .tag("node", node.getName())
+            .tag("pool", pool.getName())
+            .register(registry);
+        Gauge.builder("storage.pool.capacity", pool, VirtualBoxConfig.StoragePool::getCapacity)
+            .description("저장소 풀 용량 (MB, 0 이면 제한 없음)")
+            .tag("node", node.getName())
+            .tag("pool", pool.getName())
+            .register(registry);
+    }
+    
+    private String poolName(String name) {
+        return name != null ? name : pools.keySet().iterator().next();
+    }
+    
+    private List<String> command(VirtualBoxConfig.Node node) {
+        String command = node.getManageCommand() != null && !node.getManageCommand().isBlank()
+            ? node.getManageCommand()
+            : config.getManageCommand();
+        return List.of(command.trim().split("\\s+"));
+    }
+    
+    private static int orDefault(Integer value, int fallback) {
+        return value != null ? value : fallback;
+    }
+    
+    /**
+     * 배치 결과: VM 을 만들 노드와 디스크를 둘 저장소 풀.
+     */
+    public static final class Placement {
+        private final Node node;
+        private final VirtualBoxConfig.StoragePool pool;
+        
+        Placement(Node node, VirtualBoxConfig.StoragePool pool) {
+            this.node = node;
+            this.pool = pool;
+        }
+        
+        public Node getNode() {
+            return node;
+        }
+        
+        public VirtualBoxConfig.StoragePool getPool() {
+            return pool;
+        }
+    }
+    
+    /**
+     * 노드 하나. 사용량 필드는 레지스트리 락 안에서만 바뀐다.
+     */
+    public static class Node {
+        private final VirtualBoxConfig.Node spec;
+        private final List<String> command;
+        private final Map<Long, Integer> userHosts = new HashMap<>();
+        private final Map<String, Long> poolUsed = new HashMap<>(); // 저장소 풀별 예약 디스크 (MB)
+        private int hosts;
+        private long usedMemory;
+        private long usedCpus;
+        private long usedDisk;
+        
+        Node(VirtualBoxConfig.Node spec, List<String> command) {
+            this.spec = spec;
+            this.command = command;
+        }
+        
+        public String getName() {
+            return spec.getName();
+        }
+        
+        public String getAddress() {
+            return spec.getAddress();
+        }
+        
+        /**
+         * VBoxManage 실행 명령 (원격 노드면 ssh 등 접속 명령이 앞에 붙는다) 뒤에 args 를 붙인다.
+         */
+        String[] command(String... args) {
+            String[] full = command.toArray(new String[command.size() + args.length]);
+            System.arraycopy(args, 0, full, command.size(), args.length);
+            return full;
+        }
+        
+        Map<String, String> environment() {
+            return spec.getEnvironment();
+        }
+        
+        boolean fits(int memory, int cpus, int disk, double cpuOvercommit) {
+            return within(usedMemory + memory, spec.getMemory())
+                && within(usedCpus + cpus, spec.getCpus() * cpuOvercommit)
+                && within(usedDisk + disk, spec.getDisk());
+        }
+        
+        /**
+         * 배치 후 가장 많이 찬 자원의 사용률 (용량 제한이 없는 자원은 제외).
+         */
+        double loadAfter(int memory, int cpus, int disk, double cpuOvercommit) {
+            return Arrays.stream(new double[] {
+                ratio(usedMemory + memory, spec.getMemory()),
+                ratio(usedCpus + cpus, spec.getCpus() * cpuOvercommit),
+                ratio(usedDisk + disk, spec.getDisk())
+            }).max().orElse(0);
+        }
+        
+        void reserve(Long userId, int memory, int cpus, int disk, String pool) {
+            hosts++;
+            usedMemory += memory;
+            usedCpus += cpus;
+            usedDisk += disk;
+            userHosts.merge(userId, 1, Integer::sum);
+            poolUsed.merge(pool, (long) disk, Long::sum);
+        }
+        
+        void clear() {
+            hosts = 0;
+            usedMemory = 0;
+            usedCpus = 0;
+            usedDisk = 0;
+            userHosts.clear();
+            poolUsed.clear();
+        }
+        
+        void release(Long userId, int memory, int cpus, int disk, String pool) {
+            hosts = Math.max(0, hosts - 1);
+            usedMemory = Math.max(0, usedMemory - memory);
+            usedCpus = Math.max(0, usedCpus - cpus);
+            usedDisk = Math.max(0, usedDisk - disk);
+            userHosts.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+            poolUsed.computeIfPresent(pool, (name, used) -> Math.max(0, used - disk));
+        }
+        
+        void adjust(int memory, int cpus, int disk, String pool) {
+            usedMemory = Math.max(0, usedMemory + memory);
+            usedCpus = Math.max(0, usedCpus + cpus);
+            usedDisk = Math.max(0, usedDisk + disk);
+            poolUsed.merge(pool, (long) disk, (used, delta) -> Math.max(0, used + delta));
+        }
+        
+        private static boolean within(double used, double capacity) {
+            return capacity <= 0 || used <= capacity;
+        }
+        
+        private static double ratio(double used, double capacity) {
+            return capacity <= 0 ? 0 : used / capacity;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.webhosting.service;
+
+/**
+ * 하이퍼바이저 노드가 응답하지 않거나 회로 차단기가 열려 VBoxManage 를 실행하지 않았다.
+ * 잠시 뒤 다시 시도하면 될 수 있는 오류라 컨트롤러에서는 다른 IllegalStateException 처럼 503 으로 응답한다.
+ */
+public class HypervisorUnavailableException extends IllegalStateException {
+    
+    public HypervisorUnavailableException(String message) {
+        super(message);
+    }
+}
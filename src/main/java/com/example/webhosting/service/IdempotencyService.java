@@ -0,0 +1,211 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.IdempotencyKey;
+import com.example.webhosting.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 호스트 생성/삭제 요청의 Idempotency-Key. 응답을 받지 못한 클라이언트가 같은 키로 다시 보내면 새 VM 작업을 시작하지 않고
+ * 처음 요청의 결과를 돌려준다. 키는 DB 에 ttl 동안 남기고 (다른 인스턴스나 재시작 뒤의 재시도), 최근 키는 cache-ttl 동안
+ * 메모리에도 두어 DB 를 읽지 않고 찾는다. 같은 인스턴스에서 아직 진행 중인 요청이면 그 작업을 함께 기다린다.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    @Value("${idempotency.ttl:86400000}")
+    private long ttl;
+    
+    @Value("${idempotency.cache-ttl:600000}")
+    private long cacheTtl;
+    
+    @Autowired
+    private IdempotencyKeyRepository repository;
+    
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * 키를 확인한다. 처음 보는 키면 이 요청이 작업을 맡고 (키는 호출한 쪽 트랜잭션과 함께 저장), 이미 받은 키면 재시도로 돌려준다.
+     * 같은 키로 다른 작업이나 다른 내용을 보냈으면 IllegalArgumentException.
+     */
+    public Claim claim(Long userId, String key, IdempotencyKey.Operation operation, String fingerprint) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key 는 1-" + MAX_KEY_LENGTH + "자여야 합니다");
+        }
+        String id = userId + ":" + key;
+        long now = System.currentTimeMillis();
+        Entry[] created = new Entry[1];
+        Entry entry = entries.compute(id, (k, current) -> {
+            if (current != null && !current.isExpired(now)) {
+                return current;
+            }
+            created[0] = new Entry(operation, fingerprint);
+            return created[0];
+        });
+        if (created[0] == null) {
+            entry.check(operation, fingerprint);
+            return new Claim(id, entry, false);
+        }
+        
+        // 메모리에 없으면 DB 에 남은 키 (다른 인스턴스나 재시작 전에 받은 요청)
+        IdempotencyKey saved = repository.findByUserIdAndRequestKey(userId, key)
+            .filter(record -> record.getExpiresAt().isAfter(LocalDateTime.now()))
+            .orElse(null);
+        if (saved != null) {
+            entry.load(saved);
+            entry.check(operation, fingerprint);
+            return new Claim(id, entry, false);
+        }
+        
+        LocalDateTime createdAt = LocalDateTime.now();
+        IdempotencyKey record = new IdempotencyKey(null, userId, key, operation, fingerprint, null,
+                                                   createdAt, createdAt.plus(Duration.ofMillis(ttl)));
+        try {
+            entry.record = repository.saveAndFlush(record);
+        } catch (DataIntegrityViolationException e) {
+            // 다른 인스턴스가 같은 키를 방금 받음. 그쪽 결과는 다음 재시도에서 돌려준다
+            IllegalArgumentException busy = new IllegalArgumentException("같은 Idempotency-Key 요청이 처리 중입니다");
+            entries.remove(id, entry);
+            entry.fail(busy);
+            throw busy;
+        }
+        return new Claim(id, entry, true);
+    }
+    
+    // 만료된 키 정리 (DB 는 ttl, 메모리는 끝난 뒤 cache-ttl)
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:600000}", initialDelayString = "${idempotency.purge-interval:600000}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        int purged = repository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.debug("만료된 Idempotency-Key {}개 정리", purged);
+        }
+    }
+    
+    /**
+     * 키 하나에 대한 이 요청의 역할. 작업을 맡았으면 (isReplay() == false) 대상 호스트가 정해질 때 attach,
+     * 작업 결과로 complete, 작업을 시작하지 못했으면 abandon 을 부른다.
+     */
+    public class Claim {
+        private final String id;
+        private final Entry entry;
+        private final boolean owner;
+        
+        Claim(String id, Entry entry, boolean owner) {
+            this.id = id;
+            this.entry = entry;
+            this.owner = owner;
+        }
+        
+        public boolean isReplay() {
+            return !owner;
+        }
+        
+        /**
+         * 처음 요청의 대상 호스트. 처음 요청이 아직 호스트를 정하기 전이면 정해질 때 완료된다.
+         */
+        public CompletableFuture<Long> hostId() {
+            return entry.hostId;
+        }
+        
+        /**
+         * 처음 요청의 결과. 같은 인스턴스에서 진행 중이면 끝날 때 완료되고, DB 에서 찾은 키는 결과를 모르므로 null.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<T> result() {
+            return (CompletableFuture<T>) entry.result;
+        }
+        
+        /**
+         * 대상 호스트를 기록한다. 키와 호스트는 호출한 쪽 트랜잭션이 커밋할 때 함께 저장되고,
+         * 기다리던 재시도 요청은 커밋된 뒤에 호스트를 읽는다.
+         */
+        public void attach(Long hostId) {
+            entry.record.setHostId(hostId);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        entry.hostId.complete(hostId);
+                    }
+                });
+            } else {
+                entry.hostId.complete(hostId);
+            }
+        }
+        
+        public <T> CompletableFuture<T> complete(CompletableFuture<T> work) {
+            work.whenComplete((value, e) -> {
+                if (e != null) {
+                    entry.result.completeExceptionally(e);
+                } else {
+                    entry.result.complete(value);
+                }
+                entry.doneAt = System.currentTimeMillis();
+            });
+            return work;
+        }
+        
+        /**
+         * 검사에 걸려 작업을 시작하지 않음. 트랜잭션과 함께 키도 저장되지 않으므로 같은 키로 다시 시도할 수 있다.
+         * 그 사이 같은 키로 기다리던 요청은 같은 오류를 받는다.
+         */
+        public void abandon(Throwable cause) {
+            entries.remove(id, entry);
+            entry.fail(cause);
+        }
+    }
+    
+    private final class Entry {
+        final CompletableFuture<Long> hostId = new CompletableFuture<>();
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        volatile IdempotencyKey.Operation operation;
+        volatile String fingerprint;
+        volatile IdempotencyKey record;
+        volatile long doneAt = Long.MAX_VALUE; // 작업이 끝나면 정한다
+        
+        Entry(IdempotencyKey.Operation operation, String fingerprint) {
+            this.operation = operation;
+            this.fingerprint = fingerprint;
+        }
+        
+        void load(IdempotencyKey saved) {
+            operation = saved.getOperation();
+            fingerprint = saved.getFingerprint();
+            hostId.complete(saved.getHostId());
+            result.complete(null);
+            doneAt = System.currentTimeMillis();
+        }
+        
+        void check(IdempotencyKey.Operation operation, String fingerprint) {
+            if (this.operation != operation || !this.fingerprint.equals(fingerprint)) {
+                throw new IllegalArgumentException("이미 다른 요청에 사용한 Idempotency-Key 입니다");
+            }
+        }
+        
+        void fail(Throwable cause) {
+            hostId.completeExceptionally(cause);
+            result.completeExceptionally(cause);
+            doneAt = System.currentTimeMillis();
+        }
+        
+        boolean isExpired(long now) {
+            return doneAt != Long.MAX_VALUE && now - doneAt >= cacheTtl;
+        }
+    }
+}
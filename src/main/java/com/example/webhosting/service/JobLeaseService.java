@@ -0,0 +1,124 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.JobLease;
+import com.example.webhosting.repository.JobLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 호스트 단위 작업(생성/프로비저닝, 삭제)의 소유권. 작업 하나는 한 인스턴스만 진행하고,
+ * 진행 중인 인스턴스는 하트비트로 임대를 연장한다. 인스턴스가 죽어 임대가 만료되면 다른 인스턴스가 넘겨받는다.
+ */
+@Service
+@Slf4j
+public class JobLeaseService {
+    
+    @Autowired
+    private JobLeaseRepository leaseRepository;
+    
+    @Autowired
+    private ClusterMembership cluster;
+    
+    @Value("${cluster.lease-ttl:60000}")
+    private long leaseTtl;
+    
+    // 이 인스턴스가 잡고 있는 임대 (하트비트 대상)
+    private final Set<Long> held = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * 호스트 작업 임대를 얻는다. 다른 인스턴스가 유효한 임대를 잡고 있으면 false.
+     * 유효한 임대의 작업 종류는 바꾸지 않는다. 이 인스턴스가 같은 작업으로 잡고 있으면 만료 시각만 늘린다.
+     * 호출한 쪽 트랜잭션과 무관하게 바로 커밋되어 다른 인스턴스에 보인다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean acquire(Long hostId, JobLease.JobType job) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = expiry(now);
+        String owner = cluster.getInstanceId();
+        boolean acquired = leaseRepository.takeOver(hostId, job, owner, now, expiresAt) > 0;
+        if (!acquired) {
+            try {
+                leaseRepository.insert(hostId, job.name(), owner, expiresAt);
+                acquired = true;
+            } catch (DataIntegrityViolationException e) {
+                // 다른 인스턴스가 먼저 잡았거나 유효한 임대가 있음
+            }
+        }
+        if (acquired) {
+            held.add(hostId);
+            log.debug("작업 임대 획득 - 호스트: {}, 작업: {}", hostId, job);
+        }
+        return acquired;
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void release(Long hostId, JobLease.JobType job) {
+        if (leaseRepository.release(hostId, cluster.getInstanceId(), job) > 0) {
+            held.remove(hostId);
+        }
+    }
+    
+    public boolean isHeld(Long hostId) {
+        return held.contains(hostId);
+    }
+    
+    /**
+     * 다른 인스턴스가 진행 중인 작업이 있는 호스트 (헬스 체크 등에서 건너뜀).
+     */
+    public Set<Long> activeHostIds() {
+        return new HashSet<>(leaseRepository.findActiveHostIds(LocalDateTime.now()));
+    }
+    
+    /**
+     * 만료된 임대를 이 인스턴스로 넘겨받는다. 조건부 갱신이라 같은 임대는 한 인스턴스만 가져간다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<JobLease> reclaimExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        List<JobLease> reclaimed = new ArrayList<>();
+        for (JobLease lease : leaseRepository.findByExpiresAtBefore(now)) {
+            if (leaseRepository.takeOver(lease.getHostId(), lease.getJob(), cluster.getInstanceId(), now, expiry(now)) > 0) {
+                log.warn("만료된 작업 임대 회수 - 호스트: {}, 작업: {}, 이전 소유: {}",
+                         lease.getHostId(), lease.getJob(), lease.getOwner());
+                held.add(lease.getHostId());
+                reclaimed.add(lease);
+            }
+        }
+        return reclaimed;
+    }
+    
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval:15000}")
+    public void heartbeat() {
+        if (held.isEmpty()) {
+            return;
+        }
+        List<Long> hostIds = new ArrayList<>(held);
+        int renewed = leaseRepository.renew(cluster.getInstanceId(), hostIds, expiry(LocalDateTime.now()));
+        if (renewed < hostIds.size()) {
+            // 끝난 작업이거나 하트비트가 늦어 다른 인스턴스가 넘겨받은 작업
+            Set<Long> owned = new HashSet<>(leaseRepository.findOwned(cluster.getInstanceId(), hostIds));
+            for (Long hostId : hostIds) {
+                if (!owned.contains(hostId) && held.remove(hostId)) {
+                    log.warn("작업 임대를 잃었습니다 - 호스트: {}", hostId);
+                }
+            }
+        }
+    }
+    
+    private LocalDateTime expiry(LocalDateTime now) {
+        return now.plusNanos(leaseTtl * 1_000_000);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.ReaperConfig;
+import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 생성 도중 실패하거나 삭제에 실패해 hosts 테이블에 없는 VM 과 디스크 이미지를 찾아 지운다.
+ * 우리 이름 접두사(vm.base-name)가 붙은 VM, 저장소 풀 디렉토리의 디스크만 대상으로 하고,
+ * 처음 발견한 뒤 유예 시간 동안 계속 고아로 남아 있어야 삭제한다. 한 번에 지우는 수는 제한한다.
+ * 여러 인스턴스가 있으면 노드마다 한 인스턴스만 정리한다.
+ */
+@Component
+@Slf4j
+public class OrphanReaper {
+    
+    @Autowired
+    private ReaperConfig config;
+    
+    @Autowired
+    private VirtualBoxConfig virtualBoxConfig;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodes;
+    
+    @Autowired
+    private VirtualBoxService virtualBoxService;
+    
+    @Autowired
+    private ClusterMembership cluster;
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    // 노드/종류/식별자 → 처음 고아로 발견한 시각
+    private final Map<String, Long> firstSeen = new HashMap<>();
+    private final AtomicInteger orphans = new AtomicInteger();
+    private Counter reaped;
+    
+    @PostConstruct
+    void registerMeters() {
+        Gauge.builder("reaper.orphans", orphans, AtomicInteger::get)
+            .description("마지막 검사에서 발견한 고아 VM/디스크 수")
+            .register(registry);
+        reaped = Counter.builder("reaper.deleted")
+            .description("정리한 고아 VM/디스크 수")
+            .register(registry);
+    }
+    
+    @Scheduled(fixedDelayString = "${reaper.interval:600000}", initialDelayString = "${reaper.interval:600000}")
+    public synchronized void scan() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Inventory known = inventory();
+        long now = System.currentTimeMillis();
+        Set<String> seen = new HashSet<>();
+        List<Orphan> due = new ArrayList<>();
+        List<HypervisorNodeRegistry.Node> all = nodes.nodes();
+        for (int i = 0; i < all.size(); i++) {
+            HypervisorNodeRegistry.Node node = all.get(i);
+            // 노드 순번으로 인스턴스를 나눈다
+            if (!cluster.owns((long) i)) {
+                continue;
+            }
+            try {
+                for (Orphan orphan : findOrphans(node, known)) {
+                    seen.add(orphan.key());
+                    long first = firstSeen.computeIfAbsent(orphan.key(), k -> now);
+                    if (now - first >= config.getGracePeriod()) {
+                        due.add(orphan);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("고아 VM 검사 실패 - 노드: {}, 오류: {}", node.getName(), e.getMessage());
+                // 검사하지 못한 노드의 기록은 유지
+                String prefix = node.getName() + "/";
+                firstSeen.keySet().stream().filter(key -> key.startsWith(prefix)).forEach(seen::add);
+            }
+        }
+        firstSeen.keySet().retainAll(seen);
+        orphans.set(seen.size());
+        
+        if (due.isEmpty()) {
+            return;
+        }
+        if (config.isDryRun()) {
+            due.forEach(orphan -> log.info("[dry-run] 고아 {} 정리 대상 - 노드: {}, {} (발견 후 {}분)",
+                                           orphan.kind, orphan.node.getName(), orphan.name,
+                                           (now - firstSeen.get(orphan.key())) / 60000));
+            return;
+        }
+        int deleted = 0;
+        for (Orphan orphan : due) {
+            if (deleted >= config.getMaxDeletesPerScan()) {
+                log.info("고아 정리 한도 도달 - 남은 {}개는 다음 검사에서 정리", due.size() - deleted);
+                break;
+            }
+            if (reap(orphan)) {
+                deleted++;
+                firstSeen.remove(orphan.key());
+                reaped.increment();
+            }
+        }
+    }
+    
+    private List<Orphan> findOrphans(HypervisorNodeRegistry.Node node, Inventory known) throws Exception {
+        List<Orphan> found = new ArrayList<>();
+        String prefix = virtualBoxConfig.getVm().getBaseName() + "-";
+        virtualBoxService.listVMs(node).forEach((name, uuid) -> {
+            if (name.startsWith(prefix) && !known.vmIds.contains(uuid) && !known.ownsName(name)) {
+                found.add(new Orphan(node, "vm", uuid, name));
+            }
+        });
+        
+        Set<Path> diskDirs = new HashSet<>();
+        nodes.pools().forEach(pool -> diskDirs.add(Paths.get(pool.getPath())));
+        Set<String> registered = new HashSet<>();
+        for (VirtualBoxService.VBoxDisk disk : virtualBoxService.listDisks(node)) {
+            Path location = Paths.get(disk.location);
+            registered.add(location.toString());
+            String vmName = diskVmName(location, diskDirs, prefix);
+            // VM 에 연결된 디스크는 VM 과 함께 지워진다
+            if (vmName != null && !disk.inUse && !known.ownsName(vmName)) {
+                found.add(new Orphan(node, "disk", disk.uuid, location.toString()));
+            }
+        }
+        
+        // 이 서버에서 VBoxManage 를 실행하는 노드면 레지스트리에 없는 디스크 파일도 확인
+        if (!nodes.isLocal(node)) {
+            return found;
+        }
+        for (Path diskDir : diskDirs) {
+            if (!Files.isDirectory(diskDir)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.list(diskDir)) {
+                files.filter(file -> !registered.contains(file.toString()))
+                    .filter(file -> {
+                        String vmName = diskVmName(file, diskDirs, prefix);
+                        return vmName != null && !known.ownsName(vmName);
+                    })
+                    .forEach(file -> found.add(new Orphan(node, "file", file.toString(), file.toString())));
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * 저장소 풀 디렉토리 안의 <VM 이름>.vdi 면 VM 이름, 아니면 null.
+     */
+    private static String diskVmName(Path location, Set<Path> diskDirs, String prefix) {
+        String file = location.getFileName() != null ? location.getFileName().toString() : "";
+        if (!diskDirs.contains(location.getParent()) || !file.startsWith(prefix) || !file.endsWith(".vdi")) {
+            return null;
+        }
+        return file.substring(0, file.length() - ".vdi".length());
+    }
+    
+    private boolean reap(Orphan orphan) {
+        try {
+            switch (orphan.kind) {
+                case "vm" -> virtualBoxService.removeVM(orphan.node, orphan.id);
+                case "disk" -> virtualBoxService.removeDisk(orphan.node, orphan.id);
+                default -> Files.deleteIfExists(Paths.get(orphan.id));
+            }
+            log.warn("고아 {} 정리 - 노드: {}, {}", orphan.kind, orphan.node.getName(), orphan.name);
+            return true;
+        } catch (Exception e) {
+            log.error("고아 {} 정리 실패 - 노드: {}, {}, 오류: {}", orphan.kind, orphan.node.getName(), orphan.name, e.getMessage());
+            return false;
+        }
+    }
+    
+    private Inventory inventory() {
+        Inventory inventory = new Inventory();
+        for (Object[] row : hostRepository.findVmInventory()) {
+            if (row[1] != null) {
+                inventory.vmIds.add((String) row[1]);
+            }
+            if (row[2] != null) {
+                inventory.vmNames.add((String) row[2]);
+            }
+            if (row[3] == Host.HostStatus.CREATING) {
+                inventory.creating.add((Long) row[0]);
+            }
+        }
+        return inventory;
+    }
+    
+    private static class Inventory {
+        final Set<String> vmIds = new HashSet<>();
+        final Set<String> vmNames = new HashSet<>();
+        final Set<Long> creating = new HashSet<>();
+        
+        /**
+         * VM 이름이 호스트 것인지. 생성 중인 호스트는 VM 이름을 기록하기 전이므로 이름 끝의 호스트 ID 로 확인한다.
+         */
+        boolean ownsName(String vmName) {
+            if (vmNames.contains(vmName)) {
+                return true;
+            }
+            int dash = vmName.lastIndexOf('-');
+            try {
+                return dash >= 0 && creating.contains(Long.parseLong(vmName.substring(dash + 1)));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+    
+    private static final class Orphan {
+        final HypervisorNodeRegistry.Node node;
+        final String kind; // vm, disk (레지스트리에 등록된 디스크), file (등록되지 않은 디스크 파일)
+        final String id;   // VM/디스크 UUID 또는 파일 경로
+        final String name;
+        
+        Orphan(HypervisorNodeRegistry.Node node, String kind, String id, String name) {
+            this.node = node;
+            this.kind = kind;
+            this.id = id;
+            this.name = name;
+        }
+        
+        String key() {
+            return node.getName() + "/" + kind + "/" + id;
+        }
+    }
+}
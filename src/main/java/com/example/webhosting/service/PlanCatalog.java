@@ -0,0 +1,98 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.Host;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 호스트 크기 요금제 목록. 요금제를 설정하지 않으면 vm.memory/cpus/disk-size 로 된 "standard" 하나만 둔다.
+ */
+@Component
+public class PlanCatalog {
+    
+    static final String DEFAULT_PLAN = "standard";
+    
+    @Autowired
+    private VirtualBoxConfig config;
+    
+    private final Map<String, VirtualBoxConfig.Plan> plans = new LinkedHashMap<>();
+    private VirtualBoxConfig.Plan defaultPlan;
+    
+    @PostConstruct
+    void init() {
+        List<VirtualBoxConfig.Plan> configured = config.getPlans();
+        if (configured.isEmpty()) {
+            VirtualBoxConfig.Plan fallback = new VirtualBoxConfig.Plan();
+            fallback.setName(DEFAULT_PLAN);
+            fallback.setCpus(config.getVm().getCpus());
+            fallback.setMemory(config.getVm().getMemory());
+            fallback.setDiskSize(config.getVm().getDiskSize());
+            configured = List.of(fallback);
+        }
+        for (VirtualBoxConfig.Plan plan : configured) {
+            if (plan.getName() == null || plan.getName().isBlank()) {
+                throw new IllegalStateException("요금제 이름이 필요합니다");
+            }
+            if (plan.getCpus() < 1 || plan.getMemory() < 1 || plan.getDiskSize() < 1) {
+                throw new IllegalStateException("요금제 자원은 1 이상이어야 합니다: " + plan.getName());
+            }
+            if (plans.put(plan.getName(), plan) != null) {
+                throw new IllegalStateException("요금제 이름이 중복되었습니다: " + plan.getName());
+            }
+        }
+        String name = config.getDefaultPlan();
+        defaultPlan = name == null || name.isBlank() ? configured.get(0) : plans.get(name);
+        if (defaultPlan == null) {
+            throw new IllegalStateException("설정에 없는 기본 요금제입니다: " + name);
+        }
+    }
+    
+    /**
+     * 이름으로 찾는다. null 이면 기본 요금제, 없는 이름이면 IllegalArgumentException.
+     */
+    public VirtualBoxConfig.Plan plan(String name) {
+        if (name == null || name.isBlank()) {
+            return defaultPlan;
+        }
+        VirtualBoxConfig.Plan plan = plans.get(name);
+        if (plan == null) {
+            throw new IllegalArgumentException("없는 요금제입니다: " + name + " (" + String.join(", ", plans.keySet()) + ")");
+        }
+        return plan;
+    }
+    
+    public List<VirtualBoxConfig.Plan> plans() {
+        return List.copyOf(plans.values());
+    }
+    
+    public VirtualBoxConfig.Plan defaultPlan() {
+        return defaultPlan;
+    }
+    
+    /**
+     * 새 VM 의 vCPU 핫플러그 상한. 어느 요금제로 바꿔도 끄지 않고 vCPU 를 맞출 수 있게 가장 큰 요금제의 vCPU 수로 잡는다.
+     * 핫플러그를 끄거나 plan 이 이미 가장 크면 null.
+     */
+    public Integer hotplugCeiling(VirtualBoxConfig.Plan plan) {
+        int max = plans.values().stream().mapToInt(VirtualBoxConfig.Plan::getCpus).max().orElse(plan.getCpus());
+        return config.getVm().isCpuHotplug() && max > plan.getCpus() ? max : null;
+    }
+    
+    /**
+     * 호스트가 지금 차지한 자원 (요금제 도입 전 호스트는 vm.* 기본값).
+     */
+    public VirtualBoxConfig.Plan current(Host host) {
+        VirtualBoxConfig.Plan plan = new VirtualBoxConfig.Plan();
+        plan.setName(host.getPlan());
+        plan.setCpus(host.getCpus() != null ? host.getCpus() : config.getVm().getCpus());
+        plan.setMemory(host.getMemory() != null ? host.getMemory() : config.getVm().getMemory());
+        plan.setDiskSize(host.getDiskSize() != null ? host.getDiskSize() : config.getVm().getDiskSize());
+        return plan;
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.PortLease;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.PortLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 포트 포워딩용 포트 풀. 설정된 범위 안에서만 할당하고, 호스트 삭제 시 반환받는다.
+ * 여러 인스턴스가 같은 DB 를 쓰므로 할당은 port_leases 행 삽입으로 확정한다 ((pool, port) 유니크).
+ * 메모리 비트셋은 후보를 고르는 힌트일 뿐이고 주기적으로 DB 와 다시 맞춘다.
+ */
+@Component
+@Slf4j
+public class PortAllocator {
+    
+    @Autowired
+    private VirtualBoxConfig config;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private PortLeaseRepository leaseRepository;
+    
+    @Autowired
+    private ClusterMembership cluster;
+    
+    private PortPool webPorts;
+    private PortPool sshPorts;
+    
+    @PostConstruct
+    void init() {
+        webPorts = new PortPool(WEB, config.getNetwork().getStartPort(), config.getNetwork().getEndPort());
+        sshPorts = new PortPool(SSH, config.getSsh().getStartPort(), config.getSsh().getEndPort());
+        
+        // 임대 기록 없이 포트를 쓰고 있는 호스트 (임대 도입 전에 만든 호스트) 의 포트도 임대로 남긴다
+        backfill(webPorts, hostRepository.findAllWebPorts());
+        backfill(sshPorts, hostRepository.findAllSshPorts());
+        resync();
+        log.info("포트 풀 초기화 - Web: {}/{}, SSH: {}/{}",
+                 webPorts.inUse(), webPorts.capacity(), sshPorts.inUse(), sshPorts.capacity());
+    }
+    
+    public int allocateWebPort(Long hostId) {
+        return allocate(webPorts, hostId);
+    }
+    
+    public int allocateSshPort(Long hostId) {
+        return allocate(sshPorts, hostId);
+    }
+    
+    /**
+     * 일괄 생성할 호스트들의 웹/SSH 포트를 한 번에 잡는다. 풀마다 가능하면 이어진 구간으로 고르고 임대 행을 한 트랜잭션으로 넣는다.
+     * 다른 인스턴스와 겹쳤거나 포트가 모자라면 아무것도 잡지 않고 빈 맵을 돌려준다 (호스트마다 VM 생성 때 따로 할당).
+     */
+    public Map<Long, Ports> reserve(List<Long> hostIds) {
+        if (hostIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        int[] web;
+        int[] ssh;
+        try {
+            web = webPorts.allocate(hostIds.size());
+        } catch (IllegalStateException e) {
+            log.warn("포트 일괄 예약 실패 - {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+        try {
+            ssh = sshPorts.allocate(hostIds.size());
+        } catch (IllegalStateException e) {
+            webPorts.releaseAll(web);
+            log.warn("포트 일괄 예약 실패 - {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+        
+        Map<Long, Ports> reserved = new LinkedHashMap<>();
+        List<PortLease> leases = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < hostIds.size(); i++) {
+            Long hostId = hostIds.get(i);
+            reserved.put(hostId, new Ports(web[i], ssh[i]));
+            leases.add(new PortLease(null, WEB, web[i], hostId, cluster.getInstanceId(), now));
+            leases.add(new PortLease(null, SSH, ssh[i], hostId, cluster.getInstanceId(), now));
+        }
+        try {
+            leaseRepository.saveAllAndFlush(leases);
+            log.info("포트 일괄 예약 - 호스트 {}개, Web: {}-{}, SSH: {}-{}",
+                     hostIds.size(), web[0], web[web.length - 1], ssh[0], ssh[ssh.length - 1]);
+            return reserved;
+        } catch (DataIntegrityViolationException e) {
+            // 다른 인스턴스가 그 사이 일부를 임대함. 전부 되돌리고 DB 기준으로 다시 맞춘다
+            log.debug("포트 일괄 예약 충돌 - 호스트별 할당으로 진행");
+            resync();
+            return Collections.emptyMap();
+        }
+    }
+    
+    public void release(Integer webPort, Integer sshPort) {
+        if (webPort != null && webPort > 0) {
+            leaseRepository.deleteByPoolAndPort(WEB, webPort);
+            webPorts.release(webPort);
+        }
+        if (sshPort != null && sshPort > 0) {
+            leaseRepository.deleteByPoolAndPort(SSH, sshPort);
+            sshPorts.release(sshPort);
+        }
+    }
+    
+    /**
+     * 호스트가 잡은 포트를 모두 반환한다 (포트를 기록하기 전에 생성 작업이 중단된 호스트).
+     */
+    public void releaseHost(Long hostId) {
+        if (leaseRepository.deleteByHostId(hostId) > 0) {
+            resync();
+        }
+    }
+    
+    // 다른 인스턴스가 할당/반환한 포트를 반영
+    @Scheduled(fixedDelayString = "${cluster.resync-interval:60000}", initialDelayString = "${cluster.resync-interval:60000}")
+    public void resync() {
+        webPorts.replace(leaseRepository.findPorts(WEB));
+        sshPorts.replace(leaseRepository.findPorts(SSH));
+    }
+    
+    private int allocate(PortPool pool, Long hostId) {
+        boolean resynced = false;
+        while (true) {
+            int port;
+            try {
+                port = pool.allocate();
+            } catch (IllegalStateException e) {
+                // 메모리 상으로 가득 찼으면 다른 인스턴스가 반환한 포트가 있는지 DB 에서 한 번 다시 읽는다
+                if (resynced) {
+                    throw e;
+                }
+                pool.replace(leaseRepository.findPorts(pool.name));
+                resynced = true;
+                continue;
+            }
+            try {
+                leaseRepository.saveAndFlush(new PortLease(null, pool.name, port, hostId, cluster.getInstanceId(), LocalDateTime.now()));
+                return port;
+            } catch (DataIntegrityViolationException e) {
+                // 다른 인스턴스가 먼저 임대한 포트. 사용 중으로 둔 채 다음 후보로
+                log.debug("포트 {} ({}) 는 다른 인스턴스가 사용 중", port, pool.name);
+            }
+        }
+    }
+    
+    private void backfill(PortPool pool, List<Integer> ports) {
+        Set<Integer> leased = new HashSet<>(leaseRepository.findPorts(pool.name));
+        for (Integer port : ports) {
+            if (leased.add(port)) {
+                try {
+                    leaseRepository.saveAndFlush(new PortLease(null, pool.name, port, null, cluster.getInstanceId(), LocalDateTime.now()));
+                } catch (DataIntegrityViolationException e) {
+                    // 다른 인스턴스가 동시에 채움
+                }
+            }
+        }
+    }
+    
+    public double webUtilization() {
+        return webPorts.utilization();
+    }
+    
+    public double sshUtilization() {
+        return sshPorts.utilization();
+    }
+    
+    /**
+     * 호스트 하나에 미리 잡아 둔 웹/SSH 포트.
+     */
+    public static class Ports {
+        private final int webPort;
+        private final int sshPort;
+        
+        Ports(int webPort, int sshPort) {
+            this.webPort = webPort;
+            this.sshPort = sshPort;
+        }
+        
+        public int getWebPort() {
+            return webPort;
+        }
+        
+        public int getSshPort() {
+            return sshPort;
+        }
+    }
+    
+    private static final String WEB = "web";
+    private static final String SSH = "ssh";
+    
+    static class PortPool {
+        private final String name;
+        private final int startPort;
+        private final int size;
+        private final BitSet used;
+        private int cursor; // 최근 반환된 포트를 바로 재사용하지 않도록 순환 할당
+        private int inUse;
+        
+        PortPool(String name, int startPort, int endPort) {
+            if (endPort < startPort) {
+                throw new IllegalArgumentException("포트 범위가 잘못되었습니다: " + startPort + "-" + endPort);
+            }
+            this.name = name;
+            this.startPort = startPort;
+            this.size = endPort - startPort + 1;
+            this.used = new BitSet(size);
+        }
+        
+        synchronized int allocate() {
+            int index = used.nextClearBit(cursor);
+            if (index >= size) {
+                index = used.nextClearBit(0);
+            }
+            if (index >= size) {
+                throw new IllegalStateException("사용 가능한 포트가 없습니다 (" + startPort + "-" + (startPort + size - 1) + ")");
+            }
+            used.set(index);
+            inUse++;
+            cursor = index + 1 < size ? index + 1 : 0;
+            return startPort + index;
+        }
+        
+        /**
+         * count 개를 한 번에 잡는다. 순환 위치부터 이어진 빈 구간을 찾고, 없으면 흩어진 포트로 채운다.
+         * 모자라면 아무것도 잡지 않고 IllegalStateException.
+         */
+        synchronized int[] allocate(int count) {
+            if (size - inUse < count) {
+                throw new IllegalStateException("사용 가능한 포트가 부족합니다 (" + startPort + "-" + (startPort + size - 1)
+                                                + ", 필요 " + count + ", 남음 " + (size - inUse) + ")");
+            }
+            int start = findRun(cursor, count);
+            if (start < 0) {
+                start = findRun(0, count);
+            }
+            int[] ports = new int[count];
+            if (start >= 0) {
+                used.set(start, start + count);
+                inUse += count;
+                cursor = start + count < size ? start + count : 0;
+                for (int i = 0; i < count; i++) {
+                    ports[i] = startPort + start + i;
+                }
+                return ports;
+            }
+            for (int i = 0; i < count; i++) {
+                ports[i] = allocate();
+            }
+            return ports;
+        }
+        
+        private int findRun(int from, int count) {
+            int start = used.nextClearBit(from);
+            while (start + count <= size) {
+                int end = used.nextSetBit(start);
+                if (end < 0 || end - start >= count) {
+                    return start;
+                }
+                start = used.nextClearBit(end);
+            }
+            return -1;
+        }
+        
+        synchronized void releaseAll(int[] ports) {
+            for (int port : ports) {
+                release(port);
+            }
+        }
+        
+        synchronized void reserve(int port) {
+            int index = port - startPort;
+            if (index >= 0 && index < size && !used.get(index)) {
+                used.set(index);
+                inUse++;
+            }
+        }
+        
+        synchronized void release(int port) {
+            int index = port - startPort;
+            if (index >= 0 && index < size && used.get(index)) {
+                used.clear(index);
+                inUse--;
+            }
+        }
+        
+        /**
+         * 사용 중 표시를 DB 의 임대 목록으로 바꾼다. 순환 위치는 유지한다.
+         */
+        synchronized void replace(List<Integer> ports) {
+            used.clear();
+            inUse = 0;
+            for (Integer port : ports) {
+                int index = port - startPort;
+                if (index >= 0 && index < size && !used.get(index)) {
+                    used.set(index);
+                    inUse++;
+                }
+            }
+        }
+        
+        synchronized int inUse() {
+            return inUse;
+        }
+        
+        int capacity() {
+            return size;
+        }
+        
+        synchronized double utilization() {
+            return (double) inUse / size;
+        }
+    }
+}
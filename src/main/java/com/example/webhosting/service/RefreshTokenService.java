@@ -0,0 +1,116 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.RefreshToken;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+@Service
+@Transactional
+@Slf4j
+public class RefreshTokenService {
+    
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    
+    @Value("${jwt.refresh-expiration:1209600000}") // 14일
+    private long refreshExpiration;
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    public String issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+    
+    /**
+     * 리프레시 토큰을 1회용으로 회전시킨다. 이미 사용된 토큰이 다시 들어오면
+     * 탈취로 보고 같은 묶음의 토큰을 모두 폐기한다.
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken))
+            .orElseThrow(() -> new IllegalArgumentException("유효하지 않은 리프레시 토큰입니다"));
+        
+        if (token.isRevoked()) {
+            throw reused(token);
+        }
+        if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("만료된 리프레시 토큰입니다");
+        }
+        
+        // 읽은 뒤 다른 요청이 같은 토큰으로 먼저 회전했으면 조건부 갱신이 0 행이므로 재사용으로 본다
+        if (refreshTokenRepository.markUsed(token.getId()) == 0) {
+            throw reused(token);
+        }
+        User user = token.getUser();
+        return new Rotation(user.getUsername(), issue(user, token.getFamilyId()));
+    }
+    
+    private IllegalArgumentException reused(RefreshToken token) {
+        int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId());
+        log.warn("리프레시 토큰 재사용 감지 - 사용자: {}, 폐기된 토큰: {}", token.getUser().getUsername(), revoked);
+        return new IllegalArgumentException("이미 사용된 리프레시 토큰입니다");
+    }
+    
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+            .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+    
+    @Scheduled(cron = "${jwt.refresh-cleanup-cron:0 0 * * * *}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("만료된 리프레시 토큰 {}개 삭제", deleted);
+        }
+    }
+    
+    private String issue(User user, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(rawToken));
+        token.setFamilyId(familyId);
+        token.setUser(user);
+        token.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpiration)));
+        refreshTokenRepository.save(token);
+        
+        return rawToken;
+    }
+    
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public static class Rotation {
+        public final String username;
+        public final String refreshToken;
+        
+        public Rotation(String username, String refreshToken) {
+            this.username = username;
+            this.refreshToken = refreshToken;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.RateLimitConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * API 요청 속도 제한. 클라이언트 IP 와 인증된 사용자마다 토큰 버킷 하나씩 (초당 rate 개, 최대 burst 개까지 몰아서).
+ * 버킷은 GCRA 로 다음 요청의 이론상 도착 시각 하나만 두고 CAS 로 갱신하므로 요청 스레드끼리 잠그지 않는다.
+ * 다시 가득 찬 버킷은 주기적으로 지운다 (가득 찬 버킷은 새로 만든 것과 같으므로 지워도 잃는 것이 없다).
+ */
+@Component
+public class RequestRateLimiter {
+    
+    @Autowired
+    private RateLimitConfig config;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    private final ConcurrentHashMap<String, Bucket> ipBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Bucket> userBuckets = new ConcurrentHashMap<>();
+    
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+    
+    /**
+     * IP 의 요청 하나를 받는다. 허용하면 0, 아니면 다시 보낼 수 있을 때까지 남은 시간 (ns).
+     */
+    public long acquireIp(String address) {
+        return acquire(ipBuckets, address, config.getIpRate(), config.getIpBurst(), "ip");
+    }
+    
+    /**
+     * 사용자의 요청 하나를 받는다. 허용하면 0, 아니면 다시 보낼 수 있을 때까지 남은 시간 (ns).
+     */
+    public long acquireUser(String username) {
+        return acquire(userBuckets, username, config.getUserRate(), config.getUserBurst(), "user");
+    }
+    
+    private long acquire(ConcurrentHashMap<String, Bucket> buckets, String key, double rate, int burst, String scope) {
+        if (rate <= 0) {
+            return 0;
+        }
+        long interval = Math.max(1, (long) (1e9 / rate));
+        long wait = buckets.computeIfAbsent(key, k -> new Bucket()).tryAcquire(System.nanoTime(), interval, interval * Math.max(1, burst));
+        if (wait > 0) {
+            metrics.recordRateLimited(scope);
+        }
+        return wait;
+    }
+    
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval:60000}", initialDelayString = "${rate-limit.sweep-interval:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        ipBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        userBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+    
+    static final class Bucket {
+        // 이론상 다음 요청 도착 시각 (ns). 현재보다 과거면 버킷이 가득 차 있다
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+        
+        /**
+         * 요청 하나에 interval 만큼 시각을 밀고, 현재보다 window (burst 개 분량) 넘게 앞서면 거절한다.
+         */
+        long tryAcquire(long now, long interval, long window) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + interval;
+                long wait = next - now - window;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+        
+        boolean isFull(long now) {
+            return tat.get() - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.RevokedToken;
+import com.example.webhosting.repository.RevokedTokenRepository;
+import com.example.webhosting.util.BloomFilter;
+import com.example.webhosting.util.JwtUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access token 폐기 목록.
+ * 인증 필터의 조회는 DB 없이 메모리에서만 처리한다: 블룸 필터가 음성이면 바로 통과,
+ * 양성이면 정확한 집합으로 재확인한다. 필터는 access token 수명 단위로 세대 교체되어
+ * 만료된 토큰의 흔적이 계속 쌓이지 않는다. DB 기록은 재시작 시 복원하고,
+ * 같은 DB 를 쓰는 다른 인스턴스에서 폐기한 토큰을 주기적으로 읽어 오는 데 쓴다.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+    
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    
+    @Autowired
+    private JwtUtil jwtUtil;
+    
+    @Value("${jwt.revocation.expected-insertions:100000}")
+    private int expectedInsertions;
+    
+    @Value("${jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    // 인스턴스 간 시계 차이와 커밋 지연을 감안해 이전 동기화 시각보다 조금 앞부터 읽는다
+    @Value("${jwt.revocation.sync-overlap:10000}")
+    private long syncOverlap;
+    
+    // jti -> 만료 시각(epoch ms)
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long generationStartedAt;
+    private LocalDateTime lastSync;
+    
+    @PostConstruct
+    void load() {
+        current = newFilter();
+        previous = newFilter();
+        generationStartedAt = System.currentTimeMillis();
+        lastSync = LocalDateTime.now();
+        
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now())) {
+            remember(token.getJti(), toEpochMillis(token.getExpiresAt()));
+        }
+        log.info("폐기된 토큰 {}개 로드", revoked.size());
+    }
+    
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        if (!current.mightContain(jti) && !previous.mightContain(jti)) {
+            return false;
+        }
+        return revoked.containsKey(jti);
+    }
+    
+    @Transactional
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return; // 이미 만료된 토큰은 기록할 필요 없음
+        }
+        remember(jti, expiresAt.getTime());
+        revokedTokenRepository.save(new RevokedToken(
+            jti, LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()), LocalDateTime.now()));
+    }
+    
+    // 다른 인스턴스에서 로그아웃 등으로 폐기된 토큰 반영
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:5000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        long nowMillis = System.currentTimeMillis();
+        for (RevokedToken token : revokedTokenRepository.findByRevokedAtAfter(lastSync.minusNanos(syncOverlap * 1_000_000))) {
+            long expiresAt = toEpochMillis(token.getExpiresAt());
+            if (expiresAt > nowMillis && !revoked.containsKey(token.getJti())) {
+                remember(token.getJti(), expiresAt);
+            }
+        }
+        lastSync = now;
+    }
+    
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-interval:60000}")
+    @Transactional
+    public void expire() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        
+        // 세대 교체: 한 세대 동안 추가된 jti 는 늦어도 다음 세대가 끝나기 전에 만료된다
+        if (now - generationStartedAt >= jwtUtil.getExpiration()) {
+            previous = current;
+            current = newFilter();
+            generationStartedAt = now;
+        }
+        
+        revokedTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+    
+    private void remember(String jti, long expiresAt) {
+        revoked.put(jti, expiresAt);
+        current.put(jti);
+    }
+    
+    private BloomFilter newFilter() {
+        return new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+    
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
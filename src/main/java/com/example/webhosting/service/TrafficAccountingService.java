@@ -0,0 +1,254 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.dto.HostUsageDto;
+import com.example.webhosting.entity.HostTrafficUsage;
+import com.example.webhosting.repository.HostTrafficUsageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 호스트별 요청 수/트래픽 집계.
+ * 서빙 경로(리버스 프록시)는 LongAdder 에 더하기만 하고, 매 분 스케줄러가 값을 꺼내
+ * 호스트별 고정 크기 링(분 단위 버킷)에 넣는다. 링에 쌓인 버킷은 주기적으로 DB 에 일괄 저장한다.
+ */
+@Service
+@Slf4j
+public class TrafficAccountingService {
+    
+    @Value("${traffic.ring-minutes:120}")
+    private int ringMinutes;
+    
+    @Value("${traffic.retention-days:90}")
+    private int retentionDays;
+    
+    @Autowired
+    private HostTrafficUsageRepository usageRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private final ConcurrentHashMap<Long, HostTraffic> hosts = new ConcurrentHashMap<>();
+    
+    /**
+     * 호스트의 카운터. 서빙 경로에서는 요청마다 찾지 말고 한 번 얻은 참조를 재사용한다.
+     */
+    public HostTraffic meter(Long hostId) {
+        return hosts.computeIfAbsent(hostId, id -> new HostTraffic(ringMinutes));
+    }
+    
+    /**
+     * 삭제된 호스트. 남은 트래픽이 버킷으로 닫혀 저장된 뒤에 카운터를 정리한다.
+     */
+    public void forget(Long hostId) {
+        HostTraffic traffic = hosts.get(hostId);
+        if (traffic != null) {
+            traffic.retired = true;
+        }
+    }
+    
+    /**
+     * 호스트에 마지막으로 요청이 들어온 시각 (epoch ms, 분 단위로 올림). 기록이 없으면 0.
+     * 이 인스턴스의 진행 중인 분과 링, 그리고 저장된 집계 (다른 인스턴스가 받은 요청 포함) 를 함께 본다.
+     */
+    public long lastActivity(Long hostId) {
+        long last = 0;
+        HostTraffic traffic = hosts.get(hostId);
+        if (traffic != null) {
+            if (traffic.requests.sum() > 0) {
+                return System.currentTimeMillis();
+            }
+            last = traffic.lastActiveMinute() + 1;
+        }
+        LocalDateTime stored = usageRepository.findLastActiveMinute(hostId);
+        if (stored != null) {
+            last = Math.max(last, stored.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / 60000 + 1);
+        }
+        return last * 60000;
+    }
+    
+    // 매 분 0초에 직전 1분 동안의 값을 버킷으로 닫는다
+    @Scheduled(cron = "0 * * * * *")
+    public void rollMinute() {
+        long minute = currentMinute() - 1;
+        hosts.values().forEach(traffic -> traffic.roll(minute));
+    }
+    
+    @Scheduled(fixedDelayString = "${traffic.flush-interval:300000}")
+    public synchronized void flush() {
+        List<HostTrafficUsage> rows = new ArrayList<>();
+        Map<HostTraffic, Integer> taken = new IdentityHashMap<>();
+        hosts.forEach((hostId, traffic) -> {
+            int count = traffic.collectUnflushed(hostId, rows);
+            if (count > 0) {
+                taken.put(traffic, count);
+            }
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!rows.isEmpty()) {
+                usageRepository.saveAll(rows);
+            }
+            usageRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        });
+        // 커밋된 뒤에만 링에서 비운다 (저장이 실패하면 버킷이 남아 다음 주기에 다시 저장된다).
+        // 락을 쥔 채 비우므로 getUsage 가 같은 버킷을 DB 와 링에서 두 번 세는 순간도 없다
+        if (!rows.isEmpty()) {
+            taken.forEach(HostTraffic::markFlushed);
+            log.debug("트래픽 집계 저장 - {}행", rows.size());
+        }
+        hosts.values().removeIf(HostTraffic::isDrained);
+    }
+    
+    /**
+     * 최근 minutes 분 동안의 사용량. 저장된 행, 아직 저장되지 않은 버킷, 진행 중인 분을 합친다.
+     */
+    public synchronized HostUsageDto getUsage(Long hostId, int minutes, Long bandwidthLimit) {
+        long fromMinute = currentMinute() - minutes + 1;
+        LocalDateTime from = toDateTime(fromMinute);
+        TreeMap<LocalDateTime, long[]> buckets = new TreeMap<>();
+        for (HostTrafficUsage row : usageRepository.findByHostIdAndMinuteGreaterThanEqualOrderByMinuteAsc(hostId, from)) {
+            add(buckets, row.getMinute(), row.getRequests(), row.getBytesIn(), row.getBytesOut());
+        }
+        HostTraffic traffic = hosts.get(hostId);
+        if (traffic != null) {
+            traffic.forEachUnflushed(fromMinute, (minute, requests, bytesIn, bytesOut) ->
+                add(buckets, toDateTime(minute), requests, bytesIn, bytesOut));
+            long requests = traffic.requests.sum();
+            if (requests > 0 || traffic.bytesOut.sum() > 0) {
+                add(buckets, toDateTime(currentMinute()), requests, traffic.bytesIn.sum(), traffic.bytesOut.sum());
+            }
+        }
+        
+        List<HostUsageDto.Bucket> list = new ArrayList<>(buckets.size());
+        long totalRequests = 0;
+        long totalIn = 0;
+        long totalOut = 0;
+        for (Map.Entry<LocalDateTime, long[]> entry : buckets.entrySet()) {
+            long[] v = entry.getValue();
+            list.add(new HostUsageDto.Bucket(entry.getKey(), v[0], v[1], v[2]));
+            totalRequests += v[0];
+            totalIn += v[1];
+            totalOut += v[2];
+        }
+        return new HostUsageDto(hostId, from, totalRequests, totalIn, totalOut, bandwidthLimit, list);
+    }
+    
+    private static void add(TreeMap<LocalDateTime, long[]> buckets, LocalDateTime minute, long requests, long bytesIn, long bytesOut) {
+        long[] v = buckets.computeIfAbsent(minute, m -> new long[3]);
+        v[0] += requests;
+        v[1] += bytesIn;
+        v[2] += bytesOut;
+    }
+    
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60000;
+    }
+    
+    private static LocalDateTime toDateTime(long epochMinute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMinute * 60000), ZoneId.systemDefault())
+            .truncatedTo(ChronoUnit.MINUTES);
+    }
+    
+    /**
+     * 호스트 하나의 카운터와 분 단위 버킷 링.
+     * 카운터는 서빙 스레드가 락 없이 더하고, 링은 스케줄러/조회만 만지므로 객체 락으로 보호한다.
+     */
+    public static class HostTraffic {
+        public final LongAdder requests = new LongAdder();
+        public final LongAdder bytesIn = new LongAdder();
+        public final LongAdder bytesOut = new LongAdder();
+        
+        private final long[] minutes;
+        private final long[] requestCounts;
+        private final long[] inBytes;
+        private final long[] outBytes;
+        private int next;      // 다음에 쓸 위치
+        private int unflushed; // 가장 최근 버킷부터 아직 저장하지 않은 수
+        private volatile boolean retired;
+        
+        HostTraffic(int capacity) {
+            minutes = new long[capacity];
+            requestCounts = new long[capacity];
+            inBytes = new long[capacity];
+            outBytes = new long[capacity];
+        }
+        
+        synchronized void roll(long minute) {
+            long r = requests.sumThenReset();
+            long in = bytesIn.sumThenReset();
+            long out = bytesOut.sumThenReset();
+            if (r == 0 && in == 0 && out == 0) {
+                return; // 트래픽 없는 분은 버킷을 만들지 않는다
+            }
+            if (unflushed == minutes.length) {
+                log.warn("트래픽 버킷 링이 가득 차 저장되지 않은 가장 오래된 버킷을 버립니다");
+                unflushed--;
+            }
+            minutes[next] = minute;
+            requestCounts[next] = r;
+            inBytes[next] = in;
+            outBytes[next] = out;
+            next = (next + 1) % minutes.length;
+            unflushed++;
+        }
+        
+        synchronized int collectUnflushed(Long hostId, List<HostTrafficUsage> rows) {
+            for (int i = unflushed; i > 0; i--) {
+                int index = Math.floorMod(next - i, minutes.length);
+                rows.add(new HostTrafficUsage(null, hostId, toDateTime(minutes[index]),
+                                              requestCounts[index], inBytes[index], outBytes[index]));
+            }
+            return unflushed;
+        }
+        
+        synchronized void markFlushed(int count) {
+            unflushed -= Math.min(count, unflushed);
+        }
+        
+        /**
+         * 링에 남은 버킷 중 요청이 있었던 마지막 분. 없으면 -1.
+         */
+        synchronized long lastActiveMinute() {
+            long last = -1;
+            for (int i = 0; i < minutes.length; i++) {
+                if (requestCounts[i] > 0) {
+                    last = Math.max(last, minutes[i]);
+                }
+            }
+            return last;
+        }
+        
+        synchronized boolean isDrained() {
+            return retired && unflushed == 0 && requests.sum() == 0 && bytesIn.sum() == 0 && bytesOut.sum() == 0;
+        }
+        
+        synchronized void forEachUnflushed(long fromMinute, BucketConsumer consumer) {
+            for (int i = unflushed; i > 0; i--) {
+                int index = Math.floorMod(next - i, minutes.length);
+                if (minutes[index] >= fromMinute) {
+                    consumer.accept(minutes[index], requestCounts[index], inBytes[index], outBytes[index]);
+                }
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    interface BucketConsumer {
+        void accept(long minute, long requests, long bytesIn, long bytesOut);
+    }
+}
@@ -1,23 +1,47 @@
 package com.example.webhosting.service;
 
+import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.HostTimelineSpan.SpanType;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.Session;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 @Service
 @Slf4j
 public class VMProvisioningService {
     
-    public void setupWebServer(String vmIP, String hostName, int sshPort) {
+    private static final int OUTPUT_TAIL_SIZE = 4096;
+    
+    @Autowired
+    private VirtualBoxConfig config;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    @Autowired
+    private HostTimelineRecorder timeline;
+    
+    @Autowired
+    private HostLogService hostLogs;
+    
+    public void setupWebServer(String vmIP, String hostName, String sshHost, int sshPort) {
         try {
             log.info("웹서버 설정 시작 - VM IP: {}, 호스트명: {}, SSH 포트: {}", vmIP, hostName, sshPort);
             
             // VM 부팅 완료 대기 (중요!)
-            Thread.sleep(60000); // 60초 대기
+            Timer.Sample bootWait = metrics.startTimer();
+            HostTimelineRecorder.Span bootWaitSpan = timeline.start(SpanType.WAIT, "ssh-ready-wait");
+            Thread.sleep(config.getProvisioning().getSshReadyWait()); // 기본 60초 대기
+            bootWaitSpan.end(true);
+            metrics.recordProvisioningStep(bootWait, "boot-wait", true);
             
             // 다양한 계정 정보 시도 (Ubuntu Live Server 환경 고려)
             String[][] credentials = {
@@ -35,23 +59,27 @@ public class VMProvisioningService {
             String successUser = null;
             
             // SSH 연결 시도
+            Timer.Sample connect = metrics.startTimer();
             for (String[] cred : credentials) {
+                HostTimelineRecorder.Span attempt = timeline.start(SpanType.SSH_CONNECT, cred[0] + "@" + sshHost + ":" + sshPort);
                 try {
-                    log.info("SSH 연결 시도: {}@localhost:{}", cred[0], sshPort);
+                    log.info("SSH 연결 시도: {}@{}:{}", cred[0], sshHost, sshPort);
                     JSch jsch = new JSch();
-                    session = jsch.getSession(cred[0], "localhost", sshPort);
+                    session = jsch.getSession(cred[0], sshHost, sshPort);
                     session.setPassword(cred[1]);
                     session.setConfig("StrictHostKeyChecking", "no");
                     session.setConfig("PreferredAuthentications", "password");
                     session.connect(30000); // 30초 타임아웃
                     
                     successUser = cred[0];
+                    attempt.end(true);
                     log.info("SSH 연결 성공: {}@{}:{} (비밀번호: '{}')", cred[0], vmIP, sshPort, 
                              cred[1].isEmpty() ? "빈 비밀번호" : cred[1]);
                     break;
                 } catch (Exception e) {
                     log.warn("SSH 연결 실패 - {}:{} ({})", cred[0], 
                              cred[1].isEmpty() ? "빈 비밀번호" : cred[1], e.getMessage());
+                    attempt.end(null, e.getMessage(), false);
                     if (session != null && session.isConnected()) {
                         session.disconnect();
                     }
@@ -60,8 +88,10 @@ public class VMProvisioningService {
             }
             
             if (session == null || !session.isConnected()) {
+                metrics.recordProvisioningStep(connect, "ssh-connect", false);
                 throw new RuntimeException("모든 SSH 연결 시도 실패");
             }
+            metrics.recordProvisioningStep(connect, "ssh-connect", true);
             
             // webuser 계정 생성 (ubuntu 계정으로 로그인한 경우)
             if ("ubuntu".equals(successUser)) {
@@ -75,10 +105,7 @@ public class VMProvisioningService {
                     "sudo chmod 700 /home/webuser/.ssh"
                 };
                 
-                for (String command : userSetupCommands) {
-                    executeSSHCommand(session, command);
-                    Thread.sleep(1000);
-                }
+                runStep(session, "user-setup", userSetupCommands, 1000);
             }
             
             // 시스템 업데이트 및 nginx 설치
@@ -91,10 +118,7 @@ public class VMProvisioningService {
                 "sudo systemctl status nginx --no-pager"
             };
             
-            for (String command : installCommands) {
-                executeSSHCommand(session, command);
-                Thread.sleep(2000); // 패키지 설치는 시간이 걸릴 수 있음
-            }
+            runStep(session, "install", installCommands, 2000); // 패키지 설치는 시간이 걸릴 수 있음
             
             // 웹사이트 디렉토리 및 콘텐츠 설정
             log.info("웹사이트 설정 중...");
@@ -104,10 +128,7 @@ public class VMProvisioningService {
                 "sudo chmod -R 755 /var/www/html/" + hostName
             };
             
-            for (String command : webSetupCommands) {
-                executeSSHCommand(session, command);
-                Thread.sleep(500);
-            }
+            runStep(session, "site-setup", webSetupCommands, 500);
             
             // HTML 콘텐츠 생성
             String htmlContent = String.format(
@@ -135,7 +156,7 @@ public class VMProvisioningService {
                 htmlContent.replace("'", "'\"'\"'"), // 작은따옴표 이스케이프
                 hostName
             );
-            executeSSHCommand(session, createHtmlCommand);
+            runStep(session, "site-content", new String[] { createHtmlCommand }, 0);
             
             // nginx 기본 사이트 설정 (선택적)
             String nginxConfig = String.format(
@@ -150,10 +171,7 @@ public class VMProvisioningService {
                 "sudo systemctl reload nginx"
             };
             
-            for (String command : nginxCommands) {
-                executeSSHCommand(session, command);
-                Thread.sleep(1000);
-            }
+            runStep(session, "nginx-config", nginxCommands, 1000);
             
             // 방화벽 설정
             log.info("방화벽 설정 중...");
@@ -166,10 +184,7 @@ public class VMProvisioningService {
                 "sudo ufw status"
             };
             
-            for (String command : firewallCommands) {
-                executeSSHCommand(session, command);
-                Thread.sleep(500);
-            }
+            runStep(session, "firewall", firewallCommands, 500);
             
             // 최종 상태 확인
             log.info("서비스 상태 확인 중...");
@@ -181,10 +196,7 @@ public class VMProvisioningService {
                 "ps aux | grep nginx | head -3"
             };
             
-            for (String command : statusCommands) {
-                executeSSHCommand(session, command);
-                Thread.sleep(500);
-            }
+            runStep(session, "verify", statusCommands, 500);
             
             session.disconnect();
             log.info("웹서버 설정 완료 - {} (접속: http://localhost:8000)", hostName);
@@ -195,16 +207,38 @@ public class VMProvisioningService {
         }
     }
     
+    // 프로비저닝 단계 하나를 실행하고 소요 시간을 기록
+    private void runStep(Session session, String step, String[] commands, long delayMillis) throws Exception {
+        Timer.Sample sample = metrics.startTimer();
+        boolean success = false;
+        try {
+            for (String command : commands) {
+                executeSSHCommand(session, command);
+                long delay = (long) (delayMillis * config.getProvisioning().getCommandDelayFactor());
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+            }
+            success = true;
+        } finally {
+            metrics.recordProvisioningStep(sample, step, success);
+        }
+    }
+    
     private void executeSSHCommand(Session session, String command) throws Exception {
         log.info("SSH 명령 실행: {}", command);
+        HostTimelineRecorder.Span span = timeline.start(SpanType.SSH_COMMAND, command);
         
         ChannelExec channel = (ChannelExec) session.openChannel("exec");
         channel.setCommand(command);
         
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ByteArrayOutputStream err = new ByteArrayOutputStream();
-        channel.setOutputStream(out);
-        channel.setErrStream(err);
+        // 출력은 호스트 로그 버퍼로 바로 흘려보내고, 판단/기록용으로는 마지막 부분만 보관
+        OutputStream hostLog = hostLogs.stream(timeline.currentHostId());
+        writeCommandHeader(hostLog, command);
+        TailOutputStream out = new TailOutputStream(OUTPUT_TAIL_SIZE, hostLog);
+        TailOutputStream err = new TailOutputStream(OUTPUT_TAIL_SIZE, hostLog);
+        channel.setOutputStream(out, true); // 공유 로그 스트림이므로 채널 종료 시 닫지 않음
+        channel.setErrStream(err, true);
         
         channel.connect();
         
@@ -220,6 +254,7 @@ public class VMProvisioningService {
         
         if (!channel.isClosed()) {
             log.warn("명령 실행 시간 초과: {}", command);
+            span.end(null, "시간 초과: " + out.toString().trim(), false);
             channel.disconnect();
             return;
         }
@@ -227,6 +262,7 @@ public class VMProvisioningService {
         String output = out.toString().trim();
         String error = err.toString().trim();
         int exitStatus = channel.getExitStatus();
+        span.end(exitStatus, error.isEmpty() ? output : output + "\n" + error, exitStatus == 0);
         
         if (!output.isEmpty()) {
             log.info("명령 출력: {}", output);
@@ -249,6 +285,48 @@ public class VMProvisioningService {
         }
     }
     
+    private static void writeCommandHeader(OutputStream hostLog, String command) throws Exception {
+        String header = command.length() > 200 ? command.substring(0, 200) + "..." : command;
+        hostLog.write(("$ " + header + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // 마지막 N 바이트만 보관하면서 다른 스트림으로 그대로 전달
+    private static class TailOutputStream extends OutputStream {
+        private final byte[] tail;
+        private final OutputStream target;
+        private long count;
+        
+        TailOutputStream(int size, OutputStream target) {
+            this.tail = new byte[size];
+            this.target = target;
+        }
+        
+        @Override
+        public synchronized void write(int b) throws IOException {
+            tail[(int) (count++ % tail.length)] = (byte) b;
+            target.write(b);
+        }
+        
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            for (int i = Math.max(0, len - tail.length); i < len; i++) {
+                tail[(int) ((count + i) % tail.length)] = b[off + i];
+            }
+            count += len;
+            target.write(b, off, len);
+        }
+        
+        @Override
+        public synchronized String toString() {
+            int size = (int) Math.min(count, tail.length);
+            byte[] bytes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                bytes[i] = tail[(int) ((count - size + i) % tail.length)];
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+    
     // 추가: SSH 연결 테스트 메소드
     public boolean testSSHConnection(String vmIP, int sshPort) {
         String[][] credentials = {
@@ -1,243 +1,416 @@
 package com.example.webhosting.service;
 
+import com.example.webhosting.config.ProxyConfig;
 import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.HostTimelineSpan.SpanType;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class VirtualBoxService {
     
+    // 꺼진 것으로 보는 VMState
+    private static final Set<String> OFF_STATES = Set.of("poweroff", "aborted");
+    
+    // 시간 초과 뒤 다시 실행해도 결과가 같은 서브커맨드 (조회와 지표 설정, debugvm 은 statistics 조회만 쓴다)
+    private static final Set<String> IDEMPOTENT_COMMANDS = Set.of("showvminfo", "list", "guestproperty", "metrics", "showmediuminfo", "debugvm");
+    
+    // 원격 노드 접속 명령(ssh)이 접속하지 못했을 때의 종료 코드
+    private static final int SSH_CONNECTION_FAILED = 255;
+    
+    // VBoxSVC 에 닿지 못했거나 노드 접속이 끊긴 오류
+    private static final Pattern UNAVAILABLE_ERRORS = Pattern.compile(
+        "Failed to create the VirtualBox object|VBoxSVC|RPC_S_SERVER_UNAVAILABLE|RPC_E_DISCONNECTED|NS_ERROR_CALL_FAILED"
+        + "|NS_ERROR_ABORT|Connection (refused|timed out|reset)");
+    
+    // debugvm statistics 의 가상 NIC 바이트 카운터 (<Counter c="1234" unit="bytes" name="/Public/NetAdapter/0/BytesReceived"/>)
+    private static final Pattern NIC_COUNTER = Pattern.compile("<Counter\\s[^>]*name=\"/Public/NetAdapter/\\d+/Bytes(?:Received|Transmitted)\"[^>]*>");
+    private static final Pattern COUNTER_VALUE = Pattern.compile("\\sc=\"(\\d+)\"");
+    
+    // 다른 세션이 VM 을 쓰고 있어 거절된 오류
+    private static final Pattern BUSY_ERRORS = Pattern.compile("is already locked|already locked for a session|VBOX_E_INVALID_SESSION_STATE");
+    
     @Autowired
     private VirtualBoxConfig config;
     
     @Autowired
-    private VMProvisioningService provisioningService;
+    private ProxyConfig proxyConfig;
+    
+    @Autowired
+    private PortAllocator portAllocator;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodes;
+    
+    @Autowired
+    private HostingMetrics metrics;
+    
+    @Autowired
+    private HostTimelineRecorder timeline;
+    
+    @Autowired
+    private HypervisorCircuitBreaker breaker;
     
-    // 포트 할당을 위한 카운터
-    private final AtomicInteger portCounter = new AtomicInteger(8000);
-    private final AtomicInteger sshPortCounter = new AtomicInteger(2200);
+    /**
+     * 호스트에 배치된 노드에서 VM 을 만든다. 메모리/CPU/디스크는 배치 때 예약한 값을 사용한다.
+     */
+    public CompletableFuture<VmCreationResult> createVM(Host host) {
+        return createVM(host, null);
+    }
     
-    public CompletableFuture<VmCreationResult> createVM(String hostName) {
+    /**
+     * 포트를 미리 잡아 둔 호스트 (일괄 생성) 의 VM 을 만든다. ports 가 null 이면 VM 을 만든 뒤 할당한다.
+     * 실패하면 잡아 둔 포트도 반환한다.
+     */
+    public CompletableFuture<VmCreationResult> createVM(Host host, PortAllocator.Ports ports) {
+        Long hostId = host.getId();
+        String hostName = host.getHostName();
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                log.info("VirtualBox VM 생성 시작: {}", hostName);
+            int webPort = ports != null ? ports.getWebPort() : 0;
+            int sshPort = ports != null ? ports.getSshPort() : 0;
+            try (HostTimelineRecorder.Scope scope = timeline.bind(hostId)) {
+                HypervisorNodeRegistry.Node node = requireNode(host.getNodeName());
+                log.info("VirtualBox VM 생성 시작: {} (노드: {})", hostName, node.getName());
                 
-                String vmName = config.getVm().getBaseName() + "-" + hostName + "-" + System.currentTimeMillis();
+                // 호스트 ID 를 붙여 인스턴스/노드가 달라도 이름이 겹치지 않게 한다
+                String vmName = config.getVm().getBaseName() + "-" + hostName + "-" + hostId;
                 
                 // 1. VM 생성
-                String vmId = createVirtualMachine(vmName);
+                String vmId = createVirtualMachine(node, vmName, host);
                 if (vmId == null) {
                     throw new RuntimeException("VM 생성 실패");
                 }
                 
                 // 2. 포트 할당
-                int webPort = allocateWebPort();
-                int sshPort = allocateSSHPort();
+                if (ports == null) {
+                    webPort = allocateWebPort(hostId);
+                    sshPort = allocateSSHPort(hostId);
+                }
                 
                 // 3. 네트워크 설정
-                setupNetworking(vmName, webPort, sshPort);
+                setupNetworking(node, vmName, webPort, sshPort);
                 
                 // 4. VM 시작
-                startVM(vmName);
+                startVM(node, vmName);
                 
                 // 5. VM IP 대기 및 획득
-                String vmIP = waitForVMIP(vmName);
-                
-                // 6. 웹서버 설정 (비동기)
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        Thread.sleep(60000); // VM 부팅 대기 (1분)
-                        provisioningService.setupWebServer(vmIP, hostName, sshPort);
-                    } catch (Exception e) {
-                        log.error("웹서버 설정 실패", e);
-                    }
-                });
+                String vmIP = waitForVMIP(node, vmName);
                 
+                // 웹서버 설정은 HostService 에서 수행
                 log.info("VM 생성 완료 - ID: {}, IP: {}, Web: {}, SSH: {}", vmId, vmIP, webPort, sshPort);
                 
                 return new VmCreationResult(vmId, vmName, vmIP, webPort, sshPort, true, null);
-                
+            
             } catch (Exception e) {
                 log.error("VirtualBox VM 생성 실패", e);
+                portAllocator.release(webPort, sshPort);
                 return new VmCreationResult(null, null, null, 0, 0, false, e.getMessage());
             }
         });
     }
     
-    private String createVirtualMachine(String vmName) {
+    private String createVirtualMachine(HypervisorNodeRegistry.Node node, String vmName, Host host) {
         try {
             log.info("VM 생성 중: {}", vmName);
             
             // VirtualBox VM 생성 명령어
-            ProcessBuilder pb = new ProcessBuilder(
-                "VBoxManage", "createvm",
-                "--name", vmName,
-                "--ostype", "Ubuntu_64",
-                "--register"
-            );
-            
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            
-            if (exitCode != 0) {
-                throw new RuntimeException("VM 생성 실패: exit code " + exitCode);
-            }
+            executeVBoxCommand(node, "createvm", "--name", vmName, "--ostype", "Ubuntu_64", "--register");
             
             // VM 설정
-            configureVM(vmName);
+            configureVM(node, vmName, host);
             
             // VM UUID 반환
-            return getVMUUID(vmName);
-            
+            return getVMUUID(node, vmName);
+        
         } catch (Exception e) {
             log.error("VM 생성 오류", e);
             return null;
         }
     }
     
-    private void configureVM(String vmName) throws Exception {
+    private void configureVM(HypervisorNodeRegistry.Node node, String vmName, Host host) throws Exception {
         log.info("VM 설정 중: {}", vmName);
         
-        // 메모리 설정
-        executeVBoxCommand("modifyvm", vmName, "--memory", String.valueOf(config.getVm().getMemory()));
+        // 메모리/CPU 설정
+        if (host.getMaxCpus() == null) {
+            executeVBoxCommand(node, "modifyvm", vmName, "--memory", String.valueOf(host.getMemory()), "--cpus", String.valueOf(host.getCpus()));
+        } else {
+            // 상한까지 핫플러그 슬롯을 만들고 요금제 vCPU 수만 꽂아 둔다 (0번 vCPU 는 뺄 수 없다)
+            executeVBoxCommand(node, "modifyvm", vmName, "--memory", String.valueOf(host.getMemory()), "--ioapic", "on",
+                               "--cpuhotplug", "on", "--cpus", String.valueOf(host.getMaxCpus()));
+            for (int cpu = Math.max(1, host.getCpus()); cpu < host.getMaxCpus(); cpu++) {
+                executeVBoxCommand(node, "modifyvm", vmName, "--unplugcpu", String.valueOf(cpu));
+            }
+        }
         
-        // 하드디스크 생성
-        String diskPath = "/tmp/" + vmName + ".vdi";
-        executeVBoxCommand("createhd", "--filename", diskPath, "--size", String.valueOf(config.getVm().getDiskSize()));
+        // 하드디스크 생성 (배치 때 고른 저장소 풀)
+        String diskPath = diskPath(host.getStoragePool(), vmName);
+        VirtualBoxConfig.StoragePool pool = nodes.pool(host.getStoragePool());
+        String variant = pool.getVariant() == VirtualBoxConfig.StoragePool.Variant.FIXED ? "Fixed" : "Standard";
+        executeVBoxCommand(node, "createhd", "--filename", diskPath, "--size", String.valueOf(host.getDiskSize()),
+                           "--variant", variant);
         
         // 스토리지 컨트롤러 추가
-        executeVBoxCommand("storagectl", vmName, "--name", "SATA", "--add", "sata", "--controller", "IntelAhci");
+        executeVBoxCommand(node, "storagectl", vmName, "--name", "SATA", "--add", "sata", "--controller", "IntelAhci");
         
         // 하드디스크 연결
-        executeVBoxCommand("storageattach", vmName, "--storagectl", "SATA", "--port", "0", "--device", "0", "--type", "hdd", "--medium", diskPath);
+        executeVBoxCommand(node, "storageattach", vmName, "--storagectl", "SATA", "--port", "0", "--device", "0", "--type", "hdd", "--medium", diskPath);
         
         // Ubuntu ISO 연결 (DVD)
-        executeVBoxCommand("storagectl", vmName, "--name", "IDE", "--add", "ide");
-        executeVBoxCommand("storageattach", vmName, "--storagectl", "IDE", "--port", "0", "--device", "0", "--type", "dvddrive", "--medium", config.getVm().getBaseImage());
+        executeVBoxCommand(node, "storagectl", vmName, "--name", "IDE", "--add", "ide");
+        executeVBoxCommand(node, "storageattach", vmName, "--storagectl", "IDE", "--port", "0", "--device", "0", "--type", "dvddrive", "--medium", config.getVm().getBaseImage());
         
         // 부트 순서 설정
-        executeVBoxCommand("modifyvm", vmName, "--boot1", "dvd", "--boot2", "disk");
+        executeVBoxCommand(node, "modifyvm", vmName, "--boot1", "dvd", "--boot2", "disk");
         
         // 네트워크 설정 (NAT)
-        executeVBoxCommand("modifyvm", vmName, "--nic1", "nat");
+        executeVBoxCommand(node, "modifyvm", vmName, "--nic1", "nat");
         
         log.info("VM 설정 완료: {}", vmName);
     }
     
-    private void setupNetworking(String vmName, int webPort, int sshPort) throws Exception {
+    private void setupNetworking(HypervisorNodeRegistry.Node node, String vmName, int webPort, int sshPort) throws Exception {
         log.info("네트워크 설정 중: {} - Web:{}, SSH:{}", vmName, webPort, sshPort);
         
-        // 포트 포워딩 설정
-        executeVBoxCommand("modifyvm", vmName, 
-            "--natpf1", "web,tcp,," + webPort + ",,80",
+        // 포트 포워딩 설정 (리버스 프록시 사용 시 웹 포트는 노드의 프록시용 주소에만 바인딩)
+        String webBindAddress = proxyConfig.isEnabled() ? node.getAddress() : "";
+        executeVBoxCommand(node, "modifyvm", vmName, 
+            "--natpf1", "web,tcp," + webBindAddress + "," + webPort + ",,80",
             "--natpf1", "ssh,tcp,," + sshPort + ",,22"
         );
         
         log.info("포트 포워딩 설정 완료: {}", vmName);
     }
     
-    private void startVM(String vmName) throws Exception {
+    private void startVM(HypervisorNodeRegistry.Node node, String vmName) throws Exception {
         log.info("VM 시작 중: {}", vmName);
         
-        executeVBoxCommand("startvm", vmName, "--type", "headless");
+        executeVBoxCommand(node, "startvm", vmName, "--type", "headless");
         
         log.info("VM 시작 완료: {}", vmName);
     }
     
-    private String waitForVMIP(String vmName) {
+    private String waitForVMIP(HypervisorNodeRegistry.Node node, String vmName) {
         log.info("VM IP 대기 중: {}", vmName);
+        HostTimelineRecorder.Span wait = timeline.start(SpanType.WAIT, "guest-ip");
         
-        for (int i = 0; i < 30; i++) { // 5분 대기
+        VirtualBoxConfig.Provisioning provisioning = config.getProvisioning();
+        for (int i = 0; i < provisioning.getIpPollAttempts(); i++) { // 기본 5분 대기
             try {
-                Thread.sleep(10000); // 10초 대기
-                
-                ProcessBuilder pb = new ProcessBuilder("VBoxManage", "guestproperty", "get", vmName, "/VirtualBox/GuestInfo/Net/0/V4/IP");
-                Process process = pb.start();
+                Thread.sleep(provisioning.getIpPollInterval()); // 기본 10초 대기
                 
-                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                String output = reader.readLine();
+                VBoxResult result = runVBoxManage(node, "guestproperty", "get", vmName, "/VirtualBox/GuestInfo/Net/0/V4/IP");
+                String output = result.stdout.lines().findFirst().orElse(null);
                 
                 if (output != null && !output.contains("No value set")) {
                     String ip = output.split("Value: ")[1].trim();
                     log.info("VM IP 획득: {} -> {}", vmName, ip);
+                    wait.end(null, ip, true);
                     return ip;
                 }
-                
+            
             } catch (Exception e) {
                 log.warn("IP 확인 중 오류: {}", e.getMessage());
             }
         }
         
         log.warn("VM IP 획득 실패: {}", vmName);
+        wait.end(null, "기본 NAT IP 사용", false);
         return "10.0.2.15"; // 기본 NAT IP
     }
     
-    private String getVMUUID(String vmName) throws Exception {
-        ProcessBuilder pb = new ProcessBuilder("VBoxManage", "showvminfo", vmName, "--machinereadable");
-        Process process = pb.start();
-        
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String line;
+    private String getVMUUID(HypervisorNodeRegistry.Node node, String vmName) throws Exception {
+        VBoxResult result = runVBoxManage(node, "showvminfo", vmName, "--machinereadable");
         
-        while ((line = reader.readLine()) != null) {
-            if (line.startsWith("UUID=")) {
-                return line.split("=")[1].replace("\"", "");
+        String uuid = machineReadableValue(result.stdout, "UUID");
+        if (uuid == null) {
+            throw new RuntimeException("VM UUID를 찾을 수 없습니다");
+        }
+        return uuid;
+    }
+    
+    /**
+     * --machinereadable 출력에서 key="value" 줄의 값을 찾는다. 전체 출력을 줄 단위로 나누지 않고 검색한다.
+     */
+    static String machineReadableValue(String output, String key) {
+        int from = 0;
+        while (true) {
+            int index = output.indexOf(key, from);
+            if (index < 0) {
+                return null;
+            }
+            int valueStart = index + key.length();
+            boolean lineStart = index == 0 || output.charAt(index - 1) == '\n';
+            if (lineStart && valueStart < output.length() && output.charAt(valueStart) == '=') {
+                int lineEnd = output.indexOf('\n', valueStart);
+                if (lineEnd < 0) {
+                    lineEnd = output.length();
+                }
+                String value = output.substring(valueStart + 1, lineEnd).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
             }
+            from = valueStart;
         }
-        
-        throw new RuntimeException("VM UUID를 찾을 수 없습니다");
     }
     
-    private void executeVBoxCommand(String... args) throws Exception {
-        String[] command = new String[args.length + 1];
-        command[0] = "VBoxManage";
-        System.arraycopy(args, 0, command, 1, args.length);
+    private void executeVBoxCommand(HypervisorNodeRegistry.Node node, String... args) throws Exception {
+        VBoxResult result = runVBoxManage(node, args);
         
-        ProcessBuilder pb = new ProcessBuilder(command);
-        Process process = pb.start();
-        int exitCode = process.waitFor();
+        if (result.exitCode != 0) {
+            throw new RuntimeException("VBoxManage 명령 실패: " + result.stderr);
+        }
+    }
+    
+    /**
+     * 모든 VBoxManage 호출의 단일 진입점. 노드 회로 차단기가 열려 있으면 실행하지 않고 HypervisorUnavailableException.
+     * 노드가 응답하지 않았거나(실행되지 않음) VM 이 다른 세션에 잠긴 실패는 재시도 예산 안에서 백오프 후 다시 시도하고,
+     * 시간 초과는 다시 실행해도 안전한 조회 명령만 다시 시도한다. VBoxManage 가 거절한 명령은 그대로 돌려준다.
+     */
+    private VBoxResult runVBoxManage(HypervisorNodeRegistry.Node node, String... args) throws Exception {
+        VirtualBoxConfig.Resilience resilience = config.getResilience();
+        boolean idempotent = IDEMPOTENT_COMMANDS.contains(args[0]);
+        breaker.deposit();
+        for (int attempt = 1; ; attempt++) {
+            breaker.acquire(node.getName());
+            VBoxResult result = null;
+            Failure failure;
+            String reason;
+            try {
+                result = execute(node, args);
+                failure = classify(result.exitCode, result.stderr);
+                reason = result.stderr;
+            } catch (VBoxTimeoutException e) {
+                failure = Failure.TIMEOUT;
+                reason = e.getMessage();
+            } catch (IOException e) {
+                failure = Failure.UNAVAILABLE;
+                reason = e.getMessage();
+            } catch (Exception e) {
+                breaker.abandon(node.getName());
+                throw e;
+            }
+            boolean unavailable = failure == Failure.UNAVAILABLE || failure == Failure.TIMEOUT;
+            if (unavailable) {
+                breaker.onFailure(node.getName(), reason);
+            } else {
+                breaker.onSuccess(node.getName());
+            }
+            
+            boolean retryable = failure == Failure.UNAVAILABLE || failure == Failure.BUSY || (failure == Failure.TIMEOUT && idempotent);
+            if (failure == null || !retryable || attempt >= resilience.getMaxAttempts() || !breaker.tryRetry()) {
+                if (unavailable) {
+                    throw new HypervisorUnavailableException("하이퍼바이저 노드 " + node.getName() + " 응답 없음: " + String.valueOf(reason).strip());
+                }
+                return result;
+            }
+            long delay = breaker.backoff(attempt);
+            log.debug("VBoxManage {} 재시도 {}/{} ({}ms 후) - 노드: {}, 원인: {}",
+                      args[0], attempt + 1, resilience.getMaxAttempts(), delay, node.getName(), failure);
+            Thread.sleep(delay);
+        }
+    }
+    
+    // VBoxManage 한 번 실행 (서브커맨드별 소요 시간 기록). 제한 시간을 넘기면 프로세스를 죽이고 VBoxTimeoutException
+    private VBoxResult execute(HypervisorNodeRegistry.Node node, String... args) throws Exception {
+        String[] command = node.command(args);
         
-        if (exitCode != 0) {
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            StringBuilder error = new StringBuilder();
-            String line;
-            while ((line = errorReader.readLine()) != null) {
-                error.append(line).append("\n");
+        Timer.Sample sample = metrics.startTimer();
+        HostTimelineRecorder.Span span = timeline.start(SpanType.VBOX, String.join(" ", args));
+        boolean success = false;
+        Integer exitCode = null;
+        String output = null;
+        // 출력이 파이프 버퍼를 채워 멈추지 않고 제한 시간을 지킬 수 있게 파일로 받는다
+        Path stdoutFile = Files.createTempFile("vbox", ".out");
+        Path stderrFile = Files.createTempFile("vbox", ".err");
+        try {
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.environment().putAll(node.environment());
+            builder.redirectOutput(stdoutFile.toFile());
+            builder.redirectError(stderrFile.toFile());
+            Process process = builder.start();
+            if (!process.waitFor(config.getResilience().getCommandTimeout(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new VBoxTimeoutException("VBoxManage " + args[0] + " 시간 초과 (" + config.getResilience().getCommandTimeout() + "ms)");
             }
-            throw new RuntimeException("VBoxManage 명령 실패: " + error.toString());
+            exitCode = process.exitValue();
+            String stdout = Files.readString(stdoutFile);
+            String stderr = Files.readString(stderrFile);
+            success = exitCode == 0;
+            output = success ? stdout : stderr;
+            return new VBoxResult(exitCode, stdout, stderr);
+        } catch (Exception e) {
+            output = e.getMessage();
+            throw e;
+        } finally {
+            Files.deleteIfExists(stdoutFile);
+            Files.deleteIfExists(stderrFile);
+            metrics.recordVBoxCommand(sample, args[0], success);
+            span.end(exitCode, output, success);
         }
     }
     
-    private int allocateWebPort() {
-        return portCounter.getAndIncrement();
+    /**
+     * 실패한 VBoxManage 결과를 나눈다. 성공이면 null.
+     * ssh 접속 실패(255)나 VBoxSVC 에 닿지 못한 오류는 명령이 실행되지 않은 것이라 어떤 명령이든 다시 시도해도 되고,
+     * 다른 세션이 VM 을 잠근 경우도 실행 전에 거절된 것이다. 나머지(없는 VM, 잘못된 상태/인자 등)는 다시 해도 같다.
+     */
+    static Failure classify(int exitCode, String stderr) {
+        if (exitCode == 0) {
+            return null;
+        }
+        if (exitCode == SSH_CONNECTION_FAILED || (stderr != null && UNAVAILABLE_ERRORS.matcher(stderr).find())) {
+            return Failure.UNAVAILABLE;
+        }
+        if (stderr != null && BUSY_ERRORS.matcher(stderr).find()) {
+            return Failure.BUSY;
+        }
+        return Failure.PERMANENT;
     }
     
-    private int allocateSSHPort() {
-        return sshPortCounter.getAndIncrement();
+    private int allocateWebPort(Long hostId) {
+        return portAllocator.allocateWebPort(hostId);
     }
     
-    public CompletableFuture<Boolean> deleteVM(String vmId) {
+    private int allocateSSHPort(Long hostId) {
+        return portAllocator.allocateSshPort(hostId);
+    }
+    
+    public CompletableFuture<Boolean> deleteVM(String vmId, String nodeName) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                log.info("VM 삭제 시작: {}", vmId);
+                HypervisorNodeRegistry.Node node = requireNode(nodeName);
+                log.info("VM 삭제 시작: {} (노드: {})", vmId, node.getName());
                 
-                // VM 정지
-                executeVBoxCommand("controlvm", vmId, "poweroff");
-                Thread.sleep(5000);
+                // VM 강제 정지 (저장된 VM 은 저장 상태만 버린다), 꺼진 것을 확인한 뒤 삭제
+                powerOff(node, vmId);
                 
                 // VM 삭제
-                executeVBoxCommand("unregistervm", vmId, "--delete");
+                executeVBoxCommand(node, "unregistervm", vmId, "--delete");
                 
                 log.info("VM 삭제 완료: {}", vmId);
                 return true;
-                
+            
             } catch (Exception e) {
                 log.error("VM 삭제 실패", e);
                 return false;
@@ -245,23 +418,23 @@ public class VirtualBoxService {
         });
     }
     
-    public CompletableFuture<String> getVMStatus(String vmId) {
+    public CompletableFuture<String> getVMStatus(String vmId, String nodeName) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                ProcessBuilder pb = new ProcessBuilder("VBoxManage", "showvminfo", vmId, "--machinereadable");
-                Process process = pb.start();
-                
-                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                String line;
+                VBoxResult result = runVBoxManage(requireNode(nodeName), "showvminfo", vmId, "--machinereadable");
                 
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith("VMState=")) {
-                        String state = line.split("=")[1].replace("\"", "");
-                        return state.equals("running") ? "RUNNING" : "STOPPED";
-                    }
+                String state = machineReadableValue(result.stdout, "VMState");
+                if (state == null) {
+                    return "ERROR";
                 }
-                
-                return "ERROR";
+                return switch (state) {
+                    case "running" -> "RUNNING";
+                    case "saved" -> "SAVED";
+                    default -> "STOPPED";
+                };
+            } catch (HypervisorUnavailableException e) {
+                // 노드 장애는 VM 오류가 아니므로 호스트 상태를 ERROR 로 바꾸지 않게 그대로 실패시킨다
+                throw e;
             } catch (Exception e) {
                 log.error("VM 상태 조회 실패", e);
                 return "ERROR";
@@ -269,6 +442,491 @@ public class VirtualBoxService {
         });
     }
     
+    /**
+     * 실행 중인 VM 의 메모리 상태를 디스크에 저장하고 끈다. VMState 가 saved 가 될 때까지 기다린다.
+     */
+    public CompletableFuture<Void> saveState(String vmId, String nodeName) {
+        return powerAsync(nodeName, "VM 상태 저장", node -> {
+            executeVBoxCommand(node, "controlvm", vmId, "savestate");
+            waitForState(node, vmId, config.getPower().getStateTimeout(), "saved");
+        });
+    }
+    
+    /**
+     * 꺼져 있거나 상태가 저장된 VM 을 띄운다. 저장된 VM 은 부팅 없이 저장 시점부터 이어서 실행된다.
+     */
+    public CompletableFuture<Void> powerOn(String vmId, String nodeName) {
+        return powerAsync(nodeName, "VM 시작", node -> {
+            executeVBoxCommand(node, "startvm", vmId, "--type", "headless");
+            waitForState(node, vmId, config.getPower().getStateTimeout(), "running");
+        });
+    }
+    
+    /**
+     * 게스트 OS 에 ACPI 종료 신호를 보내고 꺼지기를 기다린다. 제한 시간 안에 꺼지지 않으면 강제로 끈다.
+     * 저장된 VM 은 저장 상태를 버려 바로 꺼진 상태가 된다.
+     */
+    public CompletableFuture<Void> shutdown(String vmId, String nodeName) {
+        return powerAsync(nodeName, "VM 종료", node -> shutdown(node, vmId));
+    }
+    
+    private void shutdown(HypervisorNodeRegistry.Node node, String vmId) throws Exception {
+        String state = vmState(node, vmId);
+        if (!"running".equals(state)) {
+            powerOff(node, vmId);
+            return;
+        }
+        executeVBoxCommand(node, "controlvm", vmId, "acpipowerbutton");
+        try {
+            waitForState(node, vmId, config.getPower().getShutdownTimeout(), OFF_STATES);
+        } catch (IllegalStateException e) {
+            log.warn("ACPI 종료 시간 초과, 강제 종료: {}", vmId);
+            powerOff(node, vmId);
+        }
+    }
+    
+    /**
+     * 정상 종료 후 다시 띄운다.
+     */
+    public CompletableFuture<Void> restart(String vmId, String nodeName) {
+        return shutdown(vmId, nodeName).thenCompose(v -> powerOn(vmId, nodeName));
+    }
+    
+    /**
+     * 호스트 VM 을 from 크기에서 to 크기로 바꾼다. VirtualBox 는 실행 중인 VM 의 메모리를 바꿀 수 없고
+     * 실행 중인 VM 의 디스크는 잠겨 있으므로, 바뀌는 자원에 따라 가장 짧게 멈추는 방법을 고른다.
+     * <ul>
+     *   <li>LIVE - 핫플러그 상한 안에서 vCPU 만 바뀜: controlvm plugcpu/unplugcpu, 멈추지 않는다</li>
+     *   <li>SUSPEND - 메모리는 그대로고 디스크가 늘어남: 상태 저장 → 디스크 확장 → 저장된 상태에서 재개</li>
+     *   <li>RESTART - 메모리가 바뀌거나 핫플러그 없이 vCPU 가 바뀜: 정상 종료 → 설정 변경 → 부팅</li>
+     *   <li>OFFLINE - 꺼진 VM: 설정만 바꾼다</li>
+     * </ul>
+     * 저장된(saved) VM 은 설정을 바꿀 수 없어 IllegalStateException. 디스크는 늘리기만 한다.
+     */
+    public CompletableFuture<ResizeMode> resizeVM(Host host, VirtualBoxConfig.Plan from, VirtualBoxConfig.Plan to) {
+        String vmId = host.getVmId();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                HypervisorNodeRegistry.Node node = requireNode(host.getNodeName());
+                boolean memory = from.getMemory() != to.getMemory();
+                boolean cpus = from.getCpus() != to.getCpus();
+                boolean disk = to.getDiskSize() > from.getDiskSize();
+                boolean hotplug = canHotplug(host, to.getCpus());
+                String state = vmState(node, vmId);
+                if ("saved".equals(state)) {
+                    throw new IllegalStateException("상태가 저장된 VM 은 크기를 바꿀 수 없습니다");
+                }
+                if (!"running".equals(state)) {
+                    applySize(node, host, from, to);
+                    return ResizeMode.OFFLINE;
+                }
+                if (memory || (cpus && !hotplug)) {
+                    shutdown(node, vmId);
+                    applySize(node, host, from, to);
+                    executeVBoxCommand(node, "startvm", vmId, "--type", "headless");
+                    waitForState(node, vmId, config.getPower().getStateTimeout(), "running");
+                    return ResizeMode.RESTART;
+                }
+                if (cpus) {
+                    plugCpus(node, vmId, "controlvm", from.getCpus(), to.getCpus());
+                }
+                if (!disk) {
+                    return ResizeMode.LIVE;
+                }
+                executeVBoxCommand(node, "controlvm", vmId, "savestate");
+                waitForState(node, vmId, config.getPower().getStateTimeout(), "saved");
+                resizeDisk(node, host, to.getDiskSize());
+                executeVBoxCommand(node, "startvm", vmId, "--type", "headless");
+                waitForState(node, vmId, config.getPower().getStateTimeout(), "running");
+                return ResizeMode.SUSPEND;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("VM 크기 변경 실패: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    /**
+     * 만들 때 잡은 핫플러그 상한 안이면 vCPU 를 끄지 않고 바꿀 수 있다.
+     */
+    public static boolean canHotplug(Host host, int cpus) {
+        return host.getMaxCpus() != null && cpus <= host.getMaxCpus();
+    }
+    
+    // 꺼진 VM 의 메모리/vCPU/디스크를 바꾼다
+    private void applySize(HypervisorNodeRegistry.Node node, Host host, VirtualBoxConfig.Plan from, VirtualBoxConfig.Plan to) throws Exception {
+        String vmId = host.getVmId();
+        if (from.getMemory() != to.getMemory()) {
+            executeVBoxCommand(node, "modifyvm", vmId, "--memory", String.valueOf(to.getMemory()));
+        }
+        if (from.getCpus() != to.getCpus()) {
+            if (canHotplug(host, to.getCpus())) {
+                plugCpus(node, vmId, "modifyvm", from.getCpus(), to.getCpus());
+            } else {
+                // 상한을 넘는 요금제로 바뀌면 핫플러그를 끄고 일반 vCPU 로 맞춘다
+                executeVBoxCommand(node, "modifyvm", vmId, "--cpuhotplug", "off", "--cpus", String.valueOf(to.getCpus()));
+            }
+        }
+        if (to.getDiskSize() > from.getDiskSize()) {
+            resizeDisk(node, host, to.getDiskSize());
+        }
+    }
+    
+    // 핫플러그 슬롯 [from, to) 를 꽂거나 (to, from] 을 뺀다. command 는 실행 중이면 controlvm, 꺼져 있으면 modifyvm
+    private void plugCpus(HypervisorNodeRegistry.Node node, String vmId, String command, int from, int to) throws Exception {
+        String option = "modifyvm".equals(command) ? "--" : "";
+        for (int cpu = from; cpu < to; cpu++) {
+            executeVBoxCommand(node, command, vmId, option + "plugcpu", String.valueOf(cpu));
+        }
+        for (int cpu = from - 1; cpu >= Math.max(1, to); cpu--) {
+            executeVBoxCommand(node, command, vmId, option + "unplugcpu", String.valueOf(cpu));
+        }
+    }
+    
+    private void resizeDisk(HypervisorNodeRegistry.Node node, Host host, int diskSize) throws Exception {
+        executeVBoxCommand(node, "modifymedium", "disk", diskPath(host.getStoragePool(), host.getVmName()),
+                           "--resize", String.valueOf(diskSize));
+    }
+    
+    private String diskPath(String storagePool, String vmName) {
+        VirtualBoxConfig.StoragePool pool = nodes.pool(storagePool);
+        if (pool == null) {
+            throw new IllegalStateException("설정에 없는 저장소 풀입니다: " + storagePool);
+        }
+        return pool.getPath() + "/" + vmName + ".vdi";
+    }
+    
+    private void powerOff(HypervisorNodeRegistry.Node node, String vmId) throws Exception {
+        String state = vmState(node, vmId);
+        if ("saved".equals(state)) {
+            executeVBoxCommand(node, "discardstate", vmId);
+        } else if (state != null && !OFF_STATES.contains(state)) {
+            executeVBoxCommand(node, "controlvm", vmId, "poweroff");
+        } else {
+            return;
+        }
+        waitForState(node, vmId, config.getPower().getStateTimeout(), OFF_STATES);
+    }
+    
+    private CompletableFuture<Void> powerAsync(String nodeName, String operation, PowerStep step) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                step.run(requireNode(nodeName));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(operation + " 실패: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    private String vmState(HypervisorNodeRegistry.Node node, String vmId) throws Exception {
+        VBoxResult result = runVBoxManage(node, "showvminfo", vmId, "--machinereadable");
+        return result.exitCode == 0 ? machineReadableValue(result.stdout, "VMState") : null;
+    }
+    
+    private void waitForState(HypervisorNodeRegistry.Node node, String vmId, long timeout, String expected) throws Exception {
+        waitForState(node, vmId, timeout, Set.of(expected));
+    }
+    
+    /**
+     * VMState 가 expected 중 하나가 될 때까지 짧은 간격으로 확인한다. 제한 시간을 넘기면 IllegalStateException.
+     */
+    private void waitForState(HypervisorNodeRegistry.Node node, String vmId, long timeout, Set<String> expected) throws Exception {
+        long deadline = System.currentTimeMillis() + timeout;
+        String state = vmState(node, vmId);
+        while (!expected.contains(state)) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("VM 상태 전환 시간 초과 - 기대: " + expected + ", 현재: " + state);
+            }
+            Thread.sleep(config.getPower().getStatePollInterval());
+            state = vmState(node, vmId);
+        }
+    }
+    
+    /**
+     * 노드에 등록된 VM 이름 → UUID.
+     */
+    public Map<String, String> listVMs(HypervisorNodeRegistry.Node node) throws Exception {
+        VBoxResult result = runVBoxManage(node, "list", "vms");
+        if (result.exitCode != 0) {
+            throw new RuntimeException("VBoxManage 명령 실패: " + result.stderr);
+        }
+        Map<String, String> vms = new LinkedHashMap<>();
+        for (String line : result.stdout.split("\n")) {
+            // "이름" {UUID}
+            int nameEnd = line.lastIndexOf("\" {");
+            if (line.startsWith("\"") && nameEnd > 0 && line.endsWith("}")) {
+                vms.put(line.substring(1, nameEnd), line.substring(nameEnd + 3, line.length() - 1));
+            }
+        }
+        return vms;
+    }
+    
+    /**
+     * 노드의 미디어 레지스트리에 등록된 하드디스크 목록.
+     */
+    public List<VBoxDisk> listDisks(HypervisorNodeRegistry.Node node) throws Exception {
+        VBoxResult result = runVBoxManage(node, "list", "hdds");
+        if (result.exitCode != 0) {
+            throw new RuntimeException("VBoxManage 명령 실패: " + result.stderr);
+        }
+        List<VBoxDisk> disks = new ArrayList<>();
+        String uuid = null;
+        String location = null;
+        boolean inUse = false;
+        for (String line : (result.stdout + "\n").split("\n")) {
+            if (line.isBlank()) {
+                if (uuid != null && location != null) {
+                    disks.add(new VBoxDisk(uuid, location, inUse));
+                }
+                uuid = null;
+                location = null;
+                inUse = false;
+            } else if (line.startsWith("UUID:")) {
+                uuid = line.substring(5).trim();
+            } else if (line.startsWith("Location:")) {
+                location = line.substring(9).trim();
+            } else if (line.startsWith("In use by VMs:")) {
+                inUse = true;
+            }
+        }
+        return disks;
+    }
+    
+    /**
+     * VM 을 끄고 연결된 디스크와 함께 등록 해제/삭제한다 (고아 VM 정리).
+     */
+    public void removeVM(HypervisorNodeRegistry.Node node, String vmId) throws Exception {
+        powerOff(node, vmId);
+        executeVBoxCommand(node, "unregistervm", vmId, "--delete");
+    }
+    
+    /**
+     * 어느 VM 에도 연결되지 않은 디스크를 레지스트리에서 빼고 파일을 지운다.
+     */
+    public void removeDisk(HypervisorNodeRegistry.Node node, String uuid) throws Exception {
+        executeVBoxCommand(node, "closemedium", "disk", uuid, "--delete");
+    }
+    
+    /**
+     * VM 스냅샷을 찍는다. 실행 중인 VM 은 --live 로 멈추지 않고 찍으며, 이후 쓰기는 새 차등 이미지에 쌓인다.
+     * 로컬 노드면 찍은 뒤 스냅샷 폴더 전체 크기를 함께 돌려준다 (원격 노드는 null).
+     */
+    public CompletableFuture<VBoxSnapshot> takeSnapshot(String vmId, String nodeName, String name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                HypervisorNodeRegistry.Node node = requireNode(nodeName);
+                boolean live = "running".equals(vmState(node, vmId));
+                VBoxResult result = live
+                    ? runVBoxManage(node, "snapshot", vmId, "take", name, "--live")
+                    : runVBoxManage(node, "snapshot", vmId, "take", name);
+                if (result.exitCode != 0) {
+                    throw new RuntimeException("VBoxManage 명령 실패: " + result.stderr);
+                }
+                // "Snapshot taken. UUID: ..."
+                int index = result.stdout.indexOf("UUID: ");
+                if (index < 0) {
+                    throw new RuntimeException("스냅샷 UUID를 찾을 수 없습니다");
+                }
+                String uuid = result.stdout.substring(index + 6).trim().split("\\s+")[0];
+                return new VBoxSnapshot(uuid, snapshotFolderSize(node, vmId));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("스냅샷 생성 실패: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    /**
+     * VM 을 끄고 스냅샷 시점으로 되돌린다. 라이브 스냅샷은 메모리 상태까지 되돌아가므로
+     * start 면 부팅 없이 스냅샷 시점부터 이어서 실행하고, 아니면 저장 상태를 버려 꺼진 채로 둔다.
+     */
+    public CompletableFuture<Void> restoreSnapshot(String vmId, String nodeName, String snapshotUuid, boolean start) {
+        return powerAsync(nodeName, "스냅샷 복원", node -> {
+            powerOff(node, vmId);
+            executeVBoxCommand(node, "snapshot", vmId, "restore", snapshotUuid);
+            if (start) {
+                executeVBoxCommand(node, "startvm", vmId, "--type", "headless");
+                waitForState(node, vmId, config.getPower().getStateTimeout(), "running");
+            } else {
+                powerOff(node, vmId);
+            }
+        });
+    }
+    
+    /**
+     * 스냅샷을 지운다. 차등 이미지는 인접 이미지에 병합되며 VM 이 실행 중이어도 된다.
+     */
+    public CompletableFuture<Void> deleteSnapshot(String vmId, String nodeName, String snapshotUuid) {
+        return powerAsync(nodeName, "스냅샷 삭제", node ->
+            executeVBoxCommand(node, "snapshot", vmId, "delete", snapshotUuid));
+    }
+    
+    private Long snapshotFolderSize(HypervisorNodeRegistry.Node node, String vmId) throws Exception {
+        if (!nodes.isLocal(node)) {
+            return null;
+        }
+        VBoxResult result = runVBoxManage(node, "showvminfo", vmId, "--machinereadable");
+        String folder = result.exitCode == 0 ? machineReadableValue(result.stdout, "SnapFldr") : null;
+        if (folder == null || !Files.isDirectory(Path.of(folder))) {
+            return null;
+        }
+        try (Stream<Path> files = Files.walk(Path.of(folder))) {
+            return files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+    
+    /**
+     * 실행 중인 VM 의 가상 NIC 들이 지금까지 주고받은 바이트 합계. 게스트 확장 없이 나오는 장치 통계라 프록시를 거치지 않는
+     * SSH 트래픽도 포함된다. 통계를 읽지 못하면 -1.
+     */
+    public long networkBytes(String vmId, String nodeName) throws Exception {
+        VBoxResult result = runVBoxManage(requireNode(nodeName), "debugvm", vmId, "statistics",
+                                          "--pattern", "/Public/NetAdapter/*/Bytes*");
+        return result.exitCode == 0 ? nicBytes(result.stdout) : -1;
+    }
+    
+    static long nicBytes(String statistics) {
+        long total = -1;
+        Matcher counter = NIC_COUNTER.matcher(statistics);
+        while (counter.find()) {
+            Matcher value = COUNTER_VALUE.matcher(counter.group());
+            if (value.find()) {
+                total = Math.max(total, 0) + Long.parseLong(value.group(1));
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * 노드의 모든 VM 에 성능 지표 수집을 켠다. 설정할 때 등록된 VM 에만 적용되므로 새 VM 이 생기면 다시 호출한다.
+     */
+    public void setupMetrics(HypervisorNodeRegistry.Node node, int periodSeconds, List<String> metrics) throws Exception {
+        executeVBoxCommand(node, "metrics", "setup", "--period", String.valueOf(periodSeconds), "--samples", "1",
+                           "*", String.join(",", metrics));
+    }
+    
+    /**
+     * 노드의 모든 VM 지표 최신값을 한 번에 조회한다. 값은 기본 단위(%, 바이트, 바이트/초)로 바꿔 넘긴다.
+     */
+    public void queryMetrics(HypervisorNodeRegistry.Node node, List<String> metrics, MetricConsumer consumer) throws Exception {
+        VBoxResult result = runVBoxManage(node, "metrics", "query", "*", String.join(",", metrics));
+        if (result.exitCode != 0) {
+            throw new RuntimeException("VBoxManage 명령 실패: " + result.stderr);
+        }
+        // Object  Metric  Values
+        // vm-1    CPU/Load/User  1.50%
+        // vm-1    RAM/Usage/Used 524288 kB
+        for (String line : result.stdout.split("\n")) {
+            String[] fields = line.trim().split("\\s+", 3);
+            if (fields.length < 3 || !fields[1].contains("/")) {
+                continue;
+            }
+            double value = metricValue(fields[2]);
+            if (!Double.isNaN(value)) {
+                consumer.accept(fields[0], fields[1], value);
+            }
+        }
+    }
+    
+    /**
+     * "1.50%", "524288 kB", "12 MB", "300 B/s" 같은 값을 기본 단위로. 샘플이 여러 개면 마지막 값.
+     */
+    static double metricValue(String text) {
+        String last = text.substring(text.lastIndexOf(',') + 1).trim();
+        int end = 0;
+        while (end < last.length() && (Character.isDigit(last.charAt(end)) || last.charAt(end) == '.')) {
+            end++;
+        }
+        if (end == 0) {
+            return Double.NaN;
+        }
+        double value = Double.parseDouble(last.substring(0, end));
+        String unit = last.substring(end).trim();
+        return switch (unit) {
+            case "kB" -> value * 1024;
+            case "MB" -> value * 1024 * 1024;
+            case "kB/s" -> value * 1024;
+            case "MB/s" -> value * 1024 * 1024;
+            default -> value;
+        };
+    }
+    
+    @FunctionalInterface
+    public interface MetricConsumer {
+        void accept(String object, String metric, double value);
+    }
+    
+    /**
+     * 실패한 VBoxManage 호출의 종류. UNAVAILABLE/TIMEOUT 만 노드 장애로 회로 차단기에 센다.
+     */
+    enum Failure {
+        UNAVAILABLE, TIMEOUT, BUSY, PERMANENT
+    }
+    
+    private static class VBoxTimeoutException extends Exception {
+        VBoxTimeoutException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * 크기 변경 방법. 위에서부터 멈추는 시간이 짧다.
+     */
+    public enum ResizeMode {
+        LIVE, SUSPEND, RESTART, OFFLINE
+    }
+    
+    @FunctionalInterface
+    private interface PowerStep {
+        void run(HypervisorNodeRegistry.Node node) throws Exception;
+    }
+    
+    private HypervisorNodeRegistry.Node requireNode(String nodeName) {
+        HypervisorNodeRegistry.Node node = nodes.node(nodeName);
+        if (node == null) {
+            throw new IllegalStateException("설정에 없는 하이퍼바이저 노드입니다: " + nodeName);
+        }
+        return node;
+    }
+    
+    private static class VBoxResult {
+        final int exitCode;
+        final String stdout;
+        final String stderr;
+        
+        VBoxResult(int exitCode, String stdout, String stderr) {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+    
+    public static class VBoxSnapshot {
+        public final String uuid;
+        public final Long folderBytes; // 찍은 뒤 스냅샷 폴더 전체 크기 (원격 노드는 null)
+        
+        public VBoxSnapshot(String uuid, Long folderBytes) {
+            this.uuid = uuid;
+            this.folderBytes = folderBytes;
+        }
+    }
+    
+    public static class VBoxDisk {
+        public final String uuid;
+        public final String location;
+        public final boolean inUse; // VM 에 연결되어 있음
+        
+        public VBoxDisk(String uuid, String location, boolean inUse) {
+            this.uuid = uuid;
+            this.location = location;
+            this.inUse = inUse;
+        }
+    }
+    
     // VM 생성 결과 클래스
     public static class VmCreationResult {
         public final String vmId;
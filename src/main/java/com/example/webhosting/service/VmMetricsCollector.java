@@ -0,0 +1,317 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.dto.HostMetricRankDto;
+import com.example.webhosting.dto.HostMetricsDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 실행 중인 VM 의 CPU/메모리/디스크/네트워크 지표 수집.
+ * 노드마다 VBoxManage metrics query 한 번으로 모든 VM 의 최신값을 받아 호스트별 고정 크기 링에 넣는다.
+ * 링은 지표별 primitive 배열이라 샘플마다 객체를 만들지 않는다. 조회가 어느 인스턴스로 와도 답할 수 있도록
+ * 인스턴스마다 따로 수집한다 (노드당 조회 한 번이라 부담이 작다).
+ */
+@Service
+@Slf4j
+public class VmMetricsCollector {
+    
+    // VM 프로세스 기준 지표 (Guest/* 는 게스트 확장이 있어야 값이 나온다)
+    private static final List<String> VBOX_METRICS = List.of(
+        "CPU/Load/User", "CPU/Load/Kernel", "RAM/Usage/Used", "Disk/Usage/Used",
+        "Guest/Network/Rate/Rx", "Guest/Network/Rate/Tx");
+    private static final Set<Host.HostStatus> COLLECTED_STATUSES = EnumSet.of(Host.HostStatus.RUNNING, Host.HostStatus.DEGRADED);
+    private static final Pattern RANGE = Pattern.compile("(\\d+)([smhd])");
+    
+    @Value("${vm-metrics.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${vm-metrics.interval:30000}")
+    private long interval;
+    
+    @Value("${vm-metrics.ring-size:2880}")
+    private int ringSize;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private HypervisorNodeRegistry nodeRegistry;
+    
+    @Autowired
+    private VirtualBoxService virtualBoxService;
+    
+    private final ConcurrentHashMap<Long, MetricRing> rings = new ConcurrentHashMap<>();
+    // 노드별로 지표 수집을 켠 VM 이름 (새 VM 이 보이면 다시 켠다)
+    private final Map<String, Set<String>> setUp = new ConcurrentHashMap<>();
+    
+    @Scheduled(fixedDelayString = "${vm-metrics.interval:30000}", initialDelayString = "${vm-metrics.interval:30000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        Map<HypervisorNodeRegistry.Node, Map<String, Long>> targets = new HashMap<>();
+        for (Object[] row : hostRepository.findMetricTargets(COLLECTED_STATUSES)) {
+            HypervisorNodeRegistry.Node node = nodeRegistry.node((String) row[2]);
+            if (node != null) {
+                targets.computeIfAbsent(node, n -> new HashMap<>()).put((String) row[1], (Long) row[0]);
+            }
+        }
+        long now = System.currentTimeMillis();
+        targets.forEach((node, vms) -> collect(node, vms, now));
+    }
+    
+    private void collect(HypervisorNodeRegistry.Node node, Map<String, Long> vms, long now) {
+        try {
+            Set<String> configured = setUp.get(node.getName());
+            if (configured == null || !configured.containsAll(vms.keySet())) {
+                virtualBoxService.setupMetrics(node, (int) Math.max(1, interval / 1000), VBOX_METRICS);
+                setUp.put(node.getName(), new HashSet<>(vms.keySet()));
+            }
+            virtualBoxService.queryMetrics(node, VBOX_METRICS, (vmName, metric, value) -> {
+                Long hostId = vms.get(vmName);
+                Metric column = Metric.of(metric);
+                if (hostId != null && column != null) {
+                    rings.computeIfAbsent(hostId, id -> new MetricRing(ringSize)).record(now, column, value);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("VM 지표 수집 실패 - 노드: {}, 오류: {}", node.getName(), e.getMessage());
+        }
+    }
+    
+    /**
+     * 호스트의 최근 range 동안 수집한 샘플.
+     */
+    public HostMetricsDto getMetrics(Long hostId, String range) {
+        long from = System.currentTimeMillis() - parseRange(range).toMillis();
+        List<HostMetricsDto.Sample> samples = new ArrayList<>();
+        MetricRing ring = rings.get(hostId);
+        if (ring != null) {
+            ring.forEach(from, (time, values) -> samples.add(new HostMetricsDto.Sample(
+                toDateTime(time),
+                orNull(values[Metric.CPU.ordinal()]),
+                toLong(values[Metric.RAM.ordinal()]),
+                toLong(values[Metric.DISK.ordinal()]),
+                toLong(values[Metric.NET_RX.ordinal()]),
+                toLong(values[Metric.NET_TX.ordinal()]))));
+        }
+        return new HostMetricsDto(hostId, toDateTime(from), interval, samples);
+    }
+    
+    /**
+     * 최근 range 동안 평균이 가장 높은 호스트 limit 개 (지표: cpu, ram, disk, net, net-rx, net-tx).
+     */
+    public List<HostMetricRankDto> top(String metric, String range, int limit) {
+        Metric column = Metric.byName(metric);
+        if (column == null) {
+            throw new IllegalArgumentException("지원하지 않는 지표입니다: " + metric + " (cpu, ram, disk, net, net-rx, net-tx)");
+        }
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("limit 은 1-100 사이여야 합니다");
+        }
+        long from = System.currentTimeMillis() - parseRange(range).toMillis();
+        List<HostMetricRankDto> ranked = new ArrayList<>();
+        rings.forEach((hostId, ring) -> {
+            double[] stat = ring.stats(from, column);
+            if (stat != null) {
+                ranked.add(new HostMetricRankDto(hostId, null, null, null, stat[0], stat[1]));
+            }
+        });
+        ranked.sort(Comparator.comparingDouble(HostMetricRankDto::getAverage).reversed());
+        List<HostMetricRankDto> result = new ArrayList<>(ranked.subList(0, Math.min(limit, ranked.size())));
+        if (!result.isEmpty()) {
+            Map<Long, Object[]> labels = new HashMap<>();
+            for (Object[] row : hostRepository.findLabels(result.stream().map(HostMetricRankDto::getHostId).toList())) {
+                labels.put((Long) row[0], row);
+            }
+            // 수집 후 삭제된 호스트는 뺀다
+            result.removeIf(rank -> !labels.containsKey(rank.getHostId()));
+            for (HostMetricRankDto rank : result) {
+                Object[] label = labels.get(rank.getHostId());
+                rank.setHostName((String) label[1]);
+                rank.setUsername((String) label[2]);
+                rank.setNodeName((String) label[3]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 삭제된 호스트의 링을 버린다.
+     */
+    public void forget(Long hostId) {
+        rings.remove(hostId);
+    }
+    
+    /**
+     * "15m", "1h", "7d" 같은 조회 구간. 비어 있으면 1시간.
+     */
+    static Duration parseRange(String range) {
+        if (range == null || range.isBlank()) {
+            return Duration.ofHours(1);
+        }
+        Matcher matcher = RANGE.matcher(range.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("range 형식이 올바르지 않습니다 (예: 15m, 1h, 1d)");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+    }
+    
+    private static Double orNull(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+    
+    private static Long toLong(double value) {
+        return Double.isNaN(value) ? null : Math.round(value);
+    }
+    
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+    
+    /**
+     * 링에 저장하는 지표. NET 은 저장하지 않고 수신 + 송신으로 순위만 매긴다.
+     */
+    enum Metric {
+        CPU, RAM, DISK, NET_RX, NET_TX, NET;
+        
+        static final int STORED = 5;
+        
+        static Metric of(String vboxMetric) {
+            return switch (vboxMetric) {
+                case "CPU/Load/User", "CPU/Load/Kernel" -> CPU;
+                case "RAM/Usage/Used" -> RAM;
+                case "Disk/Usage/Used" -> DISK;
+                case "Guest/Network/Rate/Rx" -> NET_RX;
+                case "Guest/Network/Rate/Tx" -> NET_TX;
+                default -> null;
+            };
+        }
+        
+        static Metric byName(String name) {
+            if (name == null) {
+                return null;
+            }
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "cpu" -> CPU;
+                case "ram" -> RAM;
+                case "disk" -> DISK;
+                case "net" -> NET;
+                case "net-rx" -> NET_RX;
+                case "net-tx" -> NET_TX;
+                default -> null;
+            };
+        }
+    }
+    
+    /**
+     * 호스트 하나의 샘플 링. 시각과 지표별 값을 각각 primitive 배열에 담고, 가득 차면 가장 오래된 샘플부터 덮어쓴다.
+     * 수집하지 못한 지표는 NaN. 같은 시각에 같은 지표가 여러 번 오면 더한다 (CPU 사용자 + 커널).
+     */
+    static final class MetricRing {
+        private final long[] times;
+        private final double[][] values;
+        private int next;
+        private int size;
+        private final double[] row = new double[Metric.STORED]; // 조회 시 재사용
+        
+        MetricRing(int capacity) {
+            times = new long[capacity];
+            values = new double[Metric.STORED][capacity];
+        }
+        
+        synchronized void record(long time, Metric metric, double value) {
+            int last = Math.floorMod(next - 1, times.length);
+            if (size == 0 || times[last] != time) {
+                last = next;
+                times[last] = time;
+                for (double[] column : values) {
+                    column[last] = Double.NaN;
+                }
+                next = (next + 1) % times.length;
+                size = Math.min(size + 1, times.length);
+            }
+            double current = values[metric.ordinal()][last];
+            values[metric.ordinal()][last] = Double.isNaN(current) ? value : current + value;
+        }
+        
+        /**
+         * from 이후 샘플을 오래된 순으로 넘긴다. values 배열은 재사용되므로 호출 안에서만 읽는다.
+         */
+        synchronized void forEach(long from, SampleConsumer consumer) {
+            for (int i = size; i > 0; i--) {
+                int index = Math.floorMod(next - i, times.length);
+                if (times[index] >= from) {
+                    for (int m = 0; m < Metric.STORED; m++) {
+                        row[m] = values[m][index];
+                    }
+                    consumer.accept(times[index], row);
+                }
+            }
+        }
+        
+        /**
+         * from 이후 지표의 {평균, 최대}. 값이 없으면 null.
+         */
+        synchronized double[] stats(long from, Metric metric) {
+            double sum = 0;
+            double max = Double.NEGATIVE_INFINITY;
+            int count = 0;
+            for (int i = size; i > 0; i--) {
+                int index = Math.floorMod(next - i, times.length);
+                if (times[index] < from) {
+                    continue;
+                }
+                double value = metric == Metric.NET
+                    ? sumOf(values[Metric.NET_RX.ordinal()][index], values[Metric.NET_TX.ordinal()][index])
+                    : values[metric.ordinal()][index];
+                if (!Double.isNaN(value)) {
+                    sum += value;
+                    max = Math.max(max, value);
+                    count++;
+                }
+            }
+            return count == 0 ? null : new double[] {sum / count, max};
+        }
+        
+        private static double sumOf(double a, double b) {
+            if (Double.isNaN(a)) {
+                return b;
+            }
+            return Double.isNaN(b) ? a : a + b;
+        }
+    }
+    
+    @FunctionalInterface
+    interface SampleConsumer {
+        void accept(long time, double[] values);
+    }
+}
@@ -2,11 +2,13 @@ package com.example.webhosting.util;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
@@ -14,11 +16,19 @@ public class JwtUtil {
     @Value("${jwt.secret:myWebHostingSecretKeyForJWTTokenGeneration}")
     private String secret;
     
-    @Value("${jwt.expiration:86400000}") // 24시간
+    @Value("${jwt.expiration:900000}") // 15분 (짧은 access token, 갱신은 refresh token 사용)
     private long expiration;
     
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    private Key signingKey;
+    private JwtParser parser;
+    
+    @PostConstruct
+    void init() {
+        // 요청마다 키/파서를 새로 만들지 않도록 한 번만 생성
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+            .setSigningKey(signingKey)
+            .build();
     }
     
     public String generateToken(String username) {
@@ -26,39 +36,41 @@ public class JwtUtil {
         Date expiryDate = new Date(now.getTime() + expiration);
         
         return Jwts.builder()
+            .setId(UUID.randomUUID().toString()) // 폐기(revocation) 식별용 jti
             .setSubject(username)
             .setIssuedAt(now)
             .setExpiration(expiryDate)
-            .signWith(getSigningKey())
+            .signWith(signingKey)
             .compact();
     }
     
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-        
-        return claims.getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
     
-    public boolean validateToken(String token) {
+    /**
+     * 서명과 만료를 검증한 클레임을 반환한다. 유효하지 않은 토큰이면 null.
+     */
+    public Claims parseValidClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
     
+    public boolean validateToken(String token) {
+        return parseValidClaims(token) != null;
+    }
+    
+    public long getExpiration() {
+        return expiration;
+    }
+    
     public String extractTokenFromHeader(String authHeader) {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             return authHeader.substring(7);
         }
         return null;
     }
-}
\ No newline at end of file
+}
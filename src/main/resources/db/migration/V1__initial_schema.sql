@@ -0,0 +1,118 @@
+-- 운영 프로필 초기 스키마 (엔티티와 맞춰 두고 spring.jpa.hibernate.ddl-auto=validate 로 확인)
+-- enum 컬럼은 값이 추가되어도 마이그레이션 없이 쓸 수 있도록 varchar 로 둔다
+
+create table users (
+    id bigint generated by default as identity primary key,
+    username varchar(255) not null,
+    password varchar(255) not null,
+    email varchar(255) not null,
+    role varchar(16),
+    created_at timestamp(6),
+    constraint uk_user_username unique (username),
+    constraint uk_user_email unique (email)
+);
+
+create table hosts (
+    id bigint generated by default as identity primary key,
+    user_id bigint not null,
+    host_name varchar(255) not null,
+    name_key varchar(255),
+    vm_id varchar(255),
+    vm_name varchar(255),
+    vmip varchar(255),
+    port80 integer,
+    port22 integer,
+    bandwidth_limit bigint,
+    node_name varchar(255),
+    memory integer,
+    cpus integer,
+    disk_size integer,
+    status varchar(16),
+    version bigint,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    constraint fk_host_user foreign key (user_id) references users (id),
+    constraint uk_host_user_name unique (user_id, host_name),
+    constraint uk_host_name_key unique (name_key)
+);
+-- 사용자별 목록 (최신순) 과 VM ID 조회
+create index idx_host_user_created on hosts (user_id, created_at);
+create index idx_host_vm_id on hosts (vm_id);
+
+create table refresh_tokens (
+    id bigint generated by default as identity primary key,
+    user_id bigint not null,
+    token_hash varchar(64) not null,
+    family_id varchar(36) not null,
+    revoked boolean not null,
+    expires_at timestamp(6) not null,
+    created_at timestamp(6),
+    constraint fk_refresh_token_user foreign key (user_id) references users (id),
+    constraint uk_refresh_token_hash unique (token_hash)
+);
+create index idx_refresh_token_family on refresh_tokens (family_id);
+
+create table revoked_tokens (
+    jti varchar(36) not null primary key,
+    expires_at timestamp(6) not null,
+    revoked_at timestamp(6) not null
+);
+create index idx_revoked_token_revoked_at on revoked_tokens (revoked_at);
+
+create sequence timeline_span_seq start with 1 increment by 50;
+
+create table host_timeline_spans (
+    id bigint not null primary key,
+    host_id bigint not null,
+    seq integer not null,
+    type varchar(16) not null,
+    name varchar(255) not null,
+    started_at timestamp(6),
+    ended_at timestamp(6),
+    duration_ms bigint,
+    exit_code integer,
+    success boolean,
+    output varchar(2048)
+);
+create index idx_timeline_span_host on host_timeline_spans (host_id);
+
+create sequence traffic_usage_seq start with 1 increment by 50;
+
+create table host_traffic_usage (
+    id bigint not null primary key,
+    host_id bigint not null,
+    bucket_minute timestamp(6) not null,
+    requests bigint not null,
+    bytes_in bigint not null,
+    bytes_out bigint not null
+);
+create index idx_traffic_host_minute on host_traffic_usage (host_id, bucket_minute);
+
+-- 여러 인스턴스가 같은 DB 를 쓸 때의 임대/잠금
+create table cluster_instances (
+    id varchar(128) not null primary key,
+    heartbeat_at timestamp(6) not null
+);
+
+create table cluster_locks (
+    name varchar(64) not null primary key
+);
+
+create table job_leases (
+    host_id bigint not null primary key,
+    job varchar(16) not null,
+    owner varchar(255) not null,
+    expires_at timestamp(6) not null
+);
+create index idx_job_lease_expires on job_leases (expires_at);
+
+create table port_leases (
+    id bigint generated by default as identity primary key,
+    pool varchar(8) not null,
+    port integer not null,
+    host_id bigint,
+    owner varchar(255) not null,
+    leased_at timestamp(6),
+    constraint uk_port_lease unique (pool, port)
+);
+create index idx_port_lease_host on port_leases (host_id);
@@ -0,0 +1,2 @@
+-- 호스트 VM 디스크를 둔 저장소 풀 (null 이면 기본 풀)
+alter table hosts add column storage_pool varchar(255);
@@ -0,0 +1,13 @@
+-- 호스트 VM 스냅샷 (VirtualBox 라이브 스냅샷, 차등 이미지)
+create table host_snapshots (
+    id bigint generated by default as identity primary key,
+    host_id bigint not null,
+    name varchar(255) not null,
+    snapshot_uuid varchar(255),
+    scheduled boolean not null,
+    status varchar(16) not null,
+    size_bytes bigint,
+    duration_ms bigint,
+    created_at timestamp(6)
+);
+create index idx_snapshot_host on host_snapshots (host_id, created_at);
@@ -0,0 +1,3 @@
+-- 호스트 크기 요금제와 vCPU 핫플러그 상한
+alter table hosts add column plan varchar(255);
+alter table hosts add column max_cpus integer;
@@ -0,0 +1,13 @@
+-- 호스트 생성/삭제 요청의 Idempotency-Key. 같은 키로 다시 보낸 요청은 새 작업 없이 처음 작업 결과를 돌려준다
+create table idempotency_keys (
+    id bigint generated by default as identity primary key,
+    user_id bigint not null,
+    request_key varchar(255) not null,
+    operation varchar(16) not null,
+    fingerprint varchar(255) not null,
+    host_id bigint,
+    created_at timestamp(6),
+    expires_at timestamp(6) not null,
+    constraint uk_idempotency_key unique (user_id, request_key)
+);
+create index idx_idempotency_expires on idempotency_keys (expires_at);
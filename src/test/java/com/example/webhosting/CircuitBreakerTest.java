@@ -0,0 +1,119 @@
+package com.example.webhosting;
+
+import com.example.webhosting.service.HypervisorCircuitBreaker;
+import com.example.webhosting.service.HypervisorHealthIndicator;
+import com.example.webhosting.service.HypervisorNodeRegistry;
+import com.example.webhosting.service.HypervisorUnavailableException;
+import com.example.webhosting.service.VirtualBoxService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.boot.actuate.health.Status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * VBoxSVC 장애를 흉내 내는 VBoxManage 스크립트로 일시적 오류 재시도, 영구 오류 즉시 실패,
+ * 연속 실패 시 회로 차단과 시험 호출 뒤 복구를 확인한다.
+ */
+@TestPropertySource(properties = {
+    "virtualbox.resilience.backoff-base=5",
+    "virtualbox.resilience.backoff-max=20",
+    "virtualbox.resilience.breaker-consecutive-failures=3",
+    "virtualbox.resilience.breaker-open-duration=500"
+})
+class CircuitBreakerTest extends HypervisorTestSupport {
+    
+    // wedged 파일이 있으면 VBoxSVC 에 닿지 못하고, flaky 파일이 있으면 한 번만 실패한다
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        echo "$*" >> "$DIR/calls.log"
+        if [ -f "$DIR/wedged" ]; then
+            echo "VBoxManage: error: Failed to create the VirtualBox object!" >&2
+            exit 1
+        fi
+        if [ -f "$DIR/flaky" ]; then
+            rm "$DIR/flaky"
+            echo "VBoxManage: error: The object functionality is limited (VBoxSVC is not responding)" >&2
+            exit 1
+        fi
+        if [ "$1" = "showvminfo" ]; then
+            if [ "$2" = "vm-missing" ]; then
+                echo "VBoxManage: error: Could not find a registered machine named 'vm-missing'" >&2
+                exit 1
+            fi
+            echo 'VMState="running"'
+        fi
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+    }
+    
+    @Test
+    void hypervisorOutageTripsBreakerAndRecovers() throws Exception {
+        VirtualBoxService virtualBox = context.getBean(VirtualBoxService.class);
+        HypervisorCircuitBreaker breaker = context.getBean(HypervisorCircuitBreaker.class);
+        HypervisorHealthIndicator health = context.getBean(HypervisorHealthIndicator.class);
+        String node = context.getBean(HypervisorNodeRegistry.class).node((String) null).getName();
+        
+        // 일시적 오류는 백오프 후 다시 시도해 성공한다
+        Files.createFile(vboxDir.resolve("flaky"));
+        assertThat(virtualBox.getVMStatus("vm-flaky", null).get(10, TimeUnit.SECONDS)).isEqualTo("RUNNING");
+        assertThat(calls("vm-flaky")).isEqualTo(2);
+        
+        // 없는 VM 같은 영구 오류는 다시 시도하지 않고 차단기에도 세지 않는다
+        for (int i = 0; i < 5; i++) {
+            assertThat(virtualBox.getVMStatus("vm-missing", null).get(10, TimeUnit.SECONDS)).isEqualTo("ERROR");
+        }
+        assertThat(calls("vm-missing")).isEqualTo(5);
+        assertThat(breaker.state(node)).isEqualTo(HypervisorCircuitBreaker.State.CLOSED);
+        assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+        
+        // VBoxSVC 가 멈추면 연속 실패 뒤 차단되고, 그 뒤 호출은 스크립트를 실행하지 않고 바로 실패한다
+        Files.createFile(vboxDir.resolve("wedged"));
+        assertThatThrownBy(() -> virtualBox.getVMStatus("vm-wedged", null).get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(HypervisorUnavailableException.class);
+        assertThat(breaker.state(node)).isEqualTo(HypervisorCircuitBreaker.State.OPEN);
+        assertThat(calls("vm-wedged")).isEqualTo(3);
+        
+        long started = System.currentTimeMillis();
+        assertThatThrownBy(() -> virtualBox.getVMStatus("vm-wedged", null).get(10, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(HypervisorUnavailableException.class);
+        assertThat(System.currentTimeMillis() - started).isLessThan(200);
+        assertThat(calls("vm-wedged")).isEqualTo(3);
+        assertThat(health.health().getStatus().getCode()).isEqualTo("DEGRADED");
+        assertThat(context.getBean(MeterRegistry.class).get("hypervisor.breaker.rejected").tag("node", node).counter().count())
+            .isGreaterThanOrEqualTo(1);
+        // 차단 중인 노드에는 새 호스트를 배치하지 않는다
+        assertThatThrownBy(() -> context.getBean(HypervisorNodeRegistry.class).place(1L, 512, 1, 1024))
+            .isInstanceOf(HypervisorUnavailableException.class);
+        
+        // 차단 시간이 지나면 시험 호출 하나가 성공해 다시 닫힌다
+        Files.delete(vboxDir.resolve("wedged"));
+        Thread.sleep(600);
+        assertThat(virtualBox.getVMStatus("vm-wedged", null).get(10, TimeUnit.SECONDS)).isEqualTo("RUNNING");
+        assertThat(breaker.state(node)).isEqualTo(HypervisorCircuitBreaker.State.CLOSED);
+        assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+    }
+    
+    private static long calls(String vmId) throws Exception {
+        return Files.readAllLines(vboxDir.resolve("calls.log")).stream()
+            .filter(line -> line.startsWith("showvminfo " + vmId + " "))
+            .count();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.PortLeaseRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * VM 생성이 잠깐 걸리는 VBoxManage 스크립트로 일괄 생성/삭제 API 가 요청 전체를 먼저 검사하고,
+ * 동시에 parallelism 개까지만 VM 을 만들며, 항목별 결과를 SSE 로 보내는지 확인한다.
+ */
+@TestPropertySource(properties = {
+    "host-batch.parallelism=2",
+    "host-batch.max-size=10"
+})
+class HostBatchTest extends HypervisorTestSupport {
+    
+    // createvm 부터 게스트 IP 확인까지를 VM 생성 중으로 보고 동시에 진행 중인 수의 최댓값을 남긴다
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        echo "$*" >> "$DIR/calls.log"
+        count() {
+            (
+                flock 9
+                n=$(( $(cat "$DIR/inflight" 2>/dev/null || echo 0) + $1 ))
+                echo $n > "$DIR/inflight"
+                echo $n >> "$DIR/peaks"
+            ) 9> "$DIR/lock"
+        }
+        case "$1" in
+            createvm) count 1; sleep 0.3 ;;
+            showvminfo) echo "UUID=\\"uuid-$2\\""; echo "VMState=\\"$(cat "$DIR/$2.state" 2>/dev/null || echo running)\\"" ;;
+            controlvm) [ "$3" = "poweroff" ] && echo poweroff > "$DIR/$2.state" ;;
+            guestproperty) count -1; echo "Value: 10.0.2.15" ;;
+        esac
+        exit 0
+        """;
+    
+    private static final ObjectMapper json = new ObjectMapper();
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+        registry.add("virtualbox.vm.disk-dir", vboxDir::toString);
+    }
+    
+    @Test
+    void batchIsValidatedUpFrontAndRunsWithBoundedParallelism() throws Exception {
+        User user = user("batch-owner");
+        HostRepository hosts = context.getBean(HostRepository.class);
+        
+        // 요청 안의 중복 이름은 아무것도 만들지 않고 거절한다
+        HttpResponse<String> duplicate = send(user, "POST", "/host/batch", body("dup-a", "dup-b", "dup-a"));
+        assertThat(duplicate.statusCode()).isEqualTo(400);
+        assertThat(hosts.findByUser(user)).isEmpty();
+        
+        List<String> names = List.of("batch-1", "batch-2", "batch-3", "batch-4", "batch-5", "batch-6");
+        HttpResponse<String> created = send(user, "POST", "/host/batch", body(names.toArray(String[]::new)));
+        assertThat(created.statusCode()).isEqualTo(200);
+        assertThat(created.headers().firstValue("Content-Type").orElse("")).startsWith("text/event-stream");
+        List<JsonNode> items = events(created.body(), "item");
+        assertThat(items).hasSize(6);
+        assertThat(items).allSatisfy(item -> {
+            assertThat(item.get("success").asBoolean()).isTrue();
+            assertThat(item.get("host").get("status").asText()).isEqualTo("RUNNING");
+        });
+        assertThat(items.stream().map(item -> item.get("hostName").asText())).containsExactlyInAnyOrderElementsOf(names);
+        JsonNode summary = events(created.body(), "end").get(0);
+        assertThat(summary.get("succeeded").asInt()).isEqualTo(6);
+        
+        // VM 생성은 동시에 두 개까지만 진행한다
+        List<Integer> peaks = Files.readAllLines(vboxDir.resolve("peaks")).stream().map(Integer::parseInt).toList();
+        assertThat(peaks.stream().mapToInt(Integer::intValue).max().orElse(0)).isEqualTo(2);
+        
+        // 포트는 묶음 전체에 이어진 구간으로 한 번에 잡는다
+        List<Host> saved = hosts.findByUser(user);
+        assertThat(saved).hasSize(6);
+        List<Integer> webPorts = saved.stream().map(Host::getPort80).sorted().toList();
+        assertThat(webPorts.get(5) - webPorts.get(0)).isEqualTo(5);
+        
+        // 이미 쓰는 이름이 하나라도 있으면 나머지도 만들지 않는다
+        HttpResponse<String> taken = send(user, "POST", "/host/batch", body("batch-new", "batch-3"));
+        assertThat(taken.statusCode()).isEqualTo(400);
+        assertThat(taken.body()).contains("batch-3");
+        assertThat(hosts.findByUser(user)).hasSize(6);
+        
+        // 남의 호스트나 없는 ID 가 섞이면 아무것도 지우지 않는다
+        String ids = saved.stream().map(host -> host.getId().toString()).collect(Collectors.joining(","));
+        assertThat(send(user, "DELETE", "/host/batch?hostIds=" + ids + ",999999", null).statusCode()).isEqualTo(400);
+        assertThat(hosts.findByUser(user)).hasSize(6);
+        
+        HttpResponse<String> deleted = send(user, "DELETE", "/host/batch?hostIds=" + ids, null);
+        assertThat(deleted.statusCode()).isEqualTo(200);
+        assertThat(events(deleted.body(), "item")).hasSize(6)
+            .allSatisfy(item -> assertThat(item.get("success").asBoolean()).isTrue());
+        assertThat(hosts.findByUser(user)).isEmpty();
+        assertThat(context.getBean(PortLeaseRepository.class).findPorts("web")).doesNotContainAnyElementsOf(webPorts);
+    }
+    
+    private static String body(String... names) {
+        return "{\"hosts\":[" + Arrays.stream(names)
+            .map(name -> "{\"hostName\":\"" + name + "\"}")
+            .collect(Collectors.joining(",")) + "]}";
+    }
+    
+    // SSE 본문에서 이름이 event 인 이벤트의 data 를 순서대로
+    private static List<JsonNode> events(String stream, String event) throws Exception {
+        List<JsonNode> found = new ArrayList<>();
+        String name = null;
+        for (String line : stream.split("\n")) {
+            if (line.startsWith("event:")) {
+                name = line.substring(6).trim();
+            } else if (line.startsWith("data:") && event.equals(name)) {
+                found.add(json.readTree(line.substring(5)));
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.proxy.ProxyRouteTable;
+import com.example.webhosting.proxy.ReverseProxyServer;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.service.HostIdleManager;
+import com.example.webhosting.service.HostPowerService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 유휴 호스트 검사가 프록시 요청뿐 아니라 VM NIC 트래픽(SSH 등)도 사용으로 보는지, 잠든 호스트가 프록시 요청과
+ * POST /host/{id}/wake 로 깨어나는지 확인한다. VBoxManage 스크립트는 상태 파일과 NIC 카운터 파일을 읽는다.
+ */
+@TestPropertySource(properties = {
+    "virtualbox.power.state-poll-interval=10",
+    "hibernation.idle-timeout=60000",
+    "hibernation.network-threshold=4096"
+})
+class HostIdleTest extends HypervisorTestSupport {
+    
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        STATE="$DIR/$2.state"
+        case "$1" in
+            showvminfo) echo "VMState=\\"$(cat "$STATE" 2>/dev/null || echo running)\\"" ;;
+            startvm) echo running > "$STATE" ;;
+            controlvm)
+                case "$3" in
+                    savestate) echo saved > "$STATE" ;;
+                    acpipowerbutton|poweroff) echo poweroff > "$STATE" ;;
+                esac ;;
+            discardstate) echo poweroff > "$STATE" ;;
+            debugvm)
+                echo '<?xml version="1.0" encoding="UTF-8" standalone="no"?>'
+                echo '<Statistics>'
+                echo "<Counter c=\\"$(cat "$DIR/$2.nic" 2>/dev/null || echo 0)\\" unit=\\"bytes\\" name=\\"/Public/NetAdapter/0/BytesReceived\\"/>"
+                echo '<Counter c="512" unit="bytes" name="/Public/NetAdapter/0/BytesTransmitted"/>'
+                echo '</Statistics>' ;;
+        esac
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    private static HttpServer backend;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+    }
+    
+    @BeforeAll
+    static void startBackend() throws Exception {
+        backend = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        backend.createContext("/", exchange -> {
+            byte[] body = "awake".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        backend.start();
+    }
+    
+    @AfterAll
+    static void stopBackend() {
+        if (backend != null) {
+            backend.stop(0);
+        }
+    }
+    
+    @Test
+    void quietHostIsHibernatedAfterNicBaselineAndWokenByProxyRequest() throws Exception {
+        Host host = runningHost("quiet");
+        nicBytes(host, 1000);
+        HostIdleManager idle = context.getBean(HostIdleManager.class);
+        
+        // 처음 보는 호스트는 NIC 기준값만 잡는다
+        idle.scan();
+        assertStaysRunning(host);
+        
+        idle.scan();
+        awaitStatus(host.getId(), Host.HostStatus.HIBERNATED);
+        assertThat(vmState(host)).isEqualTo("saved");
+        
+        assertThat(proxyGet("quiet.localhost")).startsWith("HTTP/1.1 200").endsWith("awake");
+        assertThat(status(host)).isEqualTo(Host.HostStatus.RUNNING);
+        assertThat(vmState(host)).isEqualTo("running");
+    }
+    
+    @Test
+    void sshTrafficKeepsHostAwake() throws Exception {
+        Host host = runningHost("tenant-ssh");
+        nicBytes(host, 1000);
+        HostIdleManager idle = context.getBean(HostIdleManager.class);
+        idle.scan();
+        
+        // 프록시 요청은 없고 포워딩된 SSH 포트로만 작업 중
+        nicBytes(host, 200_000);
+        idle.scan();
+        assertStaysRunning(host);
+        
+        // 트래픽이 멎어도 idle-timeout 이 지나기 전에는 재우지 않는다
+        idle.scan();
+        assertStaysRunning(host);
+    }
+    
+    @Test
+    void wakeEndpointResumesHibernatedHost() throws Exception {
+        Host host = runningHost("wake-api");
+        context.getBean(HostPowerService.class).hibernate(host.getId()).get(10, TimeUnit.SECONDS);
+        assertThat(vmState(host)).isEqualTo("saved");
+        
+        HttpResponse<String> response = send(host.getUser(), "POST", "/host/" + host.getId() + "/wake", null);
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).contains("\"status\":\"RUNNING\"");
+        assertThat(vmState(host)).isEqualTo("running");
+        assertThat(proxyGet("wake-api.localhost")).startsWith("HTTP/1.1 200").endsWith("awake");
+        
+        // 이미 깨어 있으면 그대로 돌려준다
+        assertThat(send(host.getUser(), "POST", "/host/" + host.getId() + "/wake", null).statusCode()).isEqualTo(200);
+    }
+    
+    private static void nicBytes(Host host, long bytes) throws Exception {
+        Files.writeString(vboxDir.resolve(host.getVmId() + ".nic"), String.valueOf(bytes));
+    }
+    
+    private static String vmState(Host host) throws Exception {
+        return Files.readString(vboxDir.resolve(host.getVmId() + ".state")).trim();
+    }
+    
+    private Host.HostStatus status(Host host) {
+        return context.getBean(HostRepository.class).findById(host.getId()).orElseThrow().getStatus();
+    }
+    
+    // 재우기는 비동기로 진행되므로 잠시 기다린 뒤 확인한다
+    private void assertStaysRunning(Host host) throws Exception {
+        Thread.sleep(300);
+        assertThat(status(host)).isEqualTo(Host.HostStatus.RUNNING);
+        assertThat(Files.exists(vboxDir.resolve(host.getVmId() + ".state"))).isFalse();
+    }
+    
+    private Host runningHost(String name) {
+        Host host = newHost(name, Host.HostStatus.RUNNING);
+        host.setPort80(backend.getAddress().getPort());
+        host.setUpdatedAt(LocalDateTime.now().minusHours(2));
+        host = save(host);
+        context.getBean(ProxyRouteTable.class).put(host);
+        return host;
+    }
+    
+    private void awaitStatus(Long hostId, Host.HostStatus status) throws InterruptedException {
+        HostRepository hosts = context.getBean(HostRepository.class);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (hosts.findById(hostId).orElseThrow().getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(hosts.findById(hostId).orElseThrow().getStatus()).isEqualTo(status);
+    }
+    
+    private String proxyGet(String hostHeader) throws Exception {
+        int port = context.getBean(ReverseProxyServer.class).getLocalPort();
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(15000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET / HTTP/1.1\r\nHost: " + hostHeader + "\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.service.HostLogService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로그 follow 가 청크 경계에 걸친 멀티바이트 문자를 깨뜨리지 않고, 메모리 버퍼가 없으면 압축 파일 내용을 보내며,
+ * 생성이 로그를 열기 전에 구독하면 열릴 때까지 기다리는지 확인한다.
+ */
+@TestPropertySource(properties = {
+    "hosting.logs.buffer-size=262144",
+    "hosting.logs.poll-interval=50"
+})
+class HostLogFollowTest extends HypervisorTestSupport {
+    
+    // 16KB 청크의 첫 경계가 '가' 의 첫 바이트 뒤에 온다
+    private static final String TEXT = "a".repeat(16 * 1024 - 1) + "가나다라마바사🙂".repeat(3000);
+    
+    private static Path logDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        fakeVBoxManage(registry, LIFECYCLE_VBOXMANAGE);
+        logDir = tempDirectory("logs");
+        registry.add("hosting.logs.directory", logDir::toString);
+    }
+    
+    @Test
+    void followKeepsMultibyteCharactersAcrossChunks() throws Exception {
+        Host host = save(newHost("logs-live", Host.HostStatus.CREATING));
+        HostLogService logs = context.getBean(HostLogService.class);
+        logs.open(host.getId());
+        logs.stream(host.getId()).write(TEXT.getBytes(StandardCharsets.UTF_8));
+        // 첫 전송은 메모리 버퍼에서, 닫힌 뒤에는 end 로 끝난다
+        CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS).execute(() -> logs.close(host.getId()));
+        
+        String body = send(host.getUser(), "GET", "/host/" + host.getId() + "/logs?follow=true", null).body();
+        assertThat(logText(body)).isEqualTo(TEXT);
+        assertThat(body).contains("event:end\ndata:" + TEXT.getBytes(StandardCharsets.UTF_8).length);
+    }
+    
+    @Test
+    void followStartedBeforeLogIsOpenedWaitsForIt() throws Exception {
+        Host host = save(newHost("logs-queued", Host.HostStatus.CREATING));
+        HostLogService logs = context.getBean(HostLogService.class);
+        
+        // 일괄 생성에서 차례를 기다리는 동안 구독한 상황
+        CompletableFuture<String> body = CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(host.getUser(), "GET", "/host/" + host.getId() + "/logs?follow=true", null).body();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(300);
+        assertThat(body).isNotDone();
+        
+        logs.open(host.getId());
+        logs.stream(host.getId()).write(TEXT.getBytes(StandardCharsets.UTF_8));
+        logs.close(host.getId());
+        
+        assertThat(logText(body.get(10, TimeUnit.SECONDS))).isEqualTo(TEXT);
+    }
+    
+    @Test
+    void followOfFailedCreateWithoutLogEnds() throws Exception {
+        Host host = save(newHost("logs-never", Host.HostStatus.CREATING));
+        CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS).execute(() -> {
+            host.setStatus(Host.HostStatus.ERROR);
+            save(host);
+        });
+        
+        String body = send(host.getUser(), "GET", "/host/" + host.getId() + "/logs?follow=true", null).body();
+        assertThat(body).contains("event:end\ndata:0");
+    }
+    
+    @Test
+    void followWithoutBufferSendsSpillFile() throws Exception {
+        Host host = save(newHost("logs-restarted", Host.HostStatus.RUNNING));
+        // 재시작 이후처럼 파일만 있는 상태
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(logDir.resolve("host-" + host.getId() + ".log.gz")))) {
+            out.write(TEXT.getBytes(StandardCharsets.UTF_8));
+        }
+        User owner = host.getUser();
+        
+        String body = send(owner, "GET", "/host/" + host.getId() + "/logs?follow=true", null).body();
+        assertThat(logText(body)).isEqualTo(TEXT);
+        assertThat(body).contains("event:end");
+    }
+    
+    // log 이벤트의 data 를 순서대로 이어 붙인다
+    private static String logText(String body) {
+        StringBuilder text = new StringBuilder();
+        String event = null;
+        for (String line : body.split("\n")) {
+            if (line.startsWith("event:")) {
+                event = line.substring("event:".length());
+            } else if (line.startsWith("data:") && "log".equals(event)) {
+                text.append(line.substring("data:".length()));
+            } else if (line.isEmpty()) {
+                event = null;
+            }
+        }
+        return text.toString();
+    }
+}
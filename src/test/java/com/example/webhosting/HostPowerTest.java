@@ -0,0 +1,203 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.proxy.ProxyRouteTable;
+import com.example.webhosting.proxy.ReverseProxyServer;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.service.HostIdleManager;
+import com.example.webhosting.service.HostPowerService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 상태 파일로 VMState 를 흉내 내는 VBoxManage 스크립트로 전원 작업, 유휴 호스트 재우기와 프록시 요청으로 깨우기를 확인한다.
+ */
+@TestPropertySource(properties = {
+    "virtualbox.power.state-poll-interval=10",
+    "hibernation.idle-timeout=60000"
+})
+class HostPowerTest extends HypervisorTestSupport {
+    
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        STATE="$(dirname "$0")/$2.state"
+        case "$1" in
+            showvminfo) echo "VMState=\\"$(cat "$STATE" 2>/dev/null || echo running)\\"" ;;
+            startvm) echo running > "$STATE" ;;
+            controlvm)
+                case "$3" in
+                    savestate)
+                        while [ -f "$(dirname "$0")/$2.hold" ]; do sleep 0.02; done
+                        echo saved > "$STATE" ;;
+                    acpipowerbutton|poweroff) echo poweroff > "$STATE" ;;
+                esac ;;
+            discardstate) echo poweroff > "$STATE" ;;
+        esac
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    private static HttpServer backend;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+    }
+    
+    @BeforeAll
+    static void startBackend() throws Exception {
+        backend = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        backend.createContext("/", exchange -> {
+            byte[] body = "awake".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        backend.start();
+    }
+    
+    @AfterAll
+    static void stopBackend() {
+        if (backend != null) {
+            backend.stop(0);
+        }
+    }
+    
+    @Test
+    void idleHostIsHibernatedAndWokenByProxyRequest() throws Exception {
+        Host host = runningHost("sleepy", LocalDateTime.now().minusHours(2));
+        HostRepository hosts = context.getBean(HostRepository.class);
+        
+        context.getBean(HostIdleManager.class).scan();
+        awaitStatus(host.getId(), Host.HostStatus.HIBERNATED);
+        assertThat(vmState(host)).isEqualTo("saved");
+        
+        String response = proxyGet("sleepy.localhost");
+        assertThat(response).startsWith("HTTP/1.1 200").endsWith("awake");
+        assertThat(hosts.findById(host.getId()).orElseThrow().getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+        assertThat(vmState(host)).isEqualTo("running");
+    }
+    
+    @Test
+    void recentlyActiveHostIsNotHibernated() {
+        Host host = runningHost("busy", LocalDateTime.now());
+        
+        context.getBean(HostIdleManager.class).scan();
+        
+        assertThat(context.getBean(HostRepository.class).findById(host.getId()).orElseThrow().getStatus())
+            .isEqualTo(Host.HostStatus.RUNNING);
+    }
+    
+    @Test
+    void concurrentWakesShareOneResume() throws Exception {
+        Host host = runningHost("twice", LocalDateTime.now().minusHours(2));
+        HostPowerService power = context.getBean(HostPowerService.class);
+        power.hibernate(host.getId()).get(10, TimeUnit.SECONDS);
+        
+        var first = power.wake(host.getId());
+        var second = power.wake(host.getId());
+        
+        assertThat(second).isSameAs(first);
+        assertThat(first.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+    }
+    
+    @Test
+    void powerActionsFollowVmState() throws Exception {
+        Host host = runningHost("cycle", LocalDateTime.now());
+        HostPowerService power = context.getBean(HostPowerService.class);
+        
+        assertThat(power.stop(host.getId()).get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Host.HostStatus.STOPPED);
+        assertThat(vmState(host)).isEqualTo("poweroff");
+        assertThat(power.start(host.getId()).get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+        assertThat(vmState(host)).isEqualTo("running");
+        assertThat(power.restart(host.getId()).get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+        assertThat(power.suspend(host.getId()).get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Host.HostStatus.SUSPENDED);
+        assertThat(vmState(host)).isEqualTo("saved");
+        
+        // 사용자가 일시 중지한 호스트는 프록시 요청으로 깨우지 않는다
+        assertThatThrownBy(() -> power.wake(host.getId()).get(10, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(power.resume(host.getId()).get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+        assertThat(vmState(host)).isEqualTo("running");
+    }
+    
+    @Test
+    void stoppingSavedHostDiscardsState() throws Exception {
+        Host host = runningHost("discard", LocalDateTime.now());
+        HostPowerService power = context.getBean(HostPowerService.class);
+        power.suspend(host.getId()).get(10, TimeUnit.SECONDS);
+        
+        assertThat(power.stop(host.getId()).get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Host.HostStatus.STOPPED);
+        assertThat(vmState(host)).isEqualTo("poweroff");
+    }
+    
+    @Test
+    void hostDeletedDuringPowerActionKeepsNoRoute() throws Exception {
+        Host host = runningHost("vanish", LocalDateTime.now());
+        Path hold = vboxDir.resolve(host.getVmId() + ".hold");
+        Files.createFile(hold);
+        
+        // 재우는 동안 호스트가 지워진 상황 (삭제 경로는 프록시 경로부터 뺀다)
+        var hibernate = context.getBean(HostPowerService.class).hibernate(host.getId());
+        context.getBean(HostRepository.class).deleteById(host.getId());
+        context.getBean(ProxyRouteTable.class).remove(host.getHostName());
+        Files.delete(hold);
+        
+        assertThatThrownBy(() -> hibernate.get(10, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(proxyGet("vanish.localhost")).startsWith("HTTP/1.1 404");
+    }
+    
+    private static String vmState(Host host) throws Exception {
+        return Files.readString(vboxDir.resolve(host.getVmId() + ".state")).trim();
+    }
+    
+    private Host runningHost(String name, LocalDateTime updatedAt) {
+        Host host = newHost(name, Host.HostStatus.RUNNING);
+        host.setPort80(backend.getAddress().getPort());
+        host.setUpdatedAt(updatedAt);
+        host = save(host);
+        context.getBean(ProxyRouteTable.class).put(host);
+        return host;
+    }
+    
+    private void awaitStatus(Long hostId, Host.HostStatus status) throws InterruptedException {
+        HostRepository hosts = context.getBean(HostRepository.class);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (hosts.findById(hostId).orElseThrow().getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(hosts.findById(hostId).orElseThrow().getStatus()).isEqualTo(status);
+    }
+    
+    private String proxyGet(String hostHeader) throws Exception {
+        int port = context.getBean(ReverseProxyServer.class).getLocalPort();
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(15000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET / HTTP/1.1\r\nHost: " + hostHeader + "\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.webhosting;
+
+import com.example.webhosting.dto.HostStatusDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.service.HostService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * showvminfo 가 느린 VBoxManage 스크립트로 같은 호스트의 동시 상태 조회가 호출 하나로 합쳐지고,
+ * 결과를 잠깐 다시 쓰며, VM 상태가 바뀐 경우에만 호스트를 갱신하는지 확인한다.
+ */
+@TestPropertySource(properties = "host-status.cache-ttl=500")
+class HostStatusTest extends HypervisorTestSupport {
+    
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        echo "$*" >> "$DIR/calls.log"
+        if [ "$1" = "showvminfo" ]; then
+            sleep 0.3
+            echo "VMState=\\"$(cat "$DIR/$2.state" 2>/dev/null || echo running)\\""
+        fi
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+    }
+    
+    @Test
+    void concurrentQueriesShareOneHypervisorCall() throws Exception {
+        Host host = host("status-shared");
+        HostService hosts = context.getBean(HostService.class);
+        HostRepository repository = context.getBean(HostRepository.class);
+        long version = repository.findById(host.getId()).orElseThrow().getVersion();
+        
+        List<CompletableFuture<HostStatusDto>> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(CompletableFuture.supplyAsync(() -> hosts.getHostStatus(host.getId(), host.getUser()))
+                .thenCompose(future -> future));
+        }
+        for (CompletableFuture<HostStatusDto> request : requests) {
+            HostStatusDto status = request.get(10, TimeUnit.SECONDS);
+            assertThat(status.getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+            assertThat(status.getVmState()).isEqualTo("RUNNING");
+        }
+        // 보관 시간 안의 조회는 다시 묻지 않는다
+        hosts.getHostStatus(host.getId(), host.getUser()).get(10, TimeUnit.SECONDS);
+        assertThat(queries(host)).isEqualTo(1);
+        // 상태가 그대로면 쓰지 않는다
+        assertThat(repository.findById(host.getId()).orElseThrow().getVersion()).isEqualTo(version);
+        
+        // 보관 시간이 지나면 다시 묻고, 바뀐 상태만 반영한다
+        Files.writeString(vboxDir.resolve(host.getVmId() + ".state"), "poweroff");
+        Thread.sleep(600);
+        HostStatusDto stopped = hosts.getHostStatus(host.getId(), host.getUser()).get(10, TimeUnit.SECONDS);
+        assertThat(stopped.getStatus()).isEqualTo(Host.HostStatus.STOPPED);
+        assertThat(stopped.getVmState()).isEqualTo("STOPPED");
+        assertThat(stopped.getCheckedAt()).isNotNull();
+        assertThat(queries(host)).isEqualTo(2);
+        assertThat(repository.findById(host.getId()).orElseThrow().getVersion()).isEqualTo(version + 1);
+        
+        Thread.sleep(600);
+        assertThat(hosts.getHostStatus(host.getId(), host.getUser()).get(10, TimeUnit.SECONDS).getStatus())
+            .isEqualTo(Host.HostStatus.STOPPED);
+        assertThat(queries(host)).isEqualTo(3);
+        assertThat(repository.findById(host.getId()).orElseThrow().getVersion()).isEqualTo(version + 1);
+    }
+    
+    private static long queries(Host host) throws Exception {
+        return Files.readAllLines(vboxDir.resolve("calls.log")).stream()
+            .filter(line -> line.startsWith("showvminfo " + host.getVmId() + " "))
+            .count();
+    }
+    
+    private Host host(String name) {
+        Host host = newHost(name, Host.HostStatus.RUNNING);
+        host.setPort80(18080);
+        return save(host);
+    }
+}
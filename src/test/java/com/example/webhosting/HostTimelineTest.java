@@ -0,0 +1,110 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.HostTimelineSpan;
+import com.example.webhosting.entity.HostTimelineSpan.SpanType;
+import com.example.webhosting.repository.HostTimelineSpanRepository;
+import com.example.webhosting.service.HostTimelineRecorder;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 호스트 타임라인 링 버퍼가 가득 차면 오래된 span 부터 버리고, 작업이 끝나면 저장되며, 호스트를 지우면 함께 지워지는지 확인한다.
+ * 링은 4칸, 출력은 뒤쪽 16자만 남긴다.
+ */
+@TestPropertySource(properties = {
+    "timeline.max-spans=4",
+    "timeline.output-limit=16"
+})
+class HostTimelineTest extends HypervisorTestSupport {
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        fakeVBoxManage(registry, LIFECYCLE_VBOXMANAGE);
+    }
+    
+    @Test
+    void ringKeepsNewestSpansWhenFull() {
+        Host host = save(newHost("timeline-ring", Host.HostStatus.CREATING));
+        HostTimelineRecorder timeline = context.getBean(HostTimelineRecorder.class);
+        
+        record(timeline, host, 6);
+        
+        assertThat(timeline.getTimeline(host.getId()))
+            .extracting(HostTimelineSpan::getSeq)
+            .containsExactly(2, 3, 4, 5);
+        timeline.complete(host.getId());
+    }
+    
+    @Test
+    void completedTimelineIsPersisted() {
+        Host host = save(newHost("timeline-saved", Host.HostStatus.CREATING));
+        HostTimelineRecorder timeline = context.getBean(HostTimelineRecorder.class);
+        HostTimelineSpanRepository spans = context.getBean(HostTimelineSpanRepository.class);
+        
+        timeline.begin(host.getId());
+        try (HostTimelineRecorder.Scope scope = timeline.bind(host.getId())) {
+            timeline.start(SpanType.VBOX, "createvm").end(1, "0123456789abcdefghijklmnop", false);
+        }
+        assertThat(spans.findByHostIdOrderByStartedAtAscSeqAsc(host.getId())).isEmpty();
+        
+        timeline.complete(host.getId());
+        
+        assertThat(spans.findByHostIdOrderByStartedAtAscSeqAsc(host.getId())).singleElement().satisfies(span -> {
+            assertThat(span.getName()).isEqualTo("createvm");
+            assertThat(span.getExitCode()).isEqualTo(1);
+            assertThat(span.getSuccess()).isFalse();
+            assertThat(span.getOutput()).isEqualTo("...abcdefghijklmnop");
+        });
+        // 저장된 뒤에도 같은 내용을 한 번만 돌려준다
+        assertThat(timeline.getTimeline(host.getId())).hasSize(1);
+    }
+    
+    @Test
+    void deletingHostDiscardsItsTimeline() throws Exception {
+        Host host = newHost("timeline-deleted", Host.HostStatus.ERROR);
+        host.setVmId(null);
+        host = save(host);
+        HostTimelineRecorder timeline = context.getBean(HostTimelineRecorder.class);
+        HostTimelineSpanRepository spans = context.getBean(HostTimelineSpanRepository.class);
+        record(timeline, host, 2);
+        timeline.complete(host.getId());
+        assertThat(spans.findByHostIdOrderByStartedAtAscSeqAsc(host.getId())).hasSize(2);
+        
+        HttpResponse<String> deleted = send(host.getUser(), "DELETE", "/host?hostId=" + host.getId(), null);
+        
+        assertThat(deleted.statusCode()).isEqualTo(200);
+        assertThat(spans.findByHostIdOrderByStartedAtAscSeqAsc(host.getId())).isEmpty();
+    }
+    
+    @Test
+    void timelineIsOnlyShownToOwner() throws Exception {
+        Host host = save(newHost("timeline-owned", Host.HostStatus.CREATING));
+        HostTimelineRecorder timeline = context.getBean(HostTimelineRecorder.class);
+        record(timeline, host, 3);
+        
+        HttpResponse<String> owner = send(host.getUser(), "GET", "/host/" + host.getId() + "/timeline", null);
+        assertThat(owner.statusCode()).isEqualTo(200);
+        assertThat(owner.body()).contains("\"name\":\"step-0\"", "\"name\":\"step-2\"");
+        
+        HttpResponse<String> stranger = send(user("timeline-stranger"), "GET", "/host/" + host.getId() + "/timeline", null);
+        assertThat(stranger.statusCode()).isEqualTo(400);
+        assertThat(stranger.body()).doesNotContain("step-0");
+        timeline.complete(host.getId());
+    }
+    
+    private static void record(HostTimelineRecorder timeline, Host host, int count) {
+        timeline.begin(host.getId());
+        try (HostTimelineRecorder.Scope scope = timeline.bind(host.getId())) {
+            for (int i = 0; i < count; i++) {
+                timeline.start(SpanType.PHASE, "step-" + i).end(true);
+            }
+        }
+    }
+}
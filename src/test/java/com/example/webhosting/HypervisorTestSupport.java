@@ -0,0 +1,137 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.UserRepository;
+import com.example.webhosting.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * 가짜 VBoxManage 스크립트로 애플리케이션 전체를 띄우는 통합 테스트의 공통 설정.
+ * 하위 클래스는 @DynamicPropertySource 에서 fakeVBoxManage 로 스크립트를 등록하고, 클래스별 설정은 @TestPropertySource 로 더한다.
+ * 컨텍스트는 캐시되어 다른 테스트 클래스가 도는 동안에도 살아 있으므로 컨텍스트마다 H2 메모리 DB 를 따로 쓴다.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.devtools.restart.enabled=false",
+    "proxy.port=0",
+    "management.server.port=0",
+    "health.enabled=false",
+    "proxy.cache.enabled=false",
+    "virtualbox.provisioning.ip-poll-interval=10",
+    "virtualbox.provisioning.boot-wait=0",
+    "virtualbox.provisioning.ssh-ready-wait=0",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+abstract class HypervisorTestSupport {
+    
+    /**
+     * 호스트를 끝까지 만들고 지울 수 있는 스크립트. 호출은 calls.log 에 남기고, VMState 는 VM 별 .state 파일 (없으면 running).
+     */
+    protected static final String LIFECYCLE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        echo "$*" >> "$DIR/calls.log"
+        case "$1" in
+            createvm) sleep 0.5 ;;
+            showvminfo) echo "UUID=\\"uuid-$2\\""; echo "VMState=\\"$(cat "$DIR/$2.state" 2>/dev/null || echo running)\\"" ;;
+            controlvm) [ "$3" = "poweroff" ] && echo poweroff > "$DIR/$2.state" ;;
+            guestproperty) echo "Value: 10.0.2.15" ;;
+        esac
+        exit 0
+        """;
+    
+    private static final HttpClient http = HttpClient.newHttpClient();
+    
+    @Autowired
+    protected ConfigurableApplicationContext context;
+    
+    @LocalServerPort
+    private int port;
+    
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String name = "test-" + UUID.randomUUID();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:" + name);
+    }
+    
+    /**
+     * 스크립트를 새 임시 디렉터리에 실행 파일로 쓰고 virtualbox.manage-command 로 등록한다. 호출 기록 등을 남길 디렉터리를 돌려준다.
+     * 캐시된 컨텍스트의 예약 작업이 클래스가 끝난 뒤에도 스크립트를 부를 수 있으므로 디렉터리는 JVM 이 끝날 때 지운다.
+     */
+    protected static Path fakeVBoxManage(DynamicPropertyRegistry registry, String script) {
+        Path dir = tempDirectory("vbox");
+        Path file = dir.resolve("vboxmanage");
+        try {
+            Files.writeString(file, script);
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("virtualbox.manage-command", file::toString);
+        return dir;
+    }
+    
+    protected static Path tempDirectory(String prefix) {
+        try {
+            Path dir = Files.createTempDirectory(prefix);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> FileSystemUtils.deleteRecursively(dir.toFile())));
+            return dir;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    protected User user(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword("secret");
+        user.setEmail(name + "@example.com");
+        return context.getBean(UserRepository.class).save(user);
+    }
+    
+    /**
+     * "owner-" + name 사용자의 호스트 (VM ID 는 "vm-" + name). 저장하지 않으므로 필요한 값을 더 채운 뒤 save 한다.
+     */
+    protected Host newHost(String name, Host.HostStatus status) {
+        Host host = new Host();
+        host.setHostName(name);
+        host.setNameKey(name);
+        host.setUser(user("owner-" + name));
+        host.setVmId("vm-" + name);
+        host.setStatus(status);
+        return host;
+    }
+    
+    protected Host save(Host host) {
+        return context.getBean(HostRepository.class).save(host);
+    }
+    
+    protected HttpResponse<String> send(User user, String method, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Authorization", "Bearer " + context.getBean(JwtUtil.class).generateToken(user.getUsername()))
+            .header("Content-Type", "application/json")
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
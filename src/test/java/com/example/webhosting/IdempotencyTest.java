@@ -0,0 +1,90 @@
+package com.example.webhosting;
+
+import com.example.webhosting.dto.HostCreationDto;
+import com.example.webhosting.dto.HostResponseDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.service.HostService;
+import com.example.webhosting.service.JobLeaseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 같은 Idempotency-Key 로 다시 보낸 생성/삭제 요청이 VM 작업을 새로 시작하지 않고 처음 요청의 결과를 돌려주는지 확인한다.
+ * 메모리 보관 시간을 0 으로 두어 끝난 요청의 재시도는 DB 에 남은 키로 찾게 한다.
+ */
+@TestPropertySource(properties = "idempotency.cache-ttl=0")
+class IdempotencyTest extends HypervisorTestSupport {
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, LIFECYCLE_VBOXMANAGE);
+        registry.add("virtualbox.vm.disk-dir", vboxDir::toString);
+    }
+    
+    @Test
+    void retriedRequestsReturnTheOriginalOperation() throws Exception {
+        User user = user("idem-owner");
+        HostService hosts = context.getBean(HostService.class);
+        HostCreationDto dto = new HostCreationDto();
+        dto.setHostName("idem-site");
+        
+        // 처음 요청이 VM 을 만드는 동안 온 재시도는 같은 호스트를 돌려준다
+        CompletableFuture<HostResponseDto> original = hosts.createHost(dto, user, "create-1");
+        HostResponseDto retried = hosts.createHost(dto, user, "create-1").get(10, TimeUnit.SECONDS);
+        assertThat(retried.getStatus()).isEqualTo(Host.HostStatus.CREATING);
+        HostResponseDto created = original.get(10, TimeUnit.SECONDS);
+        assertThat(retried.getId()).isEqualTo(created.getId());
+        
+        // 끝난 뒤의 재시도는 DB 에 남은 키로 찾아 현재 상태를 돌려준다
+        HostResponseDto later = hosts.createHost(dto, user, "create-1").get(10, TimeUnit.SECONDS);
+        assertThat(later.getId()).isEqualTo(created.getId());
+        assertThat(later.getStatus()).isNotEqualTo(Host.HostStatus.CREATING);
+        assertThat(calls("createvm")).isEqualTo(1);
+        assertThat(context.getBean(HostRepository.class).findByUser(user)).hasSize(1);
+        
+        // 같은 키로 다른 요청은 거절한다
+        HostCreationDto other = new HostCreationDto();
+        other.setHostName("idem-other");
+        assertThatThrownBy(() -> hosts.createHost(other, user, "create-1"))
+            .isInstanceOf(IllegalArgumentException.class);
+        
+        // 웹 서버 설정이 끝나 생성 임대가 풀릴 때까지 삭제는 거절된다
+        awaitCreateFinished(created.getId());
+        
+        // 삭제도 재시도는 처음 삭제의 결과만 돌려준다
+        assertThat(hosts.deleteHost(created.getId(), user, "delete-1").get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(hosts.deleteHost(created.getId(), user, "delete-1").get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(calls("unregistervm")).isEqualTo(1);
+        assertThatThrownBy(() -> hosts.createHost(dto, user, "create-1").get(10, TimeUnit.SECONDS))
+            .hasMessageContaining("호스트를 찾을 수 없습니다");
+    }
+    
+    private void awaitCreateFinished(Long hostId) throws InterruptedException {
+        JobLeaseService leases = context.getBean(JobLeaseService.class);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (leases.isHeld(hostId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(leases.isHeld(hostId)).isFalse();
+    }
+    
+    private static long calls(String command) throws Exception {
+        return Files.readAllLines(vboxDir.resolve("calls.log")).stream()
+            .filter(line -> line.startsWith(command + " "))
+            .count();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.JobLease;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.JobLeaseRepository;
+import com.example.webhosting.repository.UserRepository;
+import com.example.webhosting.service.JobLeaseService;
+import com.example.webhosting.service.PortAllocator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 같은 파일 DB 를 쓰는 애플리케이션 인스턴스 두 개를 띄워 포트 임대, 작업 임대, 호스트 낙관적 잠금을 확인한다.
+ */
+class MultiInstanceTest {
+    
+    @TempDir
+    static Path dataDir;
+    
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+    
+    @BeforeAll
+    static void startInstances() {
+        first = start("instance-a");
+        second = start("instance-b");
+    }
+    
+    @AfterAll
+    static void stopInstances() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+    }
+    
+    private static ConfigurableApplicationContext start(String instanceId) {
+        // application.properties 보다 우선하도록 명령행 인자로 넘긴다
+        return new SpringApplicationBuilder(WebhostingApplication.class).run(
+            "--spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("shared").toAbsolutePath() + ";DB_CLOSE_DELAY=-1",
+            "--spring.jpa.hibernate.ddl-auto=update",
+            "--spring.jpa.show-sql=false",
+            "--spring.devtools.restart.enabled=false",
+            "--server.port=0",
+            "--proxy.port=0",
+            "--management.server.port=0",
+            "--health.enabled=false",
+            "--cluster.instance-id=" + instanceId,
+            "--logging.level.org.hibernate.SQL=INFO",
+            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO");
+    }
+    
+    @Test
+    void portsAreNotHandedOutTwiceAcrossInstances() throws Exception {
+        PortAllocator a = first.getBean(PortAllocator.class);
+        PortAllocator b = second.getBean(PortAllocator.class);
+        
+        // 두 인스턴스 모두 같은 빈 포트부터 고르므로 대부분의 후보가 충돌한다
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<List<Integer>>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                PortAllocator allocator = t % 2 == 0 ? a : b;
+                long base = 1000L * (t + 1);
+                tasks.add(() -> {
+                    List<Integer> ports = new ArrayList<>();
+                    for (int i = 0; i < 25; i++) {
+                        ports.add(allocator.allocateWebPort(base + i));
+                    }
+                    return ports;
+                });
+            }
+            Set<Integer> unique = new HashSet<>();
+            int total = 0;
+            for (Future<List<Integer>> result : executor.invokeAll(tasks)) {
+                total += result.get().size();
+                unique.addAll(result.get());
+            }
+            assertThat(total).isEqualTo(100);
+            assertThat(unique).hasSize(100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void jobLeaseHasSingleOwnerUntilReleasedOrExpired() {
+        JobLeaseService a = first.getBean(JobLeaseService.class);
+        JobLeaseService b = second.getBean(JobLeaseService.class);
+        Long hostId = 424242L;
+        
+        assertThat(a.acquire(hostId, JobLease.JobType.CREATE)).isTrue();
+        assertThat(b.acquire(hostId, JobLease.JobType.DELETE)).isFalse();
+        // 같은 인스턴스라도 유효한 임대의 작업 종류는 바꾸지 않는다
+        assertThat(a.acquire(hostId, JobLease.JobType.DELETE)).isFalse();
+        assertThat(leases(first).findById(hostId).orElseThrow().getJob()).isEqualTo(JobLease.JobType.CREATE);
+        a.release(hostId, JobLease.JobType.CREATE);
+        assertThat(b.acquire(hostId, JobLease.JobType.DELETE)).isTrue();
+        
+        // 소유 인스턴스의 하트비트가 끊긴 상황
+        JobLeaseRepository leases = leases(first);
+        JobLease lease = leases.findById(hostId).orElseThrow();
+        lease.setExpiresAt(LocalDateTime.now().minusMinutes(5));
+        leases.save(lease);
+        
+        List<JobLease> reclaimed = a.reclaimExpired();
+        assertThat(reclaimed).extracting(JobLease::getHostId).contains(hostId);
+        assertThat(leases.findById(hostId).orElseThrow().getOwner()).isEqualTo("instance-a");
+        assertThat(b.acquire(hostId, JobLease.JobType.DELETE)).isFalse();
+        a.release(hostId, JobLease.JobType.DELETE);
+    }
+    
+    private static JobLeaseRepository leases(ConfigurableApplicationContext context) {
+        return context.getBean(JobLeaseRepository.class);
+    }
+    
+    @Test
+    void staleHostUpdateIsRejected() {
+        User user = new User();
+        user.setUsername("cluster-user");
+        user.setPassword("secret");
+        user.setEmail("cluster-user@example.com");
+        user = first.getBean(UserRepository.class).save(user);
+        
+        Host host = new Host();
+        host.setHostName("cluster-site");
+        host.setNameKey("cluster-site");
+        host.setUser(user);
+        HostRepository hostsA = first.getBean(HostRepository.class);
+        HostRepository hostsB = second.getBean(HostRepository.class);
+        Long hostId = hostsA.save(host).getId();
+        
+        Host seenByA = hostsA.findById(hostId).orElseThrow();
+        Host seenByB = hostsB.findById(hostId).orElseThrow();
+        
+        seenByA.setStatus(Host.HostStatus.RUNNING);
+        hostsA.save(seenByA);
+        
+        seenByB.setStatus(Host.HostStatus.ERROR);
+        assertThatThrownBy(() -> hostsB.save(seenByB)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(hostsB.findById(hostId).orElseThrow().getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+    }
+}
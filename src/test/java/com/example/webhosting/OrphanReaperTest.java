@@ -0,0 +1,118 @@
+package com.example.webhosting;
+
+import com.example.webhosting.config.ReaperConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.service.OrphanReaper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 목록 출력을 파일로 정해 두는 VBoxManage 스크립트로 고아 VM/디스크만 골라 지우는지 확인한다.
+ */
+@TestPropertySource(properties = "reaper.grace-period=0")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrphanReaperTest extends HypervisorTestSupport {
+    
+    // list vms / list hdds 는 미리 써 둔 파일을 출력하고 나머지 호출은 calls 파일에 남긴다
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        case "$1" in
+            list) cat "$DIR/$2" ;;
+            showvminfo) echo 'VMState="poweroff"' ;;
+            *) echo "$@" >> "$DIR/calls" ;;
+        esac
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    private static Path diskDir;
+    
+    private Host kept;
+    private Host creating;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+        diskDir = tempDirectory("disks");
+        registry.add("virtualbox.vm.disk-dir", diskDir::toString);
+    }
+    
+    @BeforeAll
+    void createHosts() {
+        User user = user("reaper-owner");
+        kept = host(user, "kept", Host.HostStatus.RUNNING);
+        kept.setVmId("uuid-kept");
+        kept.setVmName("webhosting-kept-" + kept.getId());
+        kept = save(kept);
+        creating = host(user, "fresh", Host.HostStatus.CREATING);
+    }
+    
+    @BeforeEach
+    void writeInventory() throws Exception {
+        Files.deleteIfExists(vboxDir.resolve("calls"));
+        Files.writeString(vboxDir.resolve("vms"), String.join("\n",
+            "\"webhosting-kept-" + kept.getId() + "\" {uuid-kept}",
+            "\"webhosting-fresh-" + creating.getId() + "\" {uuid-fresh}",
+            "\"webhosting-lost-999\" {uuid-lost}",
+            "\"someone-else\" {uuid-other}") + "\n");
+        Files.writeString(vboxDir.resolve("hdds"), String.join("\n",
+            "UUID:           disk-kept",
+            "Location:       " + diskDir.resolve("webhosting-kept-" + kept.getId() + ".vdi"),
+            "In use by VMs:  webhosting-kept (UUID: uuid-kept)",
+            "",
+            "UUID:           disk-lost",
+            "Parent UUID:    base",
+            "Location:       " + diskDir.resolve("webhosting-gone-998.vdi"),
+            "",
+            "UUID:           disk-elsewhere",
+            "Location:       /var/lib/other/webhosting-x-1.vdi") + "\n");
+        Files.writeString(diskDir.resolve("webhosting-stray-997.vdi"), "");
+        Files.writeString(diskDir.resolve("webhosting-fresh-" + creating.getId() + ".vdi"), "");
+    }
+    
+    @Test
+    void reapsOnlyUnknownVmsAndDisks() throws Exception {
+        context.getBean(OrphanReaper.class).scan();
+        
+        assertThat(Files.readAllLines(vboxDir.resolve("calls"))).containsExactlyInAnyOrder(
+            "unregistervm uuid-lost --delete",
+            "closemedium disk disk-lost --delete");
+        assertThat(diskDir.resolve("webhosting-stray-997.vdi")).doesNotExist();
+        assertThat(diskDir.resolve("webhosting-fresh-" + creating.getId() + ".vdi")).exists();
+    }
+    
+    @Test
+    void dryRunOnlyReports() throws Exception {
+        ReaperConfig config = context.getBean(ReaperConfig.class);
+        config.setDryRun(true);
+        try {
+            context.getBean(OrphanReaper.class).scan();
+        } finally {
+            config.setDryRun(false);
+        }
+        
+        assertThat(vboxDir.resolve("calls")).doesNotExist();
+        assertThat(diskDir.resolve("webhosting-stray-997.vdi")).exists();
+    }
+    
+    private Host host(User user, String name, Host.HostStatus status) {
+        Host host = new Host();
+        host.setHostName(name);
+        host.setNameKey(name);
+        host.setUser(user);
+        host.setStatus(status);
+        return save(host);
+    }
+}
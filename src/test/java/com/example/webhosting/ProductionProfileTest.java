@@ -0,0 +1,72 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 운영 프로필: Flyway 마이그레이션으로 만든 파일 DB 스키마가 엔티티 검증(ddl-auto=validate)을 통과하는지 확인한다.
+ */
+@SpringBootTest(properties = {"proxy.port=0", "management.server.port=0", "health.enabled=false"})
+@ActiveProfiles("prod")
+@DirtiesContext // 임시 디렉터리가 지워지기 전에 컨텍스트(DB)를 닫는다
+class ProductionProfileTest {
+    
+    @TempDir
+    static Path dataDir;
+    
+    @DynamicPropertySource
+    static void dataDir(DynamicPropertyRegistry registry) {
+        registry.add("hosting.data-dir", () -> dataDir.toAbsolutePath().toString());
+    }
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private HostRepository hostRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbc;
+    
+    @Test
+    void migratedSchemaMatchesEntitiesAndEnforcesHostNameUniqueness() {
+        assertThat(jdbc.queryForObject("select count(*) from \"flyway_schema_history\" where \"success\"", Integer.class))
+            .isGreaterThanOrEqualTo(1);
+        
+        User user = new User();
+        user.setUsername("prod-user");
+        user.setPassword("secret");
+        user.setEmail("prod-user@example.com");
+        User saved = userRepository.save(user);
+        
+        hostRepository.save(host(saved, "site", "1/site"));
+        assertThat(hostRepository.findByUserOrderByCreatedAtDesc(saved)).hasSize(1);
+        assertThatThrownBy(() -> hostRepository.save(host(saved, "site", null)))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+    
+    private static Host host(User user, String hostName, String nameKey) {
+        Host host = new Host();
+        host.setHostName(hostName);
+        host.setNameKey(nameKey);
+        host.setUser(user);
+        return host;
+    }
+}
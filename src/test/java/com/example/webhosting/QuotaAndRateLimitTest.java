@@ -0,0 +1,84 @@
+package com.example.webhosting;
+
+import com.example.webhosting.dto.HostCreationDto;
+import com.example.webhosting.dto.HostResponseDto;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.service.HostService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 사용자 할당량 (동시 생성 수, 메모리 합계) 을 넘는 생성은 VM 을 만들지 않고 거절하고,
+ * 사용자별 요청 속도를 넘은 API 요청은 필터에서 429 와 Retry-After 로 돌려보내는지 확인한다.
+ */
+@TestPropertySource(properties = {
+    "quota.max-concurrent-creates=1",
+    "quota.max-memory=2048",
+    "rate-limit.user-rate=0.1",
+    "rate-limit.user-burst=3"
+})
+class QuotaAndRateLimitTest extends HypervisorTestSupport {
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, LIFECYCLE_VBOXMANAGE);
+        registry.add("virtualbox.vm.disk-dir", vboxDir::toString);
+    }
+    
+    @Test
+    void createsBeyondQuotaAreRejected() throws Exception {
+        User user = user("quota-owner");
+        HostService hosts = context.getBean(HostService.class);
+        
+        // 첫 호스트가 생성 중인 동안 다음 생성은 거절한다
+        CompletableFuture<HostResponseDto> first = hosts.createHost(creation("quota-1"), user);
+        assertThatThrownBy(() -> hosts.createHost(creation("quota-2"), user))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("동시에 생성할 수 있는 호스트는 1개");
+        first.get(10, TimeUnit.SECONDS);
+        hosts.createHost(creation("quota-2"), user).get(10, TimeUnit.SECONDS);
+        
+        // 메모리 합계 (1024MB x 2) 가 다 찼으므로 API 로 보낸 다음 생성은 400
+        HttpResponse<String> third = send(user, "POST", "/host", "{\"hostName\":\"quota-3\"}");
+        assertThat(third.statusCode()).isEqualTo(400);
+        assertThat(third.body()).contains("2048MB");
+        assertThat(context.getBean(HostRepository.class).findByUser(user)).hasSize(2);
+        assertThat(Files.readAllLines(vboxDir.resolve("calls.log")).stream().filter(line -> line.startsWith("createvm "))).hasSize(2);
+    }
+    
+    @Test
+    void requestsBeyondUserRateGet429WithRetryAfter() throws Exception {
+        User user = user("rate-owner");
+        for (int i = 0; i < 3; i++) {
+            assertThat(send(user, "GET", "/host", null).statusCode()).isEqualTo(200);
+        }
+        HttpResponse<String> limited = send(user, "GET", "/host", null);
+        assertThat(limited.statusCode()).isEqualTo(429);
+        // 초당 0.1 개이므로 토큰 하나가 다시 찰 때까지 10초
+        assertThat(limited.headers().firstValue("Retry-After")).hasValue("10");
+        assertThat(limited.body()).contains("\"success\":false");
+        
+        // 다른 사용자는 자기 버킷으로 센다
+        assertThat(send(user("rate-other"), "GET", "/host", null).statusCode()).isEqualTo(200);
+    }
+    
+    private static HostCreationDto creation(String name) {
+        HostCreationDto dto = new HostCreationDto();
+        dto.setHostName(name);
+        return dto;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.UserRepository;
+import com.example.webhosting.service.RefreshTokenService;
+import com.example.webhosting.service.TokenRevocationService;
+import com.example.webhosting.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 리프레시 토큰 회전과 재사용 감지, 로그아웃 시 토큰 폐기를 확인한다.
+ */
+@SpringBootTest(properties = "proxy.port=0")
+class RefreshTokenServiceTest {
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JwtUtil jwtUtil;
+    
+    @Test
+    void reusedTokenRevokesWholeFamily() {
+        String first = refreshTokenService.issue(user("refresh-reuse"));
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first);
+        assertThat(rotation.username).isEqualTo("refresh-reuse");
+        
+        // 이미 회전한 토큰을 다시 쓰면 거절하고, 그 사이 정상적으로 받은 토큰까지 폐기한다
+        assertThatThrownBy(() -> refreshTokenService.rotate(first))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("이미 사용된");
+        assertThatThrownBy(() -> refreshTokenService.rotate(rotation.refreshToken))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("이미 사용된");
+    }
+    
+    @Test
+    void concurrentRotationOfSameTokenSucceedsOnce() throws Exception {
+        String token = refreshTokenService.issue(user("refresh-race"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<RefreshTokenService.Rotation>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return refreshTokenService.rotate(token);
+                }));
+            }
+            start.countDown();
+            
+            List<RefreshTokenService.Rotation> rotations = new ArrayList<>();
+            int rejected = 0;
+            for (Future<RefreshTokenService.Rotation> result : results) {
+                try {
+                    rotations.add(result.get());
+                } catch (Exception e) {
+                    assertThat(e).hasCauseInstanceOf(IllegalArgumentException.class);
+                    rejected++;
+                }
+            }
+            assertThat(rotations).hasSize(1);
+            assertThat(rejected).isEqualTo(1);
+            
+            // 진 쪽이 재사용으로 처리되어 이긴 쪽이 받은 새 토큰도 쓸 수 없다
+            assertThatThrownBy(() -> refreshTokenService.rotate(rotations.get(0).refreshToken))
+                .isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void revokedRefreshTokenCannotRotate() {
+        String token = refreshTokenService.issue(user("refresh-logout"));
+        refreshTokenService.revoke(token);
+        assertThatThrownBy(() -> refreshTokenService.rotate(token))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate("unknown-token"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("유효하지 않은");
+    }
+    
+    @Test
+    void revokedAccessTokenIsRejected() {
+        Claims revoked = jwtUtil.parseValidClaims(jwtUtil.generateToken("access-logout"));
+        Claims other = jwtUtil.parseValidClaims(jwtUtil.generateToken("access-logout"));
+        assertThat(tokenRevocationService.isRevoked(revoked.getId())).isFalse();
+        
+        tokenRevocationService.revoke(revoked.getId(), revoked.getExpiration());
+        assertThat(tokenRevocationService.isRevoked(revoked.getId())).isTrue();
+        assertThat(tokenRevocationService.isRevoked(other.getId())).isFalse();
+    }
+    
+    private User user(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword("secret");
+        user.setEmail(name + "@example.com");
+        return userRepository.save(user);
+    }
+}
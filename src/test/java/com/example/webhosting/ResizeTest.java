@@ -0,0 +1,150 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.service.HostResizeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * VMState 를 파일로 흉내 내는 VBoxManage 스크립트로 요금제 변경 시 바뀌는 자원에 따라
+ * 핫플러그/상태 저장 후 디스크 확장/재부팅/꺼진 VM 설정 변경 중 맞는 방법을 고르는지 확인한다.
+ */
+@TestPropertySource(properties = {
+    "virtualbox.power.state-poll-interval=10",
+    "virtualbox.power.shutdown-timeout=2000",
+    "virtualbox.plans[0].name=small",
+    "virtualbox.plans[0].cpus=1",
+    "virtualbox.plans[0].memory=512",
+    "virtualbox.plans[0].disk-size=8192",
+    "virtualbox.plans[1].name=fast",
+    "virtualbox.plans[1].cpus=3",
+    "virtualbox.plans[1].memory=512",
+    "virtualbox.plans[1].disk-size=8192",
+    "virtualbox.plans[2].name=roomy",
+    "virtualbox.plans[2].cpus=3",
+    "virtualbox.plans[2].memory=512",
+    "virtualbox.plans[2].disk-size=16384",
+    "virtualbox.plans[3].name=large",
+    "virtualbox.plans[3].cpus=4",
+    "virtualbox.plans[3].memory=2048",
+    "virtualbox.plans[3].disk-size=16384"
+})
+class ResizeTest extends HypervisorTestSupport {
+    
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        STATE="$DIR/$2.state"
+        echo "$*" >> "$DIR/calls.log"
+        case "$1" in
+            showvminfo) echo "VMState=\\"$(cat "$STATE" 2>/dev/null || echo running)\\"" ;;
+            startvm) echo running > "$STATE" ;;
+            controlvm)
+                case "$3" in
+                    savestate) echo saved > "$STATE" ;;
+                    acpipowerbutton|poweroff) echo poweroff > "$STATE" ;;
+                esac ;;
+        esac
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+        registry.add("virtualbox.vm.disk-dir", vboxDir::toString);
+    }
+    
+    @Test
+    void runningHostIsResizedWithLeastDowntime() throws Exception {
+        Host host = host("resize-live", Host.HostStatus.RUNNING);
+        HostResizeService resize = context.getBean(HostResizeService.class);
+        
+        // vCPU 만 늘면 핫플러그로 꽂고 멈추지 않는다
+        resize.resize(host.getId(), "fast").get(10, TimeUnit.SECONDS);
+        assertThat(calls(host)).filteredOn(line -> !line.startsWith("showvminfo")).containsExactly(
+            "controlvm vm-resize-live plugcpu 1",
+            "controlvm vm-resize-live plugcpu 2");
+        
+        // 디스크만 늘면 상태를 저장한 동안 디스크를 키우고 저장된 상태에서 재개한다
+        resize.resize(host.getId(), "roomy").get(10, TimeUnit.SECONDS);
+        assertThat(calls(host)).filteredOn(line -> !line.startsWith("showvminfo")).containsExactly(
+            "controlvm vm-resize-live savestate",
+            "modifymedium disk " + vboxDir + "/vm-resize-live.vdi --resize 16384",
+            "startvm vm-resize-live --type headless");
+        
+        // 메모리가 바뀌면 정상 종료 후 바꾸고 다시 부팅한다
+        resize.resize(host.getId(), "large").get(10, TimeUnit.SECONDS);
+        assertThat(calls(host)).filteredOn(line -> !line.startsWith("showvminfo")).containsExactly(
+            "controlvm vm-resize-live acpipowerbutton",
+            "modifyvm vm-resize-live --memory 2048",
+            "modifyvm vm-resize-live --plugcpu 3",
+            "startvm vm-resize-live --type headless");
+        
+        Host saved = context.getBean(HostRepository.class).findById(host.getId()).orElseThrow();
+        assertThat(saved.getPlan()).isEqualTo("large");
+        assertThat(saved.getCpus()).isEqualTo(4);
+        assertThat(saved.getMemory()).isEqualTo(2048);
+        assertThat(saved.getDiskSize()).isEqualTo(16384);
+        assertThat(saved.getStatus()).isEqualTo(Host.HostStatus.RUNNING);
+        
+        // 디스크는 줄일 수 없다
+        assertThatThrownBy(() -> resize.resize(host.getId(), "small"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> resize.resize(host.getId(), "huge"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void stoppedHostIsReconfiguredWithoutStarting() throws Exception {
+        Host host = host("resize-off", Host.HostStatus.STOPPED);
+        Files.writeString(vboxDir.resolve("vm-resize-off.state"), "poweroff");
+        
+        context.getBean(HostResizeService.class).resize(host.getId(), "large").get(10, TimeUnit.SECONDS);
+        assertThat(calls(host)).filteredOn(line -> !line.startsWith("showvminfo")).containsExactly(
+            "modifyvm vm-resize-off --memory 2048",
+            "modifyvm vm-resize-off --plugcpu 1",
+            "modifyvm vm-resize-off --plugcpu 2",
+            "modifyvm vm-resize-off --plugcpu 3",
+            "modifymedium disk " + vboxDir + "/vm-resize-off.vdi --resize 16384");
+        assertThat(Files.readString(vboxDir.resolve("vm-resize-off.state")).trim()).isEqualTo("poweroff");
+        
+        // 일시 중지된 호스트는 먼저 재개해야 한다
+        Host suspended = host("resize-saved", Host.HostStatus.SUSPENDED);
+        assertThatThrownBy(() -> context.getBean(HostResizeService.class).resize(suspended.getId(), "fast"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    // 이 호스트 VM 에 대한 호출을 돌려주고 다음 확인을 위해 로그에서 지운다
+    private static List<String> calls(Host host) throws Exception {
+        Path log = vboxDir.resolve("calls.log");
+        List<String> lines = Files.readAllLines(log);
+        List<String> mine = lines.stream().filter(line -> line.contains(host.getVmId())).toList();
+        Files.write(log, lines.stream().filter(line -> !line.contains(host.getVmId())).toList());
+        return mine;
+    }
+    
+    private Host host(String name, Host.HostStatus status) {
+        Host host = newHost(name, status);
+        host.setVmName("vm-" + name);
+        host.setPort80(18080);
+        host.setPlan("small");
+        host.setCpus(1);
+        host.setMemory(512);
+        host.setDiskSize(8192);
+        host.setMaxCpus(4);
+        return save(host);
+    }
+}
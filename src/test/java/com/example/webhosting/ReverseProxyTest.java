@@ -0,0 +1,158 @@
+package com.example.webhosting;
+
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.proxy.ProxyRouteTable;
+import com.example.webhosting.proxy.ReverseProxyServer;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 리버스 프록시의 Host 헤더 라우팅, 백엔드 keep-alive 연결 재사용, 백엔드 장애 시 502/504 응답.
+ */
+@TestPropertySource(properties = {
+    "proxy.idle-timeout=1000",
+    "proxy.connect-timeout=1000"
+})
+class ReverseProxyTest extends HypervisorTestSupport {
+    
+    private static HttpServer alpha;
+    private static HttpServer beta;
+    // alpha 로 들어온 연결의 원격 포트 (백엔드 연결 하나당 하나)
+    private static final Set<Integer> alphaConnections = ConcurrentHashMap.newKeySet();
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        fakeVBoxManage(registry, LIFECYCLE_VBOXMANAGE);
+    }
+    
+    @BeforeAll
+    static void startBackends() throws Exception {
+        alpha = backend("alpha");
+        alpha.createContext("/connections", exchange -> {
+            alphaConnections.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        beta = backend("beta");
+    }
+    
+    @AfterAll
+    static void stopBackends() {
+        alpha.stop(0);
+        beta.stop(0);
+    }
+    
+    @Test
+    void routesByHostHeader() throws Exception {
+        route("alpha", alpha.getAddress().getPort());
+        route("beta", beta.getAddress().getPort());
+        
+        assertThat(proxyGet("/", "alpha.localhost")).startsWith("HTTP/1.1 200").endsWith("from alpha");
+        // 호스트명은 대소문자를 구분하지 않고 포트는 무시한다
+        assertThat(proxyGet("/", "BETA.LocalHost:8080")).startsWith("HTTP/1.1 200").endsWith("from beta");
+        
+        assertThat(proxyGet("/", "gamma.localhost")).startsWith("HTTP/1.1 404");
+        assertThat(proxyGet("/", "alpha.example.com")).startsWith("HTTP/1.1 404");
+        assertThat(proxyGet("/", "a.alpha.localhost")).startsWith("HTTP/1.1 404");
+        
+        context.getBean(ProxyRouteTable.class).remove("beta");
+        assertThat(proxyGet("/", "beta.localhost")).startsWith("HTTP/1.1 404");
+    }
+    
+    @Test
+    void reusesKeepAliveBackendConnection() throws Exception {
+        route("pooled", alpha.getAddress().getPort());
+        
+        // 클라이언트 연결은 매번 새로 열고 닫아도 백엔드 연결은 풀에서 다시 쓴다
+        for (int i = 0; i < 3; i++) {
+            assertThat(proxyGet("/connections", "pooled.localhost")).startsWith("HTTP/1.1 200").endsWith("ok");
+        }
+        assertThat(alphaConnections).hasSize(1);
+    }
+    
+    @Test
+    void unreachableBackendGets502() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        route("refused", closedPort);
+        assertThat(proxyGet("/", "refused.localhost")).startsWith("HTTP/1.1 502");
+        
+        // 응답 없이 연결을 끊는 백엔드
+        try (ServerSocket hangup = new ServerSocket(0)) {
+            route("hangup", hangup.getLocalPort());
+            Thread closer = new Thread(() -> {
+                try (Socket accepted = hangup.accept()) {
+                    accepted.getInputStream().read();
+                } catch (Exception ignored) {
+                }
+            });
+            closer.start();
+            assertThat(proxyGet("/", "hangup.localhost")).startsWith("HTTP/1.1 502");
+            closer.join(5000);
+        }
+    }
+    
+    @Test
+    void silentBackendGets504() throws Exception {
+        // 연결은 받지만 (커널 백로그) 응답하지 않는 백엔드
+        try (ServerSocket silent = new ServerSocket(0)) {
+            route("silent", silent.getLocalPort());
+            long started = System.currentTimeMillis();
+            String response = proxyGet("/", "silent.localhost");
+            assertThat(response).startsWith("HTTP/1.1 504");
+            assertThat(response).contains("백엔드 응답 시간이 초과되었습니다");
+            assertThat(System.currentTimeMillis() - started).isGreaterThanOrEqualTo(1000);
+        }
+    }
+    
+    private static HttpServer backend(String name) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = ("from " + name).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+    
+    private void route(String name, int port) {
+        Host host = newHost(name, Host.HostStatus.RUNNING);
+        host.setPort80(port);
+        context.getBean(ProxyRouteTable.class).put(save(host));
+    }
+    
+    private String proxyGet(String path, String hostHeader) throws Exception {
+        int port = context.getBean(ReverseProxyServer.class).getLocalPort();
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(15000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: " + hostHeader + "\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
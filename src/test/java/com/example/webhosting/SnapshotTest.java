@@ -0,0 +1,186 @@
+package com.example.webhosting;
+
+import com.example.webhosting.config.SnapshotConfig;
+import com.example.webhosting.dto.HostSnapshotDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.HostSnapshot;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import com.example.webhosting.repository.HostSnapshotRepository;
+import com.example.webhosting.service.HostSnapshotService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 스냅샷 폴더에 차등 이미지 파일을 만드는 VBoxManage 스크립트로 스냅샷 생성/복원/삭제와 예약 스냅샷의 분산/보존을 확인한다.
+ */
+@TestPropertySource(properties = {
+    "virtualbox.power.state-poll-interval=10",
+    "snapshot.interval=0",
+    "snapshot.scan-interval=3600000"
+})
+class SnapshotTest extends HypervisorTestSupport {
+    
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        STATE="$DIR/$2.state"
+        SNAPS="$DIR/$2-snapshots"
+        echo "$*" >> "$DIR/calls.log"
+        case "$1" in
+            showvminfo)
+                echo "VMState=\\"$(cat "$STATE" 2>/dev/null || echo running)\\""
+                echo "SnapFldr=\\"$SNAPS\\"" ;;
+            startvm) echo running > "$STATE" ;;
+            controlvm)
+                case "$3" in
+                    savestate) echo saved > "$STATE" ;;
+                    acpipowerbutton|poweroff) echo poweroff > "$STATE" ;;
+                esac ;;
+            discardstate) echo poweroff > "$STATE" ;;
+            snapshot)
+                case "$3" in
+                    take)
+                        sleep 0.2
+                        mkdir -p "$SNAPS"
+                        UUID="$(cat /proc/sys/kernel/random/uuid)"
+                        head -c 4096 /dev/zero > "$SNAPS/$UUID.vdi"
+                        echo "Snapshot taken. UUID: $UUID" ;;
+                    restore)
+                        [ -f "$SNAPS/$4.vdi" ] || exit 1
+                        echo "$4" > "$DIR/$2.restored"
+                        echo saved > "$STATE" ;;
+                    delete) rm "$SNAPS/$4.vdi" ;;
+                esac ;;
+        esac
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+    }
+    
+    @Test
+    void snapshotIsTakenLiveAndRestored() throws Exception {
+        Host host = host("snap-live", LocalDateTime.now());
+        User user = host.getUser();
+        HostSnapshotService snapshots = context.getBean(HostSnapshotService.class);
+        
+        HostSnapshotDto first = snapshots.createSnapshot(host.getId(), "before-upgrade", user).get(10, TimeUnit.SECONDS);
+        HostSnapshotDto second = snapshots.createSnapshot(host.getId(), null, user).get(10, TimeUnit.SECONDS);
+        
+        assertThat(first.getStatus()).isEqualTo(HostSnapshot.SnapshotStatus.READY);
+        assertThat(first.getSizeBytes()).isEqualTo(4096);
+        assertThat(second.getSizeBytes()).isEqualTo(4096);
+        assertThat(second.getName()).startsWith("manual-");
+        assertThat(first.getDurationMs()).isNotNull();
+        assertThat(Files.readString(vboxDir.resolve("calls.log")))
+            .contains("snapshot vm-snap-live take before-upgrade --live");
+        assertThat(snapshots.getSnapshots(host.getId(), user)).extracting(HostSnapshotDto::getId)
+            .containsExactly(second.getId(), first.getId());
+        
+        // 라이브 스냅샷은 저장된 상태로 복원되고 부팅 없이 이어서 실행된다
+        snapshots.restoreSnapshot(host.getId(), first.getId(), user).get(10, TimeUnit.SECONDS);
+        String uuid = context.getBean(HostSnapshotRepository.class).findById(first.getId()).orElseThrow().getSnapshotUuid();
+        assertThat(Files.readString(vboxDir.resolve("vm-snap-live.restored")).trim()).isEqualTo(uuid);
+        assertThat(vmState(host)).isEqualTo("running");
+        assertThat(context.getBean(HostRepository.class).findById(host.getId()).orElseThrow().getStatus())
+            .isEqualTo(Host.HostStatus.RUNNING);
+        
+        snapshots.deleteSnapshot(host.getId(), first.getId(), user).get(10, TimeUnit.SECONDS);
+        assertThat(snapshots.getSnapshots(host.getId(), user)).extracting(HostSnapshotDto::getId)
+            .containsExactly(second.getId());
+        assertThat(Files.exists(vboxDir.resolve("vm-snap-live-snapshots").resolve(uuid + ".vdi"))).isFalse();
+        
+        // 다른 사용자의 호스트는 보이지 않는다
+        User other = host("snap-other", LocalDateTime.now()).getUser();
+        assertThatThrownBy(() -> snapshots.getSnapshots(host.getId(), other))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void scheduledSnapshotsRespectNodeLimitAndRetention() throws Exception {
+        SnapshotConfig config = context.getBean(SnapshotConfig.class);
+        HostSnapshotService snapshots = context.getBean(HostSnapshotService.class);
+        HostSnapshotRepository repository = context.getBean(HostSnapshotRepository.class);
+        Host first = host("snap-auto-1", LocalDateTime.now().minusDays(1));
+        Host second = host("snap-auto-2", LocalDateTime.now().minusDays(1));
+        
+        config.setInterval(400);
+        config.setKeepScheduled(2);
+        config.setMaxPerNode(1);
+        try {
+            long deadline = System.currentTimeMillis() + 15000;
+            while ((takes(first) < 3 || takes(second) < 3) && System.currentTimeMillis() < deadline) {
+                snapshots.scan();
+                // 같은 노드에서는 한 번에 하나씩만 찍는다
+                assertThat(repository.findAll()).filteredOn(s -> s.getStatus() == HostSnapshot.SnapshotStatus.CREATING)
+                    .hasSizeLessThanOrEqualTo(1);
+                Thread.sleep(50);
+            }
+        } finally {
+            config.setInterval(0);
+        }
+        awaitIdle(repository);
+        
+        assertThat(takes(first)).isGreaterThanOrEqualTo(3);
+        assertThat(takes(second)).isGreaterThanOrEqualTo(3);
+        assertThat(scheduled(repository, first)).hasSize(2);
+        assertThat(scheduled(repository, second)).hasSize(2);
+        assertThat(Files.readString(vboxDir.resolve("calls.log"))).contains("snapshot vm-snap-auto-1 delete");
+    }
+    
+    private static long takes(Host host) throws Exception {
+        Path log = vboxDir.resolve("calls.log");
+        if (!Files.exists(log)) {
+            return 0;
+        }
+        return Files.readAllLines(log).stream()
+            .filter(line -> line.startsWith("snapshot " + host.getVmId() + " take"))
+            .count();
+    }
+    
+    private static List<HostSnapshot> scheduled(HostSnapshotRepository repository, Host host) {
+        return repository.findByHostIdAndScheduledTrueAndStatusOrderByCreatedAtAsc(host.getId(), HostSnapshot.SnapshotStatus.READY);
+    }
+    
+    // 진행 중인 예약 스냅샷과 뒤이은 보존 정리가 끝날 때까지 기다린다
+    private static void awaitIdle(HostSnapshotRepository repository) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        long size = -1;
+        while (System.currentTimeMillis() < deadline) {
+            long current = Files.size(vboxDir.resolve("calls.log"));
+            boolean creating = repository.findAll().stream().anyMatch(s -> s.getStatus() == HostSnapshot.SnapshotStatus.CREATING);
+            if (!creating && current == size) {
+                return;
+            }
+            size = current;
+            Thread.sleep(500);
+        }
+    }
+    
+    private static String vmState(Host host) throws Exception {
+        return Files.readString(vboxDir.resolve(host.getVmId() + ".state")).trim();
+    }
+    
+    private Host host(String name, LocalDateTime createdAt) {
+        Host host = newHost(name, Host.HostStatus.RUNNING);
+        host.setPort80(18080);
+        host.setCreatedAt(createdAt);
+        return save(host);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.webhosting;
+
+import com.example.webhosting.service.HypervisorNodeRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 용량이 다른 저장소 풀 두 개에서 여유 공간이 큰 풀을 고르고, 자리가 없으면 VM 작업 전에 거부하는지 확인한다.
+ */
+class StoragePoolTest extends HypervisorTestSupport {
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        Path fast = tempDirectory("fast");
+        Path bulk = tempDirectory("bulk");
+        registry.add("virtualbox.storage-pools[0].name", () -> "fast");
+        registry.add("virtualbox.storage-pools[0].path", fast::toString);
+        registry.add("virtualbox.storage-pools[0].capacity", () -> 10000);
+        registry.add("virtualbox.storage-pools[1].name", () -> "bulk");
+        registry.add("virtualbox.storage-pools[1].path", bulk::toString);
+        registry.add("virtualbox.storage-pools[1].capacity", () -> 20000);
+    }
+    
+    @Test
+    void placesByFreeSpaceAndRejectsWhenFull() {
+        HypervisorNodeRegistry registry = context.getBean(HypervisorNodeRegistry.class);
+        
+        assertThat(registry.place(1L, 512, 1, 8192).getPool().getName()).isEqualTo("bulk"); // 20000 > 10000
+        assertThat(registry.place(2L, 512, 1, 8192).getPool().getName()).isEqualTo("bulk"); // 11808 > 10000
+        assertThat(registry.place(3L, 512, 1, 8192).getPool().getName()).isEqualTo("fast"); // 10000 > 3616
+        assertThatThrownBy(() -> registry.place(4L, 512, 1, 8192))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("저장소 풀");
+    }
+}
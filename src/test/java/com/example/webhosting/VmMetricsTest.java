@@ -0,0 +1,113 @@
+package com.example.webhosting;
+
+import com.example.webhosting.dto.HostMetricRankDto;
+import com.example.webhosting.dto.HostMetricsDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.service.VmMetricsCollector;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * metrics query 출력을 파일에서 돌려주는 VBoxManage 스크립트로 VM 지표 수집, 링 덮어쓰기와 순위 조회를 확인한다.
+ */
+@TestPropertySource(properties = {
+    "vm-metrics.interval=3600000",
+    "vm-metrics.ring-size=3"
+})
+class VmMetricsTest extends HypervisorTestSupport {
+    
+    private static final String FAKE_VBOXMANAGE = """
+        #!/usr/bin/env bash
+        DIR="$(dirname "$0")"
+        echo "$*" >> "$DIR/calls.log"
+        if [ "$1" = "metrics" ] && [ "$2" = "query" ]; then
+            echo "Object          Metric                   Values"
+            echo "--------------- ------------------------ ---------------"
+            cat "$DIR/metrics.txt"
+        fi
+        exit 0
+        """;
+    
+    private static Path vboxDir;
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        vboxDir = fakeVBoxManage(registry, FAKE_VBOXMANAGE);
+    }
+    
+    @Test
+    void samplesAreCollectedInBulkAndRanked() throws Exception {
+        Host quiet = host("metrics-quiet", Host.HostStatus.RUNNING);
+        Host noisy = host("metrics-noisy", Host.HostStatus.RUNNING);
+        Host stopped = host("metrics-stopped", Host.HostStatus.STOPPED);
+        VmMetricsCollector collector = context.getBean(VmMetricsCollector.class);
+        
+        Files.writeString(vboxDir.resolve("metrics.txt"), """
+            vm-metrics-quiet  CPU/Load/User            10.00%
+            vm-metrics-quiet  CPU/Load/Kernel          5.00%
+            vm-metrics-quiet  RAM/Usage/Used           524288 kB
+            vm-metrics-quiet  Guest/Network/Rate/Rx    2048 B/s
+            vm-metrics-noisy  CPU/Load/User            70.00%
+            vm-metrics-noisy  CPU/Load/Kernel          20.00%
+            vm-metrics-noisy  Disk/Usage/Used          2048 MB
+            vm-metrics-stopped CPU/Load/User           99.00%
+            host              CPU/Load/User            3.00%
+            """);
+        collect(collector);
+        
+        HostMetricsDto metrics = collector.getMetrics(quiet.getId(), "1h");
+        assertThat(metrics.getSamples()).hasSize(1);
+        HostMetricsDto.Sample sample = metrics.getSamples().get(0);
+        assertThat(sample.getCpuPercent()).isEqualTo(15.0);
+        assertThat(sample.getRamBytes()).isEqualTo(512L * 1024 * 1024);
+        assertThat(sample.getNetRxBytesPerSec()).isEqualTo(2048);
+        assertThat(sample.getDiskBytes()).isNull();
+        // 실행 중이 아닌 호스트는 수집하지 않는다
+        assertThat(collector.getMetrics(stopped.getId(), "1h").getSamples()).isEmpty();
+        
+        assertThat(collector.top("cpu", "1h", 10)).extracting(HostMetricRankDto::getHostName)
+            .containsSubsequence("metrics-noisy", "metrics-quiet");
+        HostMetricRankDto first = collector.top("cpu", "15m", 1).get(0);
+        assertThat(first.getHostName()).isEqualTo("metrics-noisy");
+        assertThat(first.getUsername()).isEqualTo("owner-metrics-noisy");
+        assertThat(first.getAverage()).isEqualTo(90.0);
+        assertThat(collector.top("net", "1h", 10)).extracting(HostMetricRankDto::getHostName)
+            .containsExactly("metrics-quiet");
+        
+        // 링이 가득 차면 가장 오래된 샘플부터 덮어쓴다
+        for (int i = 0; i < 4; i++) {
+            collect(collector);
+        }
+        assertThat(collector.getMetrics(quiet.getId(), "1h").getSamples()).hasSize(3);
+        // 지표 수집은 VM 목록이 바뀔 때만 다시 켠다
+        assertThat(Files.readAllLines(vboxDir.resolve("calls.log")))
+            .filteredOn(line -> line.startsWith("metrics setup")).hasSize(1);
+        
+        assertThatThrownBy(() -> collector.getMetrics(quiet.getId(), "yesterday"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> collector.top("gpu", "1h", 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    // 샘플은 수집 시각(ms)으로 구분되므로 연속 수집 사이에 시각이 바뀌게 한다
+    private static void collect(VmMetricsCollector collector) throws InterruptedException {
+        collector.collect();
+        Thread.sleep(5);
+    }
+    
+    private Host host(String name, Host.HostStatus status) {
+        Host host = newHost(name, status);
+        host.setVmId("uuid-" + name);
+        host.setVmName("vm-" + name);
+        return save(host);
+    }
+}
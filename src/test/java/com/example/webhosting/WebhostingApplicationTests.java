@@ -3,9 +3,9 @@ package com.example.webhosting;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "proxy.port=0")
 class WebhostingApplicationTests {
-
+ 
 	@Test
 	void contextLoads() {
 	}
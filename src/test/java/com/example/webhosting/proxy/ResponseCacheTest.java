@@ -0,0 +1,192 @@
+package com.example.webhosting.proxy;
+
+import com.example.webhosting.config.ProxyConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 응답 캐시의 유효 시각 계산, 조건부 요청 판단, TinyLFU 입장 정책과 블록 관리.
+ * 캐시는 1KB 블록 4개로 잡아 항목 몇 개로 공간이 차게 한다.
+ */
+class ResponseCacheTest {
+    
+    private static final long NOW = 1_700_000_000_000L;
+    private static final int BLOCK_SIZE = 1024;
+    
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private ResponseCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        ProxyConfig config = new ProxyConfig();
+        config.getCache().setBlockSize(BLOCK_SIZE);
+        config.getCache().setMaxSize(4 * BLOCK_SIZE);
+        config.getCache().setDefaultTtl(10000);
+        cache = new ResponseCache();
+        ReflectionTestUtils.setField(cache, "config", config);
+        ReflectionTestUtils.setField(cache, "registry", registry);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+    
+    @Test
+    void expiresAtFollowsCacheHeaders() throws Exception {
+        assertThat(cache.expiresAt(head("Cache-Control: max-age=60"), NOW)).isEqualTo(NOW + 60_000);
+        assertThat(cache.expiresAt(head("Cache-Control: max-age=60, s-maxage=5"), NOW)).isEqualTo(NOW + 5_000);
+        assertThat(cache.expiresAt(head(
+            "Date: Tue, 14 Nov 2023 22:13:20 GMT", "Expires: Tue, 14 Nov 2023 22:13:50 GMT"), NOW)).isEqualTo(NOW + 30_000);
+        assertThat(cache.expiresAt(head("Expires: 0"), NOW)).isEqualTo(NOW);
+        
+        // 유효 기간 없이 검증자만 있으면 기본 TTL, 검증자도 없으면 저장하지 않는다
+        assertThat(cache.expiresAt(head("ETag: \"v1\""), NOW)).isEqualTo(NOW + 10_000);
+        assertThat(cache.expiresAt(head("Content-Type: text/html"), NOW)).isEqualTo(-1);
+        assertThat(cache.expiresAt(head("Cache-Control: no-cache", "ETag: \"v1\""), NOW)).isEqualTo(NOW);
+        assertThat(cache.expiresAt(head("Cache-Control: no-cache"), NOW)).isEqualTo(-1);
+        
+        assertThat(cache.expiresAt(head("Cache-Control: no-store, max-age=60"), NOW)).isEqualTo(-1);
+        assertThat(cache.expiresAt(head("Cache-Control: private, max-age=60"), NOW)).isEqualTo(-1);
+        assertThat(cache.expiresAt(head("Cache-Control: max-age=60", "Set-Cookie: id=1"), NOW)).isEqualTo(-1);
+        assertThat(cache.expiresAt(head("Cache-Control: max-age=60", "Vary: Cookie"), NOW)).isEqualTo(-1);
+        assertThat(cache.expiresAt(head("Cache-Control: max-age=60", "Vary: Accept-Encoding"), NOW)).isEqualTo(NOW + 60_000);
+    }
+    
+    @Test
+    void conditionalRequestsMatchValidators() throws Exception {
+        ResponseCache.Entry entry = new ResponseCache.Entry("k", "h", 0, new int[0], 0, 0,
+            "W/\"v2\"", "Tue, 14 Nov 2023 22:13:20 GMT", "", NOW);
+        
+        assertThat(ResponseCache.matchesConditional(entry, head("If-None-Match: \"v1\", \"v2\""))).isTrue();
+        assertThat(ResponseCache.matchesConditional(entry, head("If-None-Match: *"))).isTrue();
+        assertThat(ResponseCache.matchesConditional(entry, head("If-None-Match: \"v1\""))).isFalse();
+        assertThat(ResponseCache.matchesConditional(entry, head("If-Modified-Since: Tue, 14 Nov 2023 22:13:20 GMT"))).isTrue();
+        assertThat(ResponseCache.matchesConditional(entry, head("If-Modified-Since: Mon, 13 Nov 2023 22:13:20 GMT"))).isFalse();
+        // If-None-Match 가 있으면 If-Modified-Since 는 보지 않는다
+        assertThat(ResponseCache.matchesConditional(entry, head(
+            "If-None-Match: \"v1\"", "If-Modified-Since: Tue, 14 Nov 2023 22:13:20 GMT"))).isFalse();
+        assertThat(ResponseCache.matchesConditional(entry, head("Accept: */*"))).isFalse();
+    }
+    
+    @Test
+    void rejectedCandidateEvictsNothing() throws Exception {
+        fill();
+        // a 는 한 번도 요청되지 않았고 b 는 세 번 요청됨. 두 블록이 필요한 e 는 a 보다 잦지만 b 보다 드물다
+        lookup("e", 2);
+        
+        assertThat(store("e", 1500)).isNull();
+        assertThat(cache.lookup("a")).isNotNull();
+        assertThat(usedBytes()).isEqualTo(4 * BLOCK_SIZE);
+        assertThat(entryCount()).isEqualTo(4);
+    }
+    
+    @Test
+    void admittedCandidateEvictsLeastRecentlyUsed() throws Exception {
+        fill();
+        lookup("e", 5);
+        
+        ResponseCache.Entry entry = store("e", 1500);
+        assertThat(entry).isNotNull();
+        assertThat(entry.blocks).hasSize(2);
+        assertThat(cache.lookup("a")).isNull();
+        assertThat(cache.lookup("b")).isNull();
+        assertThat(cache.lookup("c")).isNotNull();
+        assertThat(cache.lookup("d")).isNotNull();
+        assertThat(usedBytes()).isEqualTo(4 * BLOCK_SIZE);
+        assertThat(entryCount()).isEqualTo(3);
+        
+        // 저장한 바이트를 그대로 돌려준다
+        String response = join(cache.response(cache.lookup("e"), true, true, NOW));
+        assertThat(response).startsWith("HTTP/1.1 200 OK\r\nCache-Control: max-age=60\r\n");
+        assertThat(response).contains("X-Cache: HIT\r\n\r\n" + "x".repeat(1500));
+    }
+    
+    @Test
+    void pinnedEntriesKeepBlocksUntilReleased() throws Exception {
+        ResponseCache.Entry entry = store("a", 1500);
+        assertThat(usedBytes()).isEqualTo(2 * BLOCK_SIZE);
+        
+        // 전송 중에 무효화되면 색인에서는 빠지지만 블록은 전송이 끝날 때까지 남는다
+        cache.response(entry, true, true, NOW);
+        cache.invalidate("h");
+        cache.maintain();
+        assertThat(cache.lookup("a")).isNull();
+        assertThat(usedBytes()).isEqualTo(2 * BLOCK_SIZE);
+        
+        // 전송 중인 항목은 희생 후보가 아니므로 남은 두 블록을 넘는 항목은 들어오지 않는다
+        lookup("big", 5);
+        assertThat(store("big", 3000)).isNull();
+        
+        cache.release(entry);
+        assertThat(usedBytes()).isZero();
+        assertThat(store("big", 3000)).isNotNull();
+    }
+    
+    @Test
+    void incompleteEntriesAreAborted() throws Exception {
+        ResponseCache.Entry entry = cache.begin("a", "h", head("Cache-Control: max-age=60"), 1500, NOW + 60_000);
+        assertThat(usedBytes()).isEqualTo(2 * BLOCK_SIZE);
+        cache.append(entry, ByteBuffer.wrap(new byte[100]), 0, 100);
+        cache.commit(entry);
+        
+        assertThat(cache.lookup("a")).isNull();
+        assertThat(usedBytes()).isZero();
+        // 최대 크기를 넘는 응답은 블록을 잡지 않는다
+        assertThat(cache.begin("b", "h", head("Cache-Control: max-age=60"), 5 * BLOCK_SIZE, NOW)).isNull();
+    }
+    
+    // 블록 하나짜리 항목 a, b, c, d 로 캐시를 채운다. LRU 순서는 a, b, c, d
+    private void fill() throws Exception {
+        for (String key : new String[] { "a", "b", "c", "d" }) {
+            assertThat(store(key, 900)).isNotNull();
+        }
+        for (String key : new String[] { "b", "c", "d" }) {
+            lookup(key, 3);
+        }
+    }
+    
+    private void lookup(String key, int times) {
+        for (int i = 0; i < times; i++) {
+            cache.lookup(key);
+        }
+    }
+    
+    private ResponseCache.Entry store(String key, int bodyLength) throws Exception {
+        ResponseCache.Entry entry = cache.begin(key, "h", head("Cache-Control: max-age=60"), bodyLength, NOW + 60_000);
+        if (entry != null) {
+            byte[] body = "x".repeat(bodyLength).getBytes(StandardCharsets.ISO_8859_1);
+            cache.append(entry, ByteBuffer.wrap(body), 0, body.length);
+            cache.commit(entry);
+        }
+        return entry;
+    }
+    
+    private double usedBytes() {
+        return registry.get("proxy.cache.size").gauge().value();
+    }
+    
+    private double entryCount() {
+        return registry.get("proxy.cache.entries").gauge().value();
+    }
+    
+    private static HttpHead head(String... headers) throws Exception {
+        byte[] bytes = ("HTTP/1.1 200 OK\r\n" + String.join("\r\n", headers) + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        return HttpHead.parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+    
+    private static String join(ByteBuffer[] buffers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : buffers) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.writeBytes(bytes);
+        }
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.HealthCheckConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 검사 결과에 따른 간격 조정과 RUNNING/DEGRADED 전환. 기본 설정 (간격 30초, 최대 120초, 재확인 5초, 최대 백오프 300초, 임계값 3회).
+ */
+class HealthCheckServiceTest {
+    
+    private static final HealthProber.Result OK = new HealthProber.Result(true, 3, null);
+    private static final HealthProber.Result REFUSED = new HealthProber.Result(false, 1, "Connection refused");
+    
+    private final HostRepository hostRepository = mock(HostRepository.class);
+    private HealthCheckService service;
+    
+    @BeforeEach
+    void setUp() {
+        service = new HealthCheckService();
+        ReflectionTestUtils.setField(service, "config", new HealthCheckConfig());
+        ReflectionTestUtils.setField(service, "hostRepository", hostRepository);
+        ReflectionTestUtils.setField(service, "metrics", mock(HostingMetrics.class));
+        when(hostRepository.updateStatus(any(), any(), any(), any())).thenReturn(1);
+    }
+    
+    @Test
+    void healthyIntervalGrowsUpToMaximum() {
+        HealthCheckService.Target target = target(Host.HostStatus.RUNNING);
+        long[] expected = { 30000, 45000, 67500, 101250, 120000, 120000 };
+        for (long interval : expected) {
+            long before = System.currentTimeMillis();
+            service.record(target, OK, OK);
+            assertThat(target.interval).isEqualTo(interval);
+            // ±10% 흔들림
+            assertThat(target.nextCheckAt).isBetween(before + interval - interval / 10, System.currentTimeMillis() + interval + interval / 10);
+        }
+        assertThat(target.snapshot.getError()).isNull();
+        verify(hostRepository, never()).updateStatus(any(), any(), any(), any());
+    }
+    
+    @Test
+    void consecutiveFailuresDegradeAndBackOff() {
+        HealthCheckService.Target target = target(Host.HostStatus.RUNNING);
+        service.record(target, OK, OK);
+        
+        // 임계값 전까지는 짧은 간격으로 재확인만 한다
+        service.record(target, REFUSED, OK);
+        service.record(target, OK, REFUSED);
+        assertThat(target.interval).isEqualTo(5000);
+        assertThat(target.degraded).isFalse();
+        assertThat(target.snapshot.getError()).isEqualTo("ssh: Connection refused");
+        
+        // 세 번째 실패에서 DEGRADED, 이후 재확인 간격을 두 배씩 최대 백오프까지
+        long[] expected = { 5000, 10000, 20000, 40000, 80000, 160000, 300000, 300000 };
+        for (long interval : expected) {
+            service.record(target, REFUSED, OK);
+            assertThat(target.interval).isEqualTo(interval);
+        }
+        assertThat(target.degraded).isTrue();
+        assertThat(target.failures).isEqualTo(10);
+        assertThat(target.snapshot.getConsecutiveFailures()).isEqualTo(10);
+        assertThat(target.snapshot.getError()).isEqualTo("web: Connection refused");
+        verify(hostRepository, times(1)).updateStatus(eq(1L), eq(Host.HostStatus.RUNNING), eq(Host.HostStatus.DEGRADED), any());
+    }
+    
+    @Test
+    void successRestoresRunningWithBaseInterval() {
+        HealthCheckService.Target target = target(Host.HostStatus.DEGRADED);
+        service.record(target, REFUSED, OK);
+        // 재시작 전에 DEGRADED 였던 호스트도 연속 실패는 새로 센다 (상태는 그대로 둔다)
+        assertThat(target.interval).isEqualTo(5000);
+        assertThat(target.degraded).isTrue();
+        
+        service.record(target, OK, OK);
+        assertThat(target.degraded).isFalse();
+        assertThat(target.failures).isZero();
+        assertThat(target.interval).isEqualTo(30000);
+        verify(hostRepository).updateStatus(eq(1L), eq(Host.HostStatus.DEGRADED), eq(Host.HostStatus.RUNNING), any());
+        
+        service.record(target, OK, OK);
+        assertThat(target.interval).isEqualTo(45000);
+        verify(hostRepository, times(1)).updateStatus(any(), any(), any(), any());
+    }
+    
+    @Test
+    void statusChangedElsewhereIsNotRetried() {
+        // VM 정지 등으로 이미 RUNNING 이 아니면 갱신되지 않지만 다시 시도하지도 않는다
+        when(hostRepository.updateStatus(any(), any(), any(), any())).thenReturn(0);
+        HealthCheckService.Target target = target(Host.HostStatus.RUNNING);
+        for (int i = 0; i < 5; i++) {
+            service.record(target, REFUSED, OK);
+        }
+        assertThat(target.degraded).isTrue();
+        verify(hostRepository, times(1)).updateStatus(any(), any(), any(), any());
+    }
+    
+    private static HealthCheckService.Target target(Host.HostStatus status) {
+        Host host = new Host();
+        host.setId(1L);
+        host.setHostName("probe");
+        host.setPort80(8080);
+        host.setPort22(2222);
+        host.setStatus(status);
+        return new HealthCheckService.Target(host, "127.0.0.1", 0);
+    }
+}
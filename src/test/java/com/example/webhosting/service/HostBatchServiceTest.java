@@ -0,0 +1,74 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.dto.HostCreationDto;
+import com.example.webhosting.dto.HostResponseDto;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.entity.User;
+import com.example.webhosting.repository.HostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 일괄 생성에서 VM 생성을 시작하지 못한 항목이 CREATING 으로 남지 않고 정리되는지 확인한다.
+ */
+class HostBatchServiceTest {
+    
+    private final HostService hostService = mock(HostService.class);
+    private final PortAllocator portAllocator = mock(PortAllocator.class);
+    private HostBatchService batch;
+    
+    @BeforeEach
+    void setUp() {
+        batch = new HostBatchService();
+        ReflectionTestUtils.setField(batch, "hostService", hostService);
+        ReflectionTestUtils.setField(batch, "hostRepository", mock(HostRepository.class));
+        ReflectionTestUtils.setField(batch, "portAllocator", portAllocator);
+        ReflectionTestUtils.setField(batch, "maxSize", 10);
+        ReflectionTestUtils.setField(batch, "parallelism", 2);
+        ReflectionTestUtils.setField(batch, "streamTimeout", 60000L);
+    }
+    
+    @Test
+    void hostWhoseCreateFailsToStartIsAbandoned() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("batch-user");
+        Host broken = host(1L, "broken");
+        Host fine = host(2L, "fine");
+        PortAllocator.Ports brokenPorts = new PortAllocator.Ports(8001, 2201);
+        PortAllocator.Ports finePorts = new PortAllocator.Ports(8002, 2202);
+        when(hostService.insertHosts(anyList(), eq(user))).thenReturn(List.of(broken, fine));
+        when(portAllocator.reserve(List.of(1L, 2L))).thenReturn(Map.of(1L, brokenPorts, 2L, finePorts));
+        when(hostService.startCreate(eq(broken), eq(7L), any())).thenThrow(new IllegalStateException("작업 임대 실패"));
+        HostResponseDto created = mock(HostResponseDto.class);
+        when(created.getStatus()).thenReturn(Host.HostStatus.RUNNING);
+        when(hostService.startCreate(eq(fine), eq(7L), any())).thenReturn(CompletableFuture.completedFuture(created));
+        
+        batch.createHosts(List.of(new HostCreationDto(), new HostCreationDto()), user);
+        
+        verify(portAllocator).release(8001, 2201);
+        verify(hostService).abandonCreate(broken);
+        verify(hostService, never()).abandonCreate(fine);
+    }
+    
+    private static Host host(Long id, String name) {
+        Host host = new Host();
+        host.setId(id);
+        host.setHostName(name);
+        host.setStatus(Host.HostStatus.CREATING);
+        return host;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 진행 중인 생성 게이지가 생성이 끝나는 여러 경로(결과 기록, 중간 삭제, 중단된 작업 정리)에서 한 번씩만 줄어드는지 확인한다.
+ */
+class HostingMetricsTest {
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HostingMetrics metrics;
+    
+    @BeforeEach
+    void setUp() {
+        HostRepository hostRepository = mock(HostRepository.class);
+        when(hostRepository.countGroupByStatus()).thenReturn(List.of());
+        metrics = new HostingMetrics();
+        ReflectionTestUtils.setField(metrics, "registry", registry);
+        ReflectionTestUtils.setField(metrics, "hostRepository", hostRepository);
+        ReflectionTestUtils.setField(metrics, "portAllocator", mock(PortAllocator.class));
+        ReflectionTestUtils.invokeMethod(metrics, "registerGauges");
+    }
+    
+    @Test
+    void inFlightCreatesReturnToZeroOnEveryEndingPath() {
+        metrics.hostCreateStarted(1L);
+        metrics.hostCreateStarted(2L);
+        metrics.hostCreateStarted(3L);
+        assertThat(inFlight()).isEqualTo(3);
+        
+        // 설정 성공 뒤 finally 에서 한 번 더 불러도 두 번 빼지 않는다
+        metrics.hostCreateFinished(1L, Duration.ofSeconds(5), true);
+        metrics.hostCreateAbandoned(1L);
+        assertThat(inFlight()).isEqualTo(2);
+        
+        // 생성 중 삭제, 중단된 생성 정리
+        metrics.hostCreateAbandoned(2L);
+        metrics.hostCreateAbandoned(3L);
+        assertThat(inFlight()).isZero();
+        assertThat(registry.get("host.create").timer().count()).isEqualTo(1);
+    }
+    
+    private double inFlight() {
+        return registry.get("hosts.create.inflight").gauge().value();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.config.ProxyConfig;
+import com.example.webhosting.config.VirtualBoxConfig;
+import com.example.webhosting.entity.Host;
+import com.example.webhosting.repository.HostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 노드 배치 점수: 배치 전략 (bin-pack, least-loaded), 같은 사용자 호스트 분산, 배치할 수 없는 노드 건너뛰기.
+ * 노드 hv1, hv2 는 메모리 8GB / CPU 4개, hv3 는 배치 중지. VM 하나는 2GB / vCPU 1개 / 디스크 8GB.
+ */
+class HypervisorNodeRegistryTest {
+    
+    private final VirtualBoxConfig config = new VirtualBoxConfig();
+    private final HypervisorCircuitBreaker breaker = mock(HypervisorCircuitBreaker.class);
+    private HypervisorNodeRegistry nodes;
+    
+    @BeforeEach
+    void setUp() {
+        config.setNodes(List.of(node("hv1", true), node("hv2", true), node("hv3", false)));
+    }
+    
+    @Test
+    void binPackFillsFullestNodeFirst() {
+        config.getPlacement().setAntiAffinity(false);
+        start();
+        
+        for (long user = 1; user <= 4; user++) {
+            assertThat(place(user)).isEqualTo("hv1");
+        }
+        // hv1 메모리가 다 찼으므로 다음부터 hv2
+        assertThat(place(5L)).isEqualTo("hv2");
+        assertThat(place(6L)).isEqualTo("hv2");
+    }
+    
+    @Test
+    void leastLoadedSpreadsAcrossNodes() {
+        config.getPlacement().setAntiAffinity(false);
+        config.getPlacement().setStrategy(VirtualBoxConfig.Placement.Strategy.LEAST_LOADED);
+        start();
+        
+        assertThat(List.of(place(1L), place(2L), place(3L), place(4L))).containsExactly("hv1", "hv2", "hv1", "hv2");
+        
+        // 반환된 자원은 다시 배치 점수에 반영된다
+        Host host = new Host();
+        host.setNodeName("hv2");
+        host.setMemory(2048);
+        host.setCpus(1);
+        host.setDiskSize(8192);
+        host.setStatus(Host.HostStatus.RUNNING);
+        nodes.release(host, 2L);
+        assertThat(place(5L)).isEqualTo("hv2");
+    }
+    
+    @Test
+    void antiAffinityOutranksStrategy() {
+        start();
+        
+        // bin-pack 이라도 같은 사용자의 호스트가 적은 노드가 먼저
+        assertThat(place(1L)).isEqualTo("hv1");
+        assertThat(place(1L)).isEqualTo("hv2");
+        // 두 노드에 하나씩 있으면 다시 전략대로 (동점이면 설정 순서)
+        assertThat(place(1L)).isEqualTo("hv1");
+        // 다른 사용자는 bin-pack 으로 더 찬 hv1
+        assertThat(place(2L)).isEqualTo("hv1");
+    }
+    
+    @Test
+    void skipsNodesThatCannotTakeTheHost() {
+        config.getPlacement().setAntiAffinity(false);
+        start();
+        when(breaker.isOpen("hv1")).thenReturn(true);
+        assertThat(place(1L)).isEqualTo("hv2");
+        
+        when(breaker.isOpen("hv2")).thenReturn(true);
+        assertThatThrownBy(() -> place(1L)).isInstanceOf(HypervisorUnavailableException.class);
+        
+        when(breaker.isOpen("hv1")).thenReturn(false);
+        when(breaker.isOpen("hv2")).thenReturn(false);
+        assertThatThrownBy(() -> nodes.place(1L, 16384, 1, 8192))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("하이퍼바이저 노드가 없습니다");
+    }
+    
+    @Test
+    void skipsNodesWithoutStorage() {
+        config.getPlacement().setAntiAffinity(false);
+        VirtualBoxConfig.StoragePool pool = new VirtualBoxConfig.StoragePool();
+        pool.setName("ssd");
+        pool.setPath("/tmp");
+        pool.setCapacity(10000);
+        config.setStoragePools(List.of(pool));
+        start();
+        
+        assertThat(place(1L)).isEqualTo("hv1");
+        // hv1 의 풀에 8GB 가 더 들어가지 않는다
+        assertThat(place(2L)).isEqualTo("hv2");
+        assertThatThrownBy(() -> place(3L))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("저장소 풀");
+    }
+    
+    private void start() {
+        HostRepository hostRepository = mock(HostRepository.class);
+        when(hostRepository.findPlacements()).thenReturn(List.of());
+        nodes = new HypervisorNodeRegistry();
+        ReflectionTestUtils.setField(nodes, "config", config);
+        ReflectionTestUtils.setField(nodes, "proxyConfig", new ProxyConfig());
+        ReflectionTestUtils.setField(nodes, "hostRepository", hostRepository);
+        ReflectionTestUtils.setField(nodes, "registry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(nodes, "breaker", breaker);
+        ReflectionTestUtils.invokeMethod(nodes, "init");
+    }
+    
+    private String place(Long userId) {
+        return nodes.place(userId, 2048, 1, 8192).getNode().getName();
+    }
+    
+    private static VirtualBoxConfig.Node node(String name, boolean enabled) {
+        VirtualBoxConfig.Node node = new VirtualBoxConfig.Node();
+        node.setName(name);
+        node.setMemory(8192);
+        node.setCpus(4);
+        node.setEnabled(enabled);
+        return node;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.webhosting.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 포트 풀의 순환 할당, 반환, 일괄 할당. DB 임대는 PortAllocator 가 따로 다루므로 메모리 풀만 본다.
+ */
+class PortAllocatorTest {
+    
+    @Test
+    void allocatesInOrderAndWrapsAroundToReleasedPorts() {
+        PortAllocator.PortPool pool = new PortAllocator.PortPool("web", 8000, 8003);
+        assertThat(pool.allocate()).isEqualTo(8000);
+        assertThat(pool.allocate()).isEqualTo(8001);
+        
+        // 방금 반환된 포트는 바로 다시 주지 않고 범위 끝까지 간 뒤에 돌아온다
+        pool.release(8000);
+        assertThat(pool.allocate()).isEqualTo(8002);
+        assertThat(pool.allocate()).isEqualTo(8003);
+        assertThat(pool.allocate()).isEqualTo(8000);
+        assertThat(pool.inUse()).isEqualTo(4);
+        assertThat(pool.utilization()).isEqualTo(1.0);
+        
+        assertThatThrownBy(pool::allocate)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("8000-8003");
+    }
+    
+    @Test
+    void releaseIgnoresFreeAndOutOfRangePorts() {
+        PortAllocator.PortPool pool = new PortAllocator.PortPool("ssh", 2200, 2209);
+        int port = pool.allocate();
+        pool.release(port);
+        pool.release(port);
+        pool.release(9999);
+        assertThat(pool.inUse()).isZero();
+        
+        pool.reserve(2205);
+        pool.reserve(2205);
+        assertThat(pool.inUse()).isEqualTo(1);
+    }
+    
+    @Test
+    void batchAllocationPrefersContiguousRun() {
+        PortAllocator.PortPool pool = new PortAllocator.PortPool("web", 8000, 8009);
+        pool.replace(List.of(8002, 8005));
+        
+        // 순환 위치(처음)부터 이어진 빈 구간 3개는 8006-8008 이 처음
+        assertThat(pool.allocate(3)).containsExactly(8006, 8007, 8008);
+        // 이어진 구간이 없으면 흩어진 포트로 채운다: 순환 위치 8009 에서 시작해 처음으로 돌아간다
+        assertThat(pool.allocate(4)).containsExactly(8009, 8000, 8001, 8003);
+        assertThat(pool.inUse()).isEqualTo(9);
+    }
+    
+    @Test
+    void batchAllocationTakesNothingWhenShort() {
+        PortAllocator.PortPool pool = new PortAllocator.PortPool("web", 8000, 8004);
+        pool.allocate(3);
+        assertThatThrownBy(() -> pool.allocate(3))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("필요 3, 남음 2");
+        assertThat(pool.inUse()).isEqualTo(3);
+        
+        pool.releaseAll(new int[] { 8000, 8001, 8002 });
+        assertThat(pool.inUse()).isZero();
+    }
+    
+    @Test
+    void replaceKeepsCursor() {
+        PortAllocator.PortPool pool = new PortAllocator.PortPool("web", 8000, 8004);
+        pool.allocate();
+        pool.allocate();
+        pool.replace(List.of(8004, 9000));
+        assertThat(pool.inUse()).isEqualTo(1);
+        assertThat(pool.allocate()).isEqualTo(8002);
+    }
+    
+    @Test
+    void rejectsInvertedRange() {
+        assertThatThrownBy(() -> new PortAllocator.PortPool("web", 8010, 8000))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.webhosting.service;
+
+import com.example.webhosting.entity.HostTrafficUsage;
+import com.example.webhosting.repository.HostTrafficUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 분 단위 버킷 링과 DB 저장. 저장소와 트랜잭션 관리자는 목으로 두고 커밋 성공/실패를 흉내 낸다.
+ */
+class TrafficAccountingServiceTest {
+    
+    private final HostTrafficUsageRepository repository = mock(HostTrafficUsageRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private TrafficAccountingService service;
+    
+    @BeforeEach
+    void setUp() {
+        service = new TrafficAccountingService();
+        ReflectionTestUtils.setField(service, "ringMinutes", 3);
+        ReflectionTestUtils.setField(service, "retentionDays", 90);
+        ReflectionTestUtils.setField(service, "usageRepository", repository);
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(transactionManager));
+    }
+    
+    @Test
+    void rollClosesMinuteIntoRing() {
+        TrafficAccountingService.HostTraffic traffic = service.meter(1L);
+        traffic.roll(100);
+        assertThat(unflushed(traffic)).isEmpty(); // 트래픽 없는 분은 버킷을 만들지 않는다
+        
+        traffic.requests.add(3);
+        traffic.bytesIn.add(10);
+        traffic.bytesOut.add(200);
+        traffic.roll(101);
+        assertThat(unflushed(traffic)).containsExactly(new long[] { 101, 3, 10, 200 });
+        assertThat(traffic.requests.sum()).isZero();
+        assertThat(traffic.lastActiveMinute()).isEqualTo(101);
+    }
+    
+    @Test
+    void fullRingDropsOldestUnflushedBucket() {
+        TrafficAccountingService.HostTraffic traffic = service.meter(1L);
+        for (long minute = 1; minute <= 4; minute++) {
+            traffic.requests.add(minute);
+            traffic.roll(minute);
+        }
+        assertThat(unflushed(traffic)).extracting(bucket -> bucket[0]).containsExactly(2L, 3L, 4L);
+        
+        // 저장한 만큼 오래된 쪽부터 비우고, 그 사이 닫힌 버킷은 남긴다
+        traffic.markFlushed(2);
+        traffic.requests.add(5);
+        traffic.roll(5);
+        assertThat(unflushed(traffic)).extracting(bucket -> bucket[0]).containsExactly(4L, 5L);
+    }
+    
+    @Test
+    void flushSavesUnflushedBucketsOnce() {
+        TrafficAccountingService.HostTraffic traffic = service.meter(7L);
+        traffic.requests.add(2);
+        traffic.roll(10);
+        traffic.requests.add(1);
+        traffic.roll(11);
+        
+        service.flush();
+        List<HostTrafficUsage> saved = saved(1);
+        assertThat(saved).extracting(HostTrafficUsage::getHostId).containsOnly(7L);
+        assertThat(saved).extracting(HostTrafficUsage::getRequests).containsExactly(2L, 1L);
+        assertThat(unflushed(traffic)).isEmpty();
+        
+        clearInvocations(repository);
+        service.flush();
+        verify(repository, never()).saveAll(any());
+    }
+    
+    @Test
+    void failedCommitKeepsBucketsForNextFlush() {
+        TrafficAccountingService.HostTraffic traffic = service.meter(7L);
+        traffic.requests.add(2);
+        traffic.roll(10);
+        
+        doThrow(new TransactionSystemException("커밋 실패")).when(transactionManager).commit(any());
+        assertThatThrownBy(service::flush).isInstanceOf(TransactionSystemException.class);
+        assertThat(unflushed(traffic)).hasSize(1);
+        
+        doNothing().when(transactionManager).commit(any());
+        clearInvocations(repository);
+        service.flush();
+        assertThat(saved(1)).extracting(HostTrafficUsage::getRequests).containsExactly(2L);
+        assertThat(unflushed(traffic)).isEmpty();
+    }
+    
+    @Test
+    void forgottenHostIsDroppedAfterLastFlush() {
+        TrafficAccountingService.HostTraffic traffic = service.meter(7L);
+        traffic.requests.add(1);
+        traffic.roll(10);
+        service.forget(7L);
+        
+        service.flush();
+        saved(1);
+        assertThat(service.meter(7L)).isNotSameAs(traffic);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<HostTrafficUsage> saved(int calls) {
+        ArgumentCaptor<Iterable<HostTrafficUsage>> rows = ArgumentCaptor.forClass(Iterable.class);
+        verify(repository, times(calls)).saveAll(rows.capture());
+        List<HostTrafficUsage> list = new ArrayList<>();
+        rows.getValue().forEach(list::add);
+        return list;
+    }
+    
+    private static List<long[]> unflushed(TrafficAccountingService.HostTraffic traffic) {
+        List<long[]> buckets = new ArrayList<>();
+        traffic.forEachUnflushed(Long.MIN_VALUE, (minute, requests, bytesIn, bytesOut) ->
+            buckets.add(new long[] { minute, requests, bytesIn, bytesOut }));
+        return buckets;
+    }
+}